@@ -45,7 +45,7 @@ public class H2EmbeddedDataSource
     public H2EmbeddedDataSource(H2EmbeddedDataSourceConfig config)
             throws Exception
     {
-        super(config.getMaxConnections(), config.getMaxConnectionWait());
+        super(config);
 
         requireNonNull(config.getFilename());
         if (config.getFilename().isEmpty()) {
@@ -20,6 +20,7 @@ import io.airlift.units.Duration;
 import org.weakref.jmx.Flatten;
 import org.weakref.jmx.Managed;
 
+import javax.annotation.PreDestroy;
 import javax.sql.ConnectionEvent;
 import javax.sql.ConnectionEventListener;
 import javax.sql.DataSource;
@@ -29,13 +30,22 @@ import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
 import static io.airlift.units.Duration.nanosSince;
 import static java.lang.Math.ceil;
+import static java.lang.Math.max;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public abstract class ManagedDataSource
         implements DataSource
@@ -44,7 +54,30 @@ public abstract class ManagedDataSource
     private final AtomicInteger maxConnectionWaitMillis = new AtomicInteger(100);
     private final ManagedDataSourceStats stats = new ManagedDataSourceStats();
 
+    private final int minIdleConnections;
+    private final int maxIdleConnections;
+    private final long idleValidationIntervalMillis;
+    private final BlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService poolExecutor;
+    private final AtomicBoolean maintenanceStarted = new AtomicBoolean();
+    private final AtomicBoolean fillScheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    protected ManagedDataSource(ManagedDataSourceConfig<?> config)
+    {
+        this(config.getMaxConnections(),
+                config.getMaxConnectionWait(),
+                config.getMinIdleConnections(),
+                config.getMaxIdleConnections(),
+                config.getIdleConnectionValidationInterval());
+    }
+
     protected ManagedDataSource(int maxConnections, Duration maxConnectionWait)
+    {
+        this(maxConnections, maxConnectionWait, 0, 0, new Duration(30, SECONDS));
+    }
+
+    protected ManagedDataSource(int maxConnections, Duration maxConnectionWait, int minIdleConnections, int maxIdleConnections, Duration idleValidationInterval)
     {
         if (maxConnections < 1) {
             throw new IllegalArgumentException("maxConnections must be at least 1: maxConnections=" + maxConnections);
@@ -52,14 +85,66 @@ public abstract class ManagedDataSource
         if (maxConnectionWait == null) {
             throw new NullPointerException("maxConnectionWait is null");
         }
+        if (minIdleConnections < 0) {
+            throw new IllegalArgumentException("minIdleConnections is negative: minIdleConnections=" + minIdleConnections);
+        }
+        if (maxIdleConnections < minIdleConnections) {
+            throw new IllegalArgumentException("maxIdleConnections must be at least minIdleConnections: maxIdleConnections=" + maxIdleConnections + ", minIdleConnections=" + minIdleConnections);
+        }
+        if (idleValidationInterval == null) {
+            throw new NullPointerException("idleValidationInterval is null");
+        }
+        if (idleValidationInterval.toMillis() < 1) {
+            throw new IllegalArgumentException("idleValidationInterval must be at least 1 millisecond");
+        }
         semaphore = new ManagedSemaphore(maxConnections);
         maxConnectionWaitMillis.set(Ints.checkedCast(maxConnectionWait.toMillis()));
+
+        this.minIdleConnections = minIdleConnections;
+        this.maxIdleConnections = maxIdleConnections;
+        this.idleValidationIntervalMillis = idleValidationInterval.toMillis();
+
+        // connections are only opened, validated and closed in the background when pooling is enabled
+        if (maxIdleConnections > 0) {
+            poolExecutor = newSingleThreadScheduledExecutor(daemonThreadsNamed("managed-data-source-" + getClass().getSimpleName() + "-%s"));
+        }
+        else {
+            poolExecutor = null;
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops the background pool maintenance.
+     * Connections that are currently checked out are closed when returned.
+     */
+    @PreDestroy
+    public void close()
+    {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (poolExecutor != null) {
+            poolExecutor.shutdownNow();
+        }
+
+        for (PooledConnection pooledConnection = idleConnections.poll(); pooledConnection != null; pooledConnection = idleConnections.poll()) {
+            closeQuietly(pooledConnection);
+        }
     }
 
     @Override
     public Connection getConnection()
             throws SQLException
     {
+        if (closed.get()) {
+            throw new SQLException(getClass().getSimpleName() + " has been closed");
+        }
+
+        // the background tasks call createConnectionInternal, so they can not
+        // be started until the subclass has been fully constructed
+        startPoolMaintenance();
+
         long start = System.nanoTime();
         try {
             acquirePermit();
@@ -84,9 +169,25 @@ public abstract class ManagedDataSource
     protected Connection createConnection()
             throws SQLException
     {
+        // reuse the most recently returned connection first
+        for (PooledConnection pooledConnection = idleConnections.pollFirst(); pooledConnection != null; pooledConnection = idleConnections.pollFirst()) {
+            try {
+                Connection connection = prepareConnection(pooledConnection);
+                stats.idleConnectionHit();
+                return connection;
+            }
+            catch (SQLException e) {
+                stats.validationErrorOccurred();
+                closeConnection(pooledConnection);
+            }
+        }
+        stats.idleConnectionMiss();
+
+        // replenish the idle pool in the background, so the next caller does not pay for the connect
+        scheduleFillIdleConnections();
+
         boolean success = false;
         try {
-            // todo do not create on caller's thread
             long start = System.nanoTime();
             PooledConnection pooledConnection = createConnectionInternal();
             Connection connection = prepareConnection(pooledConnection);
@@ -116,17 +217,25 @@ public abstract class ManagedDataSource
 
     protected void connectionReturned(PooledConnection pooledConnection, long checkoutTime)
     {
-        try {
-            // todo do not close on caller's thread
-            pooledConnection.close();
-        }
-        catch (SQLException ignored) {
-            // hey we tried
+        // the permit for this connection has already been released, so the active count does not include it
+        if (!closed.get() &&
+                idleConnections.size() < maxIdleConnections &&
+                getConnectionsActive() + idleConnections.size() < getMaxConnections()) {
+            idleConnections.addFirst(pooledConnection);
+
+            // close may have drained the pool while this connection was being added
+            if (closed.get() && idleConnections.remove(pooledConnection)) {
+                closeQuietly(pooledConnection);
+            }
+            return;
         }
+
+        closeConnection(pooledConnection);
     }
 
     protected void connectionDestroyed(PooledConnection pooledConnection, long checkoutTime)
     {
+        closeConnection(pooledConnection);
     }
 
     @Managed
@@ -156,6 +265,24 @@ public abstract class ManagedDataSource
         return semaphore.getActivePermits();
     }
 
+    @Managed
+    public int getConnectionsIdle()
+    {
+        return idleConnections.size();
+    }
+
+    @Managed
+    public int getMinIdleConnections()
+    {
+        return minIdleConnections;
+    }
+
+    @Managed
+    public int getMaxIdleConnections()
+    {
+        return maxIdleConnections;
+    }
+
     @Managed
     public int getMaxConnections()
     {
@@ -248,6 +375,132 @@ public abstract class ManagedDataSource
         throw new UnsupportedOperationException();
     }
 
+    private void startPoolMaintenance()
+    {
+        if (poolExecutor == null || !maintenanceStarted.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            poolExecutor.scheduleWithFixedDelay(this::maintainIdleConnections, 0, idleValidationIntervalMillis, MILLISECONDS);
+        }
+        catch (RejectedExecutionException ignored) {
+            // data source was closed
+        }
+    }
+
+    private void maintainIdleConnections()
+    {
+        try {
+            validateIdleConnections();
+            fillIdleConnections();
+        }
+        catch (RuntimeException ignored) {
+            // failures are recorded in the stats, and an exception would cancel the periodic task
+        }
+    }
+
+    private void validateIdleConnections()
+    {
+        // validate each connection that is currently idle once, starting with the oldest
+        int count = idleConnections.size();
+        for (int i = 0; i < count && !closed.get(); i++) {
+            PooledConnection pooledConnection = idleConnections.pollLast();
+            if (pooledConnection == null) {
+                return;
+            }
+
+            if (!isValid(pooledConnection)) {
+                stats.validationErrorOccurred();
+                closeQuietly(pooledConnection);
+            }
+            else if (closed.get() || idleConnections.size() >= maxIdleConnections) {
+                closeQuietly(pooledConnection);
+            }
+            else {
+                // the deque rotates so the relative age of the connections is preserved
+                idleConnections.addFirst(pooledConnection);
+            }
+        }
+    }
+
+    private boolean isValid(PooledConnection pooledConnection)
+    {
+        int timeoutSeconds = max(1, (int) ceil(getMaxConnectionWaitMillis() / 1000.0));
+        try {
+            // closing the logical connection does not close the physical connection
+            Connection connection = pooledConnection.getConnection();
+            try {
+                return connection.isValid(timeoutSeconds);
+            }
+            finally {
+                connection.close();
+            }
+        }
+        catch (SQLException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void scheduleFillIdleConnections()
+    {
+        if (poolExecutor == null || !fillScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            poolExecutor.execute(() -> {
+                fillScheduled.set(false);
+                fillIdleConnections();
+            });
+        }
+        catch (RejectedExecutionException ignored) {
+            fillScheduled.set(false);
+        }
+    }
+
+    private void fillIdleConnections()
+    {
+        while (!closed.get() &&
+                idleConnections.size() < minIdleConnections &&
+                getConnectionsActive() + idleConnections.size() < getMaxConnections()) {
+            long start = System.nanoTime();
+            PooledConnection pooledConnection;
+            try {
+                pooledConnection = createConnectionInternal();
+            }
+            catch (SQLException | RuntimeException e) {
+                // try again on the next maintenance run
+                stats.creationErrorOccurred();
+                return;
+            }
+            stats.connectionCreated(nanosSince(start));
+            idleConnections.addLast(pooledConnection);
+        }
+    }
+
+    private void closeConnection(PooledConnection pooledConnection)
+    {
+        if (poolExecutor != null && !closed.get()) {
+            try {
+                poolExecutor.execute(() -> closeQuietly(pooledConnection));
+                return;
+            }
+            catch (RejectedExecutionException ignored) {
+                // data source was closed, close on this thread instead
+            }
+        }
+        closeQuietly(pooledConnection);
+    }
+
+    private static void closeQuietly(PooledConnection pooledConnection)
+    {
+        try {
+            pooledConnection.close();
+        }
+        catch (SQLException | RuntimeException ignored) {
+            // hey we tried
+        }
+    }
+
     private void acquirePermit()
             throws SQLException
     {
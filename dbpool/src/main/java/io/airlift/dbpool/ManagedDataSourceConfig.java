@@ -29,7 +29,8 @@ import java.util.concurrent.TimeUnit;
  * {@code
  *     ManagedDataSourceConfig config = new ManagedDataSourceConfig()
  *             .setMaxConnections(20)
- *             .setMaxConnectionWait(new Duration(20, TimeUnit.MILLISECONDS));
+ *             .setMaxConnectionWait(new Duration(20, TimeUnit.MILLISECONDS))
+ *             .setMaxIdleConnections(10);
  * }
  * </pre>
  *
@@ -45,6 +46,9 @@ public class ManagedDataSourceConfig<T extends ManagedDataSourceConfig<T>>
 {
     private int maxConnections = 10;
     private Duration maxConnectionWait = new Duration(500, TimeUnit.MILLISECONDS);
+    private int minIdleConnections;
+    private int maxIdleConnections;
+    private Duration idleConnectionValidationInterval = new Duration(30, TimeUnit.SECONDS);
 
     /**
      * Gets the maximum number of concurrent connections allowed by the data
@@ -94,6 +98,66 @@ public class ManagedDataSourceConfig<T extends ManagedDataSourceConfig<T>>
         return self();
     }
 
+    /**
+     * Gets the number of idle connections the data source tries to keep open
+     * in the background, so callers do not pay for connecting to the database.
+     */
+    public int getMinIdleConnections()
+    {
+        return minIdleConnections;
+    }
+
+    /**
+     * Sets the number of idle connections the data source tries to keep open
+     * in the background, so callers do not pay for connecting to the database.
+     */
+    @Config("db.connections.idle.min")
+    public T setMinIdleConnections(int minIdleConnections)
+    {
+        this.minIdleConnections = minIdleConnections;
+        return self();
+    }
+
+    /**
+     * Gets the maximum number of returned connections that are kept open for
+     * reuse.  When zero, connections are closed as soon as they are returned.
+     */
+    public int getMaxIdleConnections()
+    {
+        return maxIdleConnections;
+    }
+
+    /**
+     * Sets the maximum number of returned connections that are kept open for
+     * reuse.  When zero, connections are closed as soon as they are returned.
+     */
+    @Config("db.connections.idle.max")
+    public T setMaxIdleConnections(int maxIdleConnections)
+    {
+        this.maxIdleConnections = maxIdleConnections;
+        return self();
+    }
+
+    /**
+     * Gets the interval at which idle connections are validated in the
+     * background.  Invalid connections are closed and replaced.
+     */
+    public Duration getIdleConnectionValidationInterval()
+    {
+        return idleConnectionValidationInterval;
+    }
+
+    /**
+     * Sets the interval at which idle connections are validated in the
+     * background.  Invalid connections are closed and replaced.
+     */
+    @Config("db.connections.idle.validation-interval")
+    public T setIdleConnectionValidationInterval(Duration idleConnectionValidationInterval)
+    {
+        this.idleConnectionValidationInterval = idleConnectionValidationInterval;
+        return self();
+    }
+
     @SuppressWarnings("unchecked")
     private T self()
     {
@@ -29,6 +29,9 @@ public final class ManagedDataSourceStats
     private final TimeStat held = new TimeStat();
     private final AtomicLong connectionErrorCount = new AtomicLong();
     private final AtomicLong creationErrorCount = new AtomicLong();
+    private final AtomicLong validationErrorCount = new AtomicLong();
+    private final AtomicLong idleConnectionHitCount = new AtomicLong();
+    private final AtomicLong idleConnectionMissCount = new AtomicLong();
 
     @Managed
     @Nested
@@ -63,6 +66,35 @@ public final class ManagedDataSourceStats
         return creationErrorCount.get();
     }
 
+    @Managed
+    public long getValidationErrorCount()
+    {
+        return validationErrorCount.get();
+    }
+
+    @Managed
+    public long getIdleConnectionHitCount()
+    {
+        return idleConnectionHitCount.get();
+    }
+
+    @Managed
+    public long getIdleConnectionMissCount()
+    {
+        return idleConnectionMissCount.get();
+    }
+
+    @Managed
+    public double getIdleConnectionHitRate()
+    {
+        long hits = idleConnectionHitCount.get();
+        long total = hits + idleConnectionMissCount.get();
+        if (total == 0) {
+            return Double.NaN;
+        }
+        return (double) hits / total;
+    }
+
     void connectionCheckedOut(Duration elapsedTime)
     {
         checkout.add(elapsedTime);
@@ -87,4 +119,19 @@ public final class ManagedDataSourceStats
     {
         connectionErrorCount.incrementAndGet();
     }
+
+    void validationErrorOccurred()
+    {
+        validationErrorCount.incrementAndGet();
+    }
+
+    void idleConnectionHit()
+    {
+        idleConnectionHitCount.incrementAndGet();
+    }
+
+    void idleConnectionMiss()
+    {
+        idleConnectionMissCount.incrementAndGet();
+    }
 }
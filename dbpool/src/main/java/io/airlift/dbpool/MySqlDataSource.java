@@ -34,7 +34,7 @@ public class MySqlDataSource
 
     public MySqlDataSource(ServiceSelector serviceSelector, MySqlDataSourceConfig config)
     {
-        super(config.getMaxConnections(), config.getMaxConnectionWait());
+        super(config);
 
         this.serviceSelector = serviceSelector;
         this.defaultFetchSize = config.getDefaultFetchSize();
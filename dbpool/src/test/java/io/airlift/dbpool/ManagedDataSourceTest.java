@@ -39,6 +39,7 @@ import static io.airlift.testing.Assertions.assertGreaterThan;
 import static io.airlift.testing.Assertions.assertInstanceOf;
 import static io.airlift.units.Duration.nanosSince;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -490,4 +491,89 @@ public class ManagedDataSourceTest
         catch (UnsupportedOperationException expected) {
         }
     }
+
+    @Test
+    public void testIdleConnectionReuse()
+            throws Exception
+    {
+        MockConnectionPoolDataSource mockConnectionPoolDataSource = new MockConnectionPoolDataSource();
+        ManagedDataSource dataSource = new MockManagedDataSource(mockConnectionPoolDataSource, 2, new Duration(10, MILLISECONDS), 0, 1, new Duration(1, MINUTES));
+        try {
+            Connection first = dataSource.getConnection();
+            Connection second = dataSource.getConnection();
+            assertEquals(mockConnectionPoolDataSource.createdCount.get(), 2);
+            assertEquals(dataSource.getStats().getIdleConnectionMissCount(), 2);
+
+            // only one connection fits in the idle pool
+            first.close();
+            second.close();
+            assertEquals(dataSource.getConnectionsActive(), 0);
+            assertEquals(dataSource.getConnectionsIdle(), 1);
+
+            // the idle connection is reused
+            dataSource.getConnection().close();
+            assertEquals(mockConnectionPoolDataSource.createdCount.get(), 2);
+            assertEquals(dataSource.getStats().getIdleConnectionHitCount(), 1);
+            assertEquals(dataSource.getStats().getCreate().getAllTime().getCount(), 2.0);
+            assertEquals(dataSource.getConnectionsIdle(), 1);
+        }
+        finally {
+            dataSource.close();
+        }
+        assertEquals(dataSource.getConnectionsIdle(), 0);
+
+        try {
+            dataSource.getConnection();
+            fail("Expected SQLException");
+        }
+        catch (SQLException expected) {
+        }
+    }
+
+    @Test
+    public void testMinIdleConnections()
+            throws Exception
+    {
+        MockConnectionPoolDataSource mockConnectionPoolDataSource = new MockConnectionPoolDataSource();
+        ManagedDataSource dataSource = new MockManagedDataSource(mockConnectionPoolDataSource, 5, new Duration(10, MILLISECONDS), 3, 3, new Duration(10, MILLISECONDS));
+        try {
+            // the first checkout starts the background pool maintenance
+            dataSource.getConnection().close();
+
+            long start = System.nanoTime();
+            while (dataSource.getConnectionsIdle() < 3) {
+                assertTrue(nanosSince(start).getValue(SECONDS) < 10, "idle pool was not filled");
+                MILLISECONDS.sleep(10);
+            }
+            assertEquals(dataSource.getConnectionsIdle(), 3);
+        }
+        finally {
+            dataSource.close();
+        }
+    }
+
+    @Test
+    public void testInvalidIdleConnectionsAreReplaced()
+            throws Exception
+    {
+        MockConnectionPoolDataSource mockConnectionPoolDataSource = new MockConnectionPoolDataSource();
+        ManagedDataSource dataSource = new MockManagedDataSource(mockConnectionPoolDataSource, 5, new Duration(10, MILLISECONDS), 0, 5, new Duration(10, MILLISECONDS));
+        try {
+            MockConnection connection = (MockConnection) dataSource.getConnection();
+            connection.close();
+
+            // break the physical connection while it is idle
+            connection.getPooledConnection().close();
+
+            long start = System.nanoTime();
+            while (dataSource.getStats().getValidationErrorCount() == 0) {
+                assertTrue(nanosSince(start).getValue(SECONDS) < 10, "idle connection was not validated");
+                MILLISECONDS.sleep(10);
+            }
+            assertEquals(dataSource.getConnectionsIdle(), 0);
+        }
+        finally {
+            dataSource.close();
+        }
+    }
 }
@@ -43,11 +43,13 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 public class MockConnectionPoolDataSource
         implements ConnectionPoolDataSource
 {
+    final AtomicInteger createdCount = new AtomicInteger();
     long creationSleep;
     SQLException createException;
     SQLException closeException;
@@ -69,6 +71,7 @@ public class MockConnectionPoolDataSource
                 throw new RuntimeException("Sleep interrupted", e);
             }
         }
+        createdCount.incrementAndGet();
         return new MockPooledConnection(this);
     }
 
@@ -118,7 +121,7 @@ public class MockConnectionPoolDataSource
             implements PooledConnection
     {
         private final MockConnectionPoolDataSource dataSource;
-        private boolean closed;
+        private volatile boolean closed;
         private List<ConnectionEventListener> connectionEventListeners = new CopyOnWriteArrayList<>();
 
         public MockPooledConnection(MockConnectionPoolDataSource dataSource)
@@ -146,6 +149,11 @@ public class MockConnectionPoolDataSource
             }
         }
 
+        public boolean isClosed()
+        {
+            return closed;
+        }
+
         public void closeOccurred()
         {
             for (ConnectionEventListener connectionEventListener : connectionEventListeners) {
@@ -197,6 +205,11 @@ public class MockConnectionPoolDataSource
             this.mockPooledConnection = mockPooledConnection;
         }
 
+        public MockPooledConnection getPooledConnection()
+        {
+            return mockPooledConnection;
+        }
+
         @Override
         public void close()
                 throws SQLException
@@ -530,7 +543,7 @@ public class MockConnectionPoolDataSource
         public boolean isValid(int timeout)
                 throws SQLException
         {
-            throw new UnsupportedOperationException();
+            return !mockPooledConnection.isClosed();
         }
 
         @Override
@@ -37,6 +37,12 @@ public class MockManagedDataSource
         this.poolDataSource = poolDataSource;
     }
 
+    public MockManagedDataSource(MockConnectionPoolDataSource poolDataSource, int maxConnections, Duration maxConnectionWait, int minIdleConnections, int maxIdleConnections, Duration idleValidationInterval)
+    {
+        super(maxConnections, maxConnectionWait, minIdleConnections, maxIdleConnections, idleValidationInterval);
+        this.poolDataSource = poolDataSource;
+    }
+
     @Override
     protected PooledConnection createConnectionInternal()
             throws SQLException
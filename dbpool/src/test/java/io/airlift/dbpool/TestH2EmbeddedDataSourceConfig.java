@@ -31,7 +31,10 @@ public class TestH2EmbeddedDataSourceConfig
                 .setMaxLengthInplaceLob(1024)
                 .setMaxMemoryRows(10000)
                 .setMaxConnections(10)
-                .setMaxConnectionWait(new Duration(500, TimeUnit.MILLISECONDS)));
+                .setMaxConnectionWait(new Duration(500, TimeUnit.MILLISECONDS))
+                .setMinIdleConnections(0)
+                .setMaxIdleConnections(0)
+                .setIdleConnectionValidationInterval(new Duration(30, TimeUnit.SECONDS)));
     }
 
     @Test
@@ -49,6 +52,9 @@ public class TestH2EmbeddedDataSourceConfig
                 .put("db.rows.memory.max", "5000")
                 .put("db.connections.max", "12")
                 .put("db.connections.wait", "42s")
+                .put("db.connections.idle.min", "2")
+                .put("db.connections.idle.max", "5")
+                .put("db.connections.idle.validation-interval", "1m")
                 .build();
 
         H2EmbeddedDataSourceConfig expected = new H2EmbeddedDataSourceConfig()
@@ -62,7 +68,10 @@ public class TestH2EmbeddedDataSourceConfig
                 .setMaxLengthInplaceLob(8192)
                 .setMaxMemoryRows(5000)
                 .setMaxConnections(12)
-                .setMaxConnectionWait(new Duration(42, TimeUnit.SECONDS));
+                .setMaxConnectionWait(new Duration(42, TimeUnit.SECONDS))
+                .setMinIdleConnections(2)
+                .setMaxIdleConnections(5)
+                .setIdleConnectionValidationInterval(new Duration(1, TimeUnit.MINUTES));
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -16,7 +16,10 @@ public class TestPostgreSqlDataSourceConfig
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(PostgreSqlDataSourceConfig.class)
                 .setDefaultFetchSize(100)
                 .setMaxConnections(10)
-                .setMaxConnectionWait(new Duration(500, TimeUnit.MILLISECONDS)));
+                .setMaxConnectionWait(new Duration(500, TimeUnit.MILLISECONDS))
+                .setMinIdleConnections(0)
+                .setMaxIdleConnections(0)
+                .setIdleConnectionValidationInterval(new Duration(30, TimeUnit.SECONDS)));
     }
 
     @Test
@@ -26,12 +29,18 @@ public class TestPostgreSqlDataSourceConfig
                 .put("db.fetch-size", "500")
                 .put("db.connections.max", "12")
                 .put("db.connections.wait", "42s")
+                .put("db.connections.idle.min", "2")
+                .put("db.connections.idle.max", "5")
+                .put("db.connections.idle.validation-interval", "1m")
                 .build();
 
         PostgreSqlDataSourceConfig expected = new PostgreSqlDataSourceConfig()
                 .setDefaultFetchSize(500)
                 .setMaxConnections(12)
-                .setMaxConnectionWait(new Duration(42, TimeUnit.SECONDS));
+                .setMaxConnectionWait(new Duration(42, TimeUnit.SECONDS))
+                .setMinIdleConnections(2)
+                .setMaxIdleConnections(5)
+                .setIdleConnectionValidationInterval(new Duration(1, TimeUnit.MINUTES));
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
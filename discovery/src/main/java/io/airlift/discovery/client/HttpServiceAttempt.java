@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.discovery.client;
+
+import java.net.URI;
+
+/**
+ * A request in flight to a service returned by {@link HttpServiceSelector}.
+ * The outcome is used to balance load across services and to eject failing ones.
+ * Only the first call to {@link #markGood()} or {@link #markBad()} has any effect.
+ */
+public interface HttpServiceAttempt
+{
+    URI getUri();
+
+    /**
+     * The service processed the request, regardless of the response status.
+     */
+    void markGood();
+
+    /**
+     * The request failed or the service was unable to process it.
+     */
+    void markBad();
+}
@@ -24,5 +24,30 @@ public interface HttpServiceSelector
 
     String getPool();
 
+    /**
+     * Returns the URIs of all services, with the preferred service first.
+     */
     List<URI> selectHttpService();
+
+    /**
+     * Records the start of a request to a URI returned by {@link #selectHttpService()}.
+     * The returned attempt must be marked good or bad when the request finishes.
+     */
+    default HttpServiceAttempt startRequest(URI uri)
+    {
+        return new HttpServiceAttempt()
+        {
+            @Override
+            public URI getUri()
+            {
+                return uri;
+            }
+
+            @Override
+            public void markGood() {}
+
+            @Override
+            public void markBad() {}
+        };
+    }
 }
@@ -16,24 +16,54 @@
 package io.airlift.discovery.client;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.concurrent.ThreadSafe;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+/**
+ * Selects HTTP services using the power of two choices: two random services
+ * are compared by outstanding requests weighted by observed latency, and the
+ * better one is returned first. Services with too many consecutive failures
+ * are ejected for a while, and are only returned after all other services.
+ */
+@ThreadSafe
 public class HttpServiceSelectorImpl
         implements HttpServiceSelector
 {
     private final ServiceSelector serviceSelector;
+    private final int ejectionConsecutiveFailures;
+    private final long ejectionNanos;
+
+    private final Map<URI, EndpointStats> endpointStats = new ConcurrentHashMap<>();
+    private volatile CachedServices cachedServices = new CachedServices(ImmutableList.of(), ImmutableList.of(), ImmutableList.of());
 
     public HttpServiceSelectorImpl(ServiceSelector serviceSelector)
+    {
+        this(serviceSelector, new ServiceSelectorConfig());
+    }
+
+    public HttpServiceSelectorImpl(ServiceSelector serviceSelector, ServiceSelectorConfig selectorConfig)
     {
         requireNonNull(serviceSelector, "serviceSelector is null");
+        requireNonNull(selectorConfig, "selectorConfig is null");
         this.serviceSelector = serviceSelector;
+        this.ejectionConsecutiveFailures = selectorConfig.getEjectionConsecutiveFailures();
+        this.ejectionNanos = selectorConfig.getEjectionDuration().roundTo(NANOSECONDS);
     }
 
     @Override
@@ -51,38 +81,294 @@ public class HttpServiceSelectorImpl
     @Override
     public List<URI> selectHttpService()
     {
-        List<ServiceDescriptor> serviceDescriptors = new ArrayList<>(serviceSelector.selectAllServices());
-        if (serviceDescriptors.isEmpty()) {
+        CachedServices services = getCachedServices(serviceSelector.selectAllServices());
+        if (services.https.isEmpty() && services.http.isEmpty()) {
             return ImmutableList.of();
         }
 
-        // favor https over http
-        List<URI> httpsUri = new ArrayList<>();
-        for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
-            String https = serviceDescriptor.getProperties().get("https");
-            if (https != null) {
-                try {
-                    httpsUri.add(new URI(https));
-                }
-                catch (URISyntaxException ignored) {
-                }
+        // favor healthy https over healthy http over ejected services
+        long now = System.nanoTime();
+        Endpoint chosen = choose(services.https, now, true);
+        if (chosen == null) {
+            chosen = choose(services.http, now, true);
+        }
+        if (chosen == null) {
+            chosen = choose(services.https, now, false);
+        }
+        if (chosen == null) {
+            chosen = choose(services.http, now, false);
+        }
+
+        // the remaining services follow in a random rotation, so callers
+        // falling back to them do not all hit the same service
+        ImmutableList.Builder<URI> uris = ImmutableList.builderWithExpectedSize(services.https.size() + services.http.size());
+        uris.add(chosen.uri);
+        addRemaining(uris, services.https, chosen, now, true);
+        addRemaining(uris, services.http, chosen, now, true);
+        addRemaining(uris, services.https, chosen, now, false);
+        addRemaining(uris, services.http, chosen, now, false);
+        return uris.build();
+    }
+
+    @Override
+    public HttpServiceAttempt startRequest(URI uri)
+    {
+        requireNonNull(uri, "uri is null");
+        EndpointStats stats = endpointStats.get(uri);
+        if (stats == null) {
+            // not a service of this selector, or it has gone away
+            return HttpServiceSelector.super.startRequest(uri);
+        }
+        stats.outstanding.incrementAndGet();
+        return new Attempt(uri, stats);
+    }
+
+    private CachedServices getCachedServices(List<ServiceDescriptor> descriptors)
+    {
+        CachedServices services = cachedServices;
+        if (isSameServices(services.descriptors, descriptors)) {
+            return services;
+        }
+
+        synchronized (this) {
+            services = cachedServices;
+            if (isSameServices(services.descriptors, descriptors)) {
+                return services;
             }
+            ImmutableList.Builder<Endpoint> https = ImmutableList.builder();
+            ImmutableList.Builder<Endpoint> http = ImmutableList.builder();
+            ImmutableSet.Builder<URI> uris = ImmutableSet.builder();
+            for (ServiceDescriptor descriptor : descriptors) {
+                addEndpoint(https, uris, descriptor.getProperties().get("https"));
+                addEndpoint(http, uris, descriptor.getProperties().get("http"));
+            }
+            Set<URI> currentUris = uris.build();
+            endpointStats.keySet().retainAll(currentUris);
+
+            services = new CachedServices(ImmutableList.copyOf(descriptors), https.build(), http.build());
+            cachedServices = services;
+            return services;
         }
-        List<URI> httpUri = new ArrayList<>();
-        for (ServiceDescriptor serviceDescriptor : serviceDescriptors) {
-            String http = serviceDescriptor.getProperties().get("http");
-            if (http != null) {
-                try {
-                    httpUri.add(new URI(http));
-                }
-                catch (URISyntaxException ignored) {
+    }
+
+    private void addEndpoint(ImmutableList.Builder<Endpoint> endpoints, ImmutableSet.Builder<URI> uris, String value)
+    {
+        if (value == null) {
+            return;
+        }
+        URI uri;
+        try {
+            uri = new URI(value);
+        }
+        catch (URISyntaxException ignored) {
+            return;
+        }
+        endpoints.add(new Endpoint(uri, endpointStats.computeIfAbsent(uri, ignored -> new EndpointStats())));
+        uris.add(uri);
+    }
+
+    private static boolean isSameServices(List<ServiceDescriptor> cached, List<ServiceDescriptor> current)
+    {
+        // caching selectors return the same list until discovery reports a change,
+        // while merging selectors build equal lists for every call
+        if (cached == current) {
+            return true;
+        }
+        if (cached.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < cached.size(); i++) {
+            ServiceDescriptor cachedDescriptor = cached.get(i);
+            ServiceDescriptor currentDescriptor = current.get(i);
+            if (cachedDescriptor != currentDescriptor &&
+                    (!cachedDescriptor.equals(currentDescriptor) || !cachedDescriptor.getProperties().equals(currentDescriptor.getProperties()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Endpoint choose(List<Endpoint> endpoints, long now, boolean healthy)
+    {
+        int candidates = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.stats.isHealthy(now) == healthy) {
+                candidates++;
+            }
+        }
+        if (candidates == 0) {
+            return null;
+        }
+        if (candidates == 1) {
+            return nthCandidate(endpoints, 0, now, healthy);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates);
+        int second = random.nextInt(candidates - 1);
+        if (second >= first) {
+            second++;
+        }
+        Endpoint a;
+        Endpoint b;
+        if (candidates == endpoints.size()) {
+            a = endpoints.get(first);
+            b = endpoints.get(second);
+        }
+        else {
+            a = nthCandidate(endpoints, first, now, healthy);
+            b = nthCandidate(endpoints, second, now, healthy);
+        }
+        return a.stats.compareLoad(b.stats) <= 0 ? a : b;
+    }
+
+    private static Endpoint nthCandidate(List<Endpoint> endpoints, int n, long now, boolean healthy)
+    {
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.stats.isHealthy(now) == healthy) {
+                if (n == 0) {
+                    return endpoint;
                 }
+                n--;
             }
         }
+        // the health of a service changed since the candidates were counted
+        return endpoints.get(0);
+    }
 
-        // return random(https) + random(http)
-        Collections.shuffle(httpsUri);
-        Collections.shuffle(httpUri);
-        return ImmutableList.<URI>builder().addAll(httpsUri).addAll(httpUri).build();
+    private static void addRemaining(ImmutableList.Builder<URI> uris, List<Endpoint> endpoints, Endpoint chosen, long now, boolean healthy)
+    {
+        if (endpoints.isEmpty()) {
+            return;
+        }
+        int start = ThreadLocalRandom.current().nextInt(endpoints.size());
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+            if (endpoint != chosen && endpoint.stats.isHealthy(now) == healthy) {
+                uris.add(endpoint.uri);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("type", getType())
+                .add("pool", getPool())
+                .toString();
+    }
+
+    private static class CachedServices
+    {
+        private final List<ServiceDescriptor> descriptors;
+        private final List<Endpoint> https;
+        private final List<Endpoint> http;
+
+        public CachedServices(List<ServiceDescriptor> descriptors, List<Endpoint> https, List<Endpoint> http)
+        {
+            this.descriptors = descriptors;
+            this.https = https;
+            this.http = http;
+        }
+    }
+
+    private static class Endpoint
+    {
+        private final URI uri;
+        private final EndpointStats stats;
+
+        public Endpoint(URI uri, EndpointStats stats)
+        {
+            this.uri = uri;
+            this.stats = stats;
+        }
+    }
+
+    private class EndpointStats
+    {
+        // weight of a new sample in the moving average of the latency
+        private static final double LATENCY_ALPHA = 0.2;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong averageLatencyNanos = new AtomicLong();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile boolean ejected;
+        private volatile long ejectedUntilNanos;
+
+        public boolean isHealthy(long now)
+        {
+            return !ejected || now - ejectedUntilNanos >= 0;
+        }
+
+        /**
+         * Compares the expected wait for a new request, assuming requests in
+         * flight take the average latency. Unknown latencies are not compared.
+         */
+        public int compareLoad(EndpointStats other)
+        {
+            long latency = averageLatencyNanos.get();
+            long otherLatency = other.averageLatencyNanos.get();
+            if (latency == 0 || otherLatency == 0) {
+                return Integer.compare(outstanding.get(), other.outstanding.get());
+            }
+            return Double.compare((outstanding.get() + 1.0) * latency, (other.outstanding.get() + 1.0) * otherLatency);
+        }
+
+        public void success(long latencyNanos)
+        {
+            outstanding.decrementAndGet();
+            consecutiveFailures.set(0);
+            ejected = false;
+            long latency = Math.max(latencyNanos, 1);
+            averageLatencyNanos.getAndUpdate(average -> average == 0 ? latency : (long) (average + (latency - average) * LATENCY_ALPHA));
+        }
+
+        public void failure()
+        {
+            outstanding.decrementAndGet();
+            if (consecutiveFailures.incrementAndGet() >= ejectionConsecutiveFailures) {
+                consecutiveFailures.set(0);
+                ejectedUntilNanos = System.nanoTime() + ejectionNanos;
+                ejected = true;
+            }
+        }
+    }
+
+    private static class Attempt
+            implements HttpServiceAttempt
+    {
+        private final URI uri;
+        private final EndpointStats stats;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        public Attempt(URI uri, EndpointStats stats)
+        {
+            this.uri = uri;
+            this.stats = stats;
+        }
+
+        @Override
+        public URI getUri()
+        {
+            return uri;
+        }
+
+        @Override
+        public void markGood()
+        {
+            if (finished.compareAndSet(false, true)) {
+                stats.success(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void markBad()
+        {
+            if (finished.compareAndSet(false, true)) {
+                stats.failure();
+            }
+        }
     }
 }
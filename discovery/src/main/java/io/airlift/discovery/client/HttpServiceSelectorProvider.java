@@ -48,7 +48,9 @@ class HttpServiceSelectorProvider
 
         ServiceSelector serviceSelector = injector.getInstance(Key.get(ServiceSelector.class, serviceType(type)));
 
-        HttpServiceSelector httpServiceSelector = new HttpServiceSelectorImpl(serviceSelector);
+        ServiceSelectorConfig selectorConfig = injector.getInstance(Key.get(ServiceSelectorConfig.class, serviceType(type)));
+
+        HttpServiceSelector httpServiceSelector = new HttpServiceSelectorImpl(serviceSelector, selectorConfig);
         return httpServiceSelector;
     }
 
@@ -16,14 +16,22 @@
 package io.airlift.discovery.client;
 
 import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.Duration;
+import io.airlift.units.MinDuration;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 public class ServiceSelectorConfig
 {
     public static final String DEFAULT_POOL = "general";
 
     private String pool = DEFAULT_POOL;
+    private int ejectionConsecutiveFailures = 5;
+    private Duration ejectionDuration = new Duration(30, SECONDS);
 
     @NotNull
     public String getPool()
@@ -37,4 +45,33 @@ public class ServiceSelectorConfig
         this.pool = pool;
         return this;
     }
+
+    @Min(1)
+    public int getEjectionConsecutiveFailures()
+    {
+        return ejectionConsecutiveFailures;
+    }
+
+    @Config("ejection.consecutive-failures")
+    @ConfigDescription("Number of consecutive failed requests after which an HTTP service is ejected from selection")
+    public ServiceSelectorConfig setEjectionConsecutiveFailures(int ejectionConsecutiveFailures)
+    {
+        this.ejectionConsecutiveFailures = ejectionConsecutiveFailures;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("0s")
+    public Duration getEjectionDuration()
+    {
+        return ejectionDuration;
+    }
+
+    @Config("ejection.duration")
+    @ConfigDescription("How long an ejected HTTP service is only selected when no other service is available")
+    public ServiceSelectorConfig setEjectionDuration(Duration ejectionDuration)
+    {
+        this.ejectionDuration = ejectionDuration;
+        return this;
+    }
 }
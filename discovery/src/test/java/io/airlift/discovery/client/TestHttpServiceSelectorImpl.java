@@ -0,0 +1,129 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.discovery.client;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.airlift.discovery.client.testing.StaticServiceSelector;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+import static io.airlift.discovery.client.ServiceSelectorConfig.DEFAULT_POOL;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.testng.Assert.assertEquals;
+
+public class TestHttpServiceSelectorImpl
+{
+    private static final URI SERVER_A = URI.create("fake://server-a");
+    private static final URI SERVER_B = URI.create("fake://server-b");
+
+    @Test
+    public void testLeastOutstanding()
+    {
+        HttpServiceSelector selector = new HttpServiceSelectorImpl(new StaticServiceSelector(service("http", SERVER_A), service("http", SERVER_B)));
+        selector.selectHttpService();
+
+        for (int i = 0; i < 10; i++) {
+            selector.startRequest(SERVER_A);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_B, SERVER_A));
+        }
+    }
+
+    @Test
+    public void testEjection()
+    {
+        ServiceSelectorConfig config = new ServiceSelectorConfig()
+                .setEjectionConsecutiveFailures(2)
+                .setEjectionDuration(new Duration(1, HOURS));
+        HttpServiceSelector selector = new HttpServiceSelectorImpl(new StaticServiceSelector(service("https", SERVER_A), service("http", SERVER_B)), config);
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_A, SERVER_B));
+
+        selector.startRequest(SERVER_A).markBad();
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_A, SERVER_B));
+
+        // an ejected https service loses its preference over http
+        HttpServiceAttempt attempt = selector.startRequest(SERVER_A);
+        attempt.markBad();
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_B, SERVER_A));
+
+        // only the first outcome of an attempt counts
+        attempt.markGood();
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_B, SERVER_A));
+
+        // a request that still succeeds brings the service back
+        selector.startRequest(SERVER_A).markGood();
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_A, SERVER_B));
+    }
+
+    @Test
+    public void testAllEjected()
+    {
+        ServiceSelectorConfig config = new ServiceSelectorConfig()
+                .setEjectionConsecutiveFailures(1)
+                .setEjectionDuration(new Duration(1, HOURS));
+        HttpServiceSelector selector = new HttpServiceSelectorImpl(new StaticServiceSelector(service("http", SERVER_A)), config);
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_A));
+        selector.startRequest(SERVER_A).markBad();
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_A));
+    }
+
+    @Test
+    public void testUnknownUri()
+    {
+        HttpServiceSelector selector = new HttpServiceSelectorImpl(new StaticServiceSelector(service("http", SERVER_A)));
+        HttpServiceAttempt attempt = selector.startRequest(SERVER_B);
+        assertEquals(attempt.getUri(), SERVER_B);
+        attempt.markBad();
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_A));
+    }
+
+    @Test
+    public void testServicesChange()
+    {
+        ChangingServiceSelector serviceSelector = new ChangingServiceSelector();
+        HttpServiceSelector selector = new HttpServiceSelectorImpl(serviceSelector);
+
+        serviceSelector.services = ImmutableList.of(service("http", SERVER_A));
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_A));
+
+        serviceSelector.services = ImmutableList.of(service("http", SERVER_B));
+        assertEquals(selector.selectHttpService(), ImmutableList.of(SERVER_B));
+
+        serviceSelector.services = ImmutableList.of();
+        assertEquals(selector.selectHttpService(), ImmutableList.of());
+    }
+
+    private static ServiceDescriptor service(String scheme, URI uri)
+    {
+        return new ServiceDescriptor(UUID.randomUUID(), "node", "apple", DEFAULT_POOL, "location", ServiceState.RUNNING, ImmutableMap.of(scheme, uri.toString()));
+    }
+
+    private static class ChangingServiceSelector
+            extends StaticServiceSelector
+    {
+        private volatile List<ServiceDescriptor> services = ImmutableList.of();
+
+        @Override
+        public List<ServiceDescriptor> selectAllServices()
+        {
+            return services;
+        }
+    }
+}
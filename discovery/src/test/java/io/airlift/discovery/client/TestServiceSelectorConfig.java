@@ -17,17 +17,23 @@ package io.airlift.discovery.client;
 
 import com.google.common.collect.ImmutableMap;
 import io.airlift.configuration.testing.ConfigAssertions;
+import io.airlift.units.Duration;
 import org.testng.annotations.Test;
 
 import java.util.Map;
 
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 public class TestServiceSelectorConfig
 {
     @Test
     public void testDefaults()
     {
         ConfigAssertions.assertRecordedDefaults(ConfigAssertions.recordDefaults(ServiceSelectorConfig.class)
-                .setPool(ServiceSelectorConfig.DEFAULT_POOL));
+                .setPool(ServiceSelectorConfig.DEFAULT_POOL)
+                .setEjectionConsecutiveFailures(5)
+                .setEjectionDuration(new Duration(30, SECONDS)));
     }
 
     @Test
@@ -35,10 +41,14 @@ public class TestServiceSelectorConfig
     {
         Map<String, String> properties = new ImmutableMap.Builder<String, String>()
                 .put("pool", "test-pool")
+                .put("ejection.consecutive-failures", "3")
+                .put("ejection.duration", "1m")
                 .build();
 
         ServiceSelectorConfig expected = new ServiceSelectorConfig()
-                .setPool("test-pool");
+                .setPool("test-pool")
+                .setEjectionConsecutiveFailures(3)
+                .setEjectionDuration(new Duration(1, MINUTES));
 
         ConfigAssertions.assertFullMapping(properties, expected);
     }
@@ -0,0 +1,411 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client.http;
+
+import io.airlift.discovery.client.HttpServiceAttempt;
+import io.airlift.discovery.client.HttpServiceSelector;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.StatusResponseHandler.StatusResponse;
+import io.airlift.log.Logger;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.airlift.http.client.Request.Builder.preparePost;
+import static io.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
+import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Queues serialized events and posts them in batches from a single thread.
+ * A batch is posted once it reaches the maximum size or its oldest event
+ * reaches the maximum delay. A batch that no collector accepts is spooled to
+ * disk, and spooled batches are posted again once a collector accepts a batch.
+ */
+class EventBatcher
+{
+    private static final Logger log = Logger.get(EventBatcher.class);
+
+    // spooled batches posted per round, so the queue keeps draining while catching up
+    private static final int MAX_SPOOLED_BATCHES_PER_ROUND = 16;
+
+    private final HttpServiceSelector serviceSelector;
+    private final HttpClient httpClient;
+    private final String userAgent;
+    private final long maxBatchBytes;
+    private final long maxDelayNanos;
+    private final long maxQueuedBytes;
+    private final int maxAttempts;
+    @Nullable
+    private final EventSpool spool;
+    private final Thread flushThread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushRequested = lock.newCondition();
+
+    @GuardedBy("lock")
+    private final Deque<byte[]> queue = new ArrayDeque<>();
+    @GuardedBy("lock")
+    private long queuedBytes;
+    @GuardedBy("lock")
+    private long oldestQueueTime;
+    @GuardedBy("lock")
+    private boolean closed;
+
+    private final AtomicLong rejectedEvents = new AtomicLong();
+    private final AtomicLong postedBatches = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong spooledBatches = new AtomicLong();
+    private final AtomicLong droppedBatches = new AtomicLong();
+
+    // only accessed by the flush thread
+    private boolean collectorAvailable = true;
+
+    public EventBatcher(
+            HttpServiceSelector serviceSelector,
+            HttpClient httpClient,
+            String userAgent,
+            HttpEventClientConfig config,
+            @Nullable EventSpool spool)
+    {
+        this.serviceSelector = requireNonNull(serviceSelector, "serviceSelector is null");
+        this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        this.userAgent = requireNonNull(userAgent, "userAgent is null");
+        requireNonNull(config, "config is null");
+        this.maxBatchBytes = config.getMaxBatchSize().toBytes();
+        this.maxDelayNanos = config.getMaxBatchDelay().roundTo(NANOSECONDS);
+        this.maxQueuedBytes = config.getMaxQueuedSize().toBytes();
+        this.maxAttempts = config.getMaxAttempts();
+        this.spool = spool;
+
+        flushThread = new Thread(this::flushLoop, "event-client-batcher");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    /**
+     * Queues a fragment of comma separated events.
+     *
+     * @return false if the queue is full
+     */
+    public boolean enqueue(byte[] fragment, int eventCount)
+    {
+        lock.lock();
+        try {
+            if (closed || queuedBytes + fragment.length > maxQueuedBytes) {
+                rejectedEvents.addAndGet(eventCount);
+                return false;
+            }
+            if (queue.isEmpty()) {
+                oldestQueueTime = System.nanoTime();
+            }
+            queue.add(fragment);
+            queuedBytes += fragment.length;
+            if (queuedBytes >= maxBatchBytes) {
+                flushRequested.signal();
+            }
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Posts or spools all queued events and stops the flush thread.
+     */
+    public void stop()
+    {
+        lock.lock();
+        try {
+            closed = true;
+            flushRequested.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+
+        try {
+            flushThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getQueuedBytes()
+    {
+        lock.lock();
+        try {
+            return queuedBytes;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectedEvents()
+    {
+        return rejectedEvents.get();
+    }
+
+    public long getPostedBatches()
+    {
+        return postedBatches.get();
+    }
+
+    public long getFailedAttempts()
+    {
+        return failedAttempts.get();
+    }
+
+    public long getSpooledBatches()
+    {
+        return spooledBatches.get();
+    }
+
+    public long getDroppedBatches()
+    {
+        return droppedBatches.get();
+    }
+
+    public long getSpoolSizeInBytes()
+    {
+        return spool == null ? 0 : spool.getSizeInBytes();
+    }
+
+    private void flushLoop()
+    {
+        try {
+            while (true) {
+                byte[] batch;
+                boolean closing;
+                boolean done;
+                lock.lock();
+                try {
+                    long waitNanos = queue.isEmpty() ? maxDelayNanos : maxDelayNanos - (System.nanoTime() - oldestQueueTime);
+                    if (!closed && queuedBytes < maxBatchBytes && waitNanos > 0) {
+                        try {
+                            flushRequested.awaitNanos(waitNanos);
+                        }
+                        catch (InterruptedException e) {
+                            closed = true;
+                        }
+                    }
+                    batch = takeBatch();
+                    closing = closed;
+                    done = closed && queue.isEmpty();
+                }
+                finally {
+                    lock.unlock();
+                }
+
+                if (batch != null) {
+                    try {
+                        // once closing, do not wait for collectors that are known to be down
+                        if ((closing && !collectorAvailable) || !post(batch)) {
+                            spool(batch);
+                        }
+                    }
+                    catch (RuntimeException e) {
+                        // keep the thread alive for the following batches
+                        droppedBatches.incrementAndGet();
+                        log.error(e, "Error posting event batch");
+                    }
+                }
+                // catch up on spooled batches after a successful post, or
+                // probe the collectors with them once per delay while idle
+                if (!done && (batch != null ? collectorAvailable : queueIsEmpty())) {
+                    postSpooledBatches();
+                }
+                if (done) {
+                    return;
+                }
+            }
+        }
+        catch (Throwable t) {
+            log.error(t, "Event batcher failed");
+        }
+        finally {
+            // reject new events, as nothing will post them
+            lock.lock();
+            try {
+                closed = true;
+            }
+            finally {
+                lock.unlock();
+            }
+            if (spool != null) {
+                spool.close();
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private byte[] takeBatch()
+    {
+        if (queue.isEmpty()) {
+            return null;
+        }
+        boolean due = closed || queuedBytes >= maxBatchBytes || System.nanoTime() - oldestQueueTime >= maxDelayNanos;
+        if (!due) {
+            return null;
+        }
+
+        // the first fragment is always taken, even if it is larger than a batch
+        List<byte[]> fragments = new ArrayList<>();
+        long size = 1;
+        do {
+            byte[] fragment = queue.poll();
+            fragments.add(fragment);
+            size += fragment.length + 1;
+            queuedBytes -= fragment.length;
+        }
+        while (!queue.isEmpty() && size + queue.peek().length + 1 <= maxBatchBytes);
+        oldestQueueTime = System.nanoTime();
+
+        // join the fragments into a single JSON array
+        byte[] batch = new byte[(int) size];
+        batch[0] = '[';
+        int position = 1;
+        for (byte[] fragment : fragments) {
+            if (position > 1) {
+                batch[position++] = ',';
+            }
+            System.arraycopy(fragment, 0, batch, position, fragment.length);
+            position += fragment.length;
+        }
+        batch[position] = ']';
+        return batch;
+    }
+
+    private boolean queueIsEmpty()
+    {
+        lock.lock();
+        try {
+            return queue.isEmpty();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void postSpooledBatches()
+    {
+        if (spool == null) {
+            return;
+        }
+        try {
+            for (int i = 0; i < MAX_SPOOLED_BATCHES_PER_ROUND; i++) {
+                byte[] batch = spool.next();
+                if (batch == null || !post(batch)) {
+                    return;
+                }
+                spool.commit();
+            }
+        }
+        catch (IOException e) {
+            log.warn(e, "Error reading event spool");
+        }
+        catch (RuntimeException e) {
+            // the batch stays in the spool and is posted again in a later round
+            log.error(e, "Error posting spooled event batch");
+        }
+    }
+
+    private void spool(byte[] batch)
+    {
+        if (spool != null) {
+            try {
+                if (spool.append(batch)) {
+                    spooledBatches.incrementAndGet();
+                    return;
+                }
+            }
+            catch (IOException e) {
+                log.warn(e, "Error writing event spool");
+            }
+        }
+        droppedBatches.incrementAndGet();
+    }
+
+    /**
+     * Posts the batch to the next collector until one accepts it.
+     *
+     * @return false if no collector accepted the batch
+     */
+    private boolean post(byte[] batch)
+    {
+        List<URI> uris = serviceSelector.selectHttpService();
+        if (uris.isEmpty()) {
+            collectorAvailable = false;
+            return false;
+        }
+
+        for (int i = 0; i < maxAttempts; i++) {
+            HttpServiceAttempt attempt = serviceSelector.startRequest(uris.get(i % uris.size()));
+            Request request = preparePost()
+                    .setUri(attempt.getUri().resolve("/v2/event"))
+                    .setHeader("User-Agent", userAgent)
+                    .setHeader("Content-Type", "application/json")
+                    .setBodyGenerator(createStaticBodyGenerator(batch))
+                    .build();
+
+            int statusCode;
+            try {
+                StatusResponse response = httpClient.execute(request, createStatusResponseHandler());
+                statusCode = response.getStatusCode();
+            }
+            catch (RuntimeException e) {
+                attempt.markBad();
+                failedAttempts.incrementAndGet();
+                log.debug(e, "Posting events to %s failed", request.getUri());
+                continue;
+            }
+
+            if (statusCode >= 500) {
+                attempt.markBad();
+                failedAttempts.incrementAndGet();
+                log.debug("Posting events to %s failed: status_code=%d", request.getUri(), statusCode);
+                continue;
+            }
+
+            attempt.markGood();
+            collectorAvailable = true;
+            if (statusCode >= 200 && statusCode <= 299) {
+                postedBatches.incrementAndGet();
+            }
+            else {
+                // the collector will not accept this batch from any collector
+                droppedBatches.incrementAndGet();
+                log.warn("Collector %s rejected events: status_code=%d", request.getUri(), statusCode);
+            }
+            return true;
+        }
+        collectorAvailable = false;
+        return false;
+    }
+}
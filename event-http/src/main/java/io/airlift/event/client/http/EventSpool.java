@@ -0,0 +1,309 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client.http;
+
+import io.airlift.log.Logger;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Append-only spool of event batches, stored as length prefixed records in
+ * numbered segment files. Batches are read back oldest first, and a segment
+ * is deleted once all of its batches are committed. The position after the
+ * last committed batch is saved in a checkpoint file, so segments left over
+ * from a previous run are read back from there. A batch may be posted twice
+ * only if the process stops between posting and committing it.
+ */
+@NotThreadSafe
+class EventSpool
+{
+    private static final Logger log = Logger.get(EventSpool.class);
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CHECKPOINT_FILE = "events.checkpoint";
+
+    private final File directory;
+    private final long maxSizeInBytes;
+    private final Deque<File> segments = new ArrayDeque<>();
+    private long nextSegment;
+
+    private DataOutputStream writer;
+    private File writeSegment;
+
+    private DataInputStream reader;
+    private long readSegment = -1;
+    private long readBytes;
+    private byte[] pendingBatch;
+
+    // segment and offset of the first batch that is not committed
+    private final File checkpointFile;
+    private RandomAccessFile checkpoint;
+    private long checkpointSegment = -1;
+    private long checkpointOffset;
+
+    private volatile long sizeInBytes;
+
+    public EventSpool(File directory, long maxSizeInBytes)
+            throws IOException
+    {
+        requireNonNull(directory, "directory is null");
+        checkArgument(maxSizeInBytes >= 0, "maxSizeInBytes is negative");
+        this.directory = directory;
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.checkpointFile = new File(directory, CHECKPOINT_FILE);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create spool directory " + directory);
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            throw new IOException("Unable to list spool directory " + directory);
+        }
+        // segment names are zero padded, so they sort in the order they were written
+        Arrays.sort(files);
+        long size = 0;
+        for (File file : files) {
+            segments.add(file);
+            size += file.length();
+            nextSegment = Math.max(nextSegment, segmentNumber(file) + 1);
+        }
+        readCheckpoint();
+        if (!segments.isEmpty() && segmentNumber(segments.peekFirst()) == checkpointSegment) {
+            size -= checkpointOffset;
+        }
+        sizeInBytes = size;
+    }
+
+    public long getSizeInBytes()
+    {
+        return sizeInBytes;
+    }
+
+    public boolean isEmpty()
+    {
+        return pendingBatch == null && segments.isEmpty();
+    }
+
+    /**
+     * @return false if the spool is full
+     */
+    public boolean append(byte[] batch)
+            throws IOException
+    {
+        long recordSize = Integer.BYTES + batch.length;
+        if (sizeInBytes + recordSize > maxSizeInBytes) {
+            return false;
+        }
+        if (writer == null) {
+            writeSegment = new File(directory, segmentName(nextSegment++));
+            writer = new DataOutputStream(new FileOutputStream(writeSegment));
+            segments.add(writeSegment);
+        }
+        writer.writeInt(batch.length);
+        writer.write(batch);
+        writer.flush();
+        sizeInBytes += recordSize;
+        return true;
+    }
+
+    /**
+     * Returns the oldest batch that has not been committed, or null if there is none.
+     */
+    public byte[] next()
+            throws IOException
+    {
+        while (pendingBatch == null && !segments.isEmpty()) {
+            File segment = segments.peekFirst();
+            if (reader == null) {
+                if (segment.equals(writeSegment)) {
+                    // new batches go to the next segment from now on
+                    closeWriter();
+                }
+                FileInputStream input = new FileInputStream(segment);
+                readSegment = segmentNumber(segment);
+                readBytes = 0;
+                if (readSegment == checkpointSegment) {
+                    // skip the batches committed before the previous run stopped
+                    input.getChannel().position(checkpointOffset);
+                    readBytes = checkpointOffset;
+                }
+                reader = new DataInputStream(new BufferedInputStream(input));
+            }
+            try {
+                int length = reader.readInt();
+                if (length < 0 || length > segment.length() - readBytes - Integer.BYTES) {
+                    throw new EOFException("Corrupt batch length " + length);
+                }
+                byte[] batch = new byte[length];
+                reader.readFully(batch);
+                readBytes += Integer.BYTES + length;
+                pendingBatch = batch;
+            }
+            catch (EOFException e) {
+                // end of segment, or a batch cut short when the process stopped;
+                // nothing after a partial batch can be read back reliably
+                closeReader();
+                deleteSegment(segments.removeFirst());
+            }
+        }
+        return pendingBatch;
+    }
+
+    /**
+     * Removes the batch returned by {@link #next()}.
+     */
+    public void commit()
+            throws IOException
+    {
+        checkState(pendingBatch != null, "no batch to commit");
+        sizeInBytes -= Integer.BYTES + pendingBatch.length;
+        pendingBatch = null;
+        writeCheckpoint(readSegment, readBytes);
+    }
+
+    public void close()
+    {
+        closeReader();
+        closeWriter();
+        closeCheckpoint();
+    }
+
+    private void readCheckpoint()
+    {
+        if (!checkpointFile.exists()) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new FileInputStream(checkpointFile))) {
+            long segment = input.readLong();
+            long offset = input.readLong();
+            File file = new File(directory, segmentName(segment));
+            // a checkpoint that does not fit the segment is ignored, and the segment is read from the start
+            if (offset >= 0 && offset <= file.length()) {
+                checkpointSegment = segment;
+                checkpointOffset = offset;
+            }
+        }
+        catch (IOException e) {
+            log.warn(e, "Error reading event spool checkpoint %s", checkpointFile);
+        }
+    }
+
+    private void writeCheckpoint(long segment, long offset)
+            throws IOException
+    {
+        if (checkpoint == null) {
+            checkpoint = new RandomAccessFile(checkpointFile, "rw");
+        }
+        checkpoint.seek(0);
+        checkpoint.writeLong(segment);
+        checkpoint.writeLong(offset);
+        checkpointSegment = segment;
+        checkpointOffset = offset;
+    }
+
+    private void closeCheckpoint()
+    {
+        if (checkpoint != null) {
+            try {
+                checkpoint.close();
+            }
+            catch (IOException e) {
+                log.warn(e, "Error closing event spool checkpoint %s", checkpointFile);
+            }
+            checkpoint = null;
+        }
+    }
+
+    private void deleteSegment(File segment)
+    {
+        // committed batches are already accounted for, only a partial batch at the end remains
+        long remaining = segment.length() - readBytes;
+        if (!segment.delete()) {
+            log.warn("Unable to delete event spool segment %s", segment);
+        }
+        sizeInBytes = Math.max(sizeInBytes - remaining, 0);
+
+        // the checkpoint only refers to a segment that is being read
+        if (segments.isEmpty()) {
+            closeCheckpoint();
+            if (checkpointFile.exists() && !checkpointFile.delete()) {
+                log.warn("Unable to delete event spool checkpoint %s", checkpointFile);
+            }
+            checkpointSegment = -1;
+            checkpointOffset = 0;
+        }
+    }
+
+    private void closeReader()
+    {
+        if (reader != null) {
+            try {
+                reader.close();
+            }
+            catch (IOException e) {
+                log.warn(e, "Error closing event spool segment");
+            }
+            reader = null;
+        }
+    }
+
+    private void closeWriter()
+    {
+        if (writer != null) {
+            try {
+                writer.close();
+            }
+            catch (IOException e) {
+                log.warn(e, "Error closing event spool segment %s", writeSegment);
+            }
+            writer = null;
+            writeSegment = null;
+        }
+    }
+
+    private static String segmentName(long segment)
+    {
+        return format("%s%019d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX);
+    }
+
+    private static long segmentNumber(File file)
+    {
+        String name = file.getName();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
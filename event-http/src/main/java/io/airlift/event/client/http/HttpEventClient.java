@@ -19,6 +19,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.io.CharStreams;
 import com.google.common.net.MediaType;
 import com.google.common.util.concurrent.ListenableFuture;
+import io.airlift.discovery.client.HttpServiceAttempt;
 import io.airlift.discovery.client.HttpServiceSelector;
 import io.airlift.discovery.client.ServiceType;
 import io.airlift.event.client.EventClient;
@@ -37,17 +38,23 @@ import io.airlift.node.NodeInfo;
 import org.weakref.jmx.Flatten;
 import org.weakref.jmx.Managed;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.Futures.immediateFuture;
 import static io.airlift.http.client.Request.Builder.preparePost;
 import static java.util.Objects.requireNonNull;
 
@@ -61,18 +68,54 @@ public class HttpEventClient
     private final JsonEventWriter eventWriter;
     private final HttpClient httpClient;
     private final NodeInfo nodeInfo;
+    private final EventBatcher batcher;
+
+    public HttpEventClient(
+            HttpServiceSelector serviceSelector,
+            JsonEventWriter eventWriter,
+            NodeInfo nodeInfo,
+            HttpClient httpClient)
+    {
+        this(serviceSelector, eventWriter, nodeInfo, httpClient, new HttpEventClientConfig());
+    }
 
     @Inject
     public HttpEventClient(
             @ServiceType("collector") HttpServiceSelector serviceSelector,
             JsonEventWriter eventWriter,
             NodeInfo nodeInfo,
-            @ForEventClient HttpClient httpClient)
+            @ForEventClient HttpClient httpClient,
+            HttpEventClientConfig config)
     {
         this.serviceSelector = requireNonNull(serviceSelector, "serviceSelector is null");
         this.eventWriter = requireNonNull(eventWriter, "eventWriter is null");
         this.nodeInfo = requireNonNull(nodeInfo, "nodeInfo is null");
         this.httpClient = requireNonNull(httpClient, "httpClient is null");
+        requireNonNull(config, "config is null");
+
+        if (config.isBatchingEnabled()) {
+            EventSpool spool = null;
+            if (config.getSpoolPath() != null) {
+                try {
+                    spool = new EventSpool(new File(config.getSpoolPath()), config.getMaxSpoolSize().toBytes());
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            batcher = new EventBatcher(serviceSelector, httpClient, nodeInfo.getNodeId(), config, spool);
+        }
+        else {
+            batcher = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if (batcher != null) {
+            batcher.stop();
+        }
     }
 
     @Flatten
@@ -82,6 +125,48 @@ public class HttpEventClient
         return httpClient.getStats();
     }
 
+    @Managed
+    public long getQueuedBytes()
+    {
+        return batcher == null ? 0 : batcher.getQueuedBytes();
+    }
+
+    @Managed
+    public long getRejectedEvents()
+    {
+        return batcher == null ? 0 : batcher.getRejectedEvents();
+    }
+
+    @Managed
+    public long getPostedBatches()
+    {
+        return batcher == null ? 0 : batcher.getPostedBatches();
+    }
+
+    @Managed
+    public long getFailedAttempts()
+    {
+        return batcher == null ? 0 : batcher.getFailedAttempts();
+    }
+
+    @Managed
+    public long getSpooledBatches()
+    {
+        return batcher == null ? 0 : batcher.getSpooledBatches();
+    }
+
+    @Managed
+    public long getDroppedBatches()
+    {
+        return batcher == null ? 0 : batcher.getDroppedBatches();
+    }
+
+    @Managed
+    public long getSpoolSizeInBytes()
+    {
+        return batcher == null ? 0 : batcher.getSpoolSizeInBytes();
+    }
+
     @SafeVarargs
     @Override
     public final <T> ListenableFuture<Void> post(T... event)
@@ -108,6 +193,10 @@ public class HttpEventClient
     {
         requireNonNull(eventGenerator, "eventGenerator is null");
 
+        if (batcher != null) {
+            return enqueue(eventGenerator);
+        }
+
         List<URI> uris = serviceSelector.selectHttpService();
 
         if (uris.isEmpty()) {
@@ -115,13 +204,35 @@ public class HttpEventClient
         }
 
         // todo this doesn't really work due to returning the future which can fail without being retried
+        HttpServiceAttempt attempt = serviceSelector.startRequest(uris.get(0));
         Request request = preparePost()
-                .setUri(uris.get(0).resolve("/v2/event"))
+                .setUri(attempt.getUri().resolve("/v2/event"))
                 .setHeader("User-Agent", nodeInfo.getNodeId())
                 .setHeader("Content-Type", MEDIA_TYPE_JSON.toString())
                 .setBodyGenerator(new JsonEntityWriter<>(eventWriter, eventGenerator))
                 .build();
-        return httpClient.executeAsync(request, new EventResponseHandler(serviceSelector.getType(), serviceSelector.getPool()));
+        return httpClient.executeAsync(request, new EventResponseHandler(serviceSelector.getType(), serviceSelector.getPool(), attempt));
+    }
+
+    private <T> ListenableFuture<Void> enqueue(EventGenerator<T> eventGenerator)
+    {
+        // events are serialized right away, as they may change after this call
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int eventCount;
+        try {
+            eventCount = eventWriter.writeEventFragment(eventGenerator, out);
+        }
+        catch (IOException | RuntimeException e) {
+            // such as an InvalidEventException for an event that cannot be serialized
+            return immediateFailedFuture(e);
+        }
+        if (eventCount == 0) {
+            return immediateFuture(null);
+        }
+        if (!batcher.enqueue(out.toByteArray(), eventCount)) {
+            return immediateFailedFuture(new RejectedExecutionException("Event queue is full"));
+        }
+        return immediateFuture(null);
     }
 
     private static class JsonEntityWriter<T>
@@ -149,16 +260,19 @@ public class HttpEventClient
     {
         private final String type;
         private final String pool;
+        private final HttpServiceAttempt attempt;
 
-        public EventResponseHandler(String type, String pool)
+        public EventResponseHandler(String type, String pool, HttpServiceAttempt attempt)
         {
             this.type = requireNonNull(type, "type is null");
             this.pool = requireNonNull(pool, "pool is null");
+            this.attempt = requireNonNull(attempt, "attempt is null");
         }
 
         @Override
         public Void handleException(Request request, Exception exception)
         {
+            attempt.markBad();
             log.debug("Posting event to %s failed", request.getUri());
             throw new EventSubmissionFailedException(type, pool, ImmutableMap.of(request.getUri(), exception));
         }
@@ -167,6 +281,12 @@ public class HttpEventClient
         public Void handle(Request request, Response response)
         {
             int statusCode = response.getStatusCode();
+            if (statusCode >= 500) {
+                attempt.markBad();
+            }
+            else {
+                attempt.markGood();
+            }
             if (statusCode >= 200 && statusCode <= 299) {
                 return null;
             }
@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client.http;
+
+import io.airlift.configuration.Config;
+import io.airlift.configuration.ConfigDescription;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import io.airlift.units.MaxDataSize;
+import io.airlift.units.MinDataSize;
+import io.airlift.units.MinDuration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class HttpEventClientConfig
+{
+    private boolean batchingEnabled;
+    private DataSize maxBatchSize = new DataSize(1, MEGABYTE);
+    private Duration maxBatchDelay = new Duration(1, SECONDS);
+    private DataSize maxQueuedSize = new DataSize(16, MEGABYTE);
+    private int maxAttempts = 3;
+    private String spoolPath;
+    private DataSize maxSpoolSize = new DataSize(1, GIGABYTE);
+
+    public boolean isBatchingEnabled()
+    {
+        return batchingEnabled;
+    }
+
+    @Config("event-client.batching.enabled")
+    @ConfigDescription("Queue events and post them to the collectors in batches from a background thread")
+    public HttpEventClientConfig setBatchingEnabled(boolean batchingEnabled)
+    {
+        this.batchingEnabled = batchingEnabled;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("1kB")
+    @MaxDataSize("1GB")
+    public DataSize getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    @Config("event-client.batching.max-batch-size")
+    @ConfigDescription("Size of the serialized events at which a batch is posted")
+    public HttpEventClientConfig setMaxBatchSize(DataSize maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getMaxBatchDelay()
+    {
+        return maxBatchDelay;
+    }
+
+    @Config("event-client.batching.max-delay")
+    @ConfigDescription("Maximum time an event waits in the queue before its batch is posted")
+    public HttpEventClientConfig setMaxBatchDelay(Duration maxBatchDelay)
+    {
+        this.maxBatchDelay = maxBatchDelay;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("1kB")
+    @MaxDataSize("1GB")
+    public DataSize getMaxQueuedSize()
+    {
+        return maxQueuedSize;
+    }
+
+    @Config("event-client.batching.max-queued-size")
+    @ConfigDescription("Size of the serialized events in the queue above which new events are rejected")
+    public HttpEventClientConfig setMaxQueuedSize(DataSize maxQueuedSize)
+    {
+        this.maxQueuedSize = maxQueuedSize;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    @Config("event-client.batching.max-attempts")
+    @ConfigDescription("Number of collectors a batch is posted to before it is spooled")
+    public HttpEventClientConfig setMaxAttempts(int maxAttempts)
+    {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    public String getSpoolPath()
+    {
+        return spoolPath;
+    }
+
+    @Config("event-client.spool.path")
+    @ConfigDescription("Directory for batches that could not be posted; batches are dropped if not set")
+    public HttpEventClientConfig setSpoolPath(String spoolPath)
+    {
+        this.spoolPath = spoolPath;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getMaxSpoolSize()
+    {
+        return maxSpoolSize;
+    }
+
+    @Config("event-client.spool.max-size")
+    @ConfigDescription("Size of the spool directory above which batches that could not be posted are dropped")
+    public HttpEventClientConfig setMaxSpoolSize(DataSize maxSpoolSize)
+    {
+        this.maxSpoolSize = maxSpoolSize;
+        return this;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client.http;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static com.google.common.io.Files.createTempDir;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestEventSpool
+{
+    private File directory;
+
+    @BeforeMethod
+    public void setup()
+    {
+        directory = createTempDir();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown()
+            throws IOException
+    {
+        deleteRecursively(directory.toPath(), ALLOW_INSECURE);
+    }
+
+    @Test
+    public void testAppendAndCommit()
+            throws Exception
+    {
+        EventSpool spool = new EventSpool(directory, 1024);
+        assertTrue(spool.isEmpty());
+        assertNull(spool.next());
+
+        assertTrue(spool.append(bytes("first")));
+        assertTrue(spool.append(bytes("second")));
+        assertEquals(spool.getSizeInBytes(), 19);
+
+        assertEquals(spool.next(), bytes("first"));
+        // not committed yet
+        assertEquals(spool.next(), bytes("first"));
+        spool.commit();
+
+        // batches appended while reading go to a new segment
+        assertTrue(spool.append(bytes("third")));
+        assertEquals(spool.next(), bytes("second"));
+        spool.commit();
+        assertEquals(spool.next(), bytes("third"));
+        spool.commit();
+
+        assertNull(spool.next());
+        assertTrue(spool.isEmpty());
+        assertEquals(spool.getSizeInBytes(), 0);
+        assertEquals(directory.list().length, 0);
+        spool.close();
+    }
+
+    @Test
+    public void testFull()
+            throws Exception
+    {
+        EventSpool spool = new EventSpool(directory, 20);
+        assertTrue(spool.append(bytes("0123456789")));
+        assertFalse(spool.append(bytes("0123456789")));
+        assertEquals(spool.getSizeInBytes(), 14);
+        spool.close();
+    }
+
+    @Test
+    public void testRecoverAfterRestart()
+            throws Exception
+    {
+        EventSpool spool = new EventSpool(directory, 1024);
+        assertTrue(spool.append(bytes("first")));
+        assertTrue(spool.append(bytes("second")));
+        spool.close();
+
+        // a batch cut short when the process stopped
+        try (FileOutputStream out = new FileOutputStream(directory.listFiles()[0], true)) {
+            out.write(new byte[] {0, 0, 0, 100, 'x'});
+        }
+
+        spool = new EventSpool(directory, 1024);
+        assertEquals(spool.getSizeInBytes(), 24);
+        assertTrue(spool.append(bytes("third")));
+
+        assertEquals(spool.next(), bytes("first"));
+        spool.commit();
+        assertEquals(spool.next(), bytes("second"));
+        spool.commit();
+        assertEquals(spool.next(), bytes("third"));
+        spool.commit();
+        assertNull(spool.next());
+        assertEquals(spool.getSizeInBytes(), 0);
+        spool.close();
+    }
+
+    @Test
+    public void testCommittedBatchesAreNotReplayedAfterRestart()
+            throws Exception
+    {
+        EventSpool spool = new EventSpool(directory, 1024);
+        assertTrue(spool.append(bytes("first")));
+        assertTrue(spool.append(bytes("second")));
+        assertTrue(spool.append(bytes("third")));
+
+        assertEquals(spool.next(), bytes("first"));
+        spool.commit();
+        // read, but not committed when the process stops
+        assertEquals(spool.next(), bytes("second"));
+        spool.close();
+
+        spool = new EventSpool(directory, 1024);
+        assertEquals(spool.getSizeInBytes(), 19);
+        assertEquals(spool.next(), bytes("second"));
+        spool.commit();
+        assertEquals(spool.next(), bytes("third"));
+        spool.commit();
+        assertNull(spool.next());
+        assertEquals(spool.getSizeInBytes(), 0);
+        assertEquals(directory.list().length, 0);
+        spool.close();
+    }
+
+    private static byte[] bytes(String value)
+    {
+        return value.getBytes(UTF_8);
+    }
+}
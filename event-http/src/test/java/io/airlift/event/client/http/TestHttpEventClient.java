@@ -15,11 +15,13 @@
  */
 package io.airlift.event.client.http;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.CharStreams;
 import io.airlift.discovery.client.HttpServiceSelector;
 import io.airlift.discovery.client.testing.StaticHttpServiceSelector;
 import io.airlift.event.client.EventTypeMetadata;
 import io.airlift.event.client.FixedDummyEventClass;
+import io.airlift.event.client.InvalidEventException;
 import io.airlift.event.client.JsonEventWriter;
 import io.airlift.event.client.ServiceUnavailableException;
 import io.airlift.event.client.TestingUtils;
@@ -45,6 +47,7 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.InetSocketAddress;
@@ -55,17 +58,25 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import static com.google.common.base.Throwables.throwIfUnchecked;
+import static com.google.common.io.Files.createTempDir;
+import static com.google.common.io.MoreFiles.deleteRecursively;
+import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
 import static io.airlift.event.client.EventTypeMetadata.getValidEventTypeMetaDataSet;
 import static io.airlift.event.client.TestingUtils.getNormalizedJson;
+import static io.airlift.testing.Assertions.assertInstanceOf;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
 
 @Test(singleThreaded = true)
 public class TestHttpEventClient
@@ -134,6 +145,114 @@ public class TestHttpEventClient
         assertEquals(servlet.lastBody, getNormalizedJson("events.json"));
     }
 
+    @Test
+    public void testBatching()
+            throws Exception
+    {
+        HttpEventClientConfig config = new HttpEventClientConfig()
+                .setBatchingEnabled(true)
+                .setMaxBatchDelay(new Duration(1, MINUTES));
+        client = newEventClient(asList(baseUri), config);
+        try {
+            List<FixedDummyEventClass> events = TestingUtils.getEvents();
+            client.post(events.subList(0, 2)).get();
+            client.post(events.subList(2, 3)).get();
+        }
+        finally {
+            // flushes the queued events as a single batch
+            client.stop();
+        }
+
+        assertEquals(servlet.lastPath, "/v2/event");
+        assertEquals(String.join("", servlet.bodies), getNormalizedJson("events.json"));
+        assertEquals(client.getPostedBatches(), 1);
+    }
+
+    @Test
+    public void testBatchingFailsInvalidEvent()
+            throws Exception
+    {
+        client = newEventClient(asList(baseUri), new HttpEventClientConfig().setBatchingEnabled(true));
+        try {
+            client.post(ImmutableList.of("not an event")).get();
+            fail("expected ExecutionException");
+        }
+        catch (ExecutionException e) {
+            assertInstanceOf(e.getCause(), InvalidEventException.class);
+        }
+        finally {
+            client.stop();
+        }
+        assertEquals(client.getPostedBatches(), 0);
+    }
+
+    @Test
+    public void testBatchingSurvivesPostError()
+            throws Exception
+    {
+        HttpEventClientConfig config = new HttpEventClientConfig()
+                .setBatchingEnabled(true)
+                .setMaxBatchDelay(new Duration(10, MILLISECONDS));
+        MutableHttpServiceSelector selector = new MutableHttpServiceSelector();
+        selector.uris = asList(baseUri);
+        selector.failure = new IllegalStateException("test");
+        client = newEventClient(selector, config);
+        try {
+            client.post(TestingUtils.getEvents()).get();
+            while (client.getDroppedBatches() == 0) {
+                MILLISECONDS.sleep(10);
+            }
+
+            // the batcher keeps posting after the error
+            selector.failure = null;
+            client.post(TestingUtils.getEvents()).get();
+        }
+        finally {
+            client.stop();
+        }
+
+        assertEquals(servlet.bodies, asList(getNormalizedJson("events.json")));
+        assertEquals(client.getPostedBatches(), 1);
+        assertEquals(client.getDroppedBatches(), 1);
+    }
+
+    @Test
+    public void testSpoolWhenServiceUnavailable()
+            throws Exception
+    {
+        File spoolDirectory = createTempDir();
+        try {
+            HttpEventClientConfig config = new HttpEventClientConfig()
+                    .setBatchingEnabled(true)
+                    .setMaxBatchDelay(new Duration(10, MILLISECONDS))
+                    .setSpoolPath(spoolDirectory.getPath());
+            MutableHttpServiceSelector selector = new MutableHttpServiceSelector();
+            client = newEventClient(selector, config);
+            try {
+                client.post(TestingUtils.getEvents()).get();
+                while (client.getSpooledBatches() == 0) {
+                    MILLISECONDS.sleep(10);
+                }
+                assertNull(servlet.lastBody);
+
+                // the spooled batch is posted once a collector is available
+                selector.uris = asList(baseUri);
+                while (client.getSpoolSizeInBytes() > 0) {
+                    MILLISECONDS.sleep(10);
+                }
+            }
+            finally {
+                client.stop();
+            }
+
+            assertEquals(servlet.bodies, asList(getNormalizedJson("events.json")));
+            assertEquals(client.getDroppedBatches(), 0);
+        }
+        finally {
+            deleteRecursively(spoolDirectory.toPath(), ALLOW_INSECURE);
+        }
+    }
+
     @BeforeMethod
     public void setup()
             throws Exception
@@ -158,8 +277,16 @@ public class TestHttpEventClient
 
     private HttpEventClient newEventClient(List<URI> uris)
     {
-        HttpServiceSelector selector = new StaticHttpServiceSelector("collector", "general", uris);
+        return newEventClient(uris, new HttpEventClientConfig());
+    }
 
+    private HttpEventClient newEventClient(List<URI> uris, HttpEventClientConfig config)
+    {
+        return newEventClient(new StaticHttpServiceSelector("collector", "general", uris), config);
+    }
+
+    private HttpEventClient newEventClient(HttpServiceSelector selector, HttpEventClientConfig config)
+    {
         Set<EventTypeMetadata<?>> eventTypes = getValidEventTypeMetaDataSet(FixedDummyEventClass.class);
         JsonEventWriter eventWriter = new JsonEventWriter(eventTypes);
 
@@ -167,7 +294,8 @@ public class TestHttpEventClient
                 selector,
                 eventWriter,
                 new NodeInfo("test"),
-                httpClient);
+                httpClient,
+                config);
     }
 
     private Server createServer(final DummyServlet servlet)
@@ -205,6 +333,7 @@ public class TestHttpEventClient
     {
         private volatile String lastPath;
         private volatile String lastBody;
+        private final List<String> bodies = new CopyOnWriteArrayList<>();
 
         private DummyServlet()
         {
@@ -216,6 +345,35 @@ public class TestHttpEventClient
         {
             lastPath = request.getPathInfo();
             lastBody = CharStreams.toString(new InputStreamReader(request.getInputStream(), UTF_8));
+            bodies.add(lastBody);
+        }
+    }
+
+    private static class MutableHttpServiceSelector
+            implements HttpServiceSelector
+    {
+        private volatile List<URI> uris = ImmutableList.of();
+        private volatile RuntimeException failure;
+
+        @Override
+        public String getType()
+        {
+            return "collector";
+        }
+
+        @Override
+        public String getPool()
+        {
+            return "general";
+        }
+
+        @Override
+        public List<URI> selectHttpService()
+        {
+            if (failure != null) {
+                throw failure;
+            }
+            return uris;
         }
     }
 }
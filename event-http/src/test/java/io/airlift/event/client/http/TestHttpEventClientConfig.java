@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.event.client.http;
+
+import com.google.common.collect.ImmutableMap;
+import io.airlift.units.DataSize;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static io.airlift.configuration.testing.ConfigAssertions.assertFullMapping;
+import static io.airlift.configuration.testing.ConfigAssertions.assertRecordedDefaults;
+import static io.airlift.configuration.testing.ConfigAssertions.recordDefaults;
+import static io.airlift.units.DataSize.Unit.GIGABYTE;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+public class TestHttpEventClientConfig
+{
+    @Test
+    public void testDefaults()
+    {
+        assertRecordedDefaults(recordDefaults(HttpEventClientConfig.class)
+                .setBatchingEnabled(false)
+                .setMaxBatchSize(new DataSize(1, MEGABYTE))
+                .setMaxBatchDelay(new Duration(1, SECONDS))
+                .setMaxQueuedSize(new DataSize(16, MEGABYTE))
+                .setMaxAttempts(3)
+                .setSpoolPath(null)
+                .setMaxSpoolSize(new DataSize(1, GIGABYTE)));
+    }
+
+    @Test
+    public void testExplicitPropertyMappings()
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("event-client.batching.enabled", "true")
+                .put("event-client.batching.max-batch-size", "256kB")
+                .put("event-client.batching.max-delay", "100ms")
+                .put("event-client.batching.max-queued-size", "4MB")
+                .put("event-client.batching.max-attempts", "5")
+                .put("event-client.spool.path", "var/spool/events")
+                .put("event-client.spool.max-size", "10MB")
+                .build();
+
+        HttpEventClientConfig expected = new HttpEventClientConfig()
+                .setBatchingEnabled(true)
+                .setMaxBatchSize(new DataSize(256, KILOBYTE))
+                .setMaxBatchDelay(new Duration(100, MILLISECONDS))
+                .setMaxQueuedSize(new DataSize(4, MEGABYTE))
+                .setMaxAttempts(5)
+                .setSpoolPath("var/spool/events")
+                .setMaxSpoolSize(new DataSize(10, MEGABYTE));
+
+        assertFullMapping(properties, expected);
+    }
+}
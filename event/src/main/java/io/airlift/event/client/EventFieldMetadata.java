@@ -16,12 +16,17 @@
 package io.airlift.event.client;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.google.common.annotations.Beta;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -31,8 +36,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
-import static com.google.common.base.MoreObjects.firstNonNull;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
 import static io.airlift.event.client.EventDataType.validateFieldValueType;
+import static java.lang.invoke.MethodType.methodType;
 
 @Beta
 public class EventFieldMetadata
@@ -49,10 +55,13 @@ public class EventFieldMetadata
     }
 
     private final String name;
+    private final SerializedString serializedName;
     private final Method method;
+    private final MethodHandle getter;
     private final Optional<EventDataType> eventDataType;
     private final Optional<EventTypeMetadata<?>> nestedType;
     private final Optional<ContainerType> containerType;
+    private final ValueWriter valueWriter;
 
     EventFieldMetadata(String name, Method method, Optional<EventDataType> eventDataType, Optional<EventTypeMetadata<?>> nestedType, Optional<ContainerType> containerType)
     {
@@ -60,10 +69,20 @@ public class EventFieldMetadata
         Preconditions.checkArgument(!eventDataType.isPresent() || !nestedType.isPresent(), "both eventDataType and nestedType are set");
 
         this.name = name;
+        this.serializedName = new SerializedString(name);
         this.method = method;
         this.eventDataType = eventDataType;
         this.nestedType = nestedType;
         this.containerType = containerType;
+
+        try {
+            // the method has been made accessible, so the lookup does not need access to the event class
+            this.getter = MethodHandles.lookup().unreflect(method).asType(methodType(Object.class, Object.class));
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to access event field method " + method, e);
+        }
+        this.valueWriter = createValueWriter();
     }
 
     public String getName()
@@ -91,10 +110,12 @@ public class EventFieldMetadata
             throws InvalidEventException
     {
         try {
-            return method.invoke(event);
+            return (Object) getter.invokeExact(event);
         }
-        catch (Exception e) {
-            throw new InvalidEventException(firstNonNull(e.getCause(), e),
+        catch (Throwable e) {
+            // invokeExact declares Throwable, but errors are not problems of the event
+            throwIfInstanceOf(e, Error.class);
+            throw new InvalidEventException(e,
                     "Unable to get value of event field %s: Exception occurred while invoking [%s]", name, method.toGenericString());
         }
     }
@@ -102,81 +123,103 @@ public class EventFieldMetadata
     public void writeField(JsonGenerator jsonGenerator, Object event)
             throws IOException
     {
-        writeField(jsonGenerator, event, new ArrayDeque<>());
+        writeField(jsonGenerator, event, null);
     }
 
-    private void writeField(JsonGenerator jsonGenerator, Object event, Deque<Object> objectStack)
+    /**
+     * @param objectStack the nested objects being written, or null if the field is not part of a nested object
+     */
+    private void writeField(JsonGenerator jsonGenerator, Object event, @Nullable Deque<Object> objectStack)
             throws IOException
     {
         Object value = getValue(event);
         if (value != null) {
-            jsonGenerator.writeFieldName(name);
-            if (containerType.isPresent()) {
-                if (containerType.get() == ContainerType.ITERABLE) {
-                    validateFieldValueType(value, Iterable.class);
-                    writeArray(jsonGenerator, (Iterable<?>) value, objectStack);
-                }
-                else if (containerType.get() == ContainerType.MAP) {
-                    validateFieldValueType(value, Map.class);
-                    writeMap(jsonGenerator, (Map<?, ?>) value, objectStack);
-                }
-                else if (containerType.get() == ContainerType.MULTIMAP) {
-                    validateFieldValueType(value, Multimap.class);
-                    writeMultimap(jsonGenerator, (Multimap<?, ?>) value, objectStack);
-                }
-                return;
-            }
-            writeFieldValue(jsonGenerator, value, objectStack);
+            jsonGenerator.writeFieldName(serializedName);
+            valueWriter.write(jsonGenerator, value, objectStack);
         }
     }
 
-    private void writeFieldValue(JsonGenerator jsonGenerator, Object value, Deque<Object> objectStack)
-            throws IOException
+    /**
+     * Resolves the data type and container type of the field once, so writing
+     * a value does not need to inspect them again.
+     */
+    private ValueWriter createValueWriter()
     {
+        ValueWriter elementWriter;
         if (eventDataType.isPresent()) {
-            eventDataType.get().writeFieldValue(jsonGenerator, value);
+            EventDataType dataType = eventDataType.get();
+            elementWriter = (jsonGenerator, value, objectStack) -> dataType.writeFieldValue(jsonGenerator, value);
         }
         else {
-            validateFieldValueType(value, nestedType.get().getEventClass());
-            writeObject(jsonGenerator, value, objectStack);
+            Class<?> nestedClass = nestedType.get().getEventClass();
+            elementWriter = (jsonGenerator, value, objectStack) -> {
+                validateFieldValueType(value, nestedClass);
+                writeObject(jsonGenerator, value, objectStack);
+            };
+        }
+
+        if (!containerType.isPresent()) {
+            return elementWriter;
+        }
+        switch (containerType.get()) {
+            case ITERABLE:
+                return (jsonGenerator, value, objectStack) -> {
+                    validateFieldValueType(value, Iterable.class);
+                    writeArray(jsonGenerator, (Iterable<?>) value, elementWriter, objectStack);
+                };
+            case MAP:
+                return (jsonGenerator, value, objectStack) -> {
+                    validateFieldValueType(value, Map.class);
+                    writeMap(jsonGenerator, (Map<?, ?>) value, elementWriter, objectStack);
+                };
+            case MULTIMAP:
+                return (jsonGenerator, value, objectStack) -> {
+                    validateFieldValueType(value, Multimap.class);
+                    writeMultimap(jsonGenerator, (Multimap<?, ?>) value, elementWriter, objectStack);
+                };
         }
+        throw new IllegalArgumentException("Unsupported container type: " + containerType.get());
     }
 
-    private void writeArray(JsonGenerator jsonGenerator, Iterable<?> value, Deque<Object> objectStack)
+    private static void writeArray(JsonGenerator jsonGenerator, Iterable<?> value, ValueWriter elementWriter, Deque<Object> objectStack)
             throws IOException
     {
         jsonGenerator.writeStartArray();
         for (Object item : value) {
-            writeFieldValue(jsonGenerator, item, objectStack);
+            elementWriter.write(jsonGenerator, item, objectStack);
         }
         jsonGenerator.writeEndArray();
     }
 
-    private void writeMap(JsonGenerator jsonGenerator, Map<?, ?> value, Deque<Object> objectStack)
+    private static void writeMap(JsonGenerator jsonGenerator, Map<?, ?> value, ValueWriter elementWriter, Deque<Object> objectStack)
             throws IOException
     {
         jsonGenerator.writeStartObject();
         for (Map.Entry<?, ?> entry : value.entrySet()) {
             jsonGenerator.writeFieldName((String) entry.getKey());
-            writeFieldValue(jsonGenerator, entry.getValue(), objectStack);
+            elementWriter.write(jsonGenerator, entry.getValue(), objectStack);
         }
         jsonGenerator.writeEndObject();
     }
 
-    private void writeMultimap(JsonGenerator jsonGenerator, Multimap<?, ?> value, Deque<Object> objectStack)
+    private static void writeMultimap(JsonGenerator jsonGenerator, Multimap<?, ?> value, ValueWriter elementWriter, Deque<Object> objectStack)
             throws IOException
     {
         jsonGenerator.writeStartObject();
         for (Map.Entry<?, ? extends Collection<?>> entry : value.asMap().entrySet()) {
             jsonGenerator.writeFieldName((String) entry.getKey());
-            writeArray(jsonGenerator, entry.getValue(), objectStack);
+            writeArray(jsonGenerator, entry.getValue(), elementWriter, objectStack);
         }
         jsonGenerator.writeEndObject();
     }
 
-    private void writeObject(JsonGenerator jsonGenerator, Object value, Deque<Object> objectStack)
+    private void writeObject(JsonGenerator jsonGenerator, Object value, @Nullable Deque<Object> objectStack)
             throws IOException
     {
+        // the stack is only needed once nested objects are written
+        if (objectStack == null) {
+            objectStack = new ArrayDeque<>();
+        }
         checkForCycles(value, objectStack);
         objectStack.push(value);
         jsonGenerator.writeStartObject();
@@ -197,4 +240,10 @@ public class EventFieldMetadata
             }
         }
     }
+
+    private interface ValueWriter
+    {
+        void write(JsonGenerator jsonGenerator, Object value, @Nullable Deque<Object> objectStack)
+                throws IOException;
+    }
 }
@@ -16,6 +16,7 @@
 package io.airlift.event.client;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import org.joda.time.DateTime;
@@ -30,7 +31,15 @@ import static java.util.Objects.requireNonNull;
 public class EventJsonSerializer<T>
         extends JsonSerializer<T>
 {
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString UUID_FIELD = new SerializedString("uuid");
+    private static final SerializedString HOST = new SerializedString("host");
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializedString DATA = new SerializedString("data");
+
     private final EventTypeMetadata<T> eventTypeMetadata;
+    private final SerializedString typeName;
+    private final EventFieldMetadata[] fields;
     private final String hostName;
 
     public EventJsonSerializer(EventTypeMetadata<T> eventTypeMetadata)
@@ -38,6 +47,8 @@ public class EventJsonSerializer<T>
         requireNonNull(eventTypeMetadata, "eventTypeMetadata is null");
 
         this.eventTypeMetadata = eventTypeMetadata;
+        this.typeName = new SerializedString(eventTypeMetadata.getTypeName());
+        this.fields = eventTypeMetadata.getFields().toArray(new EventFieldMetadata[0]);
         if (eventTypeMetadata.getHostField() == null) {
             try {
                 hostName = InetAddress.getLocalHost().getHostName();
@@ -63,32 +74,36 @@ public class EventJsonSerializer<T>
     {
         jsonGenerator.writeStartObject();
 
-        jsonGenerator.writeStringField("type", eventTypeMetadata.getTypeName());
+        jsonGenerator.writeFieldName(TYPE);
+        jsonGenerator.writeString(typeName);
 
         if (eventTypeMetadata.getUuidField() != null) {
             eventTypeMetadata.getUuidField().writeField(jsonGenerator, event);
         }
         else {
-            jsonGenerator.writeStringField("uuid", UUID.randomUUID().toString());
+            jsonGenerator.writeFieldName(UUID_FIELD);
+            jsonGenerator.writeString(UUID.randomUUID().toString());
         }
 
         if (eventTypeMetadata.getHostField() != null) {
             eventTypeMetadata.getHostField().writeField(jsonGenerator, event);
         }
         else {
-            jsonGenerator.writeStringField("host", hostName);
+            jsonGenerator.writeFieldName(HOST);
+            jsonGenerator.writeString(hostName);
         }
 
         if (eventTypeMetadata.getTimestampField() != null) {
             eventTypeMetadata.getTimestampField().writeField(jsonGenerator, event);
         }
         else {
-            jsonGenerator.writeFieldName("timestamp");
+            jsonGenerator.writeFieldName(TIMESTAMP);
             EventDataType.DATETIME.writeFieldValue(jsonGenerator, new DateTime());
         }
 
-        jsonGenerator.writeObjectFieldStart("data");
-        for (EventFieldMetadata field : eventTypeMetadata.getFields()) {
+        jsonGenerator.writeFieldName(DATA);
+        jsonGenerator.writeStartObject();
+        for (EventFieldMetadata field : fields) {
             field.writeField(jsonGenerator, event);
         }
         jsonGenerator.writeEndObject();
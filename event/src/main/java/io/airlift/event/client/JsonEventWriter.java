@@ -18,6 +18,7 @@ package io.airlift.event.client;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.google.common.collect.ImmutableMap;
 
@@ -60,22 +61,61 @@ public class JsonEventWriter
 
         jsonGenerator.writeStartArray();
 
-        events.generate(event -> {
-            JsonSerializer<T> serializer = getSerializer(event);
-            if (serializer == null) {
-                throw new InvalidEventException("Event class [%s] has not been registered as an event", event.getClass().getName());
-            }
+        SerializerCache<T> serializerCache = new SerializerCache<>();
+        events.generate(event -> serializerCache.get(event).serialize(event, jsonGenerator, null));
 
-            serializer.serialize(event, jsonGenerator, null);
+        jsonGenerator.writeEndArray();
+        jsonGenerator.flush();
+    }
+
+    /**
+     * Writes the events as comma separated JSON objects without the enclosing
+     * array, so that fragments can later be joined into a single array.
+     *
+     * @return the number of events written
+     */
+    public <T> int writeEventFragment(EventClient.EventGenerator<T> events, OutputStream out)
+            throws IOException
+    {
+        requireNonNull(events, "events is null");
+        requireNonNull(out, "out is null");
+
+        final JsonGenerator jsonGenerator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        jsonGenerator.setRootValueSeparator(new SerializedString(","));
+
+        SerializerCache<T> serializerCache = new SerializerCache<>();
+        int[] count = new int[1];
+        events.generate(event -> {
+            serializerCache.get(event).serialize(event, jsonGenerator, null);
+            count[0]++;
         });
 
-        jsonGenerator.writeEndArray();
         jsonGenerator.flush();
+        return count[0];
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> JsonSerializer<T> getSerializer(T event)
+    /**
+     * Remembers the serializer of the last event class, as batches
+     * usually contain many events of the same class.
+     */
+    private class SerializerCache<T>
     {
-        return (JsonSerializer<T>) serializers.get(event.getClass());
+        private Class<?> eventClass;
+        private JsonSerializer<T> serializer;
+
+        @SuppressWarnings("unchecked")
+        public JsonSerializer<T> get(T event)
+                throws InvalidEventException
+        {
+            if (event.getClass() != eventClass) {
+                JsonSerializer<T> serializer = (JsonSerializer<T>) serializers.get(event.getClass());
+                if (serializer == null) {
+                    throw new InvalidEventException("Event class [%s] has not been registered as an event", event.getClass().getName());
+                }
+                this.eventClass = event.getClass();
+                this.serializer = serializer;
+            }
+            return serializer;
+        }
     }
 }
@@ -40,7 +40,7 @@ public class TestJsonEventWriter
             throws Exception
     {
         Set<EventTypeMetadata<?>> eventTypes = getValidEventTypeMetaDataSet(
-                FixedDummyEventClass.class, NestedDummyEventClass.class, CircularEventClass.class, ChainedCircularEventClass.class);
+                FixedDummyEventClass.class, NestedDummyEventClass.class, CircularEventClass.class, ChainedCircularEventClass.class, FailingEventClass.class);
         eventWriter = new JsonEventWriter(eventTypes);
     }
 
@@ -51,6 +51,18 @@ public class TestJsonEventWriter
         assertEventJson(createEventGenerator(TestingUtils.getEvents()), "events.json");
     }
 
+    @Test
+    public void testEventFragment()
+            throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int count = eventWriter.writeEventFragment(createEventGenerator(TestingUtils.getEvents()), out);
+
+        assertEquals(count, TestingUtils.getEvents().size());
+        assertEquals("[" + out.toString(UTF_8.name()) + "]", TestingUtils.getNormalizedJson("events.json"));
+    }
+
     @Test
     public void testNullValue()
             throws Exception
@@ -97,6 +109,22 @@ public class TestJsonEventWriter
         eventWriter.writeEvents(createEventGenerator(ImmutableList.of(event)), nullOutputStream());
     }
 
+    @Test(expectedExceptions = InvalidEventException.class, expectedExceptionsMessageRegExp = "Unable to get value of event field value: .*")
+    public void testGetterException()
+            throws Exception
+    {
+        FailingEventClass event = new FailingEventClass(new IllegalStateException("test"));
+        eventWriter.writeEvents(createEventGenerator(ImmutableList.of(event)), nullOutputStream());
+    }
+
+    @Test(expectedExceptions = OutOfMemoryError.class, expectedExceptionsMessageRegExp = "test")
+    public void testGetterErrorIsNotWrapped()
+            throws Exception
+    {
+        FailingEventClass event = new FailingEventClass(new OutOfMemoryError("test"));
+        eventWriter.writeEvents(createEventGenerator(ImmutableList.of(event)), nullOutputStream());
+    }
+
     private void assertEventJson(EventClient.EventGenerator<?> events, String resource)
             throws Exception
     {
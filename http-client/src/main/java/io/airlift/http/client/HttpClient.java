@@ -19,6 +19,8 @@ import com.google.common.annotations.Beta;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.Closeable;
+import java.net.URI;
+import java.util.List;
 
 @Beta
 public interface HttpClient
@@ -29,6 +31,33 @@ public interface HttpClient
 
     <T, E extends Exception> HttpResponseFuture<T> executeAsync(Request request, ResponseHandler<T, E> responseHandler);
 
+    /**
+     * Executes the request and streams the response content to the handler as
+     * it arrives. The content is not buffered and is not subject to the maximum
+     * content length.
+     * <p>
+     * The default implementation does not support streaming and returns a
+     * future failed with {@link UnsupportedOperationException}.
+     */
+    default <T, E extends Exception> HttpResponseFuture<T> executeStreaming(Request request, StreamingResponseHandler<T, E> responseHandler)
+    {
+        return new UnsupportedHttpResponseFuture<>(getClass().getName() + " does not support streaming responses");
+    }
+
+    /**
+     * Executes the request like {@link #executeAsync}, but when no response
+     * arrives within the recent latency of the destination, or when the request
+     * fails, sends a duplicate of the request to the next of the alternative URIs.
+     * The first successful response is used and the other requests are canceled.
+     * The request body must be repeatable.
+     * <p>
+     * The default implementation does not hedge and only sends the request.
+     */
+    default <T, E extends Exception> HttpResponseFuture<T> executeHedged(Request request, List<URI> alternativeUris, ResponseHandler<T, E> responseHandler)
+    {
+        return executeAsync(request, responseHandler);
+    }
+
     RequestStats getStats();
 
     long getMaxContentLength();
@@ -29,6 +29,8 @@ import io.airlift.units.MaxDataSize;
 import io.airlift.units.MinDataSize;
 import io.airlift.units.MinDuration;
 
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
@@ -39,6 +41,7 @@ import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -60,6 +63,9 @@ public class HttpClientConfig
     private DataSize maxContentLength = new DataSize(16, MEGABYTE);
     private DataSize requestBufferSize = new DataSize(4, KILOBYTE);
     private DataSize responseBufferSize = new DataSize(16, KILOBYTE);
+    private boolean responseBufferPoolEnabled;
+    private DataSize responseBufferPoolMaxSize = new DataSize(32, MEGABYTE);
+    private boolean responseBufferPoolDirect;
     private HostAndPort socksProxy;
     private String keyStorePath = System.getProperty(JAVAX_NET_SSL_KEY_STORE);
     private String keyStorePassword = System.getProperty(JAVAX_NET_SSL_KEY_STORE_PASSWORD);
@@ -89,6 +95,22 @@ public class HttpClientConfig
     private int timeoutThreads = 1;
     private int timeoutConcurrency = 1;
 
+    private int hedgingDelayPercentile = 95;
+    private Duration hedgingMinDelay = new Duration(10, MILLISECONDS);
+    private int hedgingMaxPercent = 5;
+
+    private int maxTrackedDestinations = 100;
+
+    private boolean concurrencyLimitEnabled;
+    private int concurrencyLimitInitialLimit = 20;
+    private int concurrencyLimitMaxLimit = 200;
+
+    private boolean circuitBreakerEnabled;
+    private int circuitBreakerFailureThreshold = 50;
+    private int circuitBreakerMinRequests = 20;
+    private Duration circuitBreakerWindow = new Duration(10, SECONDS);
+    private Duration circuitBreakerOpenDuration = new Duration(10, SECONDS);
+
     private boolean http2Enabled;
     private DataSize http2InitialSessionReceiveWindowSize = new DataSize(16, MEGABYTE);
     private DataSize http2InitialStreamReceiveWindowSize = new DataSize(16, MEGABYTE);
@@ -253,6 +275,46 @@ public class HttpClientConfig
         return this;
     }
 
+    public boolean isResponseBufferPoolEnabled()
+    {
+        return responseBufferPoolEnabled;
+    }
+
+    @Config("http-client.response-buffer-pool.enabled")
+    @ConfigDescription("Buffer asynchronous responses in recycled chunks that are returned to a pool once the response has been handled")
+    public HttpClientConfig setResponseBufferPoolEnabled(boolean responseBufferPoolEnabled)
+    {
+        this.responseBufferPoolEnabled = responseBufferPoolEnabled;
+        return this;
+    }
+
+    @NotNull
+    public DataSize getResponseBufferPoolMaxSize()
+    {
+        return responseBufferPoolMaxSize;
+    }
+
+    @Config("http-client.response-buffer-pool.max-size")
+    @ConfigDescription("Maximum size of the free chunks retained by the response buffer pool")
+    public HttpClientConfig setResponseBufferPoolMaxSize(DataSize responseBufferPoolMaxSize)
+    {
+        this.responseBufferPoolMaxSize = responseBufferPoolMaxSize;
+        return this;
+    }
+
+    public boolean isResponseBufferPoolDirect()
+    {
+        return responseBufferPoolDirect;
+    }
+
+    @Config("http-client.response-buffer-pool.direct")
+    @ConfigDescription("Allocate response buffer pool chunks outside of the Java heap")
+    public HttpClientConfig setResponseBufferPoolDirect(boolean responseBufferPoolDirect)
+    {
+        this.responseBufferPoolDirect = responseBufferPoolDirect;
+        return this;
+    }
+
     public HostAndPort getSocksProxy()
     {
         return socksProxy;
@@ -564,6 +626,181 @@ public class HttpClientConfig
         return this;
     }
 
+    @Min(1)
+    @Max(99)
+    public int getHedgingDelayPercentile()
+    {
+        return hedgingDelayPercentile;
+    }
+
+    @Config("http-client.hedging.delay-percentile")
+    @ConfigDescription("Percentile of the recent request time of a destination after which a hedged request sends a duplicate")
+    public HttpClientConfig setHedgingDelayPercentile(int hedgingDelayPercentile)
+    {
+        this.hedgingDelayPercentile = hedgingDelayPercentile;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("0ms")
+    public Duration getHedgingMinDelay()
+    {
+        return hedgingMinDelay;
+    }
+
+    @Config("http-client.hedging.min-delay")
+    @ConfigDescription("Minimum time to wait for a response before a hedged request sends a duplicate")
+    public HttpClientConfig setHedgingMinDelay(Duration hedgingMinDelay)
+    {
+        this.hedgingMinDelay = hedgingMinDelay;
+        return this;
+    }
+
+    @Min(0)
+    @Max(100)
+    public int getHedgingMaxPercent()
+    {
+        return hedgingMaxPercent;
+    }
+
+    @Config("http-client.hedging.max-percent")
+    @ConfigDescription("Maximum number of duplicates sent, as a percentage of hedged requests")
+    public HttpClientConfig setHedgingMaxPercent(int hedgingMaxPercent)
+    {
+        this.hedgingMaxPercent = hedgingMaxPercent;
+        return this;
+    }
+
+    @Min(1)
+    public int getMaxTrackedDestinations()
+    {
+        return maxTrackedDestinations;
+    }
+
+    @Config("http-client.destination-stats.max-destinations")
+    @ConfigDescription("Maximum number of destinations to keep request statistics for, after which the least recently used are dropped")
+    public HttpClientConfig setMaxTrackedDestinations(int maxTrackedDestinations)
+    {
+        this.maxTrackedDestinations = maxTrackedDestinations;
+        return this;
+    }
+
+    public boolean isConcurrencyLimitEnabled()
+    {
+        return concurrencyLimitEnabled;
+    }
+
+    @Config("http-client.concurrency-limit.enabled")
+    @ConfigDescription("Adapt the number of requests in flight to each destination to its round trip time, and reject requests beyond the limit")
+    public HttpClientConfig setConcurrencyLimitEnabled(boolean concurrencyLimitEnabled)
+    {
+        this.concurrencyLimitEnabled = concurrencyLimitEnabled;
+        return this;
+    }
+
+    @Min(1)
+    public int getConcurrencyLimitInitialLimit()
+    {
+        return concurrencyLimitInitialLimit;
+    }
+
+    @Config("http-client.concurrency-limit.initial-limit")
+    public HttpClientConfig setConcurrencyLimitInitialLimit(int concurrencyLimitInitialLimit)
+    {
+        this.concurrencyLimitInitialLimit = concurrencyLimitInitialLimit;
+        return this;
+    }
+
+    @Min(1)
+    public int getConcurrencyLimitMaxLimit()
+    {
+        return concurrencyLimitMaxLimit;
+    }
+
+    @Config("http-client.concurrency-limit.max-limit")
+    public HttpClientConfig setConcurrencyLimitMaxLimit(int concurrencyLimitMaxLimit)
+    {
+        this.concurrencyLimitMaxLimit = concurrencyLimitMaxLimit;
+        return this;
+    }
+
+    @AssertTrue(message = "concurrency limit max-limit must be at least initial-limit")
+    public boolean isConcurrencyLimitConfigurationValid()
+    {
+        return concurrencyLimitMaxLimit >= concurrencyLimitInitialLimit;
+    }
+
+    public boolean isCircuitBreakerEnabled()
+    {
+        return circuitBreakerEnabled;
+    }
+
+    @Config("http-client.circuit-breaker.enabled")
+    @ConfigDescription("Reject requests to a destination while too many of its recent requests failed")
+    public HttpClientConfig setCircuitBreakerEnabled(boolean circuitBreakerEnabled)
+    {
+        this.circuitBreakerEnabled = circuitBreakerEnabled;
+        return this;
+    }
+
+    @Min(1)
+    @Max(100)
+    public int getCircuitBreakerFailureThreshold()
+    {
+        return circuitBreakerFailureThreshold;
+    }
+
+    @Config("http-client.circuit-breaker.failure-threshold")
+    @ConfigDescription("Percentage of failed requests in a window at which the circuit breaker opens")
+    public HttpClientConfig setCircuitBreakerFailureThreshold(int circuitBreakerFailureThreshold)
+    {
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+        return this;
+    }
+
+    @Min(1)
+    public int getCircuitBreakerMinRequests()
+    {
+        return circuitBreakerMinRequests;
+    }
+
+    @Config("http-client.circuit-breaker.min-requests")
+    @ConfigDescription("Minimum number of requests in a window before the circuit breaker can open")
+    public HttpClientConfig setCircuitBreakerMinRequests(int circuitBreakerMinRequests)
+    {
+        this.circuitBreakerMinRequests = circuitBreakerMinRequests;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getCircuitBreakerWindow()
+    {
+        return circuitBreakerWindow;
+    }
+
+    @Config("http-client.circuit-breaker.window")
+    public HttpClientConfig setCircuitBreakerWindow(Duration circuitBreakerWindow)
+    {
+        this.circuitBreakerWindow = circuitBreakerWindow;
+        return this;
+    }
+
+    @NotNull
+    @MinDuration("1ms")
+    public Duration getCircuitBreakerOpenDuration()
+    {
+        return circuitBreakerOpenDuration;
+    }
+
+    @Config("http-client.circuit-breaker.open-duration")
+    @ConfigDescription("Time the circuit breaker rejects requests before letting a trial request through")
+    public HttpClientConfig setCircuitBreakerOpenDuration(Duration circuitBreakerOpenDuration)
+    {
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+        return this;
+    }
+
     public String getLogPath()
     {
         return logPath;
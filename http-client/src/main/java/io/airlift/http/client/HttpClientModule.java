@@ -18,6 +18,7 @@ package io.airlift.http.client;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Binder;
+import com.google.inject.Binding;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import com.google.inject.Module;
@@ -26,6 +27,7 @@ import com.google.inject.TypeLiteral;
 import io.airlift.configuration.ConfigDefaults;
 import io.airlift.http.client.jetty.JettyHttpClient;
 import io.airlift.http.client.spnego.KerberosConfig;
+import org.weakref.jmx.MBeanExporter;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -113,7 +115,14 @@ public class HttpClientModule
                     .addAll(injector.getInstance(Key.get(new TypeLiteral<Set<HttpRequestFilter>>() {}, annotation)))
                     .build();
 
-            return new JettyHttpClient(name, config, kerberosConfig, ImmutableList.copyOf(filters));
+            JettyHttpClient client = new JettyHttpClient(name, config, kerberosConfig, ImmutableList.copyOf(filters));
+
+            // export the per-destination stats when JMX is in use
+            Binding<MBeanExporter> exporter = injector.getExistingBinding(Key.get(MBeanExporter.class));
+            if (exporter != null) {
+                client.setMBeanExporter(exporter.getProvider().get());
+            }
+            return client;
         }
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client;
+
+import com.google.common.annotations.Beta;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Handles a response whose content is delivered in chunks as it arrives,
+ * instead of being buffered in memory. Content is only delivered when
+ * requested with {@link StreamingResponse#demand(long)}, so a slow
+ * handler slows down the transfer rather than accumulating data.
+ * The response completes only after all content has been demanded.
+ */
+@Beta
+public interface StreamingResponseHandler<T, E extends Exception>
+{
+    T handleException(Request request, Exception exception)
+            throws E;
+
+    /**
+     * Called once the response status and headers have been received,
+     * before any content.
+     */
+    void handleHeaders(Request request, StreamingResponse response)
+            throws E;
+
+    /**
+     * Called for each chunk of content, once per unit of demand. The
+     * buffer is only valid until this method returns.
+     */
+    void handleContent(Request request, ByteBuffer content)
+            throws E;
+
+    /**
+     * Called after all content has been delivered.
+     */
+    T handleComplete(Request request)
+            throws E;
+}
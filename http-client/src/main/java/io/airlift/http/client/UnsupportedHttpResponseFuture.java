@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client;
+
+import com.google.common.util.concurrent.ForwardingListenableFuture.SimpleForwardingListenableFuture;
+import io.airlift.http.client.HttpClient.HttpResponseFuture;
+
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+
+class UnsupportedHttpResponseFuture<T>
+        extends SimpleForwardingListenableFuture<T>
+        implements HttpResponseFuture<T>
+{
+    public UnsupportedHttpResponseFuture(String message)
+    {
+        super(immediateFailedFuture(new UnsupportedOperationException(message)));
+    }
+
+    @Override
+    public String getState()
+    {
+        return "FAILED";
+    }
+}
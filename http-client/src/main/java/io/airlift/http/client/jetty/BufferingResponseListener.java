@@ -7,12 +7,15 @@ import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.client.api.Result;
 import org.eclipse.jetty.http.HttpHeader;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -30,25 +33,43 @@ class BufferingResponseListener
     private static final long BUFFER_MIN_BYTES = new DataSize(1, KILOBYTE).toBytes();
     private final JettyResponseFuture<?, ?> future;
     private final int maxLength;
+    @Nullable
+    private final ResponseBufferPool bufferPool;
 
-    @GuardedBy("this")
+    // a lock rather than a monitor, so virtual threads completing the future are not pinned
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @GuardedBy("lock")
     private byte[] currentBuffer = new byte[0];
-    @GuardedBy("this")
+    @GuardedBy("lock")
     private int currentBufferPosition;
-    @GuardedBy("this")
+    @GuardedBy("lock")
     private List<byte[]> buffers = new ArrayList<>();
-    @GuardedBy("this")
+    @GuardedBy("lock")
+    private ByteBuffer currentChunk;
+    @GuardedBy("lock")
+    private List<ByteBuffer> chunks = new ArrayList<>();
+    @GuardedBy("lock")
     private long size;
 
     public BufferingResponseListener(JettyResponseFuture<?, ?> future, int maxLength)
+    {
+        this(future, maxLength, null);
+    }
+
+    /**
+     * @param bufferPool pool to take content chunks from, or null to allocate new arrays
+     */
+    public BufferingResponseListener(JettyResponseFuture<?, ?> future, int maxLength, @Nullable ResponseBufferPool bufferPool)
     {
         this.future = requireNonNull(future, "future is null");
         checkArgument(maxLength > 0, "maxLength must be greater than zero");
         this.maxLength = maxLength;
+        this.bufferPool = bufferPool;
     }
 
     @Override
-    public synchronized void onHeaders(Response response)
+    public void onHeaders(Response response)
     {
         long length = response.getHeaders().getLongField(HttpHeader.CONTENT_LENGTH.asString());
         if (length > maxLength) {
@@ -57,43 +78,110 @@ class BufferingResponseListener
     }
 
     @Override
-    public synchronized void onContent(Response response, ByteBuffer content)
+    public void onContent(Response response, ByteBuffer content)
     {
-        int length = content.remaining();
-        size += length;
-        if (size > maxLength) {
-            response.abort(new ResponseTooLargeException());
-            return;
-        }
+        lock.lock();
+        try {
+            int length = content.remaining();
+            size += length;
+            if (size > maxLength) {
+                response.abort(new ResponseTooLargeException());
+                return;
+            }
+
+            if (bufferPool != null) {
+                copyToChunks(content);
+                return;
+            }
 
-        while (length > 0) {
-            if (currentBufferPosition >= currentBuffer.length) {
-                allocateCurrentBuffer();
+            while (length > 0) {
+                if (currentBufferPosition >= currentBuffer.length) {
+                    allocateCurrentBuffer();
+                }
+                int readLength = min(length, currentBuffer.length - currentBufferPosition);
+                content.get(currentBuffer, currentBufferPosition, readLength);
+                length -= readLength;
+                currentBufferPosition += readLength;
             }
-            int readLength = min(length, currentBuffer.length - currentBufferPosition);
-            content.get(currentBuffer, currentBufferPosition, readLength);
-            length -= readLength;
-            currentBufferPosition += readLength;
+        }
+        finally {
+            lock.unlock();
         }
     }
 
     @Override
-    public synchronized void onComplete(Result result)
+    public void onComplete(Result result)
     {
         Throwable throwable = result.getFailure();
         if (throwable != null) {
+            releaseChunks();
             future.failed(throwable);
+            return;
+        }
+
+        // complete the future outside of the lock, as it runs the listeners of the future
+        InputStream content;
+        lock.lock();
+        try {
+            if (bufferPool != null) {
+                List<ByteBuffer> contentChunks = chunks;
+                long contentSize = size;
+                chunks = new ArrayList<>();
+                currentChunk = null;
+                size = 0;
+                for (ByteBuffer chunk : contentChunks) {
+                    chunk.flip();
+                }
+                // the chunks go back to the pool when the response stream is closed
+                content = new PooledBufferInputStream(contentChunks, contentSize, bufferPool);
+            }
+            else {
+                content = new GatheringByteArrayInputStream(buffers, size);
+                currentBuffer = new byte[0];
+                currentBufferPosition = 0;
+                buffers = new ArrayList<>();
+                size = 0;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        future.completed(result.getResponse(), content);
+    }
+
+    @GuardedBy("lock")
+    private void copyToChunks(ByteBuffer content)
+    {
+        while (content.hasRemaining()) {
+            if (currentChunk == null || !currentChunk.hasRemaining()) {
+                currentChunk = bufferPool.acquire();
+                chunks.add(currentChunk);
+            }
+            int readLength = min(content.remaining(), currentChunk.remaining());
+            int limit = content.limit();
+            content.limit(content.position() + readLength);
+            currentChunk.put(content);
+            content.limit(limit);
+        }
+    }
+
+    private void releaseChunks()
+    {
+        lock.lock();
+        try {
+            if (bufferPool != null) {
+                chunks.forEach(bufferPool::release);
+            }
+            chunks = new ArrayList<>();
+            currentChunk = null;
         }
-        else {
-            currentBuffer = new byte[0];
-            currentBufferPosition = 0;
-            future.completed(result.getResponse(), new GatheringByteArrayInputStream(buffers, size));
-            buffers = new ArrayList<>();
-            size = 0;
+        finally {
+            lock.unlock();
         }
     }
 
-    private synchronized void allocateCurrentBuffer()
+    @GuardedBy("lock")
+    private void allocateCurrentBuffer()
     {
         checkState(currentBufferPosition >= currentBuffer.length, "there is still remaining space in currentBuffer");
 
@@ -0,0 +1,192 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import com.google.common.base.Ticker;
+import io.airlift.stats.CounterStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Fails requests to a destination fast while too many of its recent requests
+ * failed.
+ * <p>
+ * The breaker opens when, within a window, at least the minimum number of
+ * requests completed and the percentage of failures reached the threshold.
+ * After the open duration, a single trial request is let through. The
+ * breaker closes when the next request completes successfully, and opens
+ * again when it fails.
+ */
+@ThreadSafe
+public class CircuitBreaker
+{
+    public enum State
+    {
+        CLOSED,
+        OPEN,
+        HALF_OPEN,
+    }
+
+    private final int failureThresholdPercent;
+    private final int minRequests;
+    private final long windowNanos;
+    private final long openDurationNanos;
+    private final Ticker ticker;
+
+    // read without the lock, so closed breakers do not take it to admit requests
+    private volatile State state = State.CLOSED;
+    private final ReentrantLock lock = new ReentrantLock();
+    @GuardedBy("lock")
+    private long stateChanged;
+    @GuardedBy("lock")
+    private long windowStart;
+    @GuardedBy("lock")
+    private long requests;
+    @GuardedBy("lock")
+    private long failures;
+
+    private final CounterStat opened = new CounterStat();
+    private final CounterStat rejectedRequests = new CounterStat();
+
+    CircuitBreaker(int failureThresholdPercent, int minRequests, Duration window, Duration openDuration)
+    {
+        this(failureThresholdPercent, minRequests, window, openDuration, Ticker.systemTicker());
+    }
+
+    CircuitBreaker(int failureThresholdPercent, int minRequests, Duration window, Duration openDuration, Ticker ticker)
+    {
+        checkArgument(failureThresholdPercent >= 1 && failureThresholdPercent <= 100, "failureThresholdPercent must be between 1 and 100");
+        checkArgument(minRequests >= 1, "minRequests must be at least 1");
+        this.failureThresholdPercent = failureThresholdPercent;
+        this.minRequests = minRequests;
+        this.windowNanos = requireNonNull(window, "window is null").roundTo(NANOSECONDS);
+        this.openDurationNanos = requireNonNull(openDuration, "openDuration is null").roundTo(NANOSECONDS);
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        this.windowStart = ticker.read();
+    }
+
+    boolean tryAcquire()
+    {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        lock.lock();
+        try {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            // let a trial through once the breaker has been open long enough, or the previous trial did not complete
+            long now = ticker.read();
+            if (now - stateChanged >= openDurationNanos) {
+                changeState(State.HALF_OPEN, now);
+                return true;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        rejectedRequests.update(1);
+        return false;
+    }
+
+    void recordResult(boolean failed)
+    {
+        lock.lock();
+        try {
+            long now = ticker.read();
+            switch (state) {
+                case OPEN:
+                    // a request sent before the breaker opened
+                    return;
+                case HALF_OPEN:
+                    if (failed) {
+                        open(now);
+                    }
+                    else {
+                        changeState(State.CLOSED, now);
+                    }
+                    return;
+                case CLOSED:
+                    if (now - windowStart >= windowNanos) {
+                        windowStart = now;
+                        requests = 0;
+                        failures = 0;
+                    }
+                    requests++;
+                    if (failed) {
+                        failures++;
+                    }
+                    if (requests >= minRequests && failures * 100 >= requests * failureThresholdPercent) {
+                        open(now);
+                    }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private void open(long now)
+    {
+        changeState(State.OPEN, now);
+        opened.update(1);
+    }
+
+    @GuardedBy("lock")
+    private void changeState(State state, long now)
+    {
+        this.state = state;
+        stateChanged = now;
+        windowStart = now;
+        requests = 0;
+        failures = 0;
+    }
+
+    public State getState()
+    {
+        return state;
+    }
+
+    @Managed(description = "CLOSED, OPEN or HALF_OPEN")
+    public String getStateName()
+    {
+        return state.name();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getOpened()
+    {
+        return opened;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejectedRequests()
+    {
+        return rejectedRequests;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import com.google.common.base.Ticker;
+import io.airlift.stats.CounterStat;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Limits the requests in flight to a destination with an additive increase,
+ * multiplicative decrease (AIMD) algorithm driven by the round trip time.
+ * <p>
+ * A response that is slower than twice the smoothed round trip time of the
+ * destination, or a failed request, is taken as a sign of overload and
+ * reduces the limit by a tenth, at most once per round trip. Otherwise the
+ * limit grows by one while more than half of it is in use.
+ */
+@ThreadSafe
+public class ConcurrencyLimiter
+{
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double RTT_TOLERANCE = 2.0;
+    // weight of a new sample in the smoothed round trip time, roughly averaging the last 100 samples
+    private static final double RTT_SMOOTHING = 0.01;
+
+    private final int maxLimit;
+    private final Ticker ticker;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    @GuardedBy("lock")
+    private double exactLimit;
+    @GuardedBy("lock")
+    private double smoothedRttNanos;
+    @GuardedBy("lock")
+    private long lastBackoff;
+
+    private final CounterStat rejectedRequests = new CounterStat();
+
+    ConcurrencyLimiter(int initialLimit, int maxLimit)
+    {
+        this(initialLimit, maxLimit, Ticker.systemTicker());
+    }
+
+    ConcurrencyLimiter(int initialLimit, int maxLimit, Ticker ticker)
+    {
+        checkArgument(initialLimit >= 1, "initialLimit must be at least 1");
+        checkArgument(maxLimit >= initialLimit, "maxLimit must be at least initialLimit");
+        this.maxLimit = maxLimit;
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        this.limit = initialLimit;
+        this.exactLimit = initialLimit;
+        this.lastBackoff = ticker.read();
+    }
+
+    boolean tryAcquire()
+    {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejectedRequests.update(1);
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a request without using it as a sample, such as a canceled request.
+     */
+    void release()
+    {
+        inFlight.decrementAndGet();
+    }
+
+    void release(boolean failed, long rttNanos)
+    {
+        int inFlight = this.inFlight.getAndDecrement();
+        update(failed, rttNanos, inFlight);
+    }
+
+    private void update(boolean failed, long rttNanos, int inFlight)
+    {
+        lock.lock();
+        try {
+            boolean overloaded = failed;
+            if (!failed) {
+                if (smoothedRttNanos == 0) {
+                    smoothedRttNanos = rttNanos;
+                }
+                overloaded = rttNanos > smoothedRttNanos * RTT_TOLERANCE;
+                smoothedRttNanos += (rttNanos - smoothedRttNanos) * RTT_SMOOTHING;
+            }
+
+            if (overloaded) {
+                // the requests in flight during a slow period all see it, so only back off once per round trip
+                long now = ticker.read();
+                if (now - lastBackoff < smoothedRttNanos) {
+                    return;
+                }
+                lastBackoff = now;
+                exactLimit = max(1, exactLimit * BACKOFF_RATIO);
+            }
+            else if (inFlight * 2 >= exactLimit) {
+                exactLimit = min(maxLimit, exactLimit + 1);
+            }
+            limit = (int) exactLimit;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Managed(description = "maximum number of requests in flight")
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    @Managed(description = "number of requests in flight")
+    public int getInFlight()
+    {
+        return inFlight.get();
+    }
+
+    @Managed(description = "smoothed round trip time in milliseconds")
+    public double getSmoothedRttMillis()
+    {
+        lock.lock();
+        try {
+            return smoothedRttNanos / 1_000_000.0;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejectedRequests()
+    {
+        return rejectedRequests;
+    }
+}
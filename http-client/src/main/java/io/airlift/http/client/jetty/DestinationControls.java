@@ -0,0 +1,58 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import javax.annotation.Nullable;
+
+/**
+ * The {@link ConcurrencyLimiter} and {@link CircuitBreaker} of a destination.
+ * They are kept apart from the {@link DestinationStats}, which are dropped for
+ * the least recently used destinations, so that dropping the stats does not
+ * reset an open breaker or lose track of the requests in flight.
+ */
+class DestinationControls
+{
+    @Nullable
+    private final ConcurrencyLimiter concurrencyLimiter;
+    @Nullable
+    private final CircuitBreaker circuitBreaker;
+
+    DestinationControls(@Nullable ConcurrencyLimiter concurrencyLimiter, @Nullable CircuitBreaker circuitBreaker)
+    {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Nullable
+    ConcurrencyLimiter getConcurrencyLimiter()
+    {
+        return concurrencyLimiter;
+    }
+
+    @Nullable
+    CircuitBreaker getCircuitBreaker()
+    {
+        return circuitBreaker;
+    }
+
+    /**
+     * Returns true if the breaker is closed and no requests are in flight,
+     * so the controls can be dropped without losing track of the destination.
+     */
+    boolean isIdle()
+    {
+        return (circuitBreaker == null || circuitBreaker.getState() == CircuitBreaker.State.CLOSED) &&
+                (concurrencyLimiter == null || concurrencyLimiter.getInFlight() == 0);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import com.google.common.base.Supplier;
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.WindowedTimeDistribution;
+import io.airlift.stats.WindowedTimeStat;
+import io.airlift.units.Duration;
+import org.eclipse.jetty.client.api.Result;
+import org.weakref.jmx.MBeanExport;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.Nullable;
+
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.google.common.base.Suppliers.memoizeWithExpiration;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Statistics for the requests of a client to a single destination, which is
+ * identified by the scheme, host and port of the request URI. Recording does
+ * not take locks.
+ * <p>
+ * When enabled, the destination also has a {@link ConcurrencyLimiter} and a
+ * {@link CircuitBreaker}, which are fed from the same request completions.
+ *
+ * @see JettyHttpClient#getDestinationStats()
+ */
+public class DestinationStats
+{
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final CounterStat request = new CounterStat();
+    private final WindowedTimeStat requestTime = new WindowedTimeStat(MILLISECONDS);
+    private final CounterStat failedRequests = new CounterStat();
+    private final CounterStat serverErrorResponses = new CounterStat();
+
+    private final String destination;
+    private final Supplier<Optional<Duration>> hedgeDelay;
+    @Nullable
+    private final ConcurrencyLimiter concurrencyLimiter;
+    @Nullable
+    private final CircuitBreaker circuitBreaker;
+
+    private volatile MBeanExport export;
+
+    DestinationStats(
+            String destination,
+            Function<WindowedTimeDistribution, Optional<Duration>> hedgeDelayFunction,
+            @Nullable ConcurrencyLimiter concurrencyLimiter,
+            @Nullable CircuitBreaker circuitBreaker)
+    {
+        this.destination = requireNonNull(destination, "destination is null");
+        requireNonNull(hedgeDelayFunction, "hedgeDelayFunction is null");
+        this.hedgeDelay = memoizeWithExpiration(() -> hedgeDelayFunction.apply(requestTime.getOneMinute()), 1, SECONDS);
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Admits a request to the destination. An admitted request must be sent, so
+     * that its completion is recorded.
+     *
+     * @throws RejectedExecutionException if the concurrency limit is reached or the circuit breaker is open
+     */
+    void admit()
+    {
+        if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+            throw new RejectedExecutionException("Concurrency limit reached for " + destination);
+        }
+        if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.release();
+            }
+            throw new RejectedExecutionException("Circuit breaker is open for " + destination);
+        }
+    }
+
+    /**
+     * Returns the delay before a hedged request to the destination is sent,
+     * which is recomputed from the recent request time at most once a second.
+     */
+    Optional<Duration> getHedgeDelay()
+    {
+        return hedgeDelay.get();
+    }
+
+    void requestStarted()
+    {
+        inFlightRequests.incrementAndGet();
+    }
+
+    void requestComplete(Result result, boolean started, long requestTimeNanos)
+    {
+        if (started) {
+            inFlightRequests.decrementAndGet();
+        }
+        request.update(1);
+
+        // canceled requests, such as the losers of hedged requests, say nothing about the destination
+        if (result.isFailed() && result.getFailure() instanceof CancellationException) {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.release();
+            }
+            return;
+        }
+
+        boolean serverError = false;
+        if (result.isFailed()) {
+            failedRequests.update(1);
+        }
+        else {
+            requestTime.add(requestTimeNanos, NANOSECONDS);
+            serverError = result.getResponse().getStatus() >= 500;
+            if (serverError) {
+                serverErrorResponses.update(1);
+            }
+        }
+
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release(result.isFailed(), requestTimeNanos);
+        }
+        if (circuitBreaker != null) {
+            circuitBreaker.recordResult(result.isFailed() || serverError);
+        }
+    }
+
+    void setExport(MBeanExport export)
+    {
+        this.export = export;
+    }
+
+    void unexport()
+    {
+        MBeanExport export = this.export;
+        if (export != null) {
+            export.unexport();
+        }
+    }
+
+    @Managed(description = "number of requests that have been sent and are waiting for the response to complete")
+    public int getInFlightRequests()
+    {
+        return inFlightRequests.get();
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRequest()
+    {
+        return request;
+    }
+
+    /**
+     * Time from queueing the request to receiving the complete response, for
+     * requests that did not fail.
+     */
+    @Managed
+    @Nested
+    public WindowedTimeStat getRequestTime()
+    {
+        return requestTime;
+    }
+
+    /**
+     * Requests that failed without a complete response, such as after a
+     * connection error or a timeout.
+     */
+    @Managed
+    @Nested
+    public CounterStat getFailedRequests()
+    {
+        return failedRequests;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getServerErrorResponses()
+    {
+        return serverErrorResponses;
+    }
+
+    /**
+     * Returns the concurrency limiter of the destination, or null if concurrency limiting is disabled.
+     */
+    @Managed
+    @Nested
+    @Nullable
+    public ConcurrencyLimiter getConcurrencyLimiter()
+    {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Returns the circuit breaker of the destination, or null if it is disabled.
+     */
+    @Managed
+    @Nested
+    @Nullable
+    public CircuitBreaker getCircuitBreaker()
+    {
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import io.airlift.stats.CounterStat;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.min;
+
+/**
+ * Limits the duplicates sent for hedged requests to a percentage of the hedged
+ * requests. Every hedged request earns a credit of the percentage and every
+ * duplicate costs a full request, so a destination that is slow for all
+ * requests cannot double the load on it. Unused credit is capped, which allows
+ * short bursts of duplicates.
+ */
+@ThreadSafe
+public class HedgeBudget
+{
+    private static final long DUPLICATE_COST = 100;
+    private static final long MAX_BURST = 10;
+
+    private final long creditPerRequest;
+    private final AtomicLong credit = new AtomicLong();
+
+    private final CounterStat requests = new CounterStat();
+    private final CounterStat duplicates = new CounterStat();
+    private final CounterStat rejectedDuplicates = new CounterStat();
+
+    HedgeBudget(int maxPercent)
+    {
+        checkArgument(maxPercent >= 0 && maxPercent <= 100, "maxPercent must be between 0 and 100");
+        this.creditPerRequest = maxPercent;
+    }
+
+    void recordRequest()
+    {
+        requests.update(1);
+        credit.updateAndGet(value -> min(value + creditPerRequest, DUPLICATE_COST * MAX_BURST));
+    }
+
+    boolean tryAcquireDuplicate()
+    {
+        while (true) {
+            long value = credit.get();
+            if (value < DUPLICATE_COST) {
+                rejectedDuplicates.update(1);
+                return false;
+            }
+            if (credit.compareAndSet(value, value - DUPLICATE_COST)) {
+                duplicates.update(1);
+                return true;
+            }
+        }
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRequests()
+    {
+        return requests;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getDuplicates()
+    {
+        return duplicates;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRejectedDuplicates()
+    {
+        return rejectedDuplicates;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.AbstractFuture;
+import io.airlift.http.client.HttpClient.HttpResponseFuture;
+import io.airlift.http.client.Request;
+import io.airlift.units.Duration;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.util.concurrent.Futures.getDone;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.http.client.Request.Builder.fromRequest;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Sends a request to the first of a list of URIs, and a duplicate to the next
+ * URI when no response arrives within the hedge delay of the destination, or
+ * when the request fails. The first successful response completes the future
+ * and the other requests are canceled.
+ * <p>
+ * Duplicates are started lazily, so unlike {@link io.airlift.concurrent.MoreFutures#whenAnyCompleteCancelOthers}
+ * the set of futures is not known up front.
+ */
+class HedgedResponseFuture<T>
+        extends AbstractFuture<T>
+        implements HttpResponseFuture<T>
+{
+    private final Request request;
+    private final List<URI> uris;
+    private final Function<Request, HttpResponseFuture<T>> executor;
+    private final Function<URI, Optional<Duration>> hedgeDelay;
+    private final HedgeBudget budget;
+    private final Scheduler scheduler;
+
+    private final List<HttpResponseFuture<T>> attempts = new CopyOnWriteArrayList<>();
+
+    // an attempt is counted as pending as soon as it takes its URI, so a failure
+    // never sees all URIs taken and nothing pending while a hedge is being started
+    private final ReentrantLock lock = new ReentrantLock();
+    @GuardedBy("lock")
+    private int startedAttempts;
+    @GuardedBy("lock")
+    private int pendingAttempts;
+
+    HedgedResponseFuture(
+            Request request,
+            List<URI> alternativeUris,
+            Function<Request, HttpResponseFuture<T>> executor,
+            Function<URI, Optional<Duration>> hedgeDelay,
+            HedgeBudget budget,
+            Scheduler scheduler)
+    {
+        this.request = requireNonNull(request, "request is null");
+        this.uris = ImmutableList.<URI>builder()
+                .add(request.getUri())
+                .addAll(requireNonNull(alternativeUris, "alternativeUris is null"))
+                .build();
+        this.executor = requireNonNull(executor, "executor is null");
+        this.hedgeDelay = requireNonNull(hedgeDelay, "hedgeDelay is null");
+        this.budget = requireNonNull(budget, "budget is null");
+        this.scheduler = requireNonNull(scheduler, "scheduler is null");
+    }
+
+    void start()
+    {
+        budget.recordRequest();
+        lock.lock();
+        try {
+            startedAttempts++;
+            pendingAttempts++;
+        }
+        finally {
+            lock.unlock();
+        }
+        sendAttempt(0);
+    }
+
+    private void sendAttempt(int index)
+    {
+        URI uri = uris.get(index);
+        Request attemptRequest = (index == 0) ? request : fromRequest(request).setUri(uri).build();
+
+        HttpResponseFuture<T> attempt;
+        try {
+            attempt = executor.apply(attemptRequest);
+        }
+        catch (RuntimeException e) {
+            attemptFailed(e);
+            return;
+        }
+        attempts.add(attempt);
+
+        // this future may have completed while the attempt was started
+        if (isDone()) {
+            attempt.cancel(true);
+            return;
+        }
+        attempt.addListener(() -> attemptCompleted(attempt), directExecutor());
+        scheduleHedge(uri, index + 1);
+    }
+
+    private void scheduleHedge(URI uri, int nextAttempt)
+    {
+        if (nextAttempt >= uris.size()) {
+            return;
+        }
+        Optional<Duration> delay = hedgeDelay.apply(uri);
+        if (!delay.isPresent()) {
+            return;
+        }
+        scheduler.schedule(() -> {
+            if (isDone()) {
+                return;
+            }
+            lock.lock();
+            try {
+                // skip the hedge when another attempt was started in the meantime
+                if (startedAttempts != nextAttempt || !budget.tryAcquireDuplicate()) {
+                    return;
+                }
+                startedAttempts++;
+                pendingAttempts++;
+            }
+            finally {
+                lock.unlock();
+            }
+            sendAttempt(nextAttempt);
+        }, delay.get().toMillis(), MILLISECONDS);
+    }
+
+    private void attemptCompleted(HttpResponseFuture<T> attempt)
+    {
+        try {
+            T value = getDone(attempt);
+            lock.lock();
+            try {
+                pendingAttempts--;
+            }
+            finally {
+                lock.unlock();
+            }
+            set(value);
+        }
+        catch (ExecutionException e) {
+            attemptFailed(e.getCause());
+        }
+        catch (CancellationException e) {
+            attemptFailed(e);
+        }
+    }
+
+    private void attemptFailed(Throwable failure)
+    {
+        int retryAttempt = -1;
+        boolean lastAttempt;
+        lock.lock();
+        try {
+            pendingAttempts--;
+            if (isDone()) {
+                return;
+            }
+            // retry the failed request on the next URI
+            if (startedAttempts < uris.size() && budget.tryAcquireDuplicate()) {
+                retryAttempt = startedAttempts++;
+                pendingAttempts++;
+            }
+            lastAttempt = pendingAttempts == 0;
+        }
+        finally {
+            lock.unlock();
+        }
+
+        if (retryAttempt >= 0) {
+            sendAttempt(retryAttempt);
+        }
+        else if (lastAttempt) {
+            setException(failure);
+        }
+    }
+
+    @Override
+    protected void afterDone()
+    {
+        // cancel the attempts that lost the race, or all of them when this future was canceled
+        for (HttpResponseFuture<T> attempt : attempts) {
+            if (!attempt.isDone()) {
+                attempt.cancel(true);
+            }
+        }
+    }
+
+    @Override
+    public String getState()
+    {
+        return attempts.stream()
+                .map(HttpResponseFuture::getState)
+                .collect(joining(", ", "[", "]"));
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("request", request)
+                .add("attempts", attempts.size())
+                .toString();
+    }
+}
@@ -1,6 +1,11 @@
 package io.airlift.http.client.jetty;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.net.HostAndPort;
 import com.google.common.primitives.Ints;
 import io.airlift.http.client.BodyGenerator;
@@ -11,13 +16,16 @@ import io.airlift.http.client.Request;
 import io.airlift.http.client.RequestStats;
 import io.airlift.http.client.ResponseHandler;
 import io.airlift.http.client.StaticBodyGenerator;
+import io.airlift.http.client.StreamingResponseHandler;
 import io.airlift.http.client.jetty.HttpClientLogger.RequestInfo;
 import io.airlift.http.client.jetty.HttpClientLogger.ResponseInfo;
 import io.airlift.http.client.spnego.KerberosConfig;
 import io.airlift.http.client.spnego.SpnegoAuthentication;
 import io.airlift.http.client.spnego.SpnegoAuthenticationProtocolHandler;
 import io.airlift.http.client.spnego.SpnegoAuthenticationStore;
+import io.airlift.log.Logger;
 import io.airlift.security.pem.PemReader;
+import io.airlift.stats.WindowedTimeDistribution;
 import io.airlift.units.Duration;
 import org.eclipse.jetty.client.DuplexConnectionPool;
 import org.eclipse.jetty.client.HttpClient;
@@ -34,7 +42,6 @@ import org.eclipse.jetty.client.api.Response;
 import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
 import org.eclipse.jetty.client.http.HttpConnectionOverHTTP;
 import org.eclipse.jetty.client.util.BytesContentProvider;
-import org.eclipse.jetty.client.util.InputStreamResponseListener;
 import org.eclipse.jetty.client.util.PathContentProvider;
 import org.eclipse.jetty.http2.client.HTTP2Client;
 import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
@@ -49,6 +56,7 @@ import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
 import org.eclipse.jetty.util.thread.Scheduler;
 import org.eclipse.jetty.util.thread.Sweeper;
 import org.weakref.jmx.Flatten;
+import org.weakref.jmx.MBeanExporter;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
@@ -64,14 +72,19 @@ import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -82,6 +95,7 @@ import static io.airlift.http.client.jetty.AuthorizationPreservingHttpClient.set
 import static java.lang.Math.max;
 import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
+import static java.util.Collections.unmodifiableMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
@@ -95,9 +109,12 @@ public class JettyHttpClient
 
     private static final String STATS_KEY = "airlift_stats";
     private static final long SWEEP_PERIOD_MILLIS = 5000;
+    private static final int MIN_HEDGE_DELAY_SAMPLES = 20;
 
     private static final AtomicLong NAME_COUNTER = new AtomicLong();
 
+    private static final Logger log = Logger.get(JettyHttpClient.class);
+
     private final HttpClient httpClient;
     private final long maxContentLength;
     private final long requestTimeoutMillis;
@@ -107,6 +124,18 @@ public class JettyHttpClient
     private final QueuedThreadPoolMBean queuedThreadPoolMBean;
     private final ConnectionStats connectionStats;
     private final RequestStats stats = new RequestStats();
+    private final LoadingCache<String, DestinationStats> destinationStats;
+    private final ConcurrentMap<String, DestinationControls> destinationControls = new ConcurrentHashMap<>();
+    private final int maxTrackedDestinations;
+    private volatile MBeanExporter exporter;
+    private final Supplier<ConcurrencyLimiter> concurrencyLimiterFactory;
+    private final Supplier<CircuitBreaker> circuitBreakerFactory;
+    private final boolean destinationControlsEnabled;
+    private final double hedgingDelayQuantile;
+    private final Duration hedgingMinDelay;
+    private final HedgeBudget hedgeBudget;
+    private final ResponseBufferPool responseBufferPool;
+    private final boolean responseBufferPoolEnabled;
     private final CachedDistribution queuedRequestsPerDestination;
     private final CachedDistribution activeConnectionsPerDestination;
     private final CachedDistribution idleConnectionsPerDestination;
@@ -151,9 +180,41 @@ public class JettyHttpClient
         requireNonNull(requestFilters, "requestFilters is null");
 
         maxContentLength = config.getMaxContentLength().toBytes();
+        responseBufferPool = new ResponseBufferPool(config.getResponseBufferPoolMaxSize(), config.isResponseBufferPoolDirect());
+        responseBufferPoolEnabled = config.isResponseBufferPoolEnabled();
         requestTimeoutMillis = config.getRequestTimeout().toMillis();
         idleTimeoutMillis = config.getIdleTimeout().toMillis();
         recordRequestComplete = config.getRecordRequestComplete();
+        hedgingDelayQuantile = config.getHedgingDelayPercentile() / 100.0;
+        hedgingMinDelay = config.getHedgingMinDelay();
+        hedgeBudget = new HedgeBudget(config.getHedgingMaxPercent());
+        if (config.isConcurrencyLimitEnabled()) {
+            int initialLimit = config.getConcurrencyLimitInitialLimit();
+            int maxLimit = config.getConcurrencyLimitMaxLimit();
+            concurrencyLimiterFactory = () -> new ConcurrencyLimiter(initialLimit, maxLimit);
+        }
+        else {
+            concurrencyLimiterFactory = () -> null;
+        }
+        if (config.isCircuitBreakerEnabled()) {
+            int failureThreshold = config.getCircuitBreakerFailureThreshold();
+            int minRequests = config.getCircuitBreakerMinRequests();
+            Duration window = config.getCircuitBreakerWindow();
+            Duration openDuration = config.getCircuitBreakerOpenDuration();
+            circuitBreakerFactory = () -> new CircuitBreaker(failureThreshold, minRequests, window, openDuration);
+        }
+        else {
+            circuitBreakerFactory = () -> null;
+        }
+        destinationControlsEnabled = config.isConcurrencyLimitEnabled() || config.isCircuitBreakerEnabled();
+        maxTrackedDestinations = config.getMaxTrackedDestinations();
+        destinationStats = CacheBuilder.newBuilder()
+                .maximumSize(maxTrackedDestinations)
+                .removalListener((RemovalNotification<String, DestinationStats> notification) -> {
+                    notification.getValue().unexport();
+                    releaseDestinationControls(notification.getKey());
+                })
+                .build(CacheLoader.from(this::createDestinationStats));
 
         creationLocation.fillInStackTrace();
 
@@ -465,19 +526,9 @@ public class JettyHttpClient
 
         // create jetty request and response listener
         JettyRequestListener requestListener = new JettyRequestListener(request.getUri());
-        HttpRequest jettyRequest = buildJettyRequest(request, requestListener);
-        InputStreamResponseListener listener = new InputStreamResponseListener()
-        {
-            @Override
-            public void onContent(Response response, ByteBuffer content)
-            {
-                // ignore empty blocks
-                if (content.remaining() == 0) {
-                    return;
-                }
-                super.onContent(response, content);
-            }
-        };
+        DestinationStats destinationStats = this.destinationStats.getUnchecked(destinationKey(request.getUri()));
+        HttpRequest jettyRequest = buildJettyRequest(request, requestListener, destinationStats);
+        ResponseInputStreamListener listener = new ResponseInputStreamListener();
 
         long requestTimestamp = System.currentTimeMillis();
         RequestInfo requestInfo = RequestInfo.from(jettyRequest, requestTimestamp);
@@ -486,6 +537,14 @@ public class JettyHttpClient
         }
 
         // fire the request
+        try {
+            destinationStats.admit();
+        }
+        catch (RejectedExecutionException e) {
+            stats.recordRequestFailed();
+            requestLogger.log(requestInfo, ResponseInfo.failed(Optional.empty(), Optional.of(e)));
+            return responseHandler.handleException(request, e);
+        }
         jettyRequest.send(listener);
 
         // wait for response to begin
@@ -554,11 +613,12 @@ public class JettyHttpClient
 
         request = applyRequestFilters(request);
 
-        HttpRequest jettyRequest = buildJettyRequest(request, new JettyRequestListener(request.getUri()));
+        DestinationStats destinationStats = this.destinationStats.getUnchecked(destinationKey(request.getUri()));
+        HttpRequest jettyRequest = buildJettyRequest(request, new JettyRequestListener(request.getUri()), destinationStats);
 
         JettyResponseFuture<T, E> future = new JettyResponseFuture<>(request, jettyRequest, responseHandler, stats, recordRequestComplete);
 
-        BufferingResponseListener listener = new BufferingResponseListener(future, Ints.saturatedCast(maxContentLength));
+        BufferingResponseListener listener = new BufferingResponseListener(future, Ints.saturatedCast(maxContentLength), responseBufferPoolEnabled ? responseBufferPool : null);
 
         long requestTimestamp = System.currentTimeMillis();
 
@@ -567,19 +627,164 @@ public class JettyHttpClient
         }
 
         try {
+            destinationStats.admit();
             jettyRequest.send(listener);
         }
         catch (RuntimeException e) {
             if (!(e instanceof RejectedExecutionException)) {
                 e = new RejectedExecutionException(e);
             }
-            // normally this is a rejected execution exception because the client has been closed
+            // normally this is a rejected execution exception because the client has been closed or the destination is overloaded
+            future.failed(e);
+            requestLogger.log(RequestInfo.from(jettyRequest, requestTimestamp), ResponseInfo.failed(Optional.empty(), Optional.of(e)));
+        }
+        return future;
+    }
+
+    @Override
+    public <T, E extends Exception> HttpResponseFuture<T> executeStreaming(Request request, StreamingResponseHandler<T, E> responseHandler)
+    {
+        requireNonNull(request, "request is null");
+        requireNonNull(responseHandler, "responseHandler is null");
+
+        request = applyRequestFilters(request);
+
+        DestinationStats destinationStats = this.destinationStats.getUnchecked(destinationKey(request.getUri()));
+        HttpRequest jettyRequest = buildJettyRequest(request, new JettyRequestListener(request.getUri()), destinationStats);
+
+        StreamingResponseFuture<T, E> future = new StreamingResponseFuture<>(request, jettyRequest, responseHandler, stats, recordRequestComplete);
+
+        long requestTimestamp = System.currentTimeMillis();
+
+        if (logEnabled) {
+            addLoggingListener(jettyRequest, requestTimestamp);
+        }
+
+        try {
+            destinationStats.admit();
+            jettyRequest.send(future);
+        }
+        catch (RuntimeException e) {
+            if (!(e instanceof RejectedExecutionException)) {
+                e = new RejectedExecutionException(e);
+            }
+            // normally this is a rejected execution exception because the client has been closed or the destination is overloaded
             future.failed(e);
             requestLogger.log(RequestInfo.from(jettyRequest, requestTimestamp), ResponseInfo.failed(Optional.empty(), Optional.of(e)));
         }
         return future;
     }
 
+    @Override
+    public <T, E extends Exception> HttpResponseFuture<T> executeHedged(Request request, List<URI> alternativeUris, ResponseHandler<T, E> responseHandler)
+    {
+        requireNonNull(request, "request is null");
+        requireNonNull(alternativeUris, "alternativeUris is null");
+        requireNonNull(responseHandler, "responseHandler is null");
+
+        HedgedResponseFuture<T> future = new HedgedResponseFuture<>(
+                request,
+                alternativeUris,
+                attempt -> executeAsync(attempt, responseHandler),
+                this::getHedgeDelay,
+                hedgeBudget,
+                httpClient.getScheduler());
+        future.start();
+        return future;
+    }
+
+    private Optional<Duration> getHedgeDelay(URI uri)
+    {
+        DestinationStats stats = destinationStats.getIfPresent(destinationKey(uri));
+        if (stats == null) {
+            return Optional.empty();
+        }
+
+        return stats.getHedgeDelay();
+    }
+
+    private Optional<Duration> computeHedgeDelay(WindowedTimeDistribution requestTime)
+    {
+        // do not hedge until the recent request time of the destination is known
+        OptionalDouble delayMillis = requestTime.valueAt(hedgingDelayQuantile, MIN_HEDGE_DELAY_SAMPLES);
+        if (!delayMillis.isPresent()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Duration(max(delayMillis.getAsDouble(), hedgingMinDelay.toMillis()), MILLISECONDS));
+    }
+
+    /**
+     * Exports the stats of each destination as a separate MBean when the destination
+     * is first seen. The MBean is removed when the destination is no longer tracked.
+     */
+    public void setMBeanExporter(MBeanExporter exporter)
+    {
+        this.exporter = exporter;
+    }
+
+    /**
+     * Returns the stats of the recently used destinations, keyed by the scheme,
+     * host and port of the destination, such as {@code http://example.com:80}.
+     */
+    public Map<String, DestinationStats> getDestinationStats()
+    {
+        return unmodifiableMap(destinationStats.asMap());
+    }
+
+    /**
+     * Returns the stats of the destination of the URI, if it is tracked.
+     */
+    public Optional<DestinationStats> getDestinationStats(URI uri)
+    {
+        return Optional.ofNullable(destinationStats.getIfPresent(destinationKey(uri)));
+    }
+
+    private DestinationStats createDestinationStats(String destination)
+    {
+        DestinationControls controls = getDestinationControls(destination);
+        DestinationStats stats = new DestinationStats(destination, this::computeHedgeDelay, controls.getConcurrencyLimiter(), controls.getCircuitBreaker());
+        MBeanExporter exporter = this.exporter;
+        if (exporter != null) {
+            try {
+                stats.setExport(exporter.exportWithGeneratedName(stats, DestinationStats.class, ImmutableMap.of("name", "DestinationStats", "client", name, "destination", destination)));
+            }
+            catch (RuntimeException e) {
+                log.warn(e, "Failed to export stats for destination %s", destination);
+            }
+        }
+        return stats;
+    }
+
+    private DestinationControls getDestinationControls(String destination)
+    {
+        if (!destinationControlsEnabled) {
+            return new DestinationControls(null, null);
+        }
+
+        // controls retained after their stats were dropped are released once idle
+        if (destinationControls.size() > maxTrackedDestinations) {
+            destinationControls.keySet().forEach(this::releaseDestinationControls);
+        }
+        return destinationControls.computeIfAbsent(destination, ignored -> new DestinationControls(concurrencyLimiterFactory.get(), circuitBreakerFactory.get()));
+    }
+
+    private void releaseDestinationControls(String destination)
+    {
+        // keep an open breaker or the requests in flight, so that dropping the stats does not reset them
+        destinationControls.computeIfPresent(destination, (key, controls) -> {
+            if (controls.isIdle() && destinationStats.getIfPresent(key) == null) {
+                return null;
+            }
+            return controls;
+        });
+    }
+
+    private static String destinationKey(URI uri)
+    {
+        String scheme = uri.getScheme();
+        return scheme + "://" + uri.getHost() + ":" + HttpClient.normalizePort(scheme, uri.getPort());
+    }
+
     private void addLoggingListener(HttpRequest jettyRequest, long requestTimestamp)
     {
         HttpClientLoggingListener loggingListener = new HttpClientLoggingListener(jettyRequest, requestTimestamp, requestLogger);
@@ -596,12 +801,15 @@ public class JettyHttpClient
         return request;
     }
 
-    private HttpRequest buildJettyRequest(Request finalRequest, JettyRequestListener listener)
+    private HttpRequest buildJettyRequest(Request finalRequest, JettyRequestListener listener, DestinationStats destinationStats)
     {
         HttpRequest jettyRequest = (HttpRequest) httpClient.newRequest(finalRequest.getUri());
         jettyRequest.onRequestBegin(request -> listener.onRequestBegin());
         jettyRequest.onRequestSuccess(request -> listener.onRequestEnd());
         jettyRequest.onResponseBegin(response -> listener.onResponseBegin());
+        jettyRequest.onRequestBegin(request -> destinationStats.requestStarted());
+        // this must run before the listener marks the request as started on completion
+        jettyRequest.onComplete(result -> destinationStats.requestComplete(result, listener.getRequestStarted() != 0, System.nanoTime() - listener.getCreated()));
         jettyRequest.onComplete(result -> listener.onFinish());
         jettyRequest.onComplete(result -> {
             if (result.isFailed() && result.getFailure() instanceof TimeoutException) {
@@ -689,6 +897,13 @@ public class JettyHttpClient
         return maxContentLength;
     }
 
+    @Managed
+    @Nested
+    public HedgeBudget getHedgeBudget()
+    {
+        return hedgeBudget;
+    }
+
     @Managed
     @Nested
     public QueuedThreadPoolMBean getThreadPool()
@@ -703,6 +918,13 @@ public class JettyHttpClient
         return connectionStats;
     }
 
+    @Managed
+    @Nested
+    public ResponseBufferPool getResponseBufferPool()
+    {
+        return responseBufferPool;
+    }
+
     @Managed
     @Nested
     public CachedDistribution getActiveConnectionsPerDestination()
@@ -879,6 +1101,8 @@ public class JettyHttpClient
         closeQuietly((LifeCycle) httpClient.getExecutor());
         closeQuietly(httpClient.getScheduler());
         requestLogger.close();
+        destinationStats.invalidateAll();
+        destinationControls.clear();
     }
 
     @Override
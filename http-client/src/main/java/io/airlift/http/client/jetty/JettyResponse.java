@@ -58,7 +58,7 @@ class JettyResponse
                 .toString();
     }
 
-    private static ListMultimap<HeaderName, String> toHeadersMap(HttpFields headers)
+    static ListMultimap<HeaderName, String> toHeadersMap(HttpFields headers)
     {
         ImmutableListMultimap.Builder<HeaderName, String> builder = ImmutableListMultimap.builder();
         for (String name : headers.getFieldNamesCollection()) {
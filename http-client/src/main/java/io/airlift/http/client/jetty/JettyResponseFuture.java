@@ -7,6 +7,7 @@ import io.airlift.http.client.RequestStats;
 import io.airlift.http.client.ResponseHandler;
 import org.eclipse.jetty.client.api.Response;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -68,6 +69,7 @@ class JettyResponseFuture<T, E extends Exception>
     void completed(Response response, InputStream content)
     {
         if (state.get() == JettyAsyncHttpState.CANCELED) {
+            closeQuietly(content);
             return;
         }
 
@@ -99,6 +101,8 @@ class JettyResponseFuture<T, E extends Exception>
             value = responseHandler.handle(request, jettyResponse);
         }
         finally {
+            // release the buffered content, which may be pooled
+            closeQuietly(content);
             if (recordRequestComplete) {
                 JettyHttpClient.recordRequestComplete(stats, request, requestStart, jettyResponse, responseStart);
             }
@@ -149,6 +153,16 @@ class JettyResponseFuture<T, E extends Exception>
         setException(throwable);
     }
 
+    private static void closeQuietly(InputStream content)
+    {
+        try {
+            content.close();
+        }
+        catch (IOException ignored) {
+            // ignore errors closing the stream
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,188 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads content buffered in pooled chunks, returning the chunks to the pool
+ * when the stream is closed.
+ */
+@ThreadSafe
+class PooledBufferInputStream
+        extends InputStream
+{
+    private final ResponseBufferPool pool;
+    // a lock rather than a monitor, so reading virtual threads are not pinned
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @GuardedBy("lock")
+    private final List<ByteBuffer> chunks;
+    @GuardedBy("lock")
+    private int currentChunk;
+    @GuardedBy("lock")
+    private long remainingBytes;
+    @GuardedBy("lock")
+    private boolean closed;
+
+    /**
+     * @param chunks chunks ready to be read, in order
+     */
+    public PooledBufferInputStream(List<ByteBuffer> chunks, long totalBytes, ResponseBufferPool pool)
+    {
+        this.chunks = requireNonNull(chunks, "chunks is null");
+        this.remainingBytes = totalBytes;
+        this.pool = requireNonNull(pool, "pool is null");
+    }
+
+    @Override
+    public int read()
+            throws IOException
+    {
+        lock.lock();
+        try {
+            ByteBuffer chunk = nextChunk();
+            if (chunk == null) {
+                return -1;
+            }
+            remainingBytes--;
+            return chunk.get() & 0xFF;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length)
+            throws IOException
+    {
+        lock.lock();
+        try {
+            checkPositionIndexes(offset, offset + length, buffer.length);
+            if (length == 0) {
+                return 0;
+            }
+
+            ByteBuffer chunk = nextChunk();
+            if (chunk == null) {
+                return -1;
+            }
+
+            int bytes = 0;
+            while (chunk != null && bytes < length) {
+                int readLength = min(chunk.remaining(), length - bytes);
+                chunk.get(buffer, offset + bytes, readLength);
+                bytes += readLength;
+                chunk = nextChunk();
+            }
+            remainingBytes -= bytes;
+            return bytes;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long skip(long n)
+            throws IOException
+    {
+        lock.lock();
+        try {
+            long skipped = 0;
+            ByteBuffer chunk = nextChunk();
+            while (chunk != null && skipped < n) {
+                int skipLength = (int) min(chunk.remaining(), n - skipped);
+                chunk.position(chunk.position() + skipLength);
+                skipped += skipLength;
+                chunk = nextChunk();
+            }
+            remainingBytes -= skipped;
+            return skipped;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int available()
+            throws IOException
+    {
+        lock.lock();
+        try {
+            checkNotClosed();
+            return (int) min(remainingBytes, Integer.MAX_VALUE);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (ByteBuffer chunk : chunks) {
+                pool.release(chunk);
+            }
+            chunks.clear();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private ByteBuffer nextChunk()
+            throws IOException
+    {
+        checkNotClosed();
+        while (currentChunk < chunks.size()) {
+            ByteBuffer chunk = chunks.get(currentChunk);
+            if (chunk.hasRemaining()) {
+                return chunk;
+            }
+            currentChunk++;
+        }
+        return null;
+    }
+
+    @GuardedBy("lock")
+    private void checkNotClosed()
+            throws IOException
+    {
+        if (closed) {
+            // the chunks may already be in use by another response
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import io.airlift.units.DataSize;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.units.DataSize.Unit.KILOBYTE;
+import static java.lang.Math.toIntExact;
+
+/**
+ * Bounded pool of fixed size chunks used to buffer response content.
+ * Chunks that are released while the pool is full are left to the garbage collector.
+ */
+@ThreadSafe
+class ResponseBufferPool
+{
+    static final int CHUNK_SIZE = toIntExact(new DataSize(16, KILOBYTE).toBytes());
+
+    private final boolean direct;
+    private final int maxRetainedChunks;
+    private final Queue<ByteBuffer> chunks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retainedChunks = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ResponseBufferPool(DataSize maxRetainedSize, boolean direct)
+    {
+        checkArgument(maxRetainedSize.toBytes() >= 0, "maxRetainedSize is negative");
+        this.maxRetainedChunks = toIntExact(maxRetainedSize.toBytes() / CHUNK_SIZE);
+        this.direct = direct;
+    }
+
+    public ByteBuffer acquire()
+    {
+        ByteBuffer chunk = chunks.poll();
+        if (chunk != null) {
+            retainedChunks.decrementAndGet();
+            hits.incrementAndGet();
+            return chunk;
+        }
+        misses.incrementAndGet();
+        return direct ? ByteBuffer.allocateDirect(CHUNK_SIZE) : ByteBuffer.allocate(CHUNK_SIZE);
+    }
+
+    public void release(ByteBuffer chunk)
+    {
+        if (retainedChunks.incrementAndGet() > maxRetainedChunks) {
+            retainedChunks.decrementAndGet();
+            return;
+        }
+        chunk.clear();
+        chunks.offer(chunk);
+    }
+
+    @Managed
+    public boolean isDirect()
+    {
+        return direct;
+    }
+
+    @Managed
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    @Managed
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    @Managed
+    public double getHitRate()
+    {
+        long hits = this.hits.get();
+        long total = hits + misses.get();
+        if (total == 0) {
+            return 0;
+        }
+        return (double) hits / total;
+    }
+
+    @Managed
+    public long getRetainedBytes()
+    {
+        return (long) retainedChunks.get() * CHUNK_SIZE;
+    }
+
+    @Managed
+    public long getMaxRetainedBytes()
+    {
+        return (long) maxRetainedChunks * CHUNK_SIZE;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import com.google.common.util.concurrent.SettableFuture;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.util.Callback;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static java.lang.Math.min;
+
+/**
+ * Exposes the content of a response as an input stream, like the Jetty
+ * {@code InputStreamResponseListener}, but waits with {@link java.util.concurrent.locks.LockSupport}
+ * instead of object monitors, so a reading virtual thread is unmounted from its
+ * carrier while it waits for the response or more content.
+ * <p>
+ * Content chunks are only released back to Jetty once they have been read,
+ * which applies back pressure to the connection.
+ */
+@ThreadSafe
+class ResponseInputStreamListener
+        extends Response.Listener.Adapter
+{
+    private final SettableFuture<Response> response = SettableFuture.create();
+    private final InputStream inputStream = new ResponseInputStream();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition contentAvailable = lock.newCondition();
+    @GuardedBy("lock")
+    private final Queue<Chunk> chunks = new ArrayDeque<>();
+    @GuardedBy("lock")
+    private boolean complete;
+    @GuardedBy("lock")
+    private Throwable failure;
+    @GuardedBy("lock")
+    private boolean closed;
+
+    @Override
+    public void onHeaders(Response response)
+    {
+        this.response.set(response);
+    }
+
+    @Override
+    public void onContent(Response response, ByteBuffer content, Callback callback)
+    {
+        // ignore empty blocks
+        if (!content.hasRemaining()) {
+            callback.succeeded();
+            return;
+        }
+
+        boolean closed;
+        lock.lock();
+        try {
+            closed = this.closed;
+            if (!closed) {
+                chunks.add(new Chunk(content, callback));
+                contentAvailable.signal();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+
+        if (closed) {
+            callback.failed(new AsynchronousCloseException());
+        }
+    }
+
+    @Override
+    public void onSuccess(Response response)
+    {
+        lock.lock();
+        try {
+            complete = true;
+            contentAvailable.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onFailure(Response response, Throwable failure)
+    {
+        fail(failure);
+    }
+
+    @Override
+    public void onComplete(Result result)
+    {
+        // the request may fail before there is a response
+        if (result.isFailed()) {
+            fail(result.getFailure());
+        }
+    }
+
+    /**
+     * Waits for the response headers to arrive.
+     */
+    public Response get(long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException, ExecutionException
+    {
+        return response.get(timeout, unit);
+    }
+
+    public InputStream getInputStream()
+    {
+        return inputStream;
+    }
+
+    private void fail(Throwable failure)
+    {
+        List<Callback> callbacks;
+        lock.lock();
+        try {
+            if (this.failure == null) {
+                this.failure = failure;
+            }
+            callbacks = drainCallbacks();
+            contentAvailable.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+
+        callbacks.forEach(callback -> callback.failed(failure));
+        response.setException(failure);
+    }
+
+    @GuardedBy("lock")
+    private List<Callback> drainCallbacks()
+    {
+        List<Callback> callbacks = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            callbacks.add(chunk.getCallback());
+        }
+        chunks.clear();
+        return callbacks;
+    }
+
+    private class ResponseInputStream
+            extends InputStream
+    {
+        @Override
+        public int read()
+                throws IOException
+        {
+            byte[] value = new byte[1];
+            int bytes = read(value, 0, 1);
+            if (bytes == -1) {
+                return -1;
+            }
+            return value[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length)
+                throws IOException
+        {
+            checkPositionIndexes(offset, offset + length, buffer.length);
+            if (length == 0) {
+                return 0;
+            }
+
+            int bytes;
+            Callback consumed = null;
+            lock.lock();
+            try {
+                while (true) {
+                    Chunk chunk = chunks.peek();
+                    if (chunk != null) {
+                        ByteBuffer content = chunk.getContent();
+                        bytes = min(length, content.remaining());
+                        content.get(buffer, offset, bytes);
+                        if (!content.hasRemaining()) {
+                            chunks.remove();
+                            consumed = chunk.getCallback();
+                        }
+                        break;
+                    }
+                    if (complete) {
+                        return -1;
+                    }
+                    if (failure != null) {
+                        throw toIOException(failure);
+                    }
+                    if (closed) {
+                        throw new AsynchronousCloseException();
+                    }
+                    contentAvailable.await();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            finally {
+                lock.unlock();
+            }
+
+            // let Jetty read more content
+            if (consumed != null) {
+                consumed.succeeded();
+            }
+            return bytes;
+        }
+
+        @Override
+        public int available()
+        {
+            lock.lock();
+            try {
+                Chunk chunk = chunks.peek();
+                return chunk == null ? 0 : chunk.getContent().remaining();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            List<Callback> callbacks;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                callbacks = drainCallbacks();
+                contentAvailable.signalAll();
+            }
+            finally {
+                lock.unlock();
+            }
+
+            // failing the pending content aborts a response that has not been read completely
+            Throwable failure = new AsynchronousCloseException();
+            callbacks.forEach(callback -> callback.failed(failure));
+        }
+
+        private IOException toIOException(Throwable failure)
+        {
+            if (failure instanceof IOException) {
+                return (IOException) failure;
+            }
+            return new IOException(failure);
+        }
+    }
+
+    private static class Chunk
+    {
+        private final ByteBuffer content;
+        private final Callback callback;
+
+        public Chunk(ByteBuffer content, Callback callback)
+        {
+            this.content = content;
+            this.callback = callback;
+        }
+
+        public ByteBuffer getContent()
+        {
+            return content;
+        }
+
+        public Callback getCallback()
+        {
+            return callback;
+        }
+    }
+}
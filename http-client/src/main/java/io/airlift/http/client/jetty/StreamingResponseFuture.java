@@ -0,0 +1,345 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.AbstractFuture;
+import io.airlift.http.client.HeaderName;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.RequestStats;
+import io.airlift.http.client.StreamingResponse;
+import io.airlift.http.client.StreamingResponseHandler;
+import io.airlift.units.Duration;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.util.Callback;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.http.client.jetty.JettyResponse.toHeadersMap;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Response listener that passes content straight to a {@link StreamingResponseHandler},
+ * only asking Jetty for more content when the handler demands it.
+ */
+class StreamingResponseFuture<T, E extends Exception>
+        extends AbstractFuture<T>
+        implements HttpClient.HttpResponseFuture<T>, Response.HeadersListener, Response.DemandedContentListener, Response.CompleteListener
+{
+    private enum StreamingState
+    {
+        WAITING_FOR_CONNECTION,
+        PROCESSING_RESPONSE,
+        DONE,
+        FAILED,
+        CANCELED
+    }
+
+    private final long requestStart = System.nanoTime();
+    private final AtomicReference<StreamingState> state = new AtomicReference<>(StreamingState.WAITING_FOR_CONNECTION);
+    private final Request request;
+    private final org.eclipse.jetty.client.api.Request jettyRequest;
+    private final StreamingResponseHandler<T, E> responseHandler;
+    private final RequestStats stats;
+    private final boolean recordRequestComplete;
+
+    // demand requested by the handler before Jetty is ready to deliver content
+    private final AtomicLong pendingDemand = new AtomicLong();
+    private volatile LongConsumer demand;
+
+    private volatile JettyStreamingResponse response;
+    private volatile long responseStart;
+    private volatile Throwable handlerFailure;
+
+    StreamingResponseFuture(
+            Request request,
+            org.eclipse.jetty.client.api.Request jettyRequest,
+            StreamingResponseHandler<T, E> responseHandler,
+            RequestStats stats,
+            boolean recordRequestComplete)
+    {
+        this.request = requireNonNull(request, "request is null");
+        this.jettyRequest = requireNonNull(jettyRequest, "jettyRequest is null");
+        this.responseHandler = requireNonNull(responseHandler, "responseHandler is null");
+        this.stats = requireNonNull(stats, "stats is null");
+        this.recordRequestComplete = recordRequestComplete;
+    }
+
+    @Override
+    public String getState()
+    {
+        return state.get().toString();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        try {
+            stats.recordRequestCanceled();
+            state.set(StreamingState.CANCELED);
+            jettyRequest.abort(new CancellationException());
+            return super.cancel(mayInterruptIfRunning);
+        }
+        catch (Throwable e) {
+            setException(e);
+            return true;
+        }
+    }
+
+    @Override
+    public void onHeaders(Response jettyResponse)
+    {
+        if (state.get() == StreamingState.CANCELED) {
+            return;
+        }
+
+        responseStart = System.nanoTime();
+        state.set(StreamingState.PROCESSING_RESPONSE);
+        response = new JettyStreamingResponse(jettyResponse, this);
+        try {
+            responseHandler.handleHeaders(request, response);
+        }
+        catch (Throwable e) {
+            handlerFailure = e;
+            jettyResponse.abort(e);
+        }
+    }
+
+    @Override
+    public void onBeforeContent(Response jettyResponse, LongConsumer demand)
+    {
+        this.demand = demand;
+        long pending = pendingDemand.getAndSet(0);
+        if (pending > 0) {
+            demand.accept(pending);
+        }
+    }
+
+    @Override
+    public void onContent(Response jettyResponse, LongConsumer demand, ByteBuffer content, Callback callback)
+    {
+        this.demand = demand;
+        if (!content.hasRemaining()) {
+            // empty chunks do not count against the handler demand
+            callback.succeeded();
+            demand.accept(1);
+            return;
+        }
+
+        response.addBytesRead(content.remaining());
+        try {
+            responseHandler.handleContent(request, content);
+        }
+        catch (Throwable e) {
+            handlerFailure = e;
+            jettyResponse.abort(e);
+            callback.failed(e);
+            return;
+        }
+        callback.succeeded();
+    }
+
+    @Override
+    public void onComplete(Result result)
+    {
+        if (state.get() == StreamingState.CANCELED) {
+            return;
+        }
+
+        Throwable failure = handlerFailure;
+        if (failure != null) {
+            stats.recordRequestFailed();
+            // exceptions from the handler are not passed back to the handler
+            storeException(failure);
+            return;
+        }
+        if (result.isFailed()) {
+            failed(result.getFailure());
+            return;
+        }
+
+        T value;
+        try {
+            value = responseHandler.handleComplete(request);
+        }
+        catch (Throwable e) {
+            // this will be an instance of E from the response handler or an Error
+            storeException(e);
+            return;
+        }
+        finally {
+            if (recordRequestComplete) {
+                recordRequestComplete();
+            }
+        }
+        state.set(StreamingState.DONE);
+        set(value);
+    }
+
+    void failed(Throwable throwable)
+    {
+        if (state.get() == StreamingState.CANCELED) {
+            return;
+        }
+
+        stats.recordRequestFailed();
+
+        // give handler a chance to rewrite the exception or return a value instead
+        if (throwable instanceof Exception) {
+            try {
+                T value = responseHandler.handleException(request, (Exception) throwable);
+                // handler returned a value, store it in the future
+                state.set(StreamingState.DONE);
+                set(value);
+                return;
+            }
+            catch (Throwable newThrowable) {
+                throwable = newThrowable;
+            }
+        }
+
+        // at this point "throwable" will either be an instance of E
+        // from the response handler or not an instance of Exception
+        storeException(throwable);
+    }
+
+    private void demand(long chunks)
+    {
+        checkArgument(chunks > 0, "chunks must be positive");
+        LongConsumer demand = this.demand;
+        if (demand != null) {
+            demand.accept(chunks);
+            return;
+        }
+
+        pendingDemand.addAndGet(chunks);
+        // Jetty may have become ready concurrently, in which case
+        // the pending demand must be forwarded here
+        demand = this.demand;
+        if (demand != null) {
+            long pending = pendingDemand.getAndSet(0);
+            if (pending > 0) {
+                demand.accept(pending);
+            }
+        }
+    }
+
+    private void recordRequestComplete()
+    {
+        JettyStreamingResponse response = this.response;
+        if (response == null) {
+            return;
+        }
+
+        Duration responseProcessingTime = Duration.nanosSince(responseStart);
+        Duration requestProcessingTime = new Duration(responseStart - requestStart, NANOSECONDS);
+
+        stats.recordResponseReceived(request.getMethod(),
+                response.getStatusCode(),
+                response.getBytesRead(),
+                response.getBytesRead(),
+                requestProcessingTime,
+                responseProcessingTime);
+    }
+
+    private void storeException(Throwable throwable)
+    {
+        if (throwable instanceof CancellationException) {
+            state.set(StreamingState.CANCELED);
+        }
+        else {
+            state.set(StreamingState.FAILED);
+        }
+
+        if (throwable == null) {
+            throwable = new Throwable("Throwable is null");
+        }
+
+        setException(throwable);
+    }
+
+    @Override
+    public String toString()
+    {
+        return toStringHelper(this)
+                .add("requestStart", requestStart)
+                .add("state", state)
+                .add("request", request)
+                .toString();
+    }
+
+    private static class JettyStreamingResponse
+            implements StreamingResponse
+    {
+        private final int statusCode;
+        private final ListMultimap<HeaderName, String> headers;
+        private final StreamingResponseFuture<?, ?> future;
+        // only updated by the Jetty thread delivering content
+        private volatile long bytesRead;
+
+        public JettyStreamingResponse(Response response, StreamingResponseFuture<?, ?> future)
+        {
+            this.statusCode = response.getStatus();
+            this.headers = toHeadersMap(response.getHeaders());
+            this.future = future;
+        }
+
+        @Override
+        public int getStatusCode()
+        {
+            return statusCode;
+        }
+
+        @Override
+        public ListMultimap<HeaderName, String> getHeaders()
+        {
+            return headers;
+        }
+
+        @Override
+        public long getBytesRead()
+        {
+            return bytesRead;
+        }
+
+        @Override
+        public void demand(long chunks)
+        {
+            future.demand(chunks);
+        }
+
+        private void addBytesRead(int bytes)
+        {
+            bytesRead += bytes;
+        }
+
+        @Override
+        public String toString()
+        {
+            return toStringHelper(this)
+                    .add("statusCode", statusCode)
+                    .add("headers", headers)
+                    .toString();
+        }
+    }
+}
@@ -1,23 +1,35 @@
 package io.airlift.http.client.testing;
 
+import com.google.common.collect.ListMultimap;
+import com.google.common.math.LongMath;
 import com.google.common.util.concurrent.ForwardingListenableFuture;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import io.airlift.http.client.HeaderName;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.http.client.Request;
 import io.airlift.http.client.RequestStats;
 import io.airlift.http.client.Response;
 import io.airlift.http.client.ResponseHandler;
+import io.airlift.http.client.StreamingResponse;
+import io.airlift.http.client.StreamingResponseHandler;
 import io.airlift.units.Duration;
 
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
 import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static io.airlift.http.client.ResponseHandlerUtils.propagate;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
@@ -54,6 +66,14 @@ public class TestingHttpClient
         return new TestingHttpResponseFuture<>(future, state);
     }
 
+    @Override
+    public <T, E extends Exception> HttpResponseFuture<T> executeStreaming(Request request, StreamingResponseHandler<T, E> responseHandler)
+    {
+        requireNonNull(responseHandler, "responseHandler is null");
+        // the processor produces a complete response, so the content is streamed from memory
+        return executeAsync(request, new StreamingResponseAdapter<>(responseHandler));
+    }
+
     @Override
     public <T, E extends Exception> T execute(Request request, ResponseHandler<T, E> responseHandler)
             throws E
@@ -151,6 +171,105 @@ public class TestingHttpClient
                 throws Exception;
     }
 
+    private static class StreamingResponseAdapter<T, E extends Exception>
+            implements ResponseHandler<T, E>
+    {
+        private static final int CHUNK_SIZE = 8192;
+
+        private final StreamingResponseHandler<T, E> handler;
+
+        public StreamingResponseAdapter(StreamingResponseHandler<T, E> handler)
+        {
+            this.handler = handler;
+        }
+
+        @Override
+        public T handleException(Request request, Exception exception)
+                throws E
+        {
+            return handler.handleException(request, exception);
+        }
+
+        @Override
+        public T handle(Request request, Response response)
+                throws E
+        {
+            TestingStreamingResponse streamingResponse = new TestingStreamingResponse(response);
+            handler.handleHeaders(request, streamingResponse);
+            try (InputStream input = response.getInputStream()) {
+                byte[] buffer = new byte[CHUNK_SIZE];
+                while (true) {
+                    int length = input.read(buffer);
+                    if (length < 0) {
+                        break;
+                    }
+                    if (length > 0) {
+                        streamingResponse.awaitDemand(length);
+                        handler.handleContent(request, ByteBuffer.wrap(buffer, 0, length));
+                    }
+                }
+            }
+            catch (IOException | InterruptedException e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                throw propagate(request, e);
+            }
+            return handler.handleComplete(request);
+        }
+    }
+
+    private static class TestingStreamingResponse
+            implements StreamingResponse
+    {
+        private final Response response;
+        @GuardedBy("this")
+        private long demand;
+        @GuardedBy("this")
+        private long bytesRead;
+
+        public TestingStreamingResponse(Response response)
+        {
+            this.response = response;
+        }
+
+        @Override
+        public int getStatusCode()
+        {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public ListMultimap<HeaderName, String> getHeaders()
+        {
+            return response.getHeaders();
+        }
+
+        @Override
+        public synchronized long getBytesRead()
+        {
+            return bytesRead;
+        }
+
+        @Override
+        public synchronized void demand(long chunks)
+        {
+            checkArgument(chunks > 0, "chunks must be positive");
+            demand = LongMath.saturatedAdd(demand, chunks);
+            notifyAll();
+        }
+
+        private synchronized void awaitDemand(int length)
+                throws InterruptedException
+        {
+            while (demand == 0) {
+                wait();
+            }
+            demand--;
+            bytesRead += length;
+        }
+    }
+
     private class TestingHttpResponseFuture<T>
             extends ForwardingListenableFuture<T>
             implements HttpResponseFuture<T>
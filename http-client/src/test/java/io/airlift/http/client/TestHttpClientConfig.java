@@ -23,6 +23,8 @@ import io.airlift.units.Duration;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.testng.annotations.Test;
 
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotNull;
 
 import java.util.Arrays;
@@ -39,6 +41,7 @@ import static io.airlift.testing.ValidationAssertions.assertFailsValidation;
 import static io.airlift.units.DataSize.Unit.GIGABYTE;
 import static io.airlift.units.DataSize.Unit.KILOBYTE;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -60,6 +63,9 @@ public class TestHttpClientConfig
                 .setMaxContentLength(new DataSize(16, MEGABYTE))
                 .setRequestBufferSize(new DataSize(4, KILOBYTE))
                 .setResponseBufferSize(new DataSize(16, KILOBYTE))
+                .setResponseBufferPoolEnabled(false)
+                .setResponseBufferPoolMaxSize(new DataSize(32, MEGABYTE))
+                .setResponseBufferPoolDirect(false)
                 .setSocksProxy(null)
                 .setKeyStorePath(System.getProperty(JAVAX_NET_SSL_KEY_STORE))
                 .setKeyStorePassword(System.getProperty(JAVAX_NET_SSL_KEY_STORE_PASSWORD))
@@ -83,6 +89,18 @@ public class TestHttpClientConfig
                 .setMinThreads(8)
                 .setTimeoutConcurrency(1)
                 .setTimeoutThreads(1)
+                .setHedgingDelayPercentile(95)
+                .setHedgingMinDelay(new Duration(10, MILLISECONDS))
+                .setHedgingMaxPercent(5)
+                .setMaxTrackedDestinations(100)
+                .setConcurrencyLimitEnabled(false)
+                .setConcurrencyLimitInitialLimit(20)
+                .setConcurrencyLimitMaxLimit(200)
+                .setCircuitBreakerEnabled(false)
+                .setCircuitBreakerFailureThreshold(50)
+                .setCircuitBreakerMinRequests(20)
+                .setCircuitBreakerWindow(new Duration(10, SECONDS))
+                .setCircuitBreakerOpenDuration(new Duration(10, SECONDS))
                 .setLogEnabled(false)
                 .setLogHistory(15)
                 .setLogMaxFileSize(new DataSize(1, GIGABYTE))
@@ -108,6 +126,9 @@ public class TestHttpClientConfig
                 .put("http-client.max-content-length", "1MB")
                 .put("http-client.request-buffer-size", "42kB")
                 .put("http-client.response-buffer-size", "43kB")
+                .put("http-client.response-buffer-pool.enabled", "true")
+                .put("http-client.response-buffer-pool.max-size", "7MB")
+                .put("http-client.response-buffer-pool.direct", "true")
                 .put("http-client.socks-proxy", "localhost:1080")
                 .put("http-client.secure-random-algorithm", "NativePRNG")
                 .put("http-client.https.included-cipher", "TLS_RSA_WITH_AES_128_CBC_SHA,TLS_ECDHE_RSA_WITH_AES_128_CBC_SHA")
@@ -131,6 +152,18 @@ public class TestHttpClientConfig
                 .put("http-client.min-threads", "11")
                 .put("http-client.timeout-concurrency", "33")
                 .put("http-client.timeout-threads", "44")
+                .put("http-client.hedging.delay-percentile", "99")
+                .put("http-client.hedging.min-delay", "50ms")
+                .put("http-client.hedging.max-percent", "10")
+                .put("http-client.destination-stats.max-destinations", "7")
+                .put("http-client.concurrency-limit.enabled", "true")
+                .put("http-client.concurrency-limit.initial-limit", "5")
+                .put("http-client.concurrency-limit.max-limit", "50")
+                .put("http-client.circuit-breaker.enabled", "true")
+                .put("http-client.circuit-breaker.failure-threshold", "25")
+                .put("http-client.circuit-breaker.min-requests", "10")
+                .put("http-client.circuit-breaker.window", "30s")
+                .put("http-client.circuit-breaker.open-duration", "1m")
                 .put("http-client.log.enabled", "true")
                 .put("http-client.log.max-history", "22")
                 .put("http-client.log.max-size", "2GB")
@@ -153,6 +186,9 @@ public class TestHttpClientConfig
                 .setMaxContentLength(new DataSize(1, MEGABYTE))
                 .setRequestBufferSize(new DataSize(42, KILOBYTE))
                 .setResponseBufferSize(new DataSize(43, KILOBYTE))
+                .setResponseBufferPoolEnabled(true)
+                .setResponseBufferPoolMaxSize(new DataSize(7, MEGABYTE))
+                .setResponseBufferPoolDirect(true)
                 .setSocksProxy(HostAndPort.fromParts("localhost", 1080))
                 .setKeyStorePath("key-store")
                 .setKeyStorePassword("key-store-password")
@@ -176,6 +212,18 @@ public class TestHttpClientConfig
                 .setMinThreads(11)
                 .setTimeoutConcurrency(33)
                 .setTimeoutThreads(44)
+                .setHedgingDelayPercentile(99)
+                .setHedgingMinDelay(new Duration(50, MILLISECONDS))
+                .setHedgingMaxPercent(10)
+                .setMaxTrackedDestinations(7)
+                .setConcurrencyLimitEnabled(true)
+                .setConcurrencyLimitInitialLimit(5)
+                .setConcurrencyLimitMaxLimit(50)
+                .setCircuitBreakerEnabled(true)
+                .setCircuitBreakerFailureThreshold(25)
+                .setCircuitBreakerMinRequests(10)
+                .setCircuitBreakerWindow(new Duration(30, SECONDS))
+                .setCircuitBreakerOpenDuration(new Duration(1, MINUTES))
                 .setLogEnabled(true)
                 .setLogHistory(22)
                 .setLogMaxFileSize(new DataSize(2, GIGABYTE))
@@ -208,6 +256,13 @@ public class TestHttpClientConfig
         assertFailsValidation(new HttpClientConfig().setConnectTimeout(null), "connectTimeout", "may not be null", NotNull.class);
         assertFailsValidation(new HttpClientConfig().setRequestTimeout(null), "requestTimeout", "may not be null", NotNull.class);
         assertFailsValidation(new HttpClientConfig().setIdleTimeout(null), "idleTimeout", "may not be null", NotNull.class);
+        assertFailsValidation(new HttpClientConfig().setHedgingDelayPercentile(100), "hedgingDelayPercentile", "must be less than or equal to 99", Max.class);
+        assertFailsValidation(new HttpClientConfig().setHedgingMaxPercent(101), "hedgingMaxPercent", "must be less than or equal to 100", Max.class);
+        assertFailsValidation(
+                new HttpClientConfig().setConcurrencyLimitInitialLimit(100).setConcurrencyLimitMaxLimit(10),
+                "concurrencyLimitConfigurationValid",
+                "concurrency limit max-limit must be at least initial-limit",
+                AssertTrue.class);
     }
 
     private List<String> getJettyDefaultExcludedCiphers()
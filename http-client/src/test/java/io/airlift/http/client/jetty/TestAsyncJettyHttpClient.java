@@ -1,16 +1,40 @@
 package io.airlift.http.client.jetty;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import io.airlift.http.client.AbstractHttpClientTest;
+import io.airlift.http.client.HttpClient.HttpResponseFuture;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.http.client.Request;
 import io.airlift.http.client.ResponseHandler;
+import io.airlift.http.client.StreamingResponse;
+import io.airlift.http.client.StreamingResponseHandler;
 import io.airlift.http.client.TestingRequestFilter;
 import io.airlift.http.client.spnego.KerberosConfig;
+import io.airlift.units.DataSize;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.ResponseHandlerUtils.propagate;
+import static io.airlift.http.client.StringResponseHandler.createStringResponseHandler;
 import static io.airlift.testing.Closeables.closeQuietly;
+import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class TestAsyncJettyHttpClient
         extends AbstractHttpClientTest
@@ -53,4 +77,138 @@ public class TestAsyncJettyHttpClient
             return executeAsync(client, request, responseHandler);
         }
     }
+
+    @Test
+    public void testStreamingResponse()
+            throws Exception
+    {
+        String body = Strings.repeat("0123456789abcdef", 128 * 1024);
+        servlet.setResponseBody(body);
+        servlet.addResponseHeader("foo", "bar");
+
+        // the body is larger than the maximum content length, which only applies to buffered responses
+        HttpClientConfig config = createClientConfig().setMaxContentLength(new DataSize(1, MEGABYTE));
+        ExecutorService executor = newSingleThreadExecutor();
+        try (JettyHttpClient client = new JettyHttpClient("test-streaming", config, new KerberosConfig(), ImmutableList.of(new TestingRequestFilter()))) {
+            Request request = prepareGet()
+                    .setUri(baseURI)
+                    .build();
+
+            CrcStreamingResponseHandler handler = new CrcStreamingResponseHandler(executor);
+            Long crc = client.executeStreaming(request, handler).get(30, SECONDS);
+
+            CRC32 expected = new CRC32();
+            expected.update(body.getBytes(UTF_8));
+            assertEquals(crc.longValue(), expected.getValue());
+            assertEquals(handler.getResponse().getStatusCode(), 200);
+            assertEquals(handler.getResponse().getHeader("foo"), "bar");
+            assertEquals(handler.getResponse().getBytesRead(), body.length());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStreamingResponseHandlerFailure()
+            throws Exception
+    {
+        servlet.setResponseBody(Strings.repeat("x", 64 * 1024));
+
+        Request request = prepareGet()
+                .setUri(baseURI)
+                .build();
+
+        RuntimeException expected = new RuntimeException("test failure");
+        HttpResponseFuture<Long> future = httpClient.executeStreaming(request, new CrcStreamingResponseHandler(directExecutor())
+        {
+            @Override
+            public void handleContent(Request request, ByteBuffer content)
+            {
+                throw expected;
+            }
+        });
+
+        try {
+            future.get(30, SECONDS);
+            fail("expected exception");
+        }
+        catch (ExecutionException e) {
+            assertSame(e.getCause(), expected);
+        }
+    }
+
+    @Test
+    public void testPooledResponseBuffers()
+            throws Exception
+    {
+        String body = Strings.repeat("0123456789abcdef", 8 * 1024);
+        servlet.setResponseBody(body);
+
+        HttpClientConfig config = createClientConfig()
+                .setResponseBufferPoolEnabled(true)
+                .setResponseBufferPoolDirect(true);
+        try (JettyHttpClient client = new JettyHttpClient("test-pooled", config, new KerberosConfig(), ImmutableList.of(new TestingRequestFilter()))) {
+            Request request = prepareGet()
+                    .setUri(baseURI)
+                    .build();
+
+            for (int i = 0; i < 5; i++) {
+                assertEquals(client.executeAsync(request, createStringResponseHandler()).get(30, SECONDS).getBody(), body);
+            }
+
+            ResponseBufferPool pool = client.getResponseBufferPool();
+            assertTrue(pool.isDirect());
+            assertEquals(pool.getMissCount(), body.length() / ResponseBufferPool.CHUNK_SIZE);
+            assertEquals(pool.getHitCount(), 4 * body.length() / ResponseBufferPool.CHUNK_SIZE);
+            assertEquals(pool.getRetainedBytes(), body.length());
+        }
+    }
+
+    /**
+     * Computes the CRC of the response content, demanding each chunk from the executor.
+     */
+    private static class CrcStreamingResponseHandler
+            implements StreamingResponseHandler<Long, RuntimeException>
+    {
+        private final Executor executor;
+        private final CRC32 crc = new CRC32();
+        private volatile StreamingResponse response;
+
+        public CrcStreamingResponseHandler(Executor executor)
+        {
+            this.executor = executor;
+        }
+
+        public StreamingResponse getResponse()
+        {
+            return response;
+        }
+
+        @Override
+        public Long handleException(Request request, Exception exception)
+        {
+            throw propagate(request, exception);
+        }
+
+        @Override
+        public void handleHeaders(Request request, StreamingResponse response)
+        {
+            this.response = response;
+            response.demand(1);
+        }
+
+        @Override
+        public void handleContent(Request request, ByteBuffer content)
+        {
+            crc.update(content);
+            executor.execute(() -> response.demand(1));
+        }
+
+        @Override
+        public Long handleComplete(Request request)
+        {
+            return crc.getValue();
+        }
+    }
 }
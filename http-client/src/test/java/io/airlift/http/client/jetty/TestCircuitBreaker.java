@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import io.airlift.http.client.jetty.CircuitBreaker.State;
+import io.airlift.testing.TestingTicker;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestCircuitBreaker
+{
+    private final TestingTicker ticker = new TestingTicker();
+
+    @Test
+    public void testOpensAtThreshold()
+    {
+        CircuitBreaker breaker = createCircuitBreaker();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.recordResult(false);
+        }
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.recordResult(true);
+        }
+        assertEquals(breaker.getState(), State.CLOSED);
+
+        breaker.recordResult(true);
+        assertEquals(breaker.getState(), State.OPEN);
+        assertEquals(breaker.getStateName(), "OPEN");
+        assertEquals(breaker.getOpened().getTotalCount(), 1);
+        assertFalse(breaker.tryAcquire());
+        assertEquals(breaker.getRejectedRequests().getTotalCount(), 1);
+    }
+
+    @Test
+    public void testNeedsMinimumRequests()
+    {
+        CircuitBreaker breaker = createCircuitBreaker();
+        for (int i = 0; i < 9; i++) {
+            breaker.recordResult(true);
+        }
+        assertEquals(breaker.getState(), State.CLOSED);
+    }
+
+    @Test
+    public void testWindowIsReset()
+    {
+        CircuitBreaker breaker = createCircuitBreaker();
+        for (int i = 0; i < 9; i++) {
+            breaker.recordResult(true);
+        }
+        ticker.increment(10, SECONDS);
+        breaker.recordResult(true);
+        assertEquals(breaker.getState(), State.CLOSED);
+    }
+
+    @Test
+    public void testTrialRequest()
+    {
+        CircuitBreaker breaker = openCircuitBreaker();
+
+        ticker.increment(5, SECONDS);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(breaker.getState(), State.HALF_OPEN);
+        assertFalse(breaker.tryAcquire());
+
+        // a failed trial opens the breaker again
+        breaker.recordResult(true);
+        assertEquals(breaker.getState(), State.OPEN);
+        assertFalse(breaker.tryAcquire());
+
+        ticker.increment(5, SECONDS);
+        assertTrue(breaker.tryAcquire());
+        breaker.recordResult(false);
+        assertEquals(breaker.getState(), State.CLOSED);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(breaker.getOpened().getTotalCount(), 2);
+    }
+
+    @Test
+    public void testIncompleteTrialIsRetried()
+    {
+        CircuitBreaker breaker = openCircuitBreaker();
+
+        ticker.increment(5, SECONDS);
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        ticker.increment(5, SECONDS);
+        assertTrue(breaker.tryAcquire());
+        assertEquals(breaker.getState(), State.HALF_OPEN);
+    }
+
+    private CircuitBreaker openCircuitBreaker()
+    {
+        CircuitBreaker breaker = createCircuitBreaker();
+        for (int i = 0; i < 10; i++) {
+            breaker.recordResult(true);
+        }
+        assertEquals(breaker.getState(), State.OPEN);
+        return breaker;
+    }
+
+    private CircuitBreaker createCircuitBreaker()
+    {
+        return new CircuitBreaker(50, 10, new Duration(10, SECONDS), new Duration(5, SECONDS), ticker);
+    }
+}
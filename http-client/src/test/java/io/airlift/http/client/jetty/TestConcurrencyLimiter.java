@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import io.airlift.testing.TestingTicker;
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestConcurrencyLimiter
+{
+    private static final long RTT = MILLISECONDS.toNanos(10);
+
+    @Test
+    public void testLimitIsEnforced()
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 10, new TestingTicker());
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(limiter.getInFlight(), 2);
+        assertEquals(limiter.getRejectedRequests().getTotalCount(), 1);
+
+        limiter.release();
+        assertEquals(limiter.getInFlight(), 1);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testLimitGrowsWhileInUse()
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 4, new TestingTicker());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+            assertTrue(limiter.tryAcquire());
+            limiter.release(false, RTT);
+            limiter.release(false, RTT);
+        }
+        assertEquals(limiter.getLimit(), 4);
+        assertEquals(limiter.getSmoothedRttMillis(), 10.0, 0.001);
+    }
+
+    @Test
+    public void testLimitDoesNotGrowWhenIdle()
+    {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 20, new TestingTicker());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(false, RTT);
+        }
+        assertEquals(limiter.getLimit(), 10);
+    }
+
+    @Test
+    public void testBackOffOncePerRoundTrip()
+    {
+        TestingTicker ticker = new TestingTicker();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 20, ticker);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(false, RTT);
+        assertEquals(limiter.getLimit(), 10);
+
+        // a slow response reduces the limit
+        ticker.increment(RTT * 2, NANOSECONDS);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(false, RTT * 5);
+        assertEquals(limiter.getLimit(), 9);
+
+        // the other slow responses of the same round trip do not
+        assertTrue(limiter.tryAcquire());
+        limiter.release(true, RTT);
+        assertEquals(limiter.getLimit(), 9);
+
+        // failures in the next round trip do
+        ticker.increment(RTT * 2, NANOSECONDS);
+        assertTrue(limiter.tryAcquire());
+        limiter.release(true, RTT);
+        assertEquals(limiter.getLimit(), 8);
+    }
+
+    @Test
+    public void testLimitDoesNotDropBelowOne()
+    {
+        TestingTicker ticker = new TestingTicker();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, ticker);
+        for (int i = 0; i < 10; i++) {
+            ticker.increment(1, SECONDS);
+            assertTrue(limiter.tryAcquire());
+            limiter.release(true, RTT);
+        }
+        assertEquals(limiter.getLimit(), 1);
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.client.jetty;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.AbstractFuture;
+import io.airlift.http.client.HttpClient.HttpResponseFuture;
+import io.airlift.http.client.Request;
+import io.airlift.units.Duration;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestHedgedResponseFuture
+{
+    private static final URI PRIMARY = URI.create("http://primary:8080/v1/thing");
+    private static final URI SECONDARY = URI.create("http://secondary:8080/v1/thing");
+    private static final URI TERTIARY = URI.create("http://tertiary:8080/v1/thing");
+
+    private Scheduler scheduler;
+
+    @BeforeClass
+    public void setUp()
+            throws Exception
+    {
+        scheduler = new ScheduledExecutorScheduler("test-hedging", true);
+        scheduler.start();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown()
+            throws Exception
+    {
+        scheduler.stop();
+    }
+
+    @Test
+    public void testFirstResponseWins()
+            throws Exception
+    {
+        TestingExecutor executor = new TestingExecutor();
+        HedgedResponseFuture<String> future = start(executor, uri -> Optional.empty(), new HedgeBudget(100));
+
+        assertEquals(executor.getUris(), ImmutableList.of(PRIMARY));
+        executor.getAttempt(PRIMARY).set("primary");
+        assertEquals(future.get(), "primary");
+        assertEquals(executor.getUris(), ImmutableList.of(PRIMARY));
+    }
+
+    @Test
+    public void testSlowRequestIsHedged()
+            throws Exception
+    {
+        TestingExecutor executor = new TestingExecutor();
+        HedgeBudget budget = new HedgeBudget(100);
+        HedgedResponseFuture<String> future = start(executor, uri -> Optional.of(new Duration(10, MILLISECONDS)), budget);
+
+        TestingAttempt secondary = executor.awaitAttempt(SECONDARY);
+        secondary.set("secondary");
+        assertEquals(future.get(), "secondary");
+
+        // the loser is canceled
+        assertTrue(executor.getAttempt(PRIMARY).isCancelled());
+        assertEquals(budget.getDuplicates().getTotalCount(), 1);
+    }
+
+    @Test
+    public void testFailedRequestIsRetried()
+            throws Exception
+    {
+        TestingExecutor executor = new TestingExecutor();
+        HedgedResponseFuture<String> future = start(executor, uri -> Optional.empty(), new HedgeBudget(100));
+
+        executor.getAttempt(PRIMARY).setException(new IOException("primary failed"));
+        assertEquals(executor.getUris(), ImmutableList.of(PRIMARY, SECONDARY));
+        executor.getAttempt(SECONDARY).set("secondary");
+        assertEquals(future.get(), "secondary");
+    }
+
+    @Test
+    public void testAllRequestsFail()
+            throws Exception
+    {
+        TestingExecutor executor = new TestingExecutor();
+        HedgeBudget budget = new HedgeBudget(100);
+        budget.recordRequest();
+        HedgedResponseFuture<String> future = start(executor, uri -> Optional.empty(), budget);
+
+        executor.getAttempt(PRIMARY).setException(new IOException("primary failed"));
+        executor.getAttempt(SECONDARY).setException(new IOException("secondary failed"));
+        assertFalse(future.isDone());
+        executor.getAttempt(TERTIARY).setException(new IOException("tertiary failed"));
+        try {
+            future.get();
+            fail("expected ExecutionException");
+        }
+        catch (ExecutionException e) {
+            assertEquals(e.getCause().getMessage(), "tertiary failed");
+        }
+    }
+
+    @Test
+    public void testAttemptFailsWhileHedgeIsStarted()
+            throws Exception
+    {
+        CountDownLatch hedgeStarting = new CountDownLatch(1);
+        CountDownLatch primaryFailed = new CountDownLatch(1);
+        TestingExecutor executor = new TestingExecutor()
+        {
+            @Override
+            public HttpResponseFuture<String> apply(Request request)
+            {
+                if (request.getUri().equals(SECONDARY)) {
+                    hedgeStarting.countDown();
+                    awaitUninterruptibly(primaryFailed);
+                }
+                return super.apply(request);
+            }
+        };
+        // allows a single duplicate, which is taken by the hedge
+        HedgeBudget budget = new HedgeBudget(50);
+        budget.recordRequest();
+        HedgedResponseFuture<String> future = start(executor, uri -> Optional.of(new Duration(10, MILLISECONDS)), budget);
+
+        assertTrue(hedgeStarting.await(10, SECONDS));
+        executor.getAttempt(PRIMARY).setException(new IOException("primary failed"));
+        // the hedge is still pending
+        assertFalse(future.isDone());
+        primaryFailed.countDown();
+
+        executor.awaitAttempt(SECONDARY).set("secondary");
+        assertEquals(future.get(10, SECONDS), "secondary");
+        assertEquals(executor.getUris(), ImmutableList.of(PRIMARY, SECONDARY));
+    }
+
+    @Test
+    public void testBudgetLimitsDuplicates()
+            throws Exception
+    {
+        TestingExecutor executor = new TestingExecutor();
+        HedgeBudget budget = new HedgeBudget(0);
+        HedgedResponseFuture<String> future = start(executor, uri -> Optional.empty(), budget);
+
+        executor.getAttempt(PRIMARY).setException(new IOException("primary failed"));
+        assertEquals(executor.getUris(), ImmutableList.of(PRIMARY));
+        assertTrue(future.isDone());
+        assertEquals(budget.getDuplicates().getTotalCount(), 0);
+        assertEquals(budget.getRejectedDuplicates().getTotalCount(), 1);
+    }
+
+    @Test
+    public void testBudget()
+    {
+        HedgeBudget budget = new HedgeBudget(50);
+        assertFalse(budget.tryAcquireDuplicate());
+        budget.recordRequest();
+        assertFalse(budget.tryAcquireDuplicate());
+        budget.recordRequest();
+        assertTrue(budget.tryAcquireDuplicate());
+        assertFalse(budget.tryAcquireDuplicate());
+
+        // unused credit is capped
+        for (int i = 0; i < 1000; i++) {
+            budget.recordRequest();
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(budget.tryAcquireDuplicate());
+        }
+        assertFalse(budget.tryAcquireDuplicate());
+        assertEquals(budget.getDuplicates().getTotalCount(), 11);
+        assertEquals(budget.getRejectedDuplicates().getTotalCount(), 4);
+    }
+
+    @Test
+    public void testCancelCancelsAttempts()
+    {
+        TestingExecutor executor = new TestingExecutor();
+        HedgedResponseFuture<String> future = start(executor, uri -> Optional.empty(), new HedgeBudget(100));
+
+        assertTrue(future.cancel(true));
+        assertTrue(executor.getAttempt(PRIMARY).isCancelled());
+        assertEquals(executor.getUris(), ImmutableList.of(PRIMARY));
+    }
+
+    private HedgedResponseFuture<String> start(TestingExecutor executor, Function<URI, Optional<Duration>> hedgeDelay, HedgeBudget budget)
+    {
+        Request request = prepareGet().setUri(PRIMARY).build();
+        HedgedResponseFuture<String> future = new HedgedResponseFuture<>(request, ImmutableList.of(SECONDARY, TERTIARY), executor, hedgeDelay, budget, scheduler);
+        future.start();
+        return future;
+    }
+
+    private static class TestingExecutor
+            implements Function<Request, HttpResponseFuture<String>>
+    {
+        private final List<URI> uris = new CopyOnWriteArrayList<>();
+        private final Map<URI, TestingAttempt> attempts = new ConcurrentHashMap<>();
+
+        @Override
+        public HttpResponseFuture<String> apply(Request request)
+        {
+            TestingAttempt attempt = new TestingAttempt();
+            attempts.put(request.getUri(), attempt);
+            uris.add(request.getUri());
+            return attempt;
+        }
+
+        public List<URI> getUris()
+        {
+            return ImmutableList.copyOf(uris);
+        }
+
+        public TestingAttempt getAttempt(URI uri)
+        {
+            TestingAttempt attempt = attempts.get(uri);
+            assertTrue(attempt != null, "no request sent to " + uri);
+            return attempt;
+        }
+
+        public TestingAttempt awaitAttempt(URI uri)
+                throws InterruptedException
+        {
+            long deadline = System.nanoTime() + SECONDS.toNanos(10);
+            while (!attempts.containsKey(uri)) {
+                assertTrue(System.nanoTime() < deadline, "no request sent to " + uri);
+                MILLISECONDS.sleep(1);
+            }
+            return attempts.get(uri);
+        }
+    }
+
+    private static class TestingAttempt
+            extends AbstractFuture<String>
+            implements HttpResponseFuture<String>
+    {
+        @Override
+        public boolean set(String value)
+        {
+            return super.set(value);
+        }
+
+        @Override
+        public boolean setException(Throwable throwable)
+        {
+            return super.setException(throwable);
+        }
+
+        @Override
+        public String getState()
+        {
+            return isDone() ? "DONE" : "WAITING";
+        }
+    }
+}
@@ -1,17 +1,49 @@
 package io.airlift.http.client.jetty;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import io.airlift.http.client.AbstractHttpClientTest;
 import io.airlift.http.client.HttpClientConfig;
 import io.airlift.http.client.HttpRequestFilter;
 import io.airlift.http.client.Request;
 import io.airlift.http.client.ResponseHandler;
+import io.airlift.http.client.StatusResponseHandler.StatusResponse;
 import io.airlift.http.client.TestingRequestFilter;
 import io.airlift.http.client.spnego.KerberosConfig;
+import io.airlift.units.Duration;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
 
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+
+import static io.airlift.concurrent.Threads.daemonThreadsNamed;
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
 import static io.airlift.testing.Closeables.closeQuietly;
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class TestJettyHttpClient
         extends AbstractHttpClientTest
@@ -37,6 +69,205 @@ public class TestJettyHttpClient
                 .setHttp2Enabled(false);
     }
 
+    @Test
+    public void testConcurrentGets()
+            throws Exception
+    {
+        assertConcurrentGets(1_000);
+    }
+
+    @Test
+    public void testHedgedRequestRetriesFailure()
+            throws Exception
+    {
+        HttpClientConfig config = createClientConfig()
+                .setHedgingMaxPercent(100);
+        // nothing listens on port 1, so the first request fails to connect
+        Request request = prepareGet()
+                .setUri(URI.create("http://127.0.0.1:1/road/to/nowhere"))
+                .build();
+
+        try (JettyHttpClient client = new JettyHttpClient("test-hedged", config, new KerberosConfig(), ImmutableList.of())) {
+            StatusResponse response = client.executeHedged(request, ImmutableList.of(baseURI.resolve("/road/to/nowhere")), createStatusResponseHandler()).get(1, MINUTES);
+            assertEquals(response.getStatusCode(), 200);
+            assertEquals(client.getHedgeBudget().getRequests().getTotalCount(), 1);
+            assertEquals(client.getHedgeBudget().getDuplicates().getTotalCount(), 1);
+        }
+    }
+
+    @Test
+    public void testDestinationStats()
+            throws Exception
+    {
+        MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+        HttpClientConfig config = createClientConfig()
+                .setMaxTrackedDestinations(1);
+        URI uri = baseURI.resolve("/road/to/nowhere");
+        URI unreachableUri = URI.create("http://127.0.0.1:1/road/to/nowhere");
+
+        try (JettyHttpClient client = new JettyHttpClient("test-destinations", config, new KerberosConfig(), ImmutableList.of())) {
+            client.setMBeanExporter(new MBeanExporter(mbeanServer));
+            for (int i = 0; i < 3; i++) {
+                assertEquals(client.execute(prepareGet().setUri(uri).build(), createStatusResponseHandler()).getStatusCode(), 200);
+            }
+
+            String destination = "http://" + uri.getHost() + ":" + uri.getPort();
+            assertEquals(client.getDestinationStats().keySet(), ImmutableSet.of(destination));
+            // the request is recorded once Jetty completes it, which may be after the response is returned
+            DestinationStats stats = client.getDestinationStats(uri).get();
+            awaitCondition(() -> stats.getRequestTime().getAllTime().getCount() == 3.0);
+            assertEquals(stats.getRequest().getTotalCount(), 3);
+            assertEquals(stats.getFailedRequests().getTotalCount(), 0);
+            assertEquals(stats.getInFlightRequests(), 0);
+
+            ObjectName name = new ObjectName(format("io.airlift.http.client.jetty:name=DestinationStats,client=test-destinations,destination=%s", ObjectName.quote(destination)));
+            assertEquals(mbeanServer.getAttribute(name, "Request.TotalCount"), 3L);
+
+            // the least recently used destination is dropped
+            try {
+                client.execute(prepareGet().setUri(unreachableUri).build(), createStatusResponseHandler());
+                fail("expected exception");
+            }
+            catch (RuntimeException expected) {
+            }
+            assertEquals(client.getDestinationStats().size(), 1);
+            assertFalse(client.getDestinationStats(uri).isPresent());
+            assertFalse(mbeanServer.isRegistered(name));
+            DestinationStats unreachableStats = client.getDestinationStats(unreachableUri).get();
+            awaitCondition(() -> unreachableStats.getFailedRequests().getTotalCount() == 1);
+            assertEquals(unreachableStats.getRequestTime().getAllTime().getCount(), 0.0);
+        }
+        assertEquals(mbeanServer.queryNames(new ObjectName("io.airlift.http.client.jetty:name=DestinationStats,*"), null).size(), 0);
+    }
+
+    @Test
+    public void testCircuitBreakerRejectsRequests()
+            throws Exception
+    {
+        HttpClientConfig config = createClientConfig()
+                .setConcurrencyLimitEnabled(true)
+                .setCircuitBreakerEnabled(true)
+                .setCircuitBreakerMinRequests(2)
+                .setCircuitBreakerOpenDuration(new Duration(1, HOURS));
+        URI unreachableUri = URI.create("http://127.0.0.1:1/road/to/nowhere");
+
+        try (JettyHttpClient client = new JettyHttpClient("test-circuit-breaker", config, new KerberosConfig(), ImmutableList.of())) {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    client.execute(prepareGet().setUri(unreachableUri).build(), createStatusResponseHandler());
+                    fail("expected exception");
+                }
+                catch (UncheckedIOException expected) {
+                }
+            }
+
+            // the failure is recorded once Jetty completes the request, which may be after it is reported
+            DestinationStats stats = client.getDestinationStats(unreachableUri).get();
+            awaitCondition(() -> stats.getCircuitBreaker().getState() == CircuitBreaker.State.OPEN);
+            try {
+                client.execute(prepareGet().setUri(unreachableUri).build(), createStatusResponseHandler());
+                fail("expected RejectedExecutionException");
+            }
+            catch (RejectedExecutionException e) {
+                assertEquals(e.getMessage(), "Circuit breaker is open for http://127.0.0.1:1");
+            }
+            assertEquals(stats.getCircuitBreaker().getRejectedRequests().getTotalCount(), 1);
+            assertEquals(stats.getConcurrencyLimiter().getInFlight(), 0);
+
+            // other destinations are not affected
+            assertEquals(client.execute(prepareGet().setUri(baseURI.resolve("/road/to/nowhere")).build(), createStatusResponseHandler()).getStatusCode(), 200);
+        }
+    }
+
+    @Test
+    public void testCircuitBreakerSurvivesEviction()
+            throws Exception
+    {
+        HttpClientConfig config = createClientConfig()
+                .setMaxTrackedDestinations(1)
+                .setCircuitBreakerEnabled(true)
+                .setCircuitBreakerMinRequests(2)
+                .setCircuitBreakerOpenDuration(new Duration(1, HOURS));
+        URI unreachableUri = URI.create("http://127.0.0.1:1/road/to/nowhere");
+
+        try (JettyHttpClient client = new JettyHttpClient("test-circuit-breaker-eviction", config, new KerberosConfig(), ImmutableList.of())) {
+            for (int i = 0; i < 2; i++) {
+                try {
+                    client.execute(prepareGet().setUri(unreachableUri).build(), createStatusResponseHandler());
+                    fail("expected exception");
+                }
+                catch (UncheckedIOException expected) {
+                }
+            }
+            DestinationStats stats = client.getDestinationStats(unreachableUri).get();
+            awaitCondition(() -> stats.getCircuitBreaker().getState() == CircuitBreaker.State.OPEN);
+
+            // the stats of the destination are dropped, but the open breaker is kept
+            assertEquals(client.execute(prepareGet().setUri(baseURI.resolve("/road/to/nowhere")).build(), createStatusResponseHandler()).getStatusCode(), 200);
+            assertFalse(client.getDestinationStats(unreachableUri).isPresent());
+            try {
+                client.execute(prepareGet().setUri(unreachableUri).build(), createStatusResponseHandler());
+                fail("expected RejectedExecutionException");
+            }
+            catch (RejectedExecutionException e) {
+                assertEquals(e.getMessage(), "Circuit breaker is open for http://127.0.0.1:1");
+            }
+            assertSame(client.getDestinationStats(unreachableUri).get().getCircuitBreaker(), stats.getCircuitBreaker());
+        }
+    }
+
+    @Test(enabled = false, description = "This takes over a minute to run and needs virtual threads")
+    public void test100kConcurrentGets()
+            throws Exception
+    {
+        assertConcurrentGets(100_000);
+    }
+
+    private void assertConcurrentGets(int requests)
+            throws Exception
+    {
+        HttpClientConfig config = createClientConfig()
+                .setMaxRequestsQueuedPerDestination(requests);
+        Request request = prepareGet()
+                .setUri(baseURI.resolve("/road/to/nowhere"))
+                .build();
+
+        ExecutorService executor = newRequestExecutor();
+        try (JettyHttpClient client = new JettyHttpClient("test-concurrent", config, new KerberosConfig(), ImmutableList.of())) {
+            List<Future<Integer>> futures = new ArrayList<>(requests);
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> client.execute(request, createStatusResponseHandler()).getStatusCode()));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(future.get(1, MINUTES).intValue(), 200);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition)
+            throws InterruptedException
+    {
+        long deadline = System.nanoTime() + MINUTES.toNanos(1);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            MILLISECONDS.sleep(10);
+        }
+    }
+
+    private static ExecutorService newRequestExecutor()
+    {
+        // a virtual thread per request when the runtime supports them
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return newFixedThreadPool(100, daemonThreadsNamed("test-concurrent-%s"));
+        }
+    }
+
     @Override
     public <T, E extends Exception> T executeRequest(Request request, ResponseHandler<T, E> responseHandler)
             throws Exception
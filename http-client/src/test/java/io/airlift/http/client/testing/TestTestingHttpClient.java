@@ -1,17 +1,24 @@
 package io.airlift.http.client.testing;
 
+import com.google.common.collect.ImmutableListMultimap;
 import io.airlift.http.client.AbstractHttpClientTest.CaptureExceptionResponseHandler;
 import io.airlift.http.client.AbstractHttpClientTest.CapturedException;
 import io.airlift.http.client.HttpClient.HttpResponseFuture;
 import io.airlift.http.client.Request;
+import io.airlift.http.client.StreamingResponse;
+import io.airlift.http.client.StreamingResponseHandler;
 import org.testng.annotations.Test;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.ExecutionException;
 
+import static io.airlift.http.client.HttpStatus.OK;
 import static io.airlift.http.client.Request.Builder.prepareGet;
 import static io.airlift.testing.Assertions.assertInstanceOf;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 public class TestTestingHttpClient
@@ -40,4 +47,52 @@ public class TestTestingHttpClient
             assertEquals(cause.getCause(), expectedException);
         }
     }
+
+    @Test
+    public void testStreaming()
+            throws Exception
+    {
+        Request request = prepareGet()
+                .setUri(URI.create("http://example.org"))
+                .build();
+
+        byte[] body = new byte[100_000];
+        Arrays.fill(body, (byte) 'x');
+
+        HttpResponseFuture<Integer> future = new TestingHttpClient(input -> new TestingResponse(OK, ImmutableListMultimap.of(), body))
+                .executeStreaming(request, new StreamingResponseHandler<Integer, RuntimeException>()
+                {
+                    private StreamingResponse response;
+                    private int chunks;
+
+                    @Override
+                    public Integer handleException(Request request, Exception exception)
+                    {
+                        throw new RuntimeException(exception);
+                    }
+
+                    @Override
+                    public void handleHeaders(Request request, StreamingResponse response)
+                    {
+                        this.response = response;
+                        response.demand(1);
+                    }
+
+                    @Override
+                    public void handleContent(Request request, ByteBuffer content)
+                    {
+                        chunks++;
+                        response.demand(1);
+                    }
+
+                    @Override
+                    public Integer handleComplete(Request request)
+                    {
+                        assertEquals(response.getBytesRead(), body.length);
+                        return chunks;
+                    }
+                });
+
+        assertTrue(future.get() > 1);
+    }
 }
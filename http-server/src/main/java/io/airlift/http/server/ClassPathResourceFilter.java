@@ -15,11 +15,16 @@
  */
 package io.airlift.http.server;
 
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
 import com.google.common.net.HttpHeaders;
 import org.eclipse.jetty.http.HttpMethod;
 import org.eclipse.jetty.http.MimeTypes;
+import org.eclipse.jetty.server.Request;
 
 import javax.annotation.Nullable;
 import javax.servlet.FilterChain;
@@ -28,10 +33,17 @@ import javax.servlet.http.HttpFilter;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
@@ -39,11 +51,24 @@ import static java.util.Objects.requireNonNull;
 /**
  * Serves files from a given folder on the classpath through jetty.
  * Intended to serve a couple of static files e.g. for javascript or HTML.
+ * <p>
+ * Resources are loaded once and kept in memory, together with a gzipped copy
+ * for clients that accept it. Responses carry an ETag and Last-Modified header,
+ * and conditional requests are answered with 304 Not Modified. As the class path
+ * is not expected to change, cached resources are never reloaded.
  */
 // Forked from https://github.com/NessComputing/components-ness-httpserver/
 public class ClassPathResourceFilter
         extends HttpFilter
 {
+    // resources larger than this are streamed from the class path on every request
+    private static final int MAX_CACHED_RESOURCE_SIZE = 4 * 1024 * 1024;
+    private static final long MAX_CACHE_SIZE = 32 * 1024 * 1024;
+    // approximate heap used by a cache entry besides the content
+    private static final int CACHE_ENTRY_OVERHEAD = 1024;
+    // paths that are not resources, such as the URLs of other servlets, are only remembered in a small cache
+    private static final int MAX_MISSING_RESOURCES = 1000;
+
     private static final MimeTypes MIME_TYPES;
 
     static {
@@ -55,6 +80,13 @@ public class ClassPathResourceFilter
     private final String baseUri; // "" or "/foo"
     private final String classPathResourceBase;
     private final List<String> welcomeFiles;
+    private final Cache<String, CachedResource> cache = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHE_SIZE)
+            .weigher((String path, CachedResource resource) -> CACHE_ENTRY_OVERHEAD + 2 * path.length() + resource.getWeight())
+            .build();
+    private final Cache<String, Boolean> missingResources = CacheBuilder.newBuilder()
+            .maximumSize(MAX_MISSING_RESOURCES)
+            .build();
 
     public ClassPathResourceFilter(String baseUri, String classPathResourceBase, List<String> welcomeFiles)
     {
@@ -100,11 +132,12 @@ public class ClassPathResourceFilter
             return;
         }
 
-        URL resource = getResource(resourcePath);
-        if (resource == null) {
+        Optional<CachedResource> cachedResource = getCachedResource(resourcePath);
+        if (!cachedResource.isPresent()) {
             chain.doFilter(request, response);
             return;
         }
+        CachedResource resource = cachedResource.get();
 
         String method = request.getMethod();
         boolean skipContent = false;
@@ -118,22 +151,151 @@ public class ClassPathResourceFilter
             }
         }
 
-        InputStream resourceStream = null;
-        try {
-            resourceStream = resource.openStream();
+        if (!resource.isCached()) {
+            serveUncached(resource, response, skipContent);
+            return;
+        }
 
-            String contentType = MIME_TYPES.getMimeByExtension(resource.toString());
-            response.setContentType(contentType);
+        boolean gzip = resource.getGzippedContent() != null && acceptsGzip(request);
+        String etag = gzip ? resource.getGzippedEtag() : resource.getEtag();
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (resource.getLastModified() > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, resource.getLastModified());
+        }
+        if (resource.getGzippedContent() != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
 
-            if (skipContent) {
-                return;
-            }
+        if (isNotModified(request, resource, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ByteBuffer content = gzip ? resource.getGzippedContent() : resource.getContent();
+        response.setContentType(resource.getContentType());
+        if (gzip) {
+            // the gzip handler leaves responses that already have an encoding alone
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(content.remaining());
 
+        if (skipContent) {
+            return;
+        }
+
+        Request baseRequest = Request.getBaseRequest(request);
+        if (baseRequest == null) {
+            Channels.newChannel(response.getOutputStream()).write(content.duplicate());
+            return;
+        }
+
+        // write the shared buffer directly to the connection, which bypasses the
+        // output stream wrapper of the timing filter, so record the time here
+        request.setAttribute(TimingFilter.FIRST_BYTE_TIME, System.currentTimeMillis());
+        baseRequest.getResponse().getHttpOutput().sendContent(content.duplicate());
+    }
+
+    private Optional<CachedResource> getCachedResource(String resourcePath)
+            throws IOException
+    {
+        CachedResource cachedResource = cache.getIfPresent(resourcePath);
+        if (cachedResource != null) {
+            return Optional.of(cachedResource);
+        }
+        if (missingResources.getIfPresent(resourcePath) != null) {
+            return Optional.empty();
+        }
+
+        // concurrent requests for the same resource may load it more than once, which is harmless
+        Optional<CachedResource> resource = loadResource(resourcePath);
+        if (resource.isPresent()) {
+            cache.put(resourcePath, resource.get());
+        }
+        else {
+            missingResources.put(resourcePath, true);
+        }
+        return resource;
+    }
+
+    private Optional<CachedResource> loadResource(String resourcePath)
+            throws IOException
+    {
+        URL resource = getResource(resourcePath);
+        if (resource == null) {
+            return Optional.empty();
+        }
+        String contentType = MIME_TYPES.getMimeByExtension(resource.toString());
+
+        URLConnection connection = resource.openConnection();
+        long lastModified = connection.getLastModified();
+        byte[] content;
+        try (InputStream in = connection.getInputStream()) {
+            content = ByteStreams.toByteArray(ByteStreams.limit(in, MAX_CACHED_RESOURCE_SIZE + 1));
+        }
+        if (content.length > MAX_CACHED_RESOURCE_SIZE) {
+            return Optional.of(new CachedResource(resource, contentType));
+        }
+        return Optional.of(new CachedResource(resource, contentType, content, lastModified));
+    }
+
+    private static void serveUncached(CachedResource resource, HttpServletResponse response, boolean skipContent)
+            throws IOException
+    {
+        response.setContentType(resource.getContentType());
+        if (skipContent) {
+            return;
+        }
+        try (InputStream resourceStream = resource.getUrl().openStream()) {
             ByteStreams.copy(resourceStream, response.getOutputStream());
         }
-        finally {
-            closeQuietly(resourceStream);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request)
+    {
+        for (Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING); headers != null && headers.hasMoreElements(); ) {
+            for (String encoding : Splitter.on(',').trimResults().omitEmptyStrings().split(headers.nextElement())) {
+                List<String> parts = Splitter.on(';').trimResults().splitToList(encoding);
+                if (parts.get(0).equalsIgnoreCase("gzip")) {
+                    // gzip;q=0 means the client does not accept gzip
+                    return !parts.subList(1, parts.size()).stream()
+                            .map(parameter -> parameter.replace(" ", ""))
+                            .anyMatch(parameter -> parameter.matches("[qQ]=0(\\.0*)?"));
+                }
+            }
         }
+        return false;
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, CachedResource resource, String etag)
+    {
+        // If-None-Match takes precedence over If-Modified-Since
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // only the tag of the representation being served matches, so a client
+            // that switches encodings never gets a 304 for the other representation
+            for (String tag : Splitter.on(',').trimResults().omitEmptyStrings().split(ifNoneMatch)) {
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (resource.getLastModified() <= 0) {
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        }
+        catch (IllegalArgumentException e) {
+            return false;
+        }
+        // dates in headers have a resolution of one second
+        return ifModifiedSince >= 0 && resource.getLastModified() / 1000 <= ifModifiedSince / 1000;
     }
 
     @Nullable
@@ -176,15 +338,115 @@ public class ClassPathResourceFilter
         return null;
     }
 
-    private static void closeQuietly(@Nullable InputStream in)
+    private static final class CachedResource
     {
-        if (in != null) {
-            try {
-                in.close();
+        private final URL url;
+        private final String contentType;
+        private final boolean cached;
+        private final ByteBuffer content;
+        private final String etag;
+        private final ByteBuffer gzippedContent;
+        private final String gzippedEtag;
+        private final long lastModified;
+
+        // a resource that is too large to keep in memory
+        public CachedResource(URL url, String contentType)
+        {
+            this.url = requireNonNull(url, "url is null");
+            this.contentType = contentType;
+            this.cached = false;
+            this.content = null;
+            this.etag = null;
+            this.gzippedContent = null;
+            this.gzippedEtag = null;
+            this.lastModified = 0;
+        }
+
+        public CachedResource(URL url, String contentType, byte[] content, long lastModified)
+                throws IOException
+        {
+            this.url = requireNonNull(url, "url is null");
+            this.contentType = contentType;
+            this.cached = true;
+            this.content = ByteBuffer.wrap(content).asReadOnlyBuffer();
+            String hash = Hashing.murmur3_128().hashBytes(content).toString();
+            this.etag = "\"" + hash + "\"";
+            this.lastModified = lastModified;
+
+            // only keep the compressed copy when it is worth sending
+            byte[] gzipped = gzip(content);
+            if (gzipped.length < content.length) {
+                this.gzippedContent = ByteBuffer.wrap(gzipped).asReadOnlyBuffer();
+                this.gzippedEtag = "\"" + hash + "-gzip\"";
+            }
+            else {
+                this.gzippedContent = null;
+                this.gzippedEtag = null;
+            }
+        }
+
+        public URL getUrl()
+        {
+            return url;
+        }
+
+        public String getContentType()
+        {
+            return contentType;
+        }
+
+        public boolean isCached()
+        {
+            return cached;
+        }
+
+        public ByteBuffer getContent()
+        {
+            return content;
+        }
+
+        public String getEtag()
+        {
+            return etag;
+        }
+
+        @Nullable
+        public ByteBuffer getGzippedContent()
+        {
+            return gzippedContent;
+        }
+
+        @Nullable
+        public String getGzippedEtag()
+        {
+            return gzippedEtag;
+        }
+
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+
+        public int getWeight()
+        {
+            int weight = 0;
+            if (content != null) {
+                weight += content.capacity();
+            }
+            if (gzippedContent != null) {
+                weight += gzippedContent.capacity();
             }
-            catch (IOException e) {
-                // ignored
+            return weight;
+        }
+
+        private static byte[] gzip(byte[] content)
+                throws IOException
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(content);
             }
+            return out.toByteArray();
         }
     }
 }
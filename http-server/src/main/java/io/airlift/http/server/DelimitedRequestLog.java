@@ -17,6 +17,7 @@ package io.airlift.http.server;
 
 import ch.qos.logback.core.AsyncAppenderBase;
 import ch.qos.logback.core.ContextBase;
+import ch.qos.logback.core.encoder.LayoutWrappingEncoder;
 import ch.qos.logback.core.rolling.RollingFileAppender;
 import ch.qos.logback.core.rolling.SizeAndTimeBasedFNATP;
 import ch.qos.logback.core.rolling.TimeBasedRollingPolicy;
@@ -24,6 +25,8 @@ import ch.qos.logback.core.status.ErrorStatus;
 import ch.qos.logback.core.util.FileSize;
 import com.google.common.math.LongMath;
 import io.airlift.event.client.EventClient;
+import io.airlift.event.client.NullEventClient;
+import io.airlift.http.server.RingBufferRequestLogWriter.ChannelFileAppender;
 import io.airlift.log.Logger;
 import io.airlift.tracetoken.TraceTokenManager;
 import io.airlift.units.DataSize;
@@ -32,10 +35,14 @@ import org.eclipse.jetty.server.Response;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.http.server.HttpRequestEvent.createHttpRequestEvent;
 import static io.airlift.units.DataSize.Unit.MEGABYTE;
+import static java.lang.Math.toIntExact;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 class DelimitedRequestLog
@@ -45,13 +52,18 @@ class DelimitedRequestLog
     private static final String LOG_FILE_EXTENSION = ".log";
     private static final FileSize BUFFER_SIZE_IN_BYTES = new FileSize(new DataSize(1, MEGABYTE).toBytes());
     private static final long FLUSH_INTERVAL_NANOS = SECONDS.toNanos(10);
+    private static final ThreadLocal<RequestLogEncoder> ENCODER = ThreadLocal.withInitial(RequestLogEncoder::new);
 
     // Tab-separated
-    // Time, ip, method, url, user, agent, response code, request length, response length, response time
+    // Time, ip, method, url, user, agent, response code, request length, response length, response time,
+    // trace token, protocol version, begin to dispatch, begin to end, first to last content, content interarrival stats,
+    // cpu time [us], allocated bytes
     private final TraceTokenManager traceTokenManager;
     private final EventClient eventClient;
     private final CurrentTimeMillisProvider currentTimeMillisProvider;
+    private final boolean postEvents;
     private final AsyncAppenderBase<HttpRequestEvent> asyncAppender;
+    private final RingBufferRequestLogWriter ringBufferWriter;
 
     public DelimitedRequestLog(
             String filename,
@@ -75,18 +87,72 @@ class DelimitedRequestLog
             CurrentTimeMillisProvider currentTimeMillisProvider,
             boolean compressionEnabled)
     {
+        this(filename, maxHistory, queueSize, maxFileSizeInBytes, traceTokenManager, eventClient, currentTimeMillisProvider, compressionEnabled, 0);
+    }
+
+    /**
+     * @param ringBufferSizeInBytes size of the off-heap buffer used to write entries without
+     * creating events, or zero to write through a logback async appender
+     */
+    public DelimitedRequestLog(
+            String filename,
+            int maxHistory,
+            int queueSize,
+            long maxFileSizeInBytes,
+            TraceTokenManager traceTokenManager,
+            EventClient eventClient,
+            CurrentTimeMillisProvider currentTimeMillisProvider,
+            boolean compressionEnabled,
+            int ringBufferSizeInBytes)
+    {
+        checkArgument(ringBufferSizeInBytes >= 0, "ringBufferSizeInBytes is negative");
         this.traceTokenManager = traceTokenManager;
         this.eventClient = eventClient;
         this.currentTimeMillisProvider = currentTimeMillisProvider;
+        this.postEvents = !(eventClient instanceof NullEventClient);
 
         ContextBase context = new ContextBase();
-        HttpLogLayout httpLogLayout = new HttpLogLayout();
 
         recoverTempFiles(filename);
 
+        if (ringBufferSizeInBytes > 0) {
+            ChannelFileAppender fileAppender = new ChannelFileAppender();
+            startRollingFileAppender(fileAppender, context, filename, maxHistory, maxFileSizeInBytes, compressionEnabled);
+
+            asyncAppender = null;
+            ringBufferWriter = new RingBufferRequestLogWriter(ringBufferSizeInBytes, fileAppender);
+            return;
+        }
+
         FlushingFileAppender<HttpRequestEvent> fileAppender = new FlushingFileAppender<>();
-        SizeAndTimeBasedFNATP<HttpRequestEvent> triggeringPolicy = new SizeAndTimeBasedFNATP<>();
-        TimeBasedRollingPolicy<HttpRequestEvent> rollingPolicy = new TimeBasedRollingPolicy<>();
+        fileAppender.setBufferSize(BUFFER_SIZE_IN_BYTES);
+        LayoutWrappingEncoder<HttpRequestEvent> encoder = new LayoutWrappingEncoder<>();
+        encoder.setContext(context);
+        encoder.setLayout(new HttpLogLayout());
+        // match the UTF-8 output of the ring buffer writer
+        encoder.setCharset(UTF_8);
+        fileAppender.setEncoder(encoder);
+        fileAppender.setImmediateFlush(false);
+        startRollingFileAppender(fileAppender, context, filename, maxHistory, maxFileSizeInBytes, compressionEnabled);
+
+        asyncAppender = new AsyncAppenderBase<>();
+        asyncAppender.setContext(context);
+        asyncAppender.setQueueSize(queueSize);
+        asyncAppender.addAppender(fileAppender);
+        asyncAppender.start();
+        ringBufferWriter = null;
+    }
+
+    private static <T> void startRollingFileAppender(
+            RollingFileAppender<T> fileAppender,
+            ContextBase context,
+            String filename,
+            int maxHistory,
+            long maxFileSizeInBytes,
+            boolean compressionEnabled)
+    {
+        SizeAndTimeBasedFNATP<T> triggeringPolicy = new SizeAndTimeBasedFNATP<>();
+        TimeBasedRollingPolicy<T> rollingPolicy = new TimeBasedRollingPolicy<>();
 
         rollingPolicy.setContext(context);
         rollingPolicy.setMaxHistory(maxHistory); // limits number of logging periods (i.e. days) kept
@@ -107,20 +173,11 @@ class DelimitedRequestLog
         fileAppender.setContext(context);
         fileAppender.setFile(filename);
         fileAppender.setAppend(true);
-        fileAppender.setBufferSize(BUFFER_SIZE_IN_BYTES);
-        fileAppender.setLayout(httpLogLayout);
         fileAppender.setRollingPolicy(rollingPolicy);
-        fileAppender.setImmediateFlush(false);
-
-        asyncAppender = new AsyncAppenderBase<>();
-        asyncAppender.setContext(context);
-        asyncAppender.setQueueSize(queueSize);
-        asyncAppender.addAppender(fileAppender);
 
         rollingPolicy.start();
         triggeringPolicy.start();
         fileAppender.start();
-        asyncAppender.start();
     }
 
     public void log(
@@ -131,31 +188,81 @@ class DelimitedRequestLog
             long firstToLastContentTimeInMillis,
             DoubleSummaryStats responseContentInterarrivalStats)
     {
+        long currentTimeMillis = currentTimeMillisProvider.getCurrentTimeMillis();
+
+        if (ringBufferWriter != null) {
+            ByteBuffer entry = ENCODER.get().encode(
+                    request,
+                    response,
+                    traceTokenManager,
+                    currentTimeMillis,
+                    beginToDispatchMillis,
+                    beginToEndMillis,
+                    firstToLastContentTimeInMillis,
+                    responseContentInterarrivalStats);
+            if (entry != null) {
+                ringBufferWriter.append(entry);
+            }
+            else {
+                ringBufferWriter.recordDropped();
+            }
+            if (!postEvents) {
+                return;
+            }
+        }
+
         HttpRequestEvent event = createHttpRequestEvent(
                 request,
                 response,
                 traceTokenManager,
-                currentTimeMillisProvider.getCurrentTimeMillis(),
+                currentTimeMillis,
                 beginToDispatchMillis,
                 beginToEndMillis,
                 firstToLastContentTimeInMillis,
                 responseContentInterarrivalStats);
 
-        asyncAppender.doAppend(event);
+        if (asyncAppender != null) {
+            asyncAppender.doAppend(event);
+        }
 
         eventClient.post(event);
     }
 
     public void stop()
     {
-        asyncAppender.stop();
+        if (ringBufferWriter != null) {
+            ringBufferWriter.stop();
+        }
+        else {
+            asyncAppender.stop();
+        }
     }
 
     public int getQueueSize()
     {
+        if (ringBufferWriter != null) {
+            return toIntExact(ringBufferWriter.getQueuedEntries());
+        }
         return asyncAppender.getNumberOfElementsInQueue();
     }
 
+    public long getQueuedBytes()
+    {
+        if (ringBufferWriter != null) {
+            return ringBufferWriter.getQueuedBytes();
+        }
+        return 0;
+    }
+
+    public long getDroppedEntries()
+    {
+        if (ringBufferWriter != null) {
+            return ringBufferWriter.getDroppedEntries();
+        }
+        // the async appender blocks when full rather than dropping entries
+        return 0;
+    }
+
     private static void recoverTempFiles(String logPath)
     {
         // logback has a tendency to leave around temp files if it is interrupted
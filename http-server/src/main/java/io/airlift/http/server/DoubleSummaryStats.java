@@ -23,34 +23,57 @@ import static java.util.Objects.requireNonNull;
 @EventType
 public class DoubleSummaryStats
 {
-    private final DoubleSummaryStatistics stats;
+    private final long count;
+    private final double min;
+    private final double max;
+    private final double average;
 
     public DoubleSummaryStats(DoubleSummaryStatistics stats)
     {
-        this.stats = requireNonNull(stats, "stats is null");
+        requireNonNull(stats, "stats is null");
+        this.count = stats.getCount();
+        this.min = stats.getMin();
+        this.max = stats.getMax();
+        this.average = stats.getAverage();
+    }
+
+    public DoubleSummaryStats(long count, double min, double max, double sum)
+    {
+        this.count = count;
+        if (count == 0) {
+            // same values as an empty DoubleSummaryStatistics
+            this.min = Double.POSITIVE_INFINITY;
+            this.max = Double.NEGATIVE_INFINITY;
+            this.average = 0;
+        }
+        else {
+            this.min = min;
+            this.max = max;
+            this.average = sum / count;
+        }
     }
 
     @EventField
     public double getMin()
     {
-        return stats.getMin();
+        return min;
     }
 
     @EventField
     public double getMax()
     {
-        return stats.getMax();
+        return max;
     }
 
     @EventField
     public double getAverage()
     {
-        return stats.getAverage();
+        return average;
     }
 
     @EventField
     public long getCount()
     {
-        return stats.getCount();
+        return count;
     }
 }
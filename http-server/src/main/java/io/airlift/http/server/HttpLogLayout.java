@@ -56,6 +56,10 @@ public class HttpLogLayout
                 .append(event.getFirstToLastContentTimeInMillis())
                 .append('\t')
                 .append(contentInterarrivalStats)
+                .append('\t')
+                .append(event.getCpuTimeInMicros())
+                .append('\t')
+                .append(event.getAllocatedBytes())
                 .append('\n');
 
         return builder.toString();
@@ -31,6 +31,7 @@ import java.util.Enumeration;
 import static io.airlift.event.client.EventField.EventFieldMapping.TIMESTAMP;
 import static io.airlift.http.server.TraceTokenFilter.TRACETOKEN_HEADER;
 import static java.lang.Math.max;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 @EventType("HttpRequest")
 public class HttpRequestEvent
@@ -51,11 +52,7 @@ public class HttpRequestEvent
             user = principal.getName();
         }
 
-        // This is required, because async responses are processed in a different thread.
-        String token = request.getHeader(TRACETOKEN_HEADER);
-        if (token == null && traceTokenManager != null) {
-            token = traceTokenManager.getCurrentRequestToken();
-        }
+        String token = extractTraceToken(request, traceTokenManager);
 
         long dispatchTime = request.getTimeStamp();
         long timeToDispatch = max(dispatchTime - request.getTimeStamp(), 0);
@@ -69,29 +66,7 @@ public class HttpRequestEvent
 
         long timeToLastByte = max(currentTimeInMillis - request.getTimeStamp(), 0);
 
-        ImmutableList.Builder<String> builder = ImmutableList.builder();
-        if (request.getRemoteAddr() != null) {
-            builder.add(request.getRemoteAddr());
-        }
-        for (Enumeration<String> e = request.getHeaders("X-FORWARDED-FOR"); e != null && e.hasMoreElements(); ) {
-            String forwardedFor = e.nextElement();
-            builder.addAll(Splitter.on(',').trimResults().omitEmptyStrings().split(forwardedFor));
-        }
-        String clientAddress = null;
-        ImmutableList<String> clientAddresses = builder.build();
-        for (String address : Lists.reverse(clientAddresses)) {
-            try {
-                if (!Inet4Networks.isPrivateNetworkAddress(address)) {
-                    clientAddress = address;
-                    break;
-                }
-            }
-            catch (IllegalArgumentException ignored) {
-            }
-        }
-        if (clientAddress == null) {
-            clientAddress = request.getRemoteAddr();
-        }
+        String clientAddress = extractClientAddress(request);
 
         String requestUri = null;
         if (request.getRequestURI() != null) {
@@ -137,7 +112,65 @@ public class HttpRequestEvent
                 beginToEndMillis,
                 firstToLastContentTimeInMillis,
                 responseContentInterarrivalStats,
-                request.getHttpVersion().toString());
+                request.getHttpVersion().toString(),
+                extractCpuTimeInMicros(request),
+                extractAllocatedBytes(request));
+    }
+
+    static String extractTraceToken(Request request, TraceTokenManager traceTokenManager)
+    {
+        // This is required, because async responses are processed in a different thread.
+        String token = request.getHeader(TRACETOKEN_HEADER);
+        if (token == null && traceTokenManager != null) {
+            token = traceTokenManager.getCurrentRequestToken();
+        }
+        return token;
+    }
+
+    static Long extractCpuTimeInMicros(Request request)
+    {
+        Object cpuTime = request.getAttribute(RequestAccountingFilter.CPU_TIME);
+        if (cpuTime instanceof Long) {
+            return NANOSECONDS.toMicros((Long) cpuTime);
+        }
+        return null;
+    }
+
+    static Long extractAllocatedBytes(Request request)
+    {
+        Object allocatedBytes = request.getAttribute(RequestAccountingFilter.ALLOCATED_BYTES);
+        if (allocatedBytes instanceof Long) {
+            return (Long) allocatedBytes;
+        }
+        return null;
+    }
+
+    static String extractClientAddress(Request request)
+    {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        if (request.getRemoteAddr() != null) {
+            builder.add(request.getRemoteAddr());
+        }
+        for (Enumeration<String> e = request.getHeaders("X-FORWARDED-FOR"); e != null && e.hasMoreElements(); ) {
+            String forwardedFor = e.nextElement();
+            builder.addAll(Splitter.on(',').trimResults().omitEmptyStrings().split(forwardedFor));
+        }
+        String clientAddress = null;
+        ImmutableList<String> clientAddresses = builder.build();
+        for (String address : Lists.reverse(clientAddresses)) {
+            try {
+                if (!Inet4Networks.isPrivateNetworkAddress(address)) {
+                    clientAddress = address;
+                    break;
+                }
+            }
+            catch (IllegalArgumentException ignored) {
+            }
+        }
+        if (clientAddress == null) {
+            clientAddress = request.getRemoteAddr();
+        }
+        return clientAddress;
     }
 
     private final Instant timeStamp;
@@ -162,6 +195,8 @@ public class HttpRequestEvent
     private final long firstToLastContentTimeInMillis;
     private final DoubleSummaryStats responseContentInterarrivalStats;
     private final String protocolVersion;
+    private final Long cpuTimeInMicros;
+    private final Long allocatedBytes;
 
     public HttpRequestEvent(
             Instant timeStamp,
@@ -186,6 +221,59 @@ public class HttpRequestEvent
             long firstToLastContentTimeInMillis,
             DoubleSummaryStats responseContentInterarrivalStats,
             String protocolVersion)
+    {
+        this(
+                timeStamp,
+                traceToken,
+                clientAddress,
+                protocol,
+                method,
+                requestUri,
+                user,
+                agent,
+                referrer,
+                requestSize,
+                requestContentType,
+                responseSize,
+                responseCode,
+                responseContentType,
+                timeToDispatch,
+                timeToFirstByte,
+                timeToLastByte,
+                beginToDispatchMillis,
+                beginToEndMillis,
+                firstToLastContentTimeInMillis,
+                responseContentInterarrivalStats,
+                protocolVersion,
+                null,
+                null);
+    }
+
+    public HttpRequestEvent(
+            Instant timeStamp,
+            String traceToken,
+            String clientAddress,
+            String protocol,
+            String method,
+            String requestUri,
+            String user,
+            String agent,
+            String referrer,
+            long requestSize,
+            String requestContentType,
+            long responseSize,
+            int responseCode,
+            String responseContentType,
+            long timeToDispatch,
+            Long timeToFirstByte,
+            long timeToLastByte,
+            long beginToDispatchMillis,
+            long beginToEndMillis,
+            long firstToLastContentTimeInMillis,
+            DoubleSummaryStats responseContentInterarrivalStats,
+            String protocolVersion,
+            Long cpuTimeInMicros,
+            Long allocatedBytes)
     {
         this.timeStamp = timeStamp;
         this.traceToken = traceToken;
@@ -209,6 +297,8 @@ public class HttpRequestEvent
         this.firstToLastContentTimeInMillis = firstToLastContentTimeInMillis;
         this.responseContentInterarrivalStats = responseContentInterarrivalStats;
         this.protocolVersion = protocolVersion;
+        this.cpuTimeInMicros = cpuTimeInMicros;
+        this.allocatedBytes = allocatedBytes;
     }
 
     @EventField(fieldMapping = TIMESTAMP)
@@ -342,4 +432,16 @@ public class HttpRequestEvent
     {
         return protocolVersion;
     }
+
+    @EventField
+    public Long getCpuTimeInMicros()
+    {
+        return cpuTimeInMicros;
+    }
+
+    @EventField
+    public Long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
 }
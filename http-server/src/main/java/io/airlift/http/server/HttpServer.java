@@ -81,6 +81,7 @@ import java.util.concurrent.TimeoutException;
 
 import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Preconditions.checkState;
+import static io.airlift.http.server.RequestDispatchingThreadPool.newVirtualThreadPerTaskExecutor;
 import static java.lang.Math.toIntExact;
 import static java.lang.String.format;
 import static java.time.temporal.ChronoUnit.DAYS;
@@ -94,6 +95,7 @@ public class HttpServer
     private final Server server;
     private final boolean registerErrorHandler;
     private final DelimitedRequestLog requestLog;
+    private final RequestDispatchingThreadPool requestDispatchingThreadPool;
     private ConnectionStats httpConnectionStats;
     private ConnectionStats httpsConnectionStats;
 
@@ -121,7 +123,15 @@ public class HttpServer
         requireNonNull(config, "config is null");
         requireNonNull(theServlet, "theServlet is null");
 
-        QueuedThreadPool threadPool = new QueuedThreadPool(config.getMaxThreads());
+        QueuedThreadPool threadPool;
+        if (config.isVirtualThreadsEnabled()) {
+            requestDispatchingThreadPool = new RequestDispatchingThreadPool(config.getMaxThreads(), newVirtualThreadPerTaskExecutor("http-worker-virtual"));
+            threadPool = requestDispatchingThreadPool;
+        }
+        else {
+            requestDispatchingThreadPool = null;
+            threadPool = new QueuedThreadPool(config.getMaxThreads());
+        }
         threadPool.setMinThreads(config.getMinThreads());
         threadPool.setIdleTimeout(Ints.checkedCast(config.getThreadMaxIdleTime().toMillis()));
         threadPool.setName("http-worker");
@@ -335,6 +345,7 @@ public class HttpServer
          * server
          *    |--- statistics handler
          *           |--- context handler
+         *           |       |--- request accounting filter (optional)
          *           |       |--- trace token filter
          *           |       |--- gzip response filter
          *           |       |--- gzip request filter
@@ -348,7 +359,7 @@ public class HttpServer
          */
         HandlerCollection handlers = new HandlerCollection();
 
-        handlers.addHandler(createServletContext(theServlet, resources, parameters, filters, tokenManager, loginService, "http", "https"));
+        handlers.addHandler(createServletContext(theServlet, resources, parameters, filters, tokenManager, loginService, config.isRequestAccountingEnabled(), "http", "https"));
 
         RequestLogHandler statsRecorder = new RequestLogHandler();
         statsRecorder.setRequestLog(new StatsRecordingHandler(stats));
@@ -360,7 +371,7 @@ public class HttpServer
 
         HandlerList rootHandlers = new HandlerList();
         if (theAdminServlet != null && config.isAdminEnabled()) {
-            rootHandlers.addHandler(createServletContext(theAdminServlet, resources, adminParameters, adminFilters, tokenManager, loginService, "admin"));
+            rootHandlers.addHandler(createServletContext(theAdminServlet, resources, adminParameters, adminFilters, tokenManager, loginService, config.isRequestAccountingEnabled(), "admin"));
         }
         rootHandlers.addHandler(statsHandler);
         server.setHandler(rootHandlers);
@@ -377,11 +388,15 @@ public class HttpServer
             Set<Filter> filters,
             TraceTokenManager tokenManager,
             LoginService loginService,
+            boolean requestAccountingEnabled,
             String... connectorNames)
     {
         ServletContextHandler context = new ServletContextHandler(ServletContextHandler.NO_SESSIONS);
 
         context.addFilter(new FilterHolder(new TimingFilter()), "/*", null);
+        if (requestAccountingEnabled) {
+            context.addFilter(new FilterHolder(new RequestAccountingFilter()), "/*", null);
+        }
         if (tokenManager != null) {
             context.addFilter(new FilterHolder(new TraceTokenFilter(tokenManager)), "/*", null);
         }
@@ -460,7 +475,9 @@ public class HttpServer
                 config.getLogMaxFileSize().toBytes(),
                 tokenManager,
                 eventClient,
-                config.isLogCompressionEnabled());
+                new SystemCurrentTimeMillisProvider(),
+                config.isLogCompressionEnabled(),
+                config.isLogRingBufferEnabled() ? toIntExact(config.getLogRingBufferSize().toBytes()) : 0);
     }
 
     private static Optional<KeyStore> tryLoadPemKeyStore(HttpServerConfig config)
@@ -527,6 +544,13 @@ public class HttpServer
         return httpsConnectionStats;
     }
 
+    @Managed
+    @Nested
+    public RequestDispatchingThreadPool getVirtualThreads()
+    {
+        return requestDispatchingThreadPool;
+    }
+
     @Managed
     public int getLoggerQueueSize()
     {
@@ -536,6 +560,24 @@ public class HttpServer
         return requestLog.getQueueSize();
     }
 
+    @Managed
+    public long getLoggerQueuedBytes()
+    {
+        if (requestLog == null) {
+            return 0;
+        }
+        return requestLog.getQueuedBytes();
+    }
+
+    @Managed
+    public long getLoggerDroppedEntries()
+    {
+        if (requestLog == null) {
+            return 0;
+        }
+        return requestLog.getDroppedEntries();
+    }
+
     @PostConstruct
     public void start()
             throws Exception
@@ -16,23 +16,14 @@ package io.airlift.http.server;
 import org.eclipse.jetty.server.HttpChannel.Listener;
 import org.eclipse.jetty.server.Request;
 
-import javax.annotation.Nullable;
-
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.DoubleSummaryStatistics;
-import java.util.List;
 
 import static java.util.Objects.requireNonNull;
-import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 public class HttpServerChannelListener
         implements Listener
 {
-    private static final String REQUEST_BEGIN_ATTRIBUTE = HttpServerChannelListener.class.getName() + ".begin";
-    private static final String REQUEST_BEGIN_TO_DISPATCH_ATTRIBUTE = HttpServerChannelListener.class.getName() + ".begin_to_dispatch";
-    private static final String REQUEST_BEGIN_TO_END_ATTRIBUTE = HttpServerChannelListener.class.getName() + ".begin_to_end";
-    private static final String RESPONSE_CONTENT_TIMESTAMPS_ATTRIBUTE = HttpServerChannelListener.class.getName() + ".response_content_timestamps";
+    private static final String REQUEST_TIMING_ATTRIBUTE = HttpServerChannelListener.class.getName() + ".timing";
 
     private final DelimitedRequestLog logger;
 
@@ -44,81 +35,51 @@ public class HttpServerChannelListener
     @Override
     public void onRequestBegin(Request request)
     {
-        request.setAttribute(REQUEST_BEGIN_ATTRIBUTE, System.nanoTime());
+        request.setAttribute(REQUEST_TIMING_ATTRIBUTE, new RequestTiming(System.nanoTime()));
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void onBeforeDispatch(Request request)
     {
-        long requestBeginTime = (Long) request.getAttribute(REQUEST_BEGIN_ATTRIBUTE);
-        request.setAttribute(REQUEST_BEGIN_TO_DISPATCH_ATTRIBUTE, System.nanoTime() - requestBeginTime);
+        getTiming(request).dispatched(System.nanoTime());
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void onRequestEnd(Request request)
     {
-        long requestBeginTime = (Long) request.getAttribute(REQUEST_BEGIN_ATTRIBUTE);
-        request.setAttribute(REQUEST_BEGIN_TO_END_ATTRIBUTE, System.nanoTime() - requestBeginTime);
+        getTiming(request).requestEnded(System.nanoTime());
     }
 
     @Override
     public void onResponseBegin(Request request)
     {
-        if (request.getAttribute(REQUEST_BEGIN_TO_END_ATTRIBUTE) == null) {
-            onRequestEnd(request);
+        RequestTiming timing = getTiming(request);
+        if (!timing.isRequestEnded()) {
+            timing.requestEnded(System.nanoTime());
         }
-        request.setAttribute(RESPONSE_CONTENT_TIMESTAMPS_ATTRIBUTE, new ArrayList<Long>());
+        timing.responseBegin();
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void onResponseContent(Request request, ByteBuffer content)
     {
-        List<Long> contentTimestamps = (List<Long>) request.getAttribute(RESPONSE_CONTENT_TIMESTAMPS_ATTRIBUTE);
-        contentTimestamps.add(System.nanoTime());
+        getTiming(request).responseContent(System.nanoTime());
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void onComplete(Request request)
     {
-        List<Long> contentTimestamps = (List<Long>) request.getAttribute(RESPONSE_CONTENT_TIMESTAMPS_ATTRIBUTE);
-        long firstToLastContentTimeInMillis = -1;
-        if (contentTimestamps.size() > 0) {
-            firstToLastContentTimeInMillis = NANOSECONDS.toMillis(contentTimestamps.get(contentTimestamps.size() - 1) - contentTimestamps.get(0));
-        }
-        long beginToDispatchMillis = NANOSECONDS.toMillis((Long) request.getAttribute(REQUEST_BEGIN_TO_DISPATCH_ATTRIBUTE));
-        long beginToEndMillis = NANOSECONDS.toMillis((Long) request.getAttribute(REQUEST_BEGIN_TO_END_ATTRIBUTE));
+        RequestTiming timing = getTiming(request);
         logger.log(request,
                 request.getResponse(),
-                beginToDispatchMillis,
-                beginToEndMillis,
-                firstToLastContentTimeInMillis,
-                processContentTimestamps(contentTimestamps));
+                timing.getBeginToDispatchMillis(),
+                timing.getBeginToEndMillis(),
+                timing.getFirstToLastContentMillis(),
+                timing.getContentInterarrivalStats());
     }
 
-    /**
-     * Calculate the summary statistics for the interarrival time of the onResponseContent callbacks.
-     */
-    @Nullable
-    private static DoubleSummaryStats processContentTimestamps(List<Long> contentTimestamps)
+    private static RequestTiming getTiming(Request request)
     {
-        requireNonNull(contentTimestamps, "contentTimestamps is null");
-
-        // no content (HTTP 204) or there was a single response chunk (so no interarrival time)
-        if (contentTimestamps.size() == 0 || contentTimestamps.size() == 1) {
-            return null;
-        }
-
-        DoubleSummaryStatistics statistics = new DoubleSummaryStatistics();
-        long previousTimestamp = contentTimestamps.get(0);
-        for (int i = 1; i < contentTimestamps.size(); i++) {
-            long timestamp = contentTimestamps.get(i);
-            statistics.accept(NANOSECONDS.toMillis(timestamp - previousTimestamp));
-            previousTimestamp = timestamp;
-        }
-        return new DoubleSummaryStats(statistics);
+        return (RequestTiming) request.getAttribute(REQUEST_TIMING_ATTRIBUTE);
     }
 }
@@ -88,6 +88,8 @@ public class HttpServerConfig
     private int logQueueSize = 10_000;
     private DataSize logMaxFileSize = new DataSize(100, MEGABYTE);
     private boolean logCompressionEnabled = true;
+    private boolean logRingBufferEnabled;
+    private DataSize logRingBufferSize = new DataSize(16, MEGABYTE);
 
     private Integer httpAcceptorThreads;
     private Integer httpSelectorThreads;
@@ -97,6 +99,7 @@ public class HttpServerConfig
     private int minThreads = 2;
     private int maxThreads = 200;
     private Duration threadMaxIdleTime = new Duration(1, MINUTES);
+    private boolean virtualThreadsEnabled;
     private Duration networkMaxIdleTime = new Duration(200, SECONDS);
     private DataSize maxRequestHeaderSize;
     private DataSize maxResponseHeaderSize;
@@ -114,6 +117,7 @@ public class HttpServerConfig
     private int adminMaxThreads = 200;
 
     private boolean showStackTrace = true;
+    private boolean requestAccountingEnabled;
 
     public boolean isHttpEnabled()
     {
@@ -439,6 +443,19 @@ public class HttpServerConfig
         return this;
     }
 
+    public boolean isVirtualThreadsEnabled()
+    {
+        return virtualThreadsEnabled;
+    }
+
+    @Config("http-server.threads.virtual")
+    @ConfigDescription("Handle requests on virtual threads, while acceptors and selectors stay on platform threads (requires Java 21 or later)")
+    public HttpServerConfig setVirtualThreadsEnabled(boolean virtualThreadsEnabled)
+    {
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+        return this;
+    }
+
     public int getLogHistory()
     {
         return logHistory;
@@ -476,6 +493,34 @@ public class HttpServerConfig
         return this;
     }
 
+    public boolean isLogRingBufferEnabled()
+    {
+        return logRingBufferEnabled;
+    }
+
+    @Config("http-server.log.ring-buffer.enabled")
+    @ConfigDescription("Write the request log through an off-heap buffer instead of a queue of events; entries are dropped when the buffer is full")
+    public HttpServerConfig setLogRingBufferEnabled(boolean logRingBufferEnabled)
+    {
+        this.logRingBufferEnabled = logRingBufferEnabled;
+        return this;
+    }
+
+    @NotNull
+    @MinDataSize("64kB")
+    @MaxDataSize("1GB")
+    public DataSize getLogRingBufferSize()
+    {
+        return logRingBufferSize;
+    }
+
+    @Config("http-server.log.ring-buffer.size")
+    public HttpServerConfig setLogRingBufferSize(DataSize logRingBufferSize)
+    {
+        this.logRingBufferSize = logRingBufferSize;
+        return this;
+    }
+
     public String getUserAuthFile()
     {
         return userAuthFile;
@@ -600,6 +645,19 @@ public class HttpServerConfig
         return this;
     }
 
+    public boolean isRequestAccountingEnabled()
+    {
+        return requestAccountingEnabled;
+    }
+
+    @Config("http-server.request-accounting.enabled")
+    @ConfigDescription("Measure the CPU time and the memory allocated by the thread handling each request")
+    public HttpServerConfig setRequestAccountingEnabled(boolean requestAccountingEnabled)
+    {
+        this.requestAccountingEnabled = requestAccountingEnabled;
+        return this;
+    }
+
     @NotNull
     @MinDataSize("1kB")
     @MaxDataSize("1GB")
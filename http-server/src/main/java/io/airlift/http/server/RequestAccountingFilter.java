@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import com.sun.management.ThreadMXBean;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the CPU time used and the bytes allocated by the thread handling the
+ * request, and stores them in the {@link #CPU_TIME} and {@link #ALLOCATED_BYTES}
+ * request attributes. Only the initial dispatch is measured, so work done by
+ * other threads for asynchronous requests is not included.
+ */
+class RequestAccountingFilter
+        implements Filter
+{
+    public static final String CPU_TIME = RequestAccountingFilter.class.getName() + ".CPU_TIME";
+    public static final String ALLOCATED_BYTES = RequestAccountingFilter.class.getName() + ".ALLOCATED_BYTES";
+
+    private final ThreadMXBean threadMXBean;
+    private final boolean cpuTimeEnabled;
+    private final boolean allocatedBytesEnabled;
+
+    public RequestAccountingFilter()
+    {
+        // allocation tracking is only available through the HotSpot extension of the bean
+        threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        cpuTimeEnabled = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+        allocatedBytesEnabled = threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig)
+    {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException
+    {
+        long threadId = Thread.currentThread().getId();
+        long startCpuTime = currentThreadCpuTime();
+        long startAllocatedBytes = threadAllocatedBytes(threadId);
+        try {
+            chain.doFilter(request, response);
+        }
+        finally {
+            if (startCpuTime >= 0) {
+                request.setAttribute(CPU_TIME, Math.max(0, currentThreadCpuTime() - startCpuTime));
+            }
+            if (startAllocatedBytes >= 0) {
+                request.setAttribute(ALLOCATED_BYTES, Math.max(0, threadAllocatedBytes(threadId) - startAllocatedBytes));
+            }
+        }
+    }
+
+    @Override
+    public void destroy()
+    {
+    }
+
+    private long currentThreadCpuTime()
+    {
+        if (!cpuTimeEnabled) {
+            return -1;
+        }
+        return threadMXBean.getCurrentThreadCpuTime();
+    }
+
+    private long threadAllocatedBytes(long threadId)
+    {
+        if (!allocatedBytesEnabled) {
+            return -1;
+        }
+        return threadMXBean.getThreadAllocatedBytes(threadId);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.util.thread.Invocable;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.weakref.jmx.Managed;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+import static org.eclipse.jetty.util.thread.Invocable.InvocationType.BLOCKING;
+
+/**
+ * A Jetty thread pool that runs the acceptors and selectors on its own platform
+ * threads, but hands the blocking work of handling requests to a separate
+ * executor, normally one that starts a virtual thread per task.
+ * <p>
+ * Jetty only hands a request to the thread pool when no reserved thread can take
+ * over the selector, so the pool runs without reserved threads. Handling tasks
+ * are recognized as the blocking {@link Invocable} tasks produced by the selectors,
+ * which read and parse requests, and the {@link HttpChannel} dispatches of
+ * HTTP/2 streams and resumed asynchronous requests.
+ */
+public class RequestDispatchingThreadPool
+        extends QueuedThreadPool
+{
+    private final ExecutorService requestExecutor;
+
+    private final AtomicLong dispatchedTasks = new AtomicLong();
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    private final AtomicInteger activeTasks = new AtomicInteger();
+
+    RequestDispatchingThreadPool(int maxThreads, ExecutorService requestExecutor)
+    {
+        super(maxThreads);
+        this.requestExecutor = requireNonNull(requestExecutor, "requestExecutor is null");
+        setReservedThreads(0);
+    }
+
+    @Override
+    public void execute(Runnable job)
+    {
+        if (!isRequestTask(job)) {
+            super.execute(job);
+            return;
+        }
+
+        queuedTasks.incrementAndGet();
+        try {
+            requestExecutor.execute(() -> {
+                queuedTasks.decrementAndGet();
+                activeTasks.incrementAndGet();
+                try {
+                    job.run();
+                }
+                finally {
+                    activeTasks.decrementAndGet();
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            queuedTasks.decrementAndGet();
+            throw e;
+        }
+        dispatchedTasks.incrementAndGet();
+    }
+
+    @Override
+    protected void doStop()
+            throws Exception
+    {
+        super.doStop();
+        requestExecutor.shutdown();
+    }
+
+    @Managed(description = "number of request tasks started on the request executor")
+    public long getDispatchedTasks()
+    {
+        return dispatchedTasks.get();
+    }
+
+    @Managed(description = "number of request tasks waiting to start on the request executor")
+    public int getQueuedTasks()
+    {
+        return queuedTasks.get();
+    }
+
+    @Managed(description = "number of request tasks running on the request executor")
+    public int getActiveTasks()
+    {
+        return activeTasks.get();
+    }
+
+    @VisibleForTesting
+    static boolean isRequestTask(Runnable job)
+    {
+        if (job instanceof HttpChannel) {
+            return true;
+        }
+        return job instanceof Invocable && Invocable.getInvocationType(job) == BLOCKING;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @throws IllegalStateException if the runtime does not support virtual threads
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor(String name)
+    {
+        // virtual threads are only available on Java 21 and later, so look them up reflectively
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        }
+        catch (ReflectiveOperationException e) {
+            Throwable cause = (e instanceof InvocationTargetException) ? e.getCause() : e;
+            throw new IllegalStateException("Virtual threads are not supported by Java " + System.getProperty("java.version"), cause);
+        }
+    }
+}
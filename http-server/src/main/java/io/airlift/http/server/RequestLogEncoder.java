@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import io.airlift.tracetoken.TraceTokenManager;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import static io.airlift.http.server.HttpRequestEvent.extractClientAddress;
+import static io.airlift.http.server.HttpRequestEvent.extractTraceToken;
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.floorMod;
+import static java.lang.Math.max;
+import static java.math.RoundingMode.HALF_UP;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Encodes a request log entry directly into a reusable buffer, producing the
+ * same line as {@link HttpLogLayout} without building an {@link HttpRequestEvent}.
+ * Instances are not thread safe.
+ */
+final class RequestLogEncoder
+{
+    private static final DateTimeFormatter ISO_FORMATTER = ISO_OFFSET_DATE_TIME.withZone(ZoneId.systemDefault());
+    private static final byte[] NULL = "null".getBytes(UTF_8);
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    private final byte[] digits = new byte[20];
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private long cachedEpochSecond = Long.MIN_VALUE;
+    private byte[] cachedDateTime;
+    private byte[] cachedOffset;
+
+    /**
+     * Returns a buffer containing the encoded entry, valid until the next call,
+     * or null if the entry exceeds the maximum entry size.
+     */
+    public ByteBuffer encode(
+            Request request,
+            Response response,
+            TraceTokenManager traceTokenManager,
+            long currentTimeInMillis,
+            long beginToDispatchMillis,
+            long beginToEndMillis,
+            long firstToLastContentTimeInMillis,
+            DoubleSummaryStats responseContentInterarrivalStats)
+    {
+        while (true) {
+            buffer.clear();
+            try {
+                encodeEntry(request, response, traceTokenManager, currentTimeInMillis, beginToDispatchMillis, beginToEndMillis, firstToLastContentTimeInMillis, responseContentInterarrivalStats);
+                buffer.flip();
+                return buffer;
+            }
+            catch (BufferOverflowException e) {
+                if (buffer.capacity() >= MAX_BUFFER_SIZE) {
+                    return null;
+                }
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    private void encodeEntry(
+            Request request,
+            Response response,
+            TraceTokenManager traceTokenManager,
+            long currentTimeInMillis,
+            long beginToDispatchMillis,
+            long beginToEndMillis,
+            long firstToLastContentTimeInMillis,
+            DoubleSummaryStats stats)
+    {
+        // field order must match HttpLogLayout
+        long timeStamp = request.getTimeStamp();
+        writeTimeStamp(timeStamp);
+        buffer.put((byte) '\t');
+        writeString(extractClientAddress(request));
+        buffer.put((byte) '\t');
+        writeMethod(request.getMethod());
+        buffer.put((byte) '\t');
+        writeRequestUri(request);
+        buffer.put((byte) '\t');
+        Principal principal = request.getUserPrincipal();
+        writeString(principal == null ? null : principal.getName());
+        buffer.put((byte) '\t');
+        writeString(request.getHeader("User-Agent"));
+        buffer.put((byte) '\t');
+        writeLong(response.getStatus());
+        buffer.put((byte) '\t');
+        writeLong(request.getContentRead());
+        buffer.put((byte) '\t');
+        writeLong(response.getContentCount());
+        buffer.put((byte) '\t');
+        writeLong(max(currentTimeInMillis - timeStamp, 0));
+        buffer.put((byte) '\t');
+        writeString(extractTraceToken(request, traceTokenManager));
+        buffer.put((byte) '\t');
+        writeString(request.getHttpVersion().toString());
+        buffer.put((byte) '\t');
+        writeLong(beginToDispatchMillis);
+        buffer.put((byte) '\t');
+        writeLong(beginToEndMillis);
+        buffer.put((byte) '\t');
+        writeLong(firstToLastContentTimeInMillis);
+        buffer.put((byte) '\t');
+        if (stats == null) {
+            buffer.put(NULL);
+        }
+        else {
+            writeFixedPoint(stats.getMin());
+            buffer.put((byte) ',').put((byte) ' ');
+            writeFixedPoint(stats.getAverage());
+            buffer.put((byte) ',').put((byte) ' ');
+            writeFixedPoint(stats.getMax());
+            buffer.put((byte) ',').put((byte) ' ');
+            writeLong(stats.getCount());
+        }
+        buffer.put((byte) '\t');
+        // read the attributes directly to avoid boxing the converted values
+        Object cpuTime = request.getAttribute(RequestAccountingFilter.CPU_TIME);
+        if (cpuTime instanceof Long) {
+            writeLong(NANOSECONDS.toMicros((Long) cpuTime));
+        }
+        else {
+            buffer.put(NULL);
+        }
+        buffer.put((byte) '\t');
+        Object allocatedBytes = request.getAttribute(RequestAccountingFilter.ALLOCATED_BYTES);
+        if (allocatedBytes instanceof Long) {
+            writeLong((Long) allocatedBytes);
+        }
+        else {
+            buffer.put(NULL);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    private void writeTimeStamp(long epochMillis)
+    {
+        long epochSecond = floorDiv(epochMillis, 1000);
+        if (epochSecond != cachedEpochSecond) {
+            // the formatter omits the fraction for whole seconds, so the
+            // formatted value splits cleanly into date-time and offset
+            String formatted = ISO_FORMATTER.format(Instant.ofEpochSecond(epochSecond));
+            int offsetStart = formatted.indexOf('T');
+            while (offsetStart < formatted.length() && "+-Z".indexOf(formatted.charAt(offsetStart)) < 0) {
+                offsetStart++;
+            }
+            cachedDateTime = formatted.substring(0, offsetStart).getBytes(UTF_8);
+            cachedOffset = formatted.substring(offsetStart).getBytes(UTF_8);
+            cachedEpochSecond = epochSecond;
+        }
+        buffer.put(cachedDateTime);
+
+        // ISO_OFFSET_DATE_TIME prints the shortest fraction without trailing zeros
+        int millis = (int) floorMod(epochMillis, 1000);
+        if (millis != 0) {
+            buffer.put((byte) '.');
+            buffer.put((byte) ('0' + millis / 100));
+            if (millis % 100 != 0) {
+                buffer.put((byte) ('0' + millis / 10 % 10));
+                if (millis % 10 != 0) {
+                    buffer.put((byte) ('0' + millis % 10));
+                }
+            }
+        }
+        buffer.put(cachedOffset);
+    }
+
+    private void writeMethod(String method)
+    {
+        if (method == null) {
+            buffer.put(NULL);
+            return;
+        }
+        for (int i = 0; i < method.length(); i++) {
+            char c = method.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            }
+            else if (c >= 0x80) {
+                // let the JDK deal with non-ASCII case conversion
+                writeString(method.toUpperCase());
+                return;
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    private void writeRequestUri(Request request)
+    {
+        String uri = request.getRequestURI();
+        if (uri == null) {
+            buffer.put(NULL);
+            return;
+        }
+        writeString(uri);
+        String parameters = request.getQueryString();
+        if (parameters != null) {
+            buffer.put((byte) '?');
+            writeString(parameters);
+        }
+    }
+
+    private void writeString(String value)
+    {
+        if (value == null) {
+            buffer.put(NULL);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            }
+            else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+                i++;
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            }
+            else if (Character.isSurrogate(c)) {
+                // malformed input is replaced, as String.getBytes() does
+                buffer.put((byte) '?');
+            }
+            else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void writeLong(long value)
+    {
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        else {
+            // work with negative values so Long.MIN_VALUE does not overflow
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' - (value % 10));
+            value /= 10;
+        }
+        while (value != 0);
+        buffer.put(digits, position, digits.length - position);
+    }
+
+    /**
+     * Writes the value with two decimal places, like {@code %.2f} in the root locale.
+     */
+    private void writeFixedPoint(double value)
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writeString(Double.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        // round the shortest decimal form half up, like %.2f in HttpLogLayout, rather than the binary value
+        long hundredths = BigDecimal.valueOf(Math.abs(value)).setScale(2, HALF_UP).unscaledValue().longValue();
+        writeLong(hundredths / 100);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + hundredths / 10 % 10));
+        buffer.put((byte) ('0' + hundredths % 10));
+    }
+}
@@ -15,30 +15,94 @@
  */
 package io.airlift.http.server;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import io.airlift.log.Logger;
 import io.airlift.stats.CounterStat;
 import io.airlift.stats.DistributionStat;
 import io.airlift.stats.TimeStat;
 import io.airlift.units.Duration;
 import org.weakref.jmx.Flatten;
+import org.weakref.jmx.MBeanExport;
+import org.weakref.jmx.MBeanExporter;
 import org.weakref.jmx.Managed;
 import org.weakref.jmx.Nested;
 
-import javax.inject.Inject;
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class RequestStats
 {
+    /**
+     * Request attribute holding the route the request was matched to, such as the
+     * JAX-RS resource method. Requests with a route are also recorded in the
+     * {@link RouteStats} of that route.
+     */
+    public static final String ROUTE_ATTRIBUTE = RequestStats.class.getName() + ".ROUTE";
+
+    @VisibleForTesting
+    static final int MAX_ROUTES = 100;
+    // routes beyond the limit are recorded together, so unbounded paths cannot exhaust memory
+    @VisibleForTesting
+    static final String OTHER_ROUTE = "other";
+
+    private static final Logger log = Logger.get(RequestStats.class);
+
+    // every server thread records into these stats, so spread the writers over multiple digests
+    private static final int STRIPES = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+
     private final CounterStat request;
     private final TimeStat requestTime;
     private final DistributionStat readBytes;
     private final DistributionStat writtenBytes;
+    private final TimeStat cpuTime;
+    private final DistributionStat allocatedBytes;
+
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+    @GuardedBy("this")
+    private final List<MBeanExport> routeExports = new ArrayList<>();
+    @GuardedBy("this")
+    private MBeanExporter exporter;
 
     @Inject
     public RequestStats()
     {
         request = new CounterStat();
-        requestTime = new TimeStat();
-        readBytes = new DistributionStat();
-        writtenBytes = new DistributionStat();
+        requestTime = new TimeStat(Ticker.systemTicker(), SECONDS, STRIPES);
+        readBytes = new DistributionStat(STRIPES);
+        writtenBytes = new DistributionStat(STRIPES);
+        cpuTime = new TimeStat(Ticker.systemTicker(), MILLISECONDS, STRIPES);
+        allocatedBytes = new DistributionStat(STRIPES);
+    }
+
+    /**
+     * Exports the stats of each route as a separate MBean when the route is first seen.
+     */
+    @Inject(optional = true)
+    public synchronized void setMBeanExporter(MBeanExporter exporter)
+    {
+        this.exporter = exporter;
+    }
+
+    @PreDestroy
+    public synchronized void unexportRoutes()
+    {
+        for (MBeanExport export : routeExports) {
+            export.unexport();
+        }
+        routeExports.clear();
     }
 
     public void record(long requestSizeInBytes, long responseSizeInBytes, Duration requestProcessingTime)
@@ -49,6 +113,77 @@ public class RequestStats
         writtenBytes.add(responseSizeInBytes);
     }
 
+    /**
+     * Records the request, and also records it in the stats of the route, if any.
+     */
+    public void record(@Nullable String route, int responseCode, long requestSizeInBytes, long responseSizeInBytes, Duration requestProcessingTime)
+    {
+        if (route != null) {
+            getRouteStats(route).record(responseCode, requestSizeInBytes, responseSizeInBytes, requestProcessingTime);
+        }
+        record(requestSizeInBytes, responseSizeInBytes, requestProcessingTime);
+    }
+
+    public void recordCpuTime(@Nullable String route, Duration time)
+    {
+        if (route != null) {
+            getRouteStats(route).recordCpuTime(time);
+        }
+        cpuTime.add(time);
+    }
+
+    public void recordAllocatedBytes(@Nullable String route, long bytes)
+    {
+        if (route != null) {
+            getRouteStats(route).recordAllocatedBytes(bytes);
+        }
+        allocatedBytes.add(bytes);
+    }
+
+    /**
+     * Returns the stats of the routes seen so far.
+     */
+    public Map<String, RouteStats> getRoutes()
+    {
+        return unmodifiableMap(routes);
+    }
+
+    private RouteStats getRouteStats(String route)
+    {
+        RouteStats stats = routes.get(route);
+        if (stats != null) {
+            return stats;
+        }
+        return addRoute(route);
+    }
+
+    private synchronized RouteStats addRoute(String route)
+    {
+        RouteStats stats = routes.get(route);
+        if (stats != null) {
+            return stats;
+        }
+        if (routes.size() >= MAX_ROUTES) {
+            route = OTHER_ROUTE;
+            stats = routes.get(route);
+            if (stats != null) {
+                return stats;
+            }
+        }
+
+        stats = new RouteStats();
+        routes.put(route, stats);
+        if (exporter != null) {
+            try {
+                routeExports.add(exporter.exportWithGeneratedName(stats, RouteStats.class, ImmutableMap.of("name", "RouteStats", "route", route)));
+            }
+            catch (RuntimeException e) {
+                log.warn(e, "Failed to export stats for route %s", route);
+            }
+        }
+        return stats;
+    }
+
     @Managed
     @Flatten
     public CounterStat getRequest()
@@ -76,4 +211,18 @@ public class RequestStats
     {
         return writtenBytes;
     }
+
+    @Managed
+    @Nested
+    public TimeStat getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    @Managed
+    @Nested
+    public DistributionStat getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import javax.annotation.Nullable;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Timing of a single request, recorded by {@link HttpServerChannelListener}.
+ * All values are kept in primitive fields, so recording a response chunk
+ * does not allocate.
+ * <p>
+ * Jetty invokes the channel listener callbacks for a request one at a time,
+ * so this class does not need to be thread safe.
+ */
+final class RequestTiming
+{
+    private final long beginNanos;
+    private long beginToDispatchNanos;
+    private long beginToEndNanos = -1;
+
+    private long contentCount;
+    private long firstContentNanos;
+    private long lastContentNanos;
+
+    // interarrival time of the response content callbacks
+    private double interarrivalMinMillis = Double.POSITIVE_INFINITY;
+    private double interarrivalMaxMillis = Double.NEGATIVE_INFINITY;
+    private double interarrivalSumMillis;
+
+    RequestTiming(long beginNanos)
+    {
+        this.beginNanos = beginNanos;
+    }
+
+    void dispatched(long nanos)
+    {
+        beginToDispatchNanos = nanos - beginNanos;
+    }
+
+    void requestEnded(long nanos)
+    {
+        beginToEndNanos = nanos - beginNanos;
+    }
+
+    boolean isRequestEnded()
+    {
+        return beginToEndNanos >= 0;
+    }
+
+    void responseBegin()
+    {
+        contentCount = 0;
+        interarrivalMinMillis = Double.POSITIVE_INFINITY;
+        interarrivalMaxMillis = Double.NEGATIVE_INFINITY;
+        interarrivalSumMillis = 0;
+    }
+
+    void responseContent(long nanos)
+    {
+        if (contentCount == 0) {
+            firstContentNanos = nanos;
+        }
+        else {
+            double interarrivalMillis = NANOSECONDS.toMillis(nanos - lastContentNanos);
+            interarrivalMinMillis = min(interarrivalMinMillis, interarrivalMillis);
+            interarrivalMaxMillis = max(interarrivalMaxMillis, interarrivalMillis);
+            interarrivalSumMillis += interarrivalMillis;
+        }
+        lastContentNanos = nanos;
+        contentCount++;
+    }
+
+    long getBeginToDispatchMillis()
+    {
+        return NANOSECONDS.toMillis(beginToDispatchNanos);
+    }
+
+    long getBeginToEndMillis()
+    {
+        return NANOSECONDS.toMillis(beginToEndNanos);
+    }
+
+    long getFirstToLastContentMillis()
+    {
+        if (contentCount == 0) {
+            return -1;
+        }
+        return NANOSECONDS.toMillis(lastContentNanos - firstContentNanos);
+    }
+
+    /**
+     * Summary statistics for the interarrival time of the response content callbacks.
+     */
+    @Nullable
+    DoubleSummaryStats getContentInterarrivalStats()
+    {
+        // no content (HTTP 204) or there was a single response chunk (so no interarrival time)
+        if (contentCount <= 1) {
+            return null;
+        }
+        return new DoubleSummaryStats(contentCount - 1, interarrivalMinMillis, interarrivalMaxMillis, interarrivalSumMillis);
+    }
+}
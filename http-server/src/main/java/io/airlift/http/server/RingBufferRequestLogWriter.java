@@ -0,0 +1,347 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import ch.qos.logback.core.encoder.EncoderBase;
+import ch.qos.logback.core.recovery.ResilientFileOutputStream;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.TriggeringPolicy;
+import ch.qos.logback.core.status.ErrorStatus;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Copies encoded log entries into an off-heap ring buffer. A single writer
+ * thread drains the buffer into the file channel of a rolling file appender
+ * in large batches. Entries that do not fit are dropped rather than blocking
+ * the request thread.
+ */
+class RingBufferRequestLogWriter
+{
+    private static final long DRAIN_INTERVAL_MILLIS = 100;
+
+    private final ByteBuffer ringBuffer;
+    private final ByteBuffer drainView;
+    private final ByteBuffer wrappedDrainView;
+    private final int capacity;
+    private final int drainThreshold;
+    private final ChannelFileAppender fileAppender;
+    private final Thread writerThread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drainRequested = lock.newCondition();
+
+    @GuardedBy("lock")
+    private long writePosition;
+    @GuardedBy("lock")
+    private long appendedEntries;
+    @GuardedBy("lock")
+    private boolean writerWaiting;
+    @GuardedBy("lock")
+    private boolean closed;
+
+    // only updated by the writer thread
+    private volatile long readPosition;
+    private volatile long writtenEntries;
+
+    private final AtomicLong droppedEntries = new AtomicLong();
+    private final AtomicLong droppedBytes = new AtomicLong();
+
+    public RingBufferRequestLogWriter(int capacity, ChannelFileAppender fileAppender)
+    {
+        checkArgument(capacity > 0, "capacity must be positive");
+        this.fileAppender = requireNonNull(fileAppender, "fileAppender is null");
+        this.capacity = capacity;
+        this.drainThreshold = capacity / 4;
+        this.ringBuffer = ByteBuffer.allocateDirect(capacity);
+        this.drainView = ringBuffer.duplicate();
+        this.wrappedDrainView = ringBuffer.duplicate();
+
+        writerThread = new Thread(this::drainLoop, "http-request-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Copies the remaining bytes of the entry into the ring buffer.
+     *
+     * @return false if the entry was dropped
+     */
+    public boolean append(ByteBuffer entry)
+    {
+        int length = entry.remaining();
+        lock.lock();
+        try {
+            if (closed || length > capacity - (writePosition - readPosition)) {
+                droppedEntries.incrementAndGet();
+                droppedBytes.addAndGet(length);
+                return false;
+            }
+
+            int index = (int) (writePosition % capacity);
+            int first = min(length, capacity - index);
+            int entryLimit = entry.limit();
+
+            ringBuffer.limit(index + first);
+            ringBuffer.position(index);
+            entry.limit(entry.position() + first);
+            ringBuffer.put(entry);
+            entry.limit(entryLimit);
+            if (first < length) {
+                // wrap around
+                ringBuffer.clear();
+                ringBuffer.put(entry);
+            }
+
+            writePosition += length;
+            appendedEntries++;
+            if (writerWaiting && writePosition - readPosition >= drainThreshold) {
+                drainRequested.signal();
+            }
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records an entry that was dropped before reaching the buffer.
+     */
+    public void recordDropped()
+    {
+        droppedEntries.incrementAndGet();
+    }
+
+    public void stop()
+    {
+        lock.lock();
+        try {
+            closed = true;
+            drainRequested.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+
+        try {
+            writerThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getQueuedEntries()
+    {
+        lock.lock();
+        try {
+            return appendedEntries - writtenEntries;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public long getQueuedBytes()
+    {
+        lock.lock();
+        try {
+            return writePosition - readPosition;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedEntries()
+    {
+        return droppedEntries.get();
+    }
+
+    public long getDroppedBytes()
+    {
+        return droppedBytes.get();
+    }
+
+    private void drainLoop()
+    {
+        try {
+            while (true) {
+                long start = readPosition;
+                long end;
+                long entries;
+                boolean done;
+                lock.lock();
+                try {
+                    if (!closed && writePosition - start < drainThreshold) {
+                        writerWaiting = true;
+                        try {
+                            drainRequested.await(DRAIN_INTERVAL_MILLIS, MILLISECONDS);
+                        }
+                        catch (InterruptedException e) {
+                            closed = true;
+                        }
+                        finally {
+                            writerWaiting = false;
+                        }
+                    }
+                    end = writePosition;
+                    entries = appendedEntries;
+                    done = closed;
+                }
+                finally {
+                    lock.unlock();
+                }
+
+                // producers never touch the region between start and end until
+                // the read position moves, so it can be written without the lock
+                if (end > start) {
+                    drain(start, end);
+                    writtenEntries = entries;
+                    readPosition = end;
+                }
+                if (done) {
+                    return;
+                }
+            }
+        }
+        finally {
+            fileAppender.stop();
+        }
+    }
+
+    private void drain(long start, long end)
+    {
+        int index = (int) (start % capacity);
+        int length = (int) (end - start);
+        int first = min(length, capacity - index);
+
+        drainView.clear();
+        drainView.limit(index + first);
+        drainView.position(index);
+        if (first == length) {
+            fileAppender.doAppend(new ByteBuffer[] {drainView});
+            return;
+        }
+
+        // append both parts of a wrapped region as one batch, so the file
+        // cannot roll over in the middle of an entry
+        wrappedDrainView.clear();
+        wrappedDrainView.limit(length - first);
+        fileAppender.doAppend(new ByteBuffer[] {drainView, wrappedDrainView});
+    }
+
+    /**
+     * Rolling file appender that writes raw byte batches straight to the
+     * channel of the active file, keeping the rolling policy of logback.
+     * Each batch is written to a single file.
+     */
+    static class ChannelFileAppender
+            extends RollingFileAppender<ByteBuffer[]>
+    {
+        private File activeFile;
+
+        public ChannelFileAppender()
+        {
+            // batches are written to the channel directly, but the appender requires an encoder
+            setEncoder(new RawEncoder());
+        }
+
+        @Override
+        public void start()
+        {
+            activeFile = new File(getFile());
+            super.start();
+        }
+
+        @Override
+        protected void subAppend(ByteBuffer[] batch)
+        {
+            TriggeringPolicy<ByteBuffer[]> triggeringPolicy = getTriggeringPolicy();
+            synchronized (triggeringPolicy) {
+                if (triggeringPolicy.isTriggeringEvent(activeFile, batch)) {
+                    rollover();
+                }
+            }
+
+            if (!isStarted()) {
+                return;
+            }
+            lock.lock();
+            try {
+                FileChannel channel = ((ResilientFileOutputStream) getOutputStream()).getChannel();
+                ByteBuffer last = batch[batch.length - 1];
+                while (last.hasRemaining()) {
+                    channel.write(batch);
+                }
+            }
+            catch (IOException e) {
+                started = false;
+                addStatus(new ErrorStatus("IO failure in appender", this, e));
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    static class RawEncoder
+            extends EncoderBase<ByteBuffer[]>
+    {
+        private static final byte[] EMPTY = new byte[0];
+
+        @Override
+        public byte[] headerBytes()
+        {
+            return EMPTY;
+        }
+
+        @Override
+        public byte[] encode(ByteBuffer[] batch)
+        {
+            int length = 0;
+            for (ByteBuffer buffer : batch) {
+                length += buffer.remaining();
+            }
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            for (ByteBuffer buffer : batch) {
+                int remaining = buffer.remaining();
+                buffer.duplicate().get(bytes, offset, remaining);
+                offset += remaining;
+            }
+            return bytes;
+        }
+
+        @Override
+        public byte[] footerBytes()
+        {
+            return EMPTY;
+        }
+    }
+}
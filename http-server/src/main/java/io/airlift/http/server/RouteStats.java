@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import io.airlift.stats.CounterStat;
+import io.airlift.stats.DistributionStat;
+import io.airlift.stats.WindowedTimeStat;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Flatten;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Statistics for the requests matched to a single route. Apart from the
+ * allocated bytes, which are only recorded when request accounting is enabled,
+ * recording does not take locks. The two {@link WindowedTimeStat}s use about
+ * 75kB each when recorded to continuously, so the at most 100 routes of a server,
+ * plus the shared other route, take about 15MB.
+ *
+ * @see RequestStats#ROUTE_ATTRIBUTE
+ */
+public class RouteStats
+{
+    private final CounterStat request = new CounterStat();
+    private final WindowedTimeStat requestTime = new WindowedTimeStat(SECONDS);
+    private final CounterStat readBytes = new CounterStat();
+    private final CounterStat writtenBytes = new CounterStat();
+    // indexed by the first digit of the status code, with anything out of range counted as 5xx
+    private final CounterStat[] responses = new CounterStat[] {
+            new CounterStat(),
+            new CounterStat(),
+            new CounterStat(),
+            new CounterStat(),
+            new CounterStat(),
+    };
+
+    private final WindowedTimeStat cpuTime = new WindowedTimeStat(MILLISECONDS);
+    private final DistributionStat allocatedBytes = new DistributionStat();
+
+    RouteStats() {}
+
+    void record(int responseCode, long requestSizeInBytes, long responseSizeInBytes, Duration requestProcessingTime)
+    {
+        request.update(1);
+        requestTime.add(requestProcessingTime);
+        readBytes.update(requestSizeInBytes);
+        writtenBytes.update(responseSizeInBytes);
+
+        int statusClass = responseCode / 100;
+        if (statusClass < 1 || statusClass > responses.length) {
+            statusClass = responses.length;
+        }
+        responses[statusClass - 1].update(1);
+    }
+
+    void recordCpuTime(Duration time)
+    {
+        cpuTime.add(time);
+    }
+
+    void recordAllocatedBytes(long bytes)
+    {
+        allocatedBytes.add(bytes);
+    }
+
+    @Managed
+    @Flatten
+    public CounterStat getRequest()
+    {
+        return request;
+    }
+
+    @Managed
+    @Nested
+    public WindowedTimeStat getRequestTime()
+    {
+        return requestTime;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getReadBytes()
+    {
+        return readBytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getWrittenBytes()
+    {
+        return writtenBytes;
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getInformationalResponses()
+    {
+        return responses[0];
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getSuccessfulResponses()
+    {
+        return responses[1];
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getRedirectionResponses()
+    {
+        return responses[2];
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getClientErrorResponses()
+    {
+        return responses[3];
+    }
+
+    @Managed
+    @Nested
+    public CounterStat getServerErrorResponses()
+    {
+        return responses[4];
+    }
+
+    @Managed
+    @Nested
+    public WindowedTimeStat getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    @Managed
+    @Nested
+    public DistributionStat getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+}
@@ -23,6 +23,7 @@ import org.eclipse.jetty.server.Response;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.Math.max;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 public class StatsRecordingHandler
         implements RequestLog
@@ -38,6 +39,17 @@ public class StatsRecordingHandler
     public void log(Request request, Response response)
     {
         Duration requestTime = new Duration(max(0, System.currentTimeMillis() - request.getTimeStamp()), TimeUnit.MILLISECONDS);
-        stats.record(request.getContentRead(), response.getContentCount(), requestTime);
+        String route = (String) request.getAttribute(RequestStats.ROUTE_ATTRIBUTE);
+        stats.record(route, response.getStatus(), request.getContentRead(), response.getContentCount(), requestTime);
+
+        // set by the request accounting filter, when enabled
+        Object cpuTime = request.getAttribute(RequestAccountingFilter.CPU_TIME);
+        if (cpuTime instanceof Long) {
+            stats.recordCpuTime(route, new Duration((Long) cpuTime, NANOSECONDS));
+        }
+        Object allocatedBytes = request.getAttribute(RequestAccountingFilter.ALLOCATED_BYTES);
+        if (allocatedBytes instanceof Long) {
+            stats.recordAllocatedBytes(route, (Long) allocatedBytes);
+        }
     }
 }
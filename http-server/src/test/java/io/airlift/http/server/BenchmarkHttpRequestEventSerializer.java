@@ -0,0 +1,118 @@
+package io.airlift.http.server;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.event.client.JsonEventWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.airlift.event.client.EventTypeMetadata.getValidEventTypeMetaDataSet;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkHttpRequestEventSerializer
+{
+    private static final int BATCH_SIZE = 100;
+
+    @State(Scope.Thread)
+    public static class Data
+    {
+        private final JsonEventWriter eventWriter = new JsonEventWriter(getValidEventTypeMetaDataSet(HttpRequestEvent.class));
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(1024 * 1024);
+        private HttpRequestEvent event;
+        private List<HttpRequestEvent> batch;
+
+        @Setup
+        public void setup()
+        {
+            DoubleSummaryStats interarrivalStats = new DoubleSummaryStats(10, 0.5, 12.25, 40.0);
+            event = new HttpRequestEvent(
+                    Instant.now(),
+                    "trace-token",
+                    "10.1.2.3",
+                    "http",
+                    "GET",
+                    "/v1/service/some/resource?query=value",
+                    "user",
+                    "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36",
+                    "http://example.com/",
+                    1234,
+                    "application/json",
+                    56789,
+                    200,
+                    "application/json",
+                    12,
+                    34L,
+                    56,
+                    7,
+                    89,
+                    45,
+                    interarrivalStats,
+                    "HTTP/1.1");
+
+            ImmutableList.Builder<HttpRequestEvent> batch = ImmutableList.builder();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.add(event);
+            }
+            this.batch = batch.build();
+        }
+    }
+
+    @Benchmark
+    public int benchmarkSerializeEvent(Data data)
+            throws IOException
+    {
+        data.out.reset();
+        data.eventWriter.writeEvents(poster -> poster.post(data.event), data.out);
+        return data.out.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int benchmarkSerializeBatch(Data data)
+            throws IOException
+    {
+        data.out.reset();
+        data.eventWriter.writeEvents(poster -> {
+            for (HttpRequestEvent event : data.batch) {
+                poster.post(event);
+            }
+        }, data.out);
+        return data.out.size();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkHttpRequestEventSerializer.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import io.airlift.units.Duration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(3)
+@Threads(4)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class BenchmarkRequestStats
+{
+    private static final int ROUTE_COUNT = 20;
+
+    private final RequestStats stats = new RequestStats();
+    private final String[] routes = new String[ROUTE_COUNT];
+    private final Duration[] durations = new Duration[1024];
+
+    @Setup
+    public void setup()
+    {
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = "GET /v1/resource" + i + "/{id}";
+        }
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = new Duration(ThreadLocalRandom.current().nextInt(1, 1000), MILLISECONDS);
+        }
+    }
+
+    @Benchmark
+    public void recordWithoutRoute()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        stats.record(null, 200, 1000, 10_000, durations[random.nextInt(durations.length)]);
+    }
+
+    @Benchmark
+    public void recordWithRoute()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        stats.record(routes[random.nextInt(routes.length)], 200, 1000, 10_000, durations[random.nextInt(durations.length)]);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkRequestStats.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
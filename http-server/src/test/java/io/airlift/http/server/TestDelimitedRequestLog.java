@@ -17,6 +17,7 @@ package io.airlift.http.server;
 
 import com.google.common.collect.ImmutableList;
 import io.airlift.event.client.InMemoryEventClient;
+import io.airlift.event.client.NullEventClient;
 import io.airlift.tracetoken.TraceTokenManager;
 import org.eclipse.jetty.http.HttpURI;
 import org.eclipse.jetty.server.Request;
@@ -40,6 +41,7 @@ import static io.airlift.http.server.TraceTokenFilter.TRACETOKEN_HEADER;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static org.eclipse.jetty.http.HttpVersion.HTTP_2;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -140,6 +142,8 @@ public class TestDelimitedRequestLog
         stats.accept(1);
         stats.accept(3);
         DoubleSummaryStats responseContentInterarrivalStats = new DoubleSummaryStats(stats);
+        long cpuTimeInMicros = 1234;
+        long allocatedBytes = 98765;
 
         TraceTokenManager tokenManager = new TraceTokenManager();
         InMemoryEventClient eventClient = new InMemoryEventClient();
@@ -155,6 +159,8 @@ public class TestDelimitedRequestLog
         when(request.getProtocol()).thenReturn("unknown");
         when(request.getHeader("X-FORWARDED-PROTO")).thenReturn(protocol);
         when(request.getAttribute(TimingFilter.FIRST_BYTE_TIME)).thenReturn(timestamp + timeToFirstByte);
+        when(request.getAttribute(RequestAccountingFilter.CPU_TIME)).thenReturn(MICROSECONDS.toNanos(cpuTimeInMicros) + 999);
+        when(request.getAttribute(RequestAccountingFilter.ALLOCATED_BYTES)).thenReturn(allocatedBytes);
         when(request.getRequestURI()).thenReturn(uri.toString());
         when(request.getUserPrincipal()).thenReturn(principal);
         when(request.getMethod()).thenReturn(method);
@@ -192,9 +198,11 @@ public class TestDelimitedRequestLog
         assertEquals(event.getBeginToDispatchMillis(), beginToDispatchMillis);
         assertEquals(event.getFirstToLastContentTimeInMillis(), firstToLastContentTimeInMillis);
         assertEquals(event.getResponseContentInterarrivalStats(), responseContentInterarrivalStats);
+        assertEquals(event.getCpuTimeInMicros(), (Long) cpuTimeInMicros);
+        assertEquals(event.getAllocatedBytes(), (Long) allocatedBytes);
 
         String actual = asCharSource(file, UTF_8).read();
-        String expected = String.format("%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\n",
+        String expected = String.format("%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\t%s\n",
                 ISO_FORMATTER.format(Instant.ofEpochMilli(timestamp)),
                 ip,
                 method,
@@ -210,7 +218,9 @@ public class TestDelimitedRequestLog
                 beginToDispatchMillis,
                 beginToEndMillis,
                 firstToLastContentTimeInMillis,
-                format("%.2f, %.2f, %.2f, %d", stats.getMin(), stats.getAverage(), stats.getMax(), stats.getCount()));
+                format("%.2f, %.2f, %.2f, %d", stats.getMin(), stats.getAverage(), stats.getMax(), stats.getCount()),
+                cpuTimeInMicros,
+                allocatedBytes);
         assertEquals(actual, expected);
     }
 
@@ -304,4 +314,99 @@ public class TestDelimitedRequestLog
 
         assertEquals(event.getClientAddress(), clientIp);
     }
+
+    @Test
+    public void testRingBufferMatchesLayout()
+            throws Exception
+    {
+        File ringBufferFile = File.createTempFile(getClass().getName(), ".log");
+        try {
+            TraceTokenManager tokenManager = new TraceTokenManager();
+            tokenManager.createAndRegisterNewRequestToken();
+            long now = System.currentTimeMillis();
+            MockCurrentTimeMillisProvider currentTimeMillisProvider = new MockCurrentTimeMillisProvider(now);
+
+            DelimitedRequestLog logger = new DelimitedRequestLog(file.getAbsolutePath(), 1, 256, Long.MAX_VALUE, tokenManager, new NullEventClient(), currentTimeMillisProvider, false);
+            DelimitedRequestLog ringBufferLogger = new DelimitedRequestLog(ringBufferFile.getAbsolutePath(), 1, 256, Long.MAX_VALUE, tokenManager, new NullEventClient(), currentTimeMillisProvider, false, 64 * 1024);
+
+            DoubleSummaryStatistics stats = new DoubleSummaryStatistics();
+            stats.accept(1.125);
+            stats.accept(3.7);
+            stats.accept(1234.5678);
+            DoubleSummaryStats interarrivalStats = new DoubleSummaryStats(stats);
+
+            long baseTime = (now / 1000) * 1000;
+            long[] timestamps = {baseTime, baseTime + 120, baseTime + 5, baseTime + 999, baseTime + 1_000_010, 1, -1001};
+            for (long timestamp : timestamps) {
+                Request request = mock(Request.class);
+                Response response = mock(Response.class);
+                Principal principal = mock(Principal.class);
+                when(principal.getName()).thenReturn("m\u00e4rtin");
+                when(request.getTimeStamp()).thenReturn(timestamp);
+                when(request.getHeader("User-Agent")).thenReturn("agent \u2603 \ud83d\ude00");
+                when(request.getRemoteAddr()).thenReturn("9.9.9.9");
+                when(request.getHeaders("X-FORWARDED-FOR")).thenAnswer(invocation -> Collections.enumeration(ImmutableList.of("1.1.1.1, 10.1.2.3")));
+                when(request.getRequestURI()).thenReturn("/a/b");
+                when(request.getQueryString()).thenReturn("x=1");
+                when(request.getUserPrincipal()).thenReturn(principal);
+                when(request.getMethod()).thenReturn("get");
+                when(request.getContentRead()).thenReturn(timestamp);
+                when(request.getHttpVersion()).thenReturn(HTTP_2);
+                when(request.getAttribute(RequestAccountingFilter.CPU_TIME)).thenReturn(timestamp);
+                when(request.getAttribute(RequestAccountingFilter.ALLOCATED_BYTES)).thenReturn(timestamp);
+                when(response.getStatus()).thenReturn(200);
+                when(response.getContentCount()).thenReturn(Long.MIN_VALUE);
+
+                logger.log(request, response, 1, 2, 3, interarrivalStats);
+                ringBufferLogger.log(request, response, 1, 2, 3, interarrivalStats);
+            }
+
+            // entries with missing values
+            Request request = mock(Request.class);
+            when(request.getHttpVersion()).thenReturn(HTTP_2);
+            Response response = mock(Response.class);
+            logger.log(request, response, 0, 0, 0, null);
+            ringBufferLogger.log(request, response, 0, 0, 0, null);
+
+            // interarrival times that are rounded differently as decimal and as binary values
+            for (double value : new double[] {1.005, 2.675, 0.125, 0.005, -1.005, 1234567.895, 0}) {
+                DoubleSummaryStats valueStats = new DoubleSummaryStats(1, value, value, value);
+                logger.log(request, response, 0, 0, 0, valueStats);
+                ringBufferLogger.log(request, response, 0, 0, 0, valueStats);
+            }
+
+            logger.stop();
+            ringBufferLogger.stop();
+
+            assertEquals(ringBufferLogger.getDroppedEntries(), 0);
+            assertEquals(ringBufferLogger.getQueueSize(), 0);
+            assertEquals(asCharSource(ringBufferFile, UTF_8).read(), asCharSource(file, UTF_8).read());
+        }
+        finally {
+            if (!ringBufferFile.delete()) {
+                throw new IOException("Error deleting " + ringBufferFile.getAbsolutePath());
+            }
+        }
+    }
+
+    @Test
+    public void testRingBufferPostsEvents()
+            throws Exception
+    {
+        Request request = mock(Request.class);
+        Response response = mock(Response.class);
+        String clientIp = "1.1.1.1";
+
+        when(request.getRemoteAddr()).thenReturn(clientIp);
+        when(request.getHttpVersion()).thenReturn(HTTP_2);
+
+        InMemoryEventClient eventClient = new InMemoryEventClient();
+        DelimitedRequestLog logger = new DelimitedRequestLog(file.getAbsolutePath(), 1, 256, Long.MAX_VALUE, null, eventClient, new SystemCurrentTimeMillisProvider(), false, 64 * 1024);
+        logger.log(request, response, 0, 0, 0, null);
+        logger.stop();
+
+        List<Object> events = eventClient.getEvents();
+        assertEquals(events.size(), 1);
+        assertEquals(((HttpRequestEvent) events.get(0)).getClientAddress(), clientIp);
+    }
 }
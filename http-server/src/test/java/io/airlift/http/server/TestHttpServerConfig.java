@@ -64,12 +64,15 @@ public class TestHttpServerConfig
                 .setLogHistory(15)
                 .setLogQueueSize(10_000)
                 .setLogCompressionEnabled(true)
+                .setLogRingBufferEnabled(false)
+                .setLogRingBufferSize(new DataSize(16, MEGABYTE))
                 .setHttpAcceptorThreads(null)
                 .setHttpSelectorThreads(null)
                 .setHttpsAcceptorThreads(null)
                 .setHttpsSelectorThreads(null)
                 .setMinThreads(2)
                 .setMaxThreads(200)
+                .setVirtualThreadsEnabled(false)
                 .setThreadMaxIdleTime(new Duration(1, MINUTES))
                 .setNetworkMaxIdleTime(new Duration(200, SECONDS))
                 .setUserAuthFile(null)
@@ -81,6 +84,7 @@ public class TestHttpServerConfig
                 .setMaxResponseHeaderSize(null)
                 .setHttp2MaxConcurrentStreams(16384)
                 .setShowStackTrace(true)
+                .setRequestAccountingEnabled(false)
                 .setHttp2InitialSessionReceiveWindowSize(new DataSize(16, MEGABYTE))
                 .setHttp2InputBufferSize(new DataSize(8, KILOBYTE))
                 .setHttp2InitialStreamReceiveWindowSize(new DataSize(16, MEGABYTE))
@@ -112,6 +116,8 @@ public class TestHttpServerConfig
                 .put("http-server.log.max-history", "1")
                 .put("http-server.log.queue-size", "1")
                 .put("http-server.log.compression.enabled", "false")
+                .put("http-server.log.ring-buffer.enabled", "true")
+                .put("http-server.log.ring-buffer.size", "1MB")
                 .put("http-server.http.acceptor-threads", "10")
                 .put("http-server.http.selector-threads", "11")
                 .put("http-server.https.acceptor-threads", "12")
@@ -119,6 +125,7 @@ public class TestHttpServerConfig
                 .put("http-server.threads.min", "100")
                 .put("http-server.threads.max", "500")
                 .put("http-server.threads.max-idle-time", "10m")
+                .put("http-server.threads.virtual", "true")
                 .put("http-server.net.max-idle-time", "20m")
                 .put("http-server.auth.users-file", "/auth")
                 .put("http-server.admin.enabled", "false")
@@ -129,6 +136,7 @@ public class TestHttpServerConfig
                 .put("http-server.max-response-header-size", "57kB")
                 .put("http-server.http2.max-concurrent-streams", "1234")
                 .put("http-server.show-stack-trace", "false")
+                .put("http-server.request-accounting.enabled", "true")
                 .put("http-server.http2.session-receive-window-size", "4MB")
                 .put("http-server.http2.stream-receive-window-size", "4MB")
                 .put("http-server.http2.input-buffer-size", "4MB")
@@ -157,12 +165,15 @@ public class TestHttpServerConfig
                 .setLogHistory(1)
                 .setLogQueueSize(1)
                 .setLogCompressionEnabled(false)
+                .setLogRingBufferEnabled(true)
+                .setLogRingBufferSize(new DataSize(1, MEGABYTE))
                 .setHttpAcceptorThreads(10)
                 .setHttpSelectorThreads(11)
                 .setHttpsAcceptorThreads(12)
                 .setHttpsSelectorThreads(13)
                 .setMinThreads(100)
                 .setMaxThreads(500)
+                .setVirtualThreadsEnabled(true)
                 .setThreadMaxIdleTime(new Duration(10, MINUTES))
                 .setNetworkMaxIdleTime(new Duration(20, MINUTES))
                 .setMaxRequestHeaderSize(new DataSize(32, KILOBYTE))
@@ -174,6 +185,7 @@ public class TestHttpServerConfig
                 .setAdminMaxThreads(4)
                 .setHttp2MaxConcurrentStreams(1234)
                 .setShowStackTrace(false)
+                .setRequestAccountingEnabled(true)
                 .setHttp2InitialSessionReceiveWindowSize(new DataSize(4, MEGABYTE))
                 .setHttp2InitialStreamReceiveWindowSize(new DataSize(4, MEGABYTE))
                 .setHttp2InputBufferSize(new DataSize(4, MEGABYTE))
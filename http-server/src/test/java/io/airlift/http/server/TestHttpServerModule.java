@@ -21,6 +21,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
+import com.google.common.io.Resources;
 import com.google.common.net.MediaType;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
@@ -34,9 +35,13 @@ import io.airlift.event.client.AbstractEventClient;
 import io.airlift.event.client.EventClient;
 import io.airlift.event.client.EventModule;
 import io.airlift.event.client.InMemoryEventModule;
+import io.airlift.http.client.HeaderName;
 import io.airlift.http.client.HttpClient;
 import io.airlift.http.client.HttpStatus;
 import io.airlift.http.client.HttpUriBuilder;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.Response;
+import io.airlift.http.client.ResponseHandler;
 import io.airlift.http.client.StatusResponseHandler.StatusResponse;
 import io.airlift.http.client.StringResponseHandler.StringResponse;
 import io.airlift.http.client.jetty.JettyHttpClient;
@@ -56,26 +61,39 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.io.MoreFiles.deleteRecursively;
 import static com.google.common.io.RecursiveDeleteOption.ALLOW_INSECURE;
+import static com.google.common.net.HttpHeaders.ACCEPT_ENCODING;
+import static com.google.common.net.HttpHeaders.CONTENT_ENCODING;
 import static com.google.common.net.HttpHeaders.CONTENT_TYPE;
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.IF_MODIFIED_SINCE;
+import static com.google.common.net.HttpHeaders.IF_NONE_MATCH;
+import static com.google.common.net.HttpHeaders.LAST_MODIFIED;
 import static com.google.common.net.HttpHeaders.LOCATION;
 import static com.google.common.net.HttpHeaders.REFERER;
 import static com.google.common.net.HttpHeaders.USER_AGENT;
+import static com.google.common.net.HttpHeaders.VARY;
 import static com.google.common.net.MediaType.PLAIN_TEXT_UTF_8;
 import static com.google.common.util.concurrent.Futures.nonCancellationPropagating;
 import static com.google.inject.multibindings.Multibinder.newSetBinder;
 import static io.airlift.http.client.HttpUriBuilder.uriBuilderFrom;
 import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.Request.Builder.prepareHead;
 import static io.airlift.http.client.Request.Builder.preparePost;
+import static io.airlift.http.client.ResponseHandlerUtils.propagate;
 import static io.airlift.http.client.StaticBodyGenerator.createStaticBodyGenerator;
 import static io.airlift.http.client.StatusResponseHandler.createStatusResponseHandler;
 import static io.airlift.http.client.StringResponseHandler.createStringResponseHandler;
@@ -83,6 +101,7 @@ import static io.airlift.http.server.HttpServerBinder.httpServerBinder;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.nCopies;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -224,6 +243,113 @@ public class TestHttpServerModule
         }
     }
 
+    @Test
+    public void testServerResourceCaching()
+            throws Exception
+    {
+        Map<String, String> properties = new ImmutableMap.Builder<String, String>()
+                .put("node.environment", "test")
+                .put("http-server.http.port", "0")
+                .put("http-server.log.path", new File(tempDir, "http-request.log").getAbsolutePath())
+                .build();
+
+        ConfigurationFactory configFactory = new ConfigurationFactory(properties);
+        Injector injector = Guice.createInjector(new HttpServerModule(),
+                new TestingNodeModule(),
+                new ConfigurationModule(configFactory),
+                new EventModule(),
+                binder -> {
+                    binder.bind(Servlet.class).annotatedWith(TheServlet.class).to(DummyServlet.class);
+                    httpServerBinder(binder).bindResource("/", "webapp/user").withWelcomeFile("user-welcome.txt");
+                });
+
+        HttpServerInfo httpServerInfo = injector.getInstance(HttpServerInfo.class);
+
+        HttpServer server = injector.getInstance(HttpServer.class);
+        server.start();
+
+        try (HttpClient client = new JettyHttpClient()) {
+            URI uri = httpServerInfo.getHttpUri().resolve("/large.txt");
+            byte[] expected = Resources.toByteArray(Resources.getResource("webapp/user/large.txt"));
+
+            // identity
+            BytesResponse response = client.execute(prepareGet().setUri(uri).build(), new BytesResponseHandler());
+            assertEquals(response.getStatusCode(), HttpStatus.OK.code());
+            assertEquals(response.getBytes(), expected);
+            assertNull(response.getHeader(CONTENT_ENCODING));
+            assertEquals(response.getHeader(VARY), ACCEPT_ENCODING);
+            assertNotNull(response.getHeader(LAST_MODIFIED));
+            String etag = response.getHeader(ETAG);
+            assertNotNull(etag);
+
+            // the same resource is served again from the cache
+            response = client.execute(prepareGet().setUri(uri).build(), new BytesResponseHandler());
+            assertEquals(response.getBytes(), expected);
+            assertEquals(response.getHeader(ETAG), etag);
+
+            // gzip
+            response = client.execute(prepareGet().setUri(uri).addHeader(ACCEPT_ENCODING, "deflate, gzip").build(), new BytesResponseHandler());
+            assertEquals(response.getStatusCode(), HttpStatus.OK.code());
+            assertEquals(response.getHeader(CONTENT_ENCODING), "gzip");
+            assertTrue(response.getBytes().length < expected.length);
+            assertEquals(ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(response.getBytes()))), expected);
+            String gzipEtag = response.getHeader(ETAG);
+            assertNotNull(gzipEtag);
+            assertNotEquals(gzipEtag, etag);
+
+            response = client.execute(prepareGet().setUri(uri).addHeader(ACCEPT_ENCODING, "gzip;q=0").build(), new BytesResponseHandler());
+            assertNull(response.getHeader(CONTENT_ENCODING));
+            assertEquals(response.getBytes(), expected);
+
+            // conditional requests
+            assertNotModified(client, prepareGet().setUri(uri).addHeader(IF_NONE_MATCH, etag).build());
+            assertNotModified(client, prepareGet().setUri(uri).addHeader(ACCEPT_ENCODING, "gzip").addHeader(IF_NONE_MATCH, "\"other\", W/" + gzipEtag).build());
+            assertNotModified(client, prepareGet().setUri(uri).addHeader(IF_NONE_MATCH, "*").build());
+            assertNotModified(client, prepareGet().setUri(uri).addHeader(IF_MODIFIED_SINCE, response.getHeader(LAST_MODIFIED)).build());
+
+            // the tag of one representation does not validate the other
+            response = client.execute(prepareGet().setUri(uri).addHeader(IF_NONE_MATCH, gzipEtag).build(), new BytesResponseHandler());
+            assertEquals(response.getStatusCode(), HttpStatus.OK.code());
+            assertNull(response.getHeader(CONTENT_ENCODING));
+            assertEquals(response.getHeader(ETAG), etag);
+            assertEquals(response.getBytes(), expected);
+
+            response = client.execute(prepareGet().setUri(uri).addHeader(ACCEPT_ENCODING, "gzip").addHeader(IF_NONE_MATCH, etag).build(), new BytesResponseHandler());
+            assertEquals(response.getStatusCode(), HttpStatus.OK.code());
+            assertEquals(response.getHeader(CONTENT_ENCODING), "gzip");
+            assertEquals(response.getHeader(ETAG), gzipEtag);
+
+            response = client.execute(prepareGet().setUri(uri).addHeader(IF_NONE_MATCH, "\"other\"").build(), new BytesResponseHandler());
+            assertEquals(response.getStatusCode(), HttpStatus.OK.code());
+            assertEquals(response.getBytes(), expected);
+
+            response = client.execute(prepareGet().setUri(uri).addHeader(IF_MODIFIED_SINCE, "Thu, 01 Jan 1970 00:00:00 GMT").build(), new BytesResponseHandler());
+            assertEquals(response.getStatusCode(), HttpStatus.OK.code());
+
+            // small resources are not compressed
+            response = client.execute(prepareGet().setUri(httpServerInfo.getHttpUri().resolve("/user.txt")).addHeader(ACCEPT_ENCODING, "gzip").build(), new BytesResponseHandler());
+            assertEquals(response.getStatusCode(), HttpStatus.OK.code());
+            assertNull(response.getHeader(CONTENT_ENCODING));
+            assertEquals(new String(response.getBytes(), UTF_8).trim(), "user");
+
+            // head
+            response = client.execute(prepareHead().setUri(uri).build(), new BytesResponseHandler());
+            assertEquals(response.getStatusCode(), HttpStatus.OK.code());
+            assertEquals(response.getHeader(ETAG), etag);
+            assertEquals(response.getBytes().length, 0);
+        }
+        finally {
+            server.stop();
+        }
+    }
+
+    private static void assertNotModified(HttpClient client, Request request)
+    {
+        BytesResponse response = client.execute(request, new BytesResponseHandler());
+        assertEquals(response.getStatusCode(), HttpStatus.NOT_MODIFIED.code());
+        assertEquals(response.getBytes().length, 0);
+    }
+
     private void assertResource(URI baseUri, HttpClient client, String path, String contents)
     {
         HttpUriBuilder uriBuilder = uriBuilderFrom(baseUri);
@@ -386,4 +512,55 @@ public class TestHttpServerModule
             return nonCancellationPropagating(future);
         }
     }
+
+    private static class BytesResponseHandler
+            implements ResponseHandler<BytesResponse, RuntimeException>
+    {
+        @Override
+        public BytesResponse handleException(Request request, Exception exception)
+        {
+            throw propagate(request, exception);
+        }
+
+        @Override
+        public BytesResponse handle(Request request, Response response)
+        {
+            try {
+                return new BytesResponse(response.getStatusCode(), response.getHeaders(), ByteStreams.toByteArray(response.getInputStream()));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static class BytesResponse
+    {
+        private final int statusCode;
+        private final ListMultimap<HeaderName, String> headers;
+        private final byte[] bytes;
+
+        public BytesResponse(int statusCode, ListMultimap<HeaderName, String> headers, byte[] bytes)
+        {
+            this.statusCode = statusCode;
+            this.headers = headers;
+            this.bytes = bytes;
+        }
+
+        public int getStatusCode()
+        {
+            return statusCode;
+        }
+
+        public String getHeader(String name)
+        {
+            List<String> values = headers.get(HeaderName.of(name));
+            return values.isEmpty() ? null : values.get(0);
+        }
+
+        public byte[] getBytes()
+        {
+            return bytes;
+        }
+    }
 }
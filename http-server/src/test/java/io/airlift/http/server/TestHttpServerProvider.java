@@ -56,6 +56,7 @@ import static io.airlift.http.client.StatusResponseHandler.createStatusResponseH
 import static io.airlift.http.client.StringResponseHandler.createStringResponseHandler;
 import static io.airlift.http.server.TestHttpServerInfo.closeChannels;
 import static io.airlift.testing.Assertions.assertContains;
+import static io.airlift.testing.Assertions.assertGreaterThanOrEqual;
 import static io.airlift.testing.Assertions.assertInstanceOf;
 import static io.airlift.testing.Assertions.assertNotEquals;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -74,6 +75,7 @@ public class TestHttpServerProvider
     private NodeInfo nodeInfo;
     private HttpServerConfig config;
     private HttpServerInfo httpServerInfo;
+    private RequestStats stats;
 
     @BeforeSuite
     public void setupSuite()
@@ -372,6 +374,22 @@ public class TestHttpServerProvider
         }
     }
 
+    private static HttpServlet createAllocatingServlet(String route)
+    {
+        return new HttpServlet()
+        {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response)
+                    throws IOException
+            {
+                request.setAttribute(RequestStats.ROUTE_ATTRIBUTE, route);
+                byte[] data = new byte[1_000_000];
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.getOutputStream().write(data, 0, 10);
+            }
+        };
+    }
+
     private static HttpServlet createCertTestServlet()
     {
         return new HttpServlet()
@@ -423,6 +441,59 @@ public class TestHttpServerProvider
         }
     }
 
+    @Test(timeOut = 30000)
+    public void testRequestAccounting()
+            throws Exception
+    {
+        config.setRequestAccountingEnabled(true);
+        createServer(createAllocatingServlet("GET /allocate"));
+        server.start();
+
+        try (HttpClient client = new JettyHttpClient()) {
+            StatusResponse response = client.execute(prepareGet().setUri(httpServerInfo.getHttpUri()).build(), createStatusResponseHandler());
+            assertEquals(response.getStatusCode(), HttpServletResponse.SC_OK);
+        }
+
+        // the stats are recorded after the response is sent
+        while (stats.getAllocatedBytes().getAllTime().getCount() == 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(stats.getCpuTime().getAllTime().getCount(), 1.0);
+        assertGreaterThanOrEqual(stats.getAllocatedBytes().getAllTime().getMax(), 1_000_000.0);
+
+        RouteStats routeStats = stats.getRoutes().get("GET /allocate");
+        assertNotNull(routeStats);
+        assertEquals(routeStats.getRequest().getTotalCount(), 1);
+        assertEquals(routeStats.getSuccessfulResponses().getTotalCount(), 1);
+        assertEquals(routeStats.getWrittenBytes().getTotalCount(), 10);
+        assertEquals(routeStats.getCpuTime().getAllTime().getCount(), 1.0);
+        assertGreaterThanOrEqual(routeStats.getAllocatedBytes().getAllTime().getMax(), 1_000_000.0);
+    }
+
+    @Test(timeOut = 30000)
+    public void testRequestAccountingDisabled()
+            throws Exception
+    {
+        createServer(createAllocatingServlet("GET /allocate"));
+        server.start();
+
+        try (HttpClient client = new JettyHttpClient()) {
+            StatusResponse response = client.execute(prepareGet().setUri(httpServerInfo.getHttpUri()).build(), createStatusResponseHandler());
+            assertEquals(response.getStatusCode(), HttpServletResponse.SC_OK);
+        }
+
+        while (stats.getRequest().getTotalCount() == 0) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(stats.getCpuTime().getAllTime().getCount(), 0.0);
+        assertEquals(stats.getAllocatedBytes().getAllTime().getCount(), 0.0);
+
+        // the route is recorded without accounting
+        RouteStats routeStats = stats.getRoutes().get("GET /allocate");
+        assertEquals(routeStats.getRequest().getTotalCount(), 1);
+        assertEquals(routeStats.getCpuTime().getAllTime().getCount(), 0.0);
+    }
+
     @Test(timeOut = 30000)
     public void testStop()
             throws Exception
@@ -545,6 +616,7 @@ public class TestHttpServerProvider
     private void createServer(HttpServlet servlet)
     {
         HashLoginServiceProvider loginServiceProvider = new HashLoginServiceProvider(config);
+        stats = new RequestStats();
         HttpServerProvider serverProvider = new HttpServerProvider(
                 httpServerInfo,
                 nodeInfo,
@@ -553,7 +625,7 @@ public class TestHttpServerProvider
                 ImmutableSet.of(new DummyFilter()),
                 ImmutableSet.of(),
                 ImmutableSet.of(),
-                new RequestStats(),
+                stats,
                 new NullEventClient());
         serverProvider.setTheAdminServlet(new DummyServlet());
         serverProvider.setLoginService(loginServiceProvider.get());
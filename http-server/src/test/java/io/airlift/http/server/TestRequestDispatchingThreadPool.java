@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.StringResponseHandler.StringResponse;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.StringResponseHandler.createStringResponseHandler;
+import static io.airlift.http.server.RequestDispatchingThreadPool.isRequestTask;
+import static io.airlift.http.server.RequestDispatchingThreadPool.newVirtualThreadPerTaskExecutor;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestRequestDispatchingThreadPool
+{
+    @Test
+    public void testRequestsAreDispatched()
+            throws Exception
+    {
+        ExecutorService requestExecutor = newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("test-request-%s").setDaemon(true).build());
+        RequestDispatchingThreadPool threadPool = new RequestDispatchingThreadPool(20, requestExecutor);
+        threadPool.setName("test-worker");
+
+        Server server = new Server(threadPool);
+        ServerConnector connector = new ServerConnector(server);
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+                    throws IOException
+            {
+                response.getWriter().write(Thread.currentThread().getName());
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+
+        try (HttpClient client = new JettyHttpClient()) {
+            URI uri = URI.create("http://localhost:" + connector.getLocalPort() + "/");
+            for (int i = 0; i < 10; i++) {
+                StringResponse response = client.execute(prepareGet().setUri(uri).build(), createStringResponseHandler());
+                assertEquals(response.getStatusCode(), 200);
+                assertTrue(response.getBody().startsWith("test-request-"), response.getBody());
+            }
+        }
+        finally {
+            server.stop();
+        }
+
+        assertTrue(requestExecutor.isShutdown());
+        assertTrue(requestExecutor.awaitTermination(10, SECONDS));
+        // a handling thread may pick up the next request on its connection itself
+        assertTrue(threadPool.getDispatchedTasks() > 0);
+        assertEquals(threadPool.getQueuedTasks(), 0);
+        assertEquals(threadPool.getActiveTasks(), 0);
+    }
+
+    @Test
+    public void testInfrastructureTasksStayOnPool()
+    {
+        assertFalse(isRequestTask(() -> {}));
+    }
+
+    @Test
+    public void testVirtualThreadExecutor()
+            throws Exception
+    {
+        boolean supported;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            supported = true;
+        }
+        catch (NoSuchMethodException e) {
+            supported = false;
+        }
+
+        if (!supported) {
+            try {
+                newVirtualThreadPerTaskExecutor("test");
+                fail("expected IllegalStateException");
+            }
+            catch (IllegalStateException expected) {
+            }
+            return;
+        }
+
+        ExecutorService executor = newVirtualThreadPerTaskExecutor("test");
+        try {
+            String name = executor.submit(() -> Thread.currentThread().getName()).get();
+            assertTrue(name.startsWith("test-"), name);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
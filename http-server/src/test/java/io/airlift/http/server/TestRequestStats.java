@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import com.google.common.collect.ImmutableSet;
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+import org.weakref.jmx.MBeanExporter;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import static io.airlift.http.server.RequestStats.MAX_ROUTES;
+import static io.airlift.http.server.RequestStats.OTHER_ROUTE;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestRequestStats
+{
+    @Test
+    public void testRecordResourceUsage()
+    {
+        RequestStats stats = new RequestStats();
+        stats.recordCpuTime(null, new Duration(5, MILLISECONDS));
+        stats.recordAllocatedBytes(null, 100);
+        stats.recordCpuTime("GET /a", new Duration(7, MILLISECONDS));
+        stats.recordAllocatedBytes("GET /a", 200);
+
+        assertEquals(stats.getCpuTime().getAllTime().getCount(), 2.0);
+        assertEquals(stats.getAllocatedBytes().getAllTime().getCount(), 2.0);
+        assertEquals(stats.getRoutes().keySet().size(), 1);
+
+        RouteStats routeStats = stats.getRoutes().get("GET /a");
+        assertEquals(routeStats.getCpuTime().getAllTime().getCount(), 1.0);
+        assertEquals(routeStats.getCpuTime().getAllTime().getMax(), 7.0, 7.0 * 0.032);
+        assertEquals(routeStats.getAllocatedBytes().getAllTime().getMax(), 200.0);
+    }
+
+    @Test
+    public void testRecordRoute()
+    {
+        RequestStats stats = new RequestStats();
+        stats.record(null, 200, 1, 2, new Duration(1, SECONDS));
+        stats.record("GET /a", 200, 10, 100, new Duration(2, SECONDS));
+        stats.record("GET /a", 204, 20, 200, new Duration(4, SECONDS));
+        stats.record("GET /a", 404, 30, 300, new Duration(8, SECONDS));
+        stats.record("GET /a", 503, 40, 400, new Duration(16, SECONDS));
+        stats.record("GET /a", 0, 50, 500, new Duration(32, SECONDS));
+        stats.record("GET /b", 302, 60, 600, new Duration(64, SECONDS));
+
+        assertEquals(stats.getRequest().getTotalCount(), 7);
+        assertEquals(stats.getRoutes().keySet(), ImmutableSet.of("GET /a", "GET /b"));
+
+        RouteStats routeStats = stats.getRoutes().get("GET /a");
+        assertEquals(routeStats.getRequest().getTotalCount(), 5);
+        assertEquals(routeStats.getRequestTime().getAllTime().getCount(), 5.0);
+        assertEquals(routeStats.getRequestTime().getAllTime().getMax(), 32.0, 32.0 * 0.032);
+        assertEquals(routeStats.getReadBytes().getTotalCount(), 150);
+        assertEquals(routeStats.getWrittenBytes().getTotalCount(), 1500);
+        assertEquals(routeStats.getInformationalResponses().getTotalCount(), 0);
+        assertEquals(routeStats.getSuccessfulResponses().getTotalCount(), 2);
+        assertEquals(routeStats.getRedirectionResponses().getTotalCount(), 0);
+        assertEquals(routeStats.getClientErrorResponses().getTotalCount(), 1);
+        assertEquals(routeStats.getServerErrorResponses().getTotalCount(), 2);
+
+        assertEquals(stats.getRoutes().get("GET /b").getRedirectionResponses().getTotalCount(), 1);
+    }
+
+    @Test
+    public void testRoutesAreBounded()
+    {
+        RequestStats stats = new RequestStats();
+        for (int i = 0; i < MAX_ROUTES * 2; i++) {
+            stats.recordAllocatedBytes("GET /" + i, i);
+        }
+
+        assertEquals(stats.getRoutes().size(), MAX_ROUTES + 1);
+        assertTrue(stats.getRoutes().containsKey("GET /0"));
+        assertFalse(stats.getRoutes().containsKey("GET /" + MAX_ROUTES));
+        assertEquals(stats.getRoutes().get(OTHER_ROUTE).getAllocatedBytes().getAllTime().getCount(), (double) MAX_ROUTES);
+
+        // known routes are still recorded separately
+        stats.recordAllocatedBytes("GET /1", 1);
+        assertEquals(stats.getRoutes().get("GET /1").getAllocatedBytes().getAllTime().getCount(), 2.0);
+    }
+
+    @Test
+    public void testRoutesAreExported()
+            throws Exception
+    {
+        MBeanServer mbeanServer = MBeanServerFactory.newMBeanServer();
+        RequestStats stats = new RequestStats();
+        stats.setMBeanExporter(new MBeanExporter(mbeanServer));
+
+        stats.recordAllocatedBytes("GET /v1/thing/{id}", 123);
+        stats.record("POST /v1/thing", 200, 10, 20, new Duration(1, SECONDS));
+
+        ObjectName name = new ObjectName("io.airlift.http.server:name=RouteStats,route=GET /v1/thing/{id}");
+        assertTrue(mbeanServer.isRegistered(name));
+        assertEquals(mbeanServer.getAttribute(name, "AllocatedBytes.AllTime.Max"), 123.0);
+        assertEquals(mbeanServer.getAttribute(new ObjectName("io.airlift.http.server:name=RouteStats,route=POST /v1/thing"), "SuccessfulResponses.TotalCount"), 1L);
+        assertEquals(mbeanServer.queryNames(new ObjectName("io.airlift.http.server:name=RouteStats,*"), null).size(), 2);
+
+        stats.unexportRoutes();
+        assertFalse(mbeanServer.isRegistered(name));
+        assertEquals(mbeanServer.queryNames(new ObjectName("io.airlift.http.server:name=RouteStats,*"), null).size(), 0);
+    }
+}
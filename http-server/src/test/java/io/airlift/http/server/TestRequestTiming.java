@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import org.testng.annotations.Test;
+
+import java.util.DoubleSummaryStatistics;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestRequestTiming
+{
+    @Test
+    public void testRequestTimes()
+    {
+        RequestTiming timing = new RequestTiming(MILLISECONDS.toNanos(100));
+        timing.dispatched(MILLISECONDS.toNanos(103));
+        assertFalse(timing.isRequestEnded());
+        timing.requestEnded(MILLISECONDS.toNanos(110));
+        assertTrue(timing.isRequestEnded());
+
+        assertEquals(timing.getBeginToDispatchMillis(), 3);
+        assertEquals(timing.getBeginToEndMillis(), 10);
+    }
+
+    @Test
+    public void testNoContent()
+    {
+        RequestTiming timing = new RequestTiming(0);
+        timing.responseBegin();
+        assertEquals(timing.getFirstToLastContentMillis(), -1);
+        assertNull(timing.getContentInterarrivalStats());
+
+        timing.responseContent(MILLISECONDS.toNanos(5));
+        assertEquals(timing.getFirstToLastContentMillis(), 0);
+        assertNull(timing.getContentInterarrivalStats());
+    }
+
+    @Test
+    public void testContentInterarrivalStats()
+    {
+        long[] timestamps = {10, 12, 20, 21, 41};
+
+        RequestTiming timing = new RequestTiming(0);
+        timing.responseBegin();
+        DoubleSummaryStatistics expected = new DoubleSummaryStatistics();
+        for (int i = 0; i < timestamps.length; i++) {
+            timing.responseContent(MILLISECONDS.toNanos(timestamps[i]));
+            if (i > 0) {
+                expected.accept(timestamps[i] - timestamps[i - 1]);
+            }
+        }
+
+        assertEquals(timing.getFirstToLastContentMillis(), 31);
+
+        DoubleSummaryStats stats = timing.getContentInterarrivalStats();
+        assertEquals(stats.getCount(), expected.getCount());
+        assertEquals(stats.getMin(), expected.getMin());
+        assertEquals(stats.getMax(), expected.getMax());
+        assertEquals(stats.getAverage(), expected.getAverage());
+    }
+}
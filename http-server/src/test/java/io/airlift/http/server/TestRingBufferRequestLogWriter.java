@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.http.server;
+
+import ch.qos.logback.core.ContextBase;
+import ch.qos.logback.core.rolling.TimeBasedRollingPolicy;
+import com.google.common.base.Strings;
+import io.airlift.http.server.RingBufferRequestLogWriter.ChannelFileAppender;
+import io.airlift.http.server.RingBufferRequestLogWriter.RawEncoder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.io.Files.asCharSource;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestRingBufferRequestLogWriter
+{
+    private File file;
+
+    @BeforeMethod
+    public void setup()
+            throws IOException
+    {
+        file = File.createTempFile(getClass().getName(), ".log");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void teardown()
+            throws IOException
+    {
+        if (!file.delete()) {
+            throw new IOException("Error deleting " + file.getAbsolutePath());
+        }
+    }
+
+    @Test
+    public void testWrapAround()
+            throws Exception
+    {
+        RingBufferRequestLogWriter writer = new RingBufferRequestLogWriter(100, createAppender());
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            String entry = "entry " + i + "\n";
+            expected.append(entry);
+            assertTrue(writer.append(ByteBuffer.wrap(entry.getBytes(UTF_8))));
+            // drain each entry so the buffer never fills but the write position wraps
+            while (writer.getQueuedBytes() > 0) {
+                Thread.sleep(1);
+            }
+        }
+        assertEquals(writer.getQueuedEntries(), 0);
+        writer.stop();
+
+        assertEquals(writer.getDroppedEntries(), 0);
+        assertEquals(asCharSource(file, UTF_8).read(), expected.toString());
+    }
+
+    @Test
+    public void testDropWhenFull()
+            throws Exception
+    {
+        RingBufferRequestLogWriter writer = new RingBufferRequestLogWriter(100, createAppender());
+
+        assertFalse(writer.append(ByteBuffer.wrap(new byte[101])));
+        assertEquals(writer.getDroppedEntries(), 1);
+        assertEquals(writer.getDroppedBytes(), 101);
+
+        assertTrue(writer.append(ByteBuffer.wrap("hello\n".getBytes(UTF_8))));
+        writer.stop();
+
+        assertFalse(writer.append(ByteBuffer.wrap("closed\n".getBytes(UTF_8))));
+        assertEquals(writer.getDroppedEntries(), 2);
+        assertEquals(asCharSource(file, UTF_8).read(), "hello\n");
+    }
+
+    @Test
+    public void testWrappedRegionIsOneBatch()
+            throws Exception
+    {
+        AtomicInteger batches = new AtomicInteger();
+        ChannelFileAppender appender = new ChannelFileAppender()
+        {
+            @Override
+            protected void subAppend(ByteBuffer[] batch)
+            {
+                batches.incrementAndGet();
+                super.subAppend(batch);
+            }
+        };
+        RingBufferRequestLogWriter writer = new RingBufferRequestLogWriter(100, startAppender(appender));
+
+        String first = Strings.repeat("a", 59) + "\n";
+        String second = Strings.repeat("b", 59) + "\n";
+        assertTrue(writer.append(ByteBuffer.wrap(first.getBytes(UTF_8))));
+        while (writer.getQueuedBytes() > 0) {
+            Thread.sleep(1);
+        }
+        // the second entry wraps around the end of the buffer
+        assertTrue(writer.append(ByteBuffer.wrap(second.getBytes(UTF_8))));
+        writer.stop();
+
+        assertEquals(batches.get(), 2);
+        assertEquals(asCharSource(file, UTF_8).read(), first + second);
+    }
+
+    @Test
+    public void testRawEncoder()
+    {
+        ByteBuffer head = ByteBuffer.wrap("xhello ".getBytes(UTF_8));
+        head.position(1);
+        ByteBuffer tail = ByteBuffer.wrap("world\n".getBytes(UTF_8));
+
+        assertEquals(new String(new RawEncoder().encode(new ByteBuffer[] {head, tail}), UTF_8), "hello world\n");
+        // the batch is left untouched for the channel write
+        assertEquals(head.position(), 1);
+        assertEquals(tail.position(), 0);
+    }
+
+    private ChannelFileAppender createAppender()
+    {
+        return startAppender(new ChannelFileAppender());
+    }
+
+    private ChannelFileAppender startAppender(ChannelFileAppender appender)
+    {
+        ContextBase context = new ContextBase();
+        TimeBasedRollingPolicy<ByteBuffer[]> rollingPolicy = new TimeBasedRollingPolicy<>();
+        rollingPolicy.setContext(context);
+        rollingPolicy.setParent(appender);
+        rollingPolicy.setFileNamePattern(file.getAbsolutePath() + "-%d{yyyy-MM-dd}.log");
+        appender.setContext(context);
+        appender.setFile(file.getAbsolutePath());
+        appender.setAppend(true);
+        appender.setRollingPolicy(rollingPolicy);
+        rollingPolicy.start();
+        appender.start();
+        return appender;
+    }
+}
@@ -59,6 +59,7 @@ public class JaxrsModule
         jaxrsBinder(binder).bind(SmileMapper.class);
         jaxrsBinder(binder).bind(ParsingExceptionMapper.class);
         jaxrsBinder(binder).bind(OverrideMethodFilter.class);
+        jaxrsBinder(binder).bind(MatchedRouteFilter.class);
 
         newSetBinder(binder, Object.class, JaxrsResource.class).permitDuplicates();
     }
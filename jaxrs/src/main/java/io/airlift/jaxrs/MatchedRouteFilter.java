@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.jaxrs;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.airlift.http.server.RequestStats;
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.uri.UriTemplate;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Provider;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Stores the route of the matched resource method, such as {@code GET /v1/thing/{id}},
+ * in the {@link RequestStats#ROUTE_ATTRIBUTE} request attribute, so the request
+ * statistics of the server can be broken down by resource method.
+ */
+@Provider
+public class MatchedRouteFilter
+        implements ContainerRequestFilter
+{
+    // the regular expression of a template variable, as in {id: [0-9]+}
+    private static final Pattern VARIABLE_REGEX = Pattern.compile("\\{\\s*([^:}\\s]+)\\s*:[^}]*}");
+
+    @Override
+    public void filter(ContainerRequestContext request)
+    {
+        UriInfo uriInfo = request.getUriInfo();
+        if (!(uriInfo instanceof ExtendedUriInfo)) {
+            return;
+        }
+        List<UriTemplate> templates = ((ExtendedUriInfo) uriInfo).getMatchedTemplates();
+        request.setProperty(RequestStats.ROUTE_ATTRIBUTE, route(request.getMethod(), templates));
+    }
+
+    /**
+     * @param templates the matched templates, from the last matched to the first one
+     */
+    @VisibleForTesting
+    static String route(String method, List<UriTemplate> templates)
+    {
+        StringBuilder route = new StringBuilder(method).append(' ');
+        int start = route.length();
+        for (int i = templates.size() - 1; i >= 0; i--) {
+            String template = templates.get(i).getTemplate();
+            if (template.isEmpty() || template.equals("/")) {
+                continue;
+            }
+            if (template.charAt(0) != '/' && route.charAt(route.length() - 1) != '/') {
+                route.append('/');
+            }
+            route.append(template);
+        }
+        if (route.length() == start) {
+            route.append('/');
+        }
+
+        String value = route.toString();
+        if (value.indexOf(':') >= 0) {
+            value = VARIABLE_REGEX.matcher(value).replaceAll("{$1}");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.jaxrs;
+
+import com.google.common.collect.ImmutableList;
+import com.google.inject.Module;
+import io.airlift.bootstrap.Bootstrap;
+import io.airlift.http.client.HttpClient;
+import io.airlift.http.client.Request;
+import io.airlift.http.client.StringResponseHandler.StringResponse;
+import io.airlift.http.client.jetty.JettyHttpClient;
+import io.airlift.http.server.RequestStats;
+import io.airlift.http.server.testing.TestingHttpServer;
+import io.airlift.http.server.testing.TestingHttpServerModule;
+import io.airlift.json.JsonModule;
+import io.airlift.node.testing.TestingNodeModule;
+import io.airlift.testing.Closeables;
+import org.glassfish.jersey.uri.UriTemplate;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.core.Context;
+
+import java.util.List;
+
+import static io.airlift.http.client.Request.Builder.prepareGet;
+import static io.airlift.http.client.Request.Builder.preparePost;
+import static io.airlift.http.client.StringResponseHandler.createStringResponseHandler;
+import static io.airlift.jaxrs.JaxrsBinder.jaxrsBinder;
+import static org.testng.Assert.assertEquals;
+
+public class TestMatchedRouteFilter
+{
+    private TestingHttpServer server;
+    private HttpClient client;
+
+    @BeforeClass
+    public void setup()
+            throws Exception
+    {
+        List<Module> modules = ImmutableList.<Module>builder()
+                .add(new TestingNodeModule())
+                .add(new JaxrsModule())
+                .add(new JsonModule())
+                .add(new TestingHttpServerModule())
+                .add(binder -> jaxrsBinder(binder).bind(RouteResource.class))
+                .build();
+
+        server = new Bootstrap(modules)
+                .strictConfig()
+                .doNotInitializeLogging()
+                .quiet()
+                .initialize()
+                .getInstance(TestingHttpServer.class);
+        client = new JettyHttpClient();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void teardown()
+    {
+        try {
+            if (server != null) {
+                server.stop();
+            }
+        }
+        catch (Throwable ignored) {
+        }
+        Closeables.closeQuietly(client);
+    }
+
+    @Test
+    public void testRoute()
+    {
+        assertRoute(prepareGet().setUri(server.getBaseUrl().resolve("/v1/thing")).build(), "GET /v1/thing");
+        assertRoute(preparePost().setUri(server.getBaseUrl().resolve("/v1/thing")).build(), "POST /v1/thing");
+        assertRoute(prepareGet().setUri(server.getBaseUrl().resolve("/v1/thing/123")).build(), "GET /v1/thing/{id}");
+        assertRoute(prepareGet().setUri(server.getBaseUrl().resolve("/v1/thing/123/part/abc")).build(), "GET /v1/thing/{id}/part/{name}");
+    }
+
+    @Test
+    public void testRouteFromTemplates()
+    {
+        assertEquals(MatchedRouteFilter.route("GET", ImmutableList.of()), "GET /");
+        assertEquals(MatchedRouteFilter.route("GET", ImmutableList.of(new UriTemplate("/"))), "GET /");
+        assertEquals(MatchedRouteFilter.route("GET", ImmutableList.of(new UriTemplate("/v1/thing"))), "GET /v1/thing");
+        assertEquals(
+                MatchedRouteFilter.route("PUT", ImmutableList.of(new UriTemplate("{id: [0-9]+}/"), new UriTemplate("/v1/thing/"))),
+                "PUT /v1/thing/{id}/");
+        assertEquals(
+                MatchedRouteFilter.route("GET", ImmutableList.of(new UriTemplate("/{b}"), new UriTemplate("{a :\\w+}"), new UriTemplate("/v1"))),
+                "GET /v1/{a}/{b}");
+    }
+
+    private void assertRoute(Request request, String expectedRoute)
+    {
+        StringResponse response = client.execute(request, createStringResponseHandler());
+        assertEquals(response.getStatusCode(), 200);
+        assertEquals(response.getBody(), expectedRoute);
+    }
+
+    @Path("/v1/thing")
+    public static class RouteResource
+    {
+        @GET
+        public String list(@Context HttpServletRequest request)
+        {
+            return getRoute(request);
+        }
+
+        @POST
+        public String create(@Context HttpServletRequest request)
+        {
+            return getRoute(request);
+        }
+
+        @GET
+        @Path("{id: [0-9]+}")
+        public String get(@PathParam("id") long id, @Context HttpServletRequest request)
+        {
+            return getRoute(request);
+        }
+
+        @Path("{id}/part")
+        public PartResource part()
+        {
+            return new PartResource();
+        }
+
+        private static String getRoute(HttpServletRequest request)
+        {
+            return (String) request.getAttribute(RequestStats.ROUTE_ATTRIBUTE);
+        }
+    }
+
+    public static class PartResource
+    {
+        @GET
+        @Path("{name}")
+        public String get(@Context HttpServletRequest request)
+        {
+            return RouteResource.getRoute(request);
+        }
+    }
+}
@@ -2,12 +2,15 @@ package io.airlift.stats;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Ticker;
 import org.weakref.jmx.Managed;
 
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.DoubleAdder;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
@@ -21,6 +24,11 @@ import static java.util.Objects.requireNonNull;
  * The implementation is based on the ideas from
  * http://dimacs.rutgers.edu/~graham/pubs/papers/fwddecay.pdf
  * to not have to rely on a timer that decays the value periodically
+ *
+ * Writers do not take a lock. Values are accumulated in a DoubleAdder, weighted
+ * relative to the current landmark, and the weight is only recomputed when the
+ * clock moves to the next second. The decay to the current time is applied when
+ * the counter is read.
  */
 @ThreadSafe
 public final class DecayCounter
@@ -31,8 +39,10 @@ public final class DecayCounter
     private final double alpha;
     private final Ticker ticker;
 
-    private long landmarkInSeconds;
-    private double count;
+    private static final AtomicReferenceFieldUpdater<DecayCounter, State> STATE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DecayCounter.class, State.class, "state");
+
+    private volatile State state;
 
     public DecayCounter(double alpha)
     {
@@ -46,96 +56,127 @@ public final class DecayCounter
 
     private DecayCounter(double count, double alpha, Ticker ticker, long landmarkInSeconds)
     {
-        this.count = count;
         this.alpha = alpha;
         this.ticker = ticker;
-        this.landmarkInSeconds = landmarkInSeconds;
+        this.state = new State(landmarkInSeconds, count, null);
     }
 
     public DecayCounter duplicate()
     {
-        return new DecayCounter(count, alpha, ticker, landmarkInSeconds);
+        State state = this.state;
+        return new DecayCounter(state.getCount(alpha), alpha, ticker, state.landmarkInSeconds);
     }
 
-    public synchronized void add(long value)
+    public void add(long value)
     {
         long nowInSeconds = getTickInSeconds();
 
-        if (nowInSeconds - landmarkInSeconds >= RESCALE_THRESHOLD_SECONDS) {
-            rescaleToNewLandmark(nowInSeconds);
+        State state = this.state;
+        if (nowInSeconds - state.landmarkInSeconds >= RESCALE_THRESHOLD_SECONDS) {
+            state = rescaleToNewLandmark(nowInSeconds);
         }
-        count += value * weight(alpha, nowInSeconds, landmarkInSeconds);
+        state.add(value, alpha, nowInSeconds);
     }
 
-    public synchronized void merge(DecayCounter decayCounter)
+    public void merge(DecayCounter decayCounter)
     {
         requireNonNull(decayCounter, "decayCounter is null");
         checkArgument(decayCounter.alpha == alpha, "Expected decayCounter to have alpha %s, but was %s", alpha, decayCounter.alpha);
 
-        synchronized (decayCounter) {
-            // if the landmark this counter is behind the other counter
-            if (landmarkInSeconds < decayCounter.landmarkInSeconds) {
-                // rescale this counter to the other counter, and add
-                rescaleToNewLandmark(decayCounter.landmarkInSeconds);
-                count += decayCounter.count;
-            }
-            else {
-                // rescale the other counter and add
-                double otherRescaledCount = decayCounter.count / weight(alpha, landmarkInSeconds, decayCounter.landmarkInSeconds);
-                count += otherRescaledCount;
-            }
+        State other = decayCounter.state;
+        double otherCount = other.getCount(alpha);
+
+        State state = this.state;
+        // if the landmark of this counter is behind the other counter
+        if (state.landmarkInSeconds < other.landmarkInSeconds) {
+            // rescale this counter to the other counter, and add
+            state = rescaleToNewLandmark(other.landmarkInSeconds);
         }
+
+        // rescale the other counter and add
+        state.count.add(otherCount / weight(alpha, state.landmarkInSeconds, other.landmarkInSeconds));
     }
 
-    private void rescaleToNewLandmark(long newLandMarkInSeconds)
+    private State rescaleToNewLandmark(long newLandMarkInSeconds)
     {
-        // rescale the count based on a new landmark to avoid numerical overflow issues
-        count = count / weight(alpha, newLandMarkInSeconds, landmarkInSeconds);
-        landmarkInSeconds = newLandMarkInSeconds;
+        // the landmark moves with a compare and set rather than under a lock, so
+        // writers on virtual threads never block their carrier thread
+        while (true) {
+            // another thread may have moved the landmark already
+            State current = state;
+            if (current.landmarkInSeconds >= newLandMarkInSeconds) {
+                return current;
+            }
+
+            // rescale the count based on a new landmark to avoid numerical overflow issues
+            State previous = current.previous;
+            double base = current.base / weight(alpha, newLandMarkInSeconds, current.landmarkInSeconds);
+            if (previous != null) {
+                // values added to the state before the previous one are final by now
+                base += previous.count.sum() / weight(alpha, newLandMarkInSeconds, previous.landmarkInSeconds);
+            }
+
+            // the current state stays reachable, so writers that are still adding to it are not lost
+            State newState = new State(newLandMarkInSeconds, base, current);
+            if (STATE_UPDATER.compareAndSet(this, current, newState)) {
+                // the count of the previous state is in the new base, so only keep one generation reachable
+                current.previous = null;
+                return newState;
+            }
+        }
     }
 
     @Managed
-    public synchronized void reset()
+    public void reset()
     {
-        landmarkInSeconds = getTickInSeconds();
-        count = 0;
+        state = new State(getTickInSeconds(), 0, null);
     }
 
     /**
      * This is a hack to work around limitations in Jmxutils.
      */
     @Deprecated
-    public synchronized void resetTo(DecayCounter counter)
+    public void resetTo(DecayCounter counter)
     {
-        synchronized (counter) {
-            landmarkInSeconds = counter.landmarkInSeconds;
-            count = counter.count;
-        }
+        State other = counter.state;
+        state = new State(other.landmarkInSeconds, other.getCount(alpha), null);
     }
 
     @Managed
-    public synchronized double getCount()
+    public double getCount()
     {
         long nowInSeconds = getTickInSeconds();
-        return count / weight(alpha, nowInSeconds, landmarkInSeconds);
+        State state = this.state;
+        return state.getCount(alpha) / weight(alpha, nowInSeconds, state.landmarkInSeconds);
     }
 
     @Managed
-    public synchronized double getRate()
+    public double getRate()
     {
         // The total time covered by this counter is equivalent to the integral of the weight function from 0 to Infinity,
         // which equals 1/alpha. The count per unit time is, therefore, count / (1/alpha)
         return getCount() * alpha;
     }
 
+    @VisibleForTesting
+    int getStateDepth()
+    {
+        int depth = 0;
+        for (State state = this.state.previous; state != null; state = state.previous) {
+            depth++;
+        }
+        return depth;
+    }
+
     private long getTickInSeconds()
     {
         return TimeUnit.NANOSECONDS.toSeconds(ticker.read());
     }
 
-    public synchronized DecayCounterSnapshot snapshot()
+    public DecayCounterSnapshot snapshot()
     {
-        return new DecayCounterSnapshot(getCount(), getRate());
+        double count = getCount();
+        return new DecayCounterSnapshot(count, count * alpha);
     }
 
     @Override
@@ -152,6 +193,60 @@ public final class DecayCounter
         return alpha;
     }
 
+    private static final class State
+    {
+        private final long landmarkInSeconds;
+        // count of older states, relative to this landmark
+        private final double base;
+        private final DoubleAdder count = new DoubleAdder();
+        private volatile State previous;
+
+        private volatile Weight weight;
+
+        private State(long landmarkInSeconds, double base, State previous)
+        {
+            this.landmarkInSeconds = landmarkInSeconds;
+            this.base = base;
+            this.previous = previous;
+        }
+
+        private void add(long value, double alpha, long nowInSeconds)
+        {
+            Weight weight = this.weight;
+            if (weight == null || weight.tickInSeconds != nowInSeconds) {
+                // racing writers may compute the same weight, which is harmless
+                weight = new Weight(nowInSeconds, ExponentialDecay.weight(alpha, nowInSeconds, landmarkInSeconds));
+                this.weight = weight;
+            }
+            count.add(value * weight.value);
+        }
+
+        /**
+         * Returns the count relative to the landmark of this state.
+         */
+        private double getCount(double alpha)
+        {
+            double result = base + count.sum();
+            State previous = this.previous;
+            if (previous != null) {
+                result += previous.count.sum() / ExponentialDecay.weight(alpha, landmarkInSeconds, previous.landmarkInSeconds);
+            }
+            return result;
+        }
+    }
+
+    private static final class Weight
+    {
+        private final long tickInSeconds;
+        private final double value;
+
+        private Weight(long tickInSeconds, double value)
+        {
+            this.tickInSeconds = tickInSeconds;
+            this.value = value;
+        }
+    }
+
     public static class DecayCounterSnapshot
     {
         private final double count;
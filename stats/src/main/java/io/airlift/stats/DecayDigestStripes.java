@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/*
+ * A decaying digest and total that is split into independently locked stripes.
+ *
+ * Writers pick a stripe based on the current thread and move on to the next
+ * stripe when it is held by another thread, so concurrent writers only wait
+ * for each other when every stripe is busy. Readers merge all stripes into a
+ * temporary digest, which is within the accuracy bounds of the digest
+ * compression, since t-digests are mergeable.
+ *
+ * With a single stripe the digest is read in place and nothing is merged.
+ */
+@ThreadSafe
+final class DecayDigestStripes
+{
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public DecayDigestStripes(double compression, double alpha, int stripeCount)
+    {
+        checkArgument(stripeCount >= 1, "stripeCount must be at least 1");
+
+        // round up to a power of two, so a stripe can be selected with a mask
+        int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+
+        stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe(new DecayTDigest(compression, alpha), new DecayCounter(alpha));
+        }
+        mask = size - 1;
+    }
+
+    public DecayDigestStripes(DecayTDigest digest, DecayCounter total)
+    {
+        stripes = new Stripe[] {new Stripe(digest, total)};
+        mask = 0;
+    }
+
+    public int getStripeCount()
+    {
+        return stripes.length;
+    }
+
+    public void add(long value, long count)
+    {
+        int index = stripeIndex();
+
+        // try the stripes in order, starting with the one assigned to this thread
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe stripe = stripes[(index + i) & mask];
+            if (stripe.lock.tryLock()) {
+                try {
+                    stripe.add(value, count);
+                }
+                finally {
+                    stripe.lock.unlock();
+                }
+                return;
+            }
+        }
+
+        // every stripe is busy, so wait for the assigned one
+        Stripe stripe = stripes[index];
+        stripe.lock.lock();
+        try {
+            stripe.add(value, count);
+        }
+        finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the query against the combined contents of all stripes. The query
+     * must not retain the digest or total passed to it.
+     */
+    public <T> T query(BiFunction<DecayTDigest, DecayCounter, T> query)
+    {
+        if (stripes.length == 1) {
+            Stripe stripe = stripes[0];
+            stripe.lock.lock();
+            try {
+                return query.apply(stripe.digest, stripe.total);
+            }
+            finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        DecayTDigest digest = null;
+        DecayCounter total = null;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                if (digest == null) {
+                    digest = stripe.digest.duplicate();
+                    total = stripe.total.duplicate();
+                }
+                else {
+                    digest.merge(stripe.digest);
+                    total.merge(stripe.total);
+                }
+            }
+            finally {
+                stripe.lock.unlock();
+            }
+        }
+        return query.apply(digest, total);
+    }
+
+    private int stripeIndex()
+    {
+        // spread the sequential thread ids over the stripes
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static class Stripe
+    {
+        private final ReentrantLock lock = new ReentrantLock();
+        @GuardedBy("lock")
+        private final DecayTDigest digest;
+        @GuardedBy("lock")
+        private final DecayCounter total;
+
+        private Stripe(DecayTDigest digest, DecayCounter total)
+        {
+            this.digest = digest;
+            this.total = total;
+        }
+
+        private void add(long value, long count)
+        {
+            digest.add(value, count);
+            total.add(value * count);
+        }
+    }
+}
@@ -18,7 +18,9 @@ import com.google.common.base.Ticker;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static io.airlift.stats.ExponentialDecay.weight;
+import static java.util.Objects.requireNonNull;
 
 public class DecayTDigest
 {
@@ -102,6 +104,32 @@ public class DecayTDigest
         digest.add(value, weight);
     }
 
+    public void merge(DecayTDigest other)
+    {
+        requireNonNull(other, "other is null");
+        checkArgument(other.alpha == alpha, "Expected digest to have alpha %s, but was %s", alpha, other.alpha);
+
+        if (landmarkInSeconds < other.landmarkInSeconds) {
+            // move this digest to the landmark of the other digest, so the weights are comparable
+            rescale(other.landmarkInSeconds);
+        }
+
+        if (landmarkInSeconds == other.landmarkInSeconds) {
+            digest.mergeWith(other.digest);
+            return;
+        }
+
+        // rescale a copy of the other digest to the landmark of this digest
+        TDigest rescaled = TDigest.copyOf(other.digest);
+        double factor = weight(alpha, landmarkInSeconds, other.landmarkInSeconds);
+        for (int i = 0; i < rescaled.centroidCount; i++) {
+            rescaled.weights[i] /= factor;
+        }
+        rescaled.totalWeight /= factor;
+
+        digest.mergeWith(rescaled);
+    }
+
     public double valueAt(double quantile)
     {
         return digest.valueAt(quantile);
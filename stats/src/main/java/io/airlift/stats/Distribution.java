@@ -5,7 +5,6 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
 import org.weakref.jmx.Managed;
 
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.ArrayList;
@@ -19,10 +18,7 @@ import static java.util.Objects.requireNonNull;
 @ThreadSafe
 public class Distribution
 {
-    @GuardedBy("this")
-    private final DecayTDigest digest;
-
-    private final DecayCounter total;
+    private final DecayDigestStripes stripes;
 
     public Distribution()
     {
@@ -31,114 +27,121 @@ public class Distribution
 
     public Distribution(double alpha)
     {
-        this(new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha), new DecayCounter(alpha));
+        this(alpha, 1);
+    }
+
+    /**
+     * Creates a distribution that records into {@code stripes} independently
+     * locked digests, so concurrent writers do not contend with each other.
+     * The stripes are merged whenever the distribution is read.
+     */
+    public Distribution(double alpha, int stripes)
+    {
+        this.stripes = new DecayDigestStripes(TDigest.DEFAULT_COMPRESSION, alpha, stripes);
     }
 
     private Distribution(DecayTDigest digest, DecayCounter total)
     {
-        this.digest = requireNonNull(digest, "digest is null");
-        this.total = requireNonNull(total, "total is null");
+        this.stripes = new DecayDigestStripes(requireNonNull(digest, "digest is null"), requireNonNull(total, "total is null"));
     }
 
-    public synchronized void add(long value)
+    public void add(long value)
     {
-        digest.add(value);
-        total.add(value);
+        stripes.add(value, 1);
     }
 
-    public synchronized void add(long value, long count)
+    public void add(long value, long count)
     {
-        digest.add(value, count);
-        total.add(value * count);
+        stripes.add(value, count);
     }
 
-    public synchronized Distribution duplicate()
+    public Distribution duplicate()
     {
-        return new Distribution(digest.duplicate(), total.duplicate());
+        return stripes.query((digest, total) -> new Distribution(digest.duplicate(), total.duplicate()));
     }
 
     @Managed
-    public synchronized double getCount()
+    public double getCount()
     {
-        return digest.getCount();
+        return stripes.query((digest, total) -> digest.getCount());
     }
 
     @Managed
-    public synchronized double getTotal()
+    public double getTotal()
     {
-        return total.getCount();
+        return stripes.query((digest, total) -> total.getCount());
     }
 
     @Managed
-    public synchronized double getP01()
+    public double getP01()
     {
-        return digest.valueAt(0.01);
+        return stripes.query((digest, total) -> digest.valueAt(0.01));
     }
 
     @Managed
-    public synchronized double getP05()
+    public double getP05()
     {
-        return digest.valueAt(0.05);
+        return stripes.query((digest, total) -> digest.valueAt(0.05));
     }
 
     @Managed
-    public synchronized double getP10()
+    public double getP10()
     {
-        return digest.valueAt(0.10);
+        return stripes.query((digest, total) -> digest.valueAt(0.10));
     }
 
     @Managed
-    public synchronized double getP25()
+    public double getP25()
     {
-        return digest.valueAt(0.25);
+        return stripes.query((digest, total) -> digest.valueAt(0.25));
     }
 
     @Managed
-    public synchronized double getP50()
+    public double getP50()
     {
-        return digest.valueAt(0.5);
+        return stripes.query((digest, total) -> digest.valueAt(0.5));
     }
 
     @Managed
-    public synchronized double getP75()
+    public double getP75()
     {
-        return digest.valueAt(0.75);
+        return stripes.query((digest, total) -> digest.valueAt(0.75));
     }
 
     @Managed
-    public synchronized double getP90()
+    public double getP90()
     {
-        return digest.valueAt(0.90);
+        return stripes.query((digest, total) -> digest.valueAt(0.90));
     }
 
     @Managed
-    public synchronized double getP95()
+    public double getP95()
     {
-        return digest.valueAt(0.95);
+        return stripes.query((digest, total) -> digest.valueAt(0.95));
     }
 
     @Managed
-    public synchronized double getP99()
+    public double getP99()
     {
-        return digest.valueAt(0.99);
+        return stripes.query((digest, total) -> digest.valueAt(0.99));
     }
 
     @Managed
-    public synchronized double getMin()
+    public double getMin()
     {
-        return digest.getMin();
+        return stripes.query((digest, total) -> digest.getMin());
     }
 
     @Managed
-    public synchronized double getMax()
+    public double getMax()
     {
-        return digest.getMax();
+        return stripes.query((digest, total) -> digest.getMax());
     }
 
     @Managed
-    public synchronized double getAvg()
+    public double getAvg()
     {
-        return getTotal() / getCount();
+        return stripes.query((digest, total) -> total.getCount() / digest.getCount());
     }
 
     @Managed
@@ -149,10 +152,7 @@ public class Distribution
             percentiles.add(i / 100.0);
         }
 
-        List<Double> values;
-        synchronized (this) {
-            values = digest.valuesAt(percentiles);
-        }
+        List<Double> values = getPercentiles(percentiles);
 
         Map<Double, Double> result = new LinkedHashMap<>(values.size());
         for (int i = 0; i < percentiles.size(); ++i) {
@@ -162,29 +162,32 @@ public class Distribution
         return result;
     }
 
-    public synchronized List<Double> getPercentiles(List<Double> percentiles)
+    public List<Double> getPercentiles(List<Double> percentiles)
     {
-        return digest.valuesAt(percentiles);
+        return stripes.query((digest, total) -> digest.valuesAt(percentiles));
     }
 
-    public synchronized DistributionSnapshot snapshot()
+    public DistributionSnapshot snapshot()
     {
-        List<Double> quantiles = digest.valuesAt(ImmutableList.of(0.01, 0.05, 0.10, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99));
-        return new DistributionSnapshot(
-                getCount(),
-                getTotal(),
-                quantiles.get(0),
-                quantiles.get(1),
-                quantiles.get(2),
-                quantiles.get(3),
-                quantiles.get(4),
-                quantiles.get(5),
-                quantiles.get(6),
-                quantiles.get(7),
-                quantiles.get(8),
-                getMin(),
-                getMax(),
-                getAvg());
+        // merge the stripes once for all values in the snapshot
+        return stripes.query((digest, total) -> {
+            List<Double> quantiles = digest.valuesAt(ImmutableList.of(0.01, 0.05, 0.10, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99));
+            return new DistributionSnapshot(
+                    digest.getCount(),
+                    total.getCount(),
+                    quantiles.get(0),
+                    quantiles.get(1),
+                    quantiles.get(2),
+                    quantiles.get(3),
+                    quantiles.get(4),
+                    quantiles.get(5),
+                    quantiles.get(6),
+                    quantiles.get(7),
+                    quantiles.get(8),
+                    digest.getMin(),
+                    digest.getMax(),
+                    total.getCount() / digest.getCount());
+        });
     }
 
     public static class DistributionSnapshot
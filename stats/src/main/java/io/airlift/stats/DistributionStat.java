@@ -17,10 +17,19 @@ public class DistributionStat
 
     public DistributionStat()
     {
-        oneMinute = new Distribution(ExponentialDecay.oneMinute());
-        fiveMinutes = new Distribution(ExponentialDecay.fiveMinutes());
-        fifteenMinutes = new Distribution(ExponentialDecay.fifteenMinutes());
-        allTime = new Distribution();
+        this(1);
+    }
+
+    /**
+     * Creates a stat whose distributions are split into {@code stripes}
+     * independently locked digests. See {@link Distribution#Distribution(double, int)}.
+     */
+    public DistributionStat(int stripes)
+    {
+        oneMinute = new Distribution(ExponentialDecay.oneMinute(), stripes);
+        fiveMinutes = new Distribution(ExponentialDecay.fiveMinutes(), stripes);
+        fifteenMinutes = new Distribution(ExponentialDecay.fifteenMinutes(), stripes);
+        allTime = new Distribution(0, stripes);
     }
 
     public void add(long value)
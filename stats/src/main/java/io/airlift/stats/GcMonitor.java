@@ -20,4 +20,14 @@ public interface GcMonitor
     long getMajorGcCount();
 
     Duration getMajorGcTime();
+
+    /**
+     * Total time of all collections, both major and minor.
+     * <p>
+     * The default implementation only reports the major collection time.
+     */
+    default Duration getTotalGcTime()
+    {
+        return getMajorGcTime();
+    }
 }
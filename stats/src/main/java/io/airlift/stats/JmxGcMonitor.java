@@ -65,6 +65,8 @@ public class JmxGcMonitor
 
     private final TimeStat minorGc = new TimeStat();
 
+    private final AtomicLong totalGcTime = new AtomicLong();
+
     @GuardedBy("this")
     private long lastGcEndTime = System.currentTimeMillis();
 
@@ -111,6 +113,12 @@ public class JmxGcMonitor
         return new Duration(majorGcTime.get(), MILLISECONDS);
     }
 
+    @Override
+    public Duration getTotalGcTime()
+    {
+        return new Duration(totalGcTime.get(), MILLISECONDS);
+    }
+
     @Managed
     @Nested
     public TimeStat getMajorGc()
@@ -129,6 +137,7 @@ public class JmxGcMonitor
     {
         if ("com.sun.management.gc.notification".equals(notification.getType())) {
             GarbageCollectionNotificationInfo info = new GarbageCollectionNotificationInfo((CompositeData) notification.getUserData());
+            totalGcTime.addAndGet(info.getDurationMs());
 
             if (info.isMajorGc()) {
                 majorGcCount.incrementAndGet();
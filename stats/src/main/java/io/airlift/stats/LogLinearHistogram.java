@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/*
+ * Counts of values in fixed log-linear buckets, like the ones of HdrHistogram.
+ *
+ * Each value below 2^SUB_BUCKET_BITS has its own bucket, and every larger range
+ * between two powers of two is split into 2^SUB_BUCKET_BITS buckets of equal width,
+ * so a bucket is at most 1/16 of its lowest value wide. Values are reported as the
+ * middle of their bucket, which is within 3.2% of the actual value. Values above
+ * MAX_VALUE (about 9.7 hours in nanoseconds) are counted in the last bucket.
+ */
+@NotThreadSafe
+final class LogLinearHistogram
+{
+    private static final int SUB_BUCKET_BITS = 4;
+    // the buckets of each power of two are a group of this size, aligned to it
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final long MAX_VALUE = (1L << 45) - 1;
+    static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+
+    static int bucketIndex(long value)
+    {
+        long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(clamped) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (clamped >>> shift);
+    }
+
+    static long lowerBound(int bucket)
+    {
+        return (long) (bucket - (bucketShift(bucket) << SUB_BUCKET_BITS)) << bucketShift(bucket);
+    }
+
+    static long upperBound(int bucket)
+    {
+        return lowerBound(bucket) + (1L << bucketShift(bucket)) - 1;
+    }
+
+    private static int bucketShift(int bucket)
+    {
+        return Math.max(0, (bucket >> SUB_BUCKET_BITS) - 1);
+    }
+
+    private static double bucketValue(int bucket)
+    {
+        return (lowerBound(bucket) + upperBound(bucket)) / 2.0;
+    }
+
+    public void add(int bucket, long count)
+    {
+        counts[bucket] += count;
+        totalCount += count;
+    }
+
+    public long getCount()
+    {
+        return totalCount;
+    }
+
+    public double getMin()
+    {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            if (counts[bucket] > 0) {
+                return bucketValue(bucket);
+            }
+        }
+        return Double.NaN;
+    }
+
+    public double getMax()
+    {
+        for (int bucket = BUCKET_COUNT - 1; bucket >= 0; bucket--) {
+            if (counts[bucket] > 0) {
+                return bucketValue(bucket);
+            }
+        }
+        return Double.NaN;
+    }
+
+    public double getAverage()
+    {
+        if (totalCount == 0) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            if (counts[bucket] > 0) {
+                sum += counts[bucket] * bucketValue(bucket);
+            }
+        }
+        return sum / totalCount;
+    }
+
+    public double valueAt(double quantile)
+    {
+        if (totalCount == 0) {
+            return Double.NaN;
+        }
+
+        // the value with the given rank, where the lowest value has rank 1
+        long rank = Math.max(1, (long) Math.ceil(quantile * totalCount));
+        long countSoFar = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            countSoFar += counts[bucket];
+            if (countSoFar >= rank) {
+                return bucketValue(bucket);
+            }
+        }
+        return getMax();
+    }
+}
@@ -19,8 +19,10 @@ import io.airlift.log.Logger;
 import io.airlift.units.Duration;
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.SingleWriterRecorder;
 import org.weakref.jmx.Managed;
 
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.annotation.concurrent.GuardedBy;
@@ -28,18 +30,34 @@ import javax.annotation.concurrent.GuardedBy;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Infers VM pauses from how much a thread oversleeps. The pauses are recorded
+ * without locking, so readers cannot delay the sampling thread and inflate the
+ * pauses it measures.
+ * <p>
+ * With a {@link GcMonitor}, the pause time is split into the part explained by
+ * garbage collections and the rest, such as time to safepoint and allocation stalls.
+ */
 public class PauseMeter
 {
     private static final Logger LOG = Logger.get(PauseMeter.class);
 
     private final long sleepNanos;
 
-    @GuardedBy("histogram")
+    // only written by the sampling thread
+    private final SingleWriterRecorder recorder = new SingleWriterRecorder(3);
+    private final AtomicLong totalPauseNanos = new AtomicLong();
+
+    @GuardedBy("this")
     private final Histogram histogram = new Histogram(3);
+    @GuardedBy("this")
+    private Histogram intervalHistogram;
 
-    @GuardedBy("histogram")
-    private long totalPauseNanos;
+    @Nullable
+    private final GcMonitor gcMonitor;
+    private volatile long gcTimeAtStartNanos;
 
     private final Supplier<Histogram> snapshot = Suppliers.memoizeWithExpiration(this::makeSnapshot, 1, TimeUnit.SECONDS);
 
@@ -54,8 +72,14 @@ public class PauseMeter
     }
 
     public PauseMeter(Duration sleepTime)
+    {
+        this(sleepTime, null);
+    }
+
+    public PauseMeter(Duration sleepTime, @Nullable GcMonitor gcMonitor)
     {
         this.sleepNanos = sleepTime.roundTo(TimeUnit.NANOSECONDS);
+        this.gcMonitor = gcMonitor;
         thread = new Thread(this::run, "VM Pause Meter");
         thread.setDaemon(true);
     }
@@ -63,6 +87,9 @@ public class PauseMeter
     @PostConstruct
     public void start()
     {
+        if (gcMonitor != null) {
+            gcTimeAtStartNanos = gcMonitor.getTotalGcTime().roundTo(TimeUnit.NANOSECONDS);
+        }
         thread.start();
     }
 
@@ -72,11 +99,12 @@ public class PauseMeter
         thread.interrupt();
     }
 
-    private Histogram makeSnapshot()
+    private synchronized Histogram makeSnapshot()
     {
-        synchronized (histogram) {
-            return histogram.copy();
-        }
+        // the recorder swaps in the recycled histogram, so the sampling thread never waits
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        histogram.add(intervalHistogram);
+        return histogram.copy();
     }
 
     private void run()
@@ -97,10 +125,8 @@ public class PauseMeter
                 shortestObservableInterval = Math.min(shortestObservableInterval, delta);
 
                 long pauseNanos = delta - shortestObservableInterval;
-                synchronized (histogram) {
-                    histogram.recordValue(pauseNanos);
-                    totalPauseNanos += pauseNanos;
-                }
+                recorder.recordValue(pauseNanos);
+                totalPauseNanos.addAndGet(pauseNanos);
             }
             catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
@@ -184,9 +210,34 @@ public class PauseMeter
     @Managed
     public double getTotalPauseSeconds()
     {
-        synchronized (histogram) {
-            return totalPauseNanos * 1.0 / TimeUnit.SECONDS.toNanos(1);
+        return totalPauseNanos.get() * 1.0 / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    @Managed(description = "Total pause time explained by GC in s")
+    public double getGcPauseSeconds()
+    {
+        if (gcMonitor == null) {
+            return Double.NaN;
         }
+        return gcPauseNanos(totalPauseNanos.get()) * 1.0 / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    @Managed(description = "Total pause time not explained by GC in s")
+    public double getNonGcPauseSeconds()
+    {
+        if (gcMonitor == null) {
+            return Double.NaN;
+        }
+        long totalPauseNanos = this.totalPauseNanos.get();
+        return (totalPauseNanos - gcPauseNanos(totalPauseNanos)) * 1.0 / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private long gcPauseNanos(long totalPauseNanos)
+    {
+        // collections that run concurrently with the application do not pause it,
+        // so the GC time can exceed the pause time
+        long gcNanos = gcMonitor.getTotalGcTime().roundTo(TimeUnit.NANOSECONDS) - gcTimeAtStartNanos;
+        return Math.max(0, Math.min(gcNanos, totalPauseNanos));
     }
 
     private static double round(double value, int digits)
@@ -32,6 +32,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.stats.ExponentialDecay.weight;
 import static io.airlift.stats.QuantileDigest.MiddleFunction.DEFAULT;
@@ -289,6 +290,56 @@ public class QuantileDigest
         add(value, (double) weight);
     }
 
+    /**
+     * Adds a batch of values to this digest, each with a weight of 1. The values are sorted,
+     * so that runs of equal values are inserted once and consecutive values share the upper
+     * part of their tree path, and the digest is compressed at most once for the whole batch.
+     */
+    public void add(long[] values, int offset, int length)
+    {
+        checkPositionIndexes(offset, offset + length, values.length);
+        if (length == 0) {
+            return;
+        }
+
+        long[] sorted = Arrays.copyOfRange(values, offset, offset + length);
+        Arrays.sort(sorted);
+
+        boolean needsCompression = false;
+        double weight = 1;
+        if (alpha > 0.0) {
+            long nowInSeconds = TimeUnit.NANOSECONDS.toSeconds(ticker.read());
+            if (nowInSeconds - landmarkInSeconds >= RESCALE_THRESHOLD_SECONDS) {
+                rescale(nowInSeconds);
+                needsCompression = true; // rescale affects weights globally, so force compression
+            }
+
+            weight *= weight(alpha, nowInSeconds, landmarkInSeconds);
+        }
+
+        max = Math.max(max, sorted[length - 1]);
+        min = Math.min(min, sorted[0]);
+
+        double previousCount = weightedCount;
+
+        int[] path = new int[MAX_BITS + 1];
+        int pathLength = 0;
+        int start = 0;
+        while (start < length) {
+            int end = start + 1;
+            while (end < length && sorted[end] == sorted[start]) {
+                end++;
+            }
+            pathLength = insert(longToBits(sorted[start]), weight * (end - start), path, pathLength);
+            start = end;
+        }
+
+        int compressionFactor = calculateCompressionFactor();
+        if (needsCompression || ((long) previousCount) / compressionFactor != ((long) weightedCount) / compressionFactor) {
+            compress();
+        }
+    }
+
     public void merge(QuantileDigest other)
     {
         rescaleToCommonLandmark(this, other);
@@ -662,19 +713,40 @@ public class QuantileDigest
     }
 
     private void insert(long value, double count)
+    {
+        insert(value, count, null, 0);
+    }
+
+    /**
+     * Inserts the value below the deepest node of the path whose subtree contains it, or
+     * below the root if there is none. The path holds the nodes descended through by the
+     * previous insertion, and is updated for this one unless it is null.
+     *
+     * @return the new length of the path
+     */
+    private int insert(long value, double count, int[] path, int pathLength)
     {
         if (count < ZERO_WEIGHT_THRESHOLD) {
-            return;
+            return pathLength;
+        }
+
+        while (pathLength > 0 && !inSameSubtree(value, values[path[pathLength - 1]], levels[path[pathLength - 1]])) {
+            pathLength--;
         }
 
         long lastBranch = 0;
         int parent = -1;
         int current = root;
+        if (pathLength > 0) {
+            parent = path[pathLength - 1];
+            lastBranch = value & getBranchMask(levels[parent]);
+            current = (lastBranch == 0) ? lefts[parent] : rights[parent];
+        }
 
         while (true) {
             if (current == -1) {
                 setChild(parent, lastBranch, createLeaf(value, count));
-                return;
+                return pathLength;
             }
 
             long currentValue = values[current];
@@ -683,14 +755,14 @@ public class QuantileDigest
                 // if value and node.value are not in the same branch given node's level,
                 // insert a parent above them at the point at which branches diverge
                 setChild(parent, lastBranch, makeSiblings(current, createLeaf(value, count)));
-                return;
+                return pathLength;
             }
 
             if (currentLevel == 0 && currentValue == value) {
                 // found the node
                 counts[current] += count;
                 weightedCount += count;
-                return;
+                return pathLength;
             }
 
             // we're on the correct branch of the tree and we haven't reached a leaf, so keep going down
@@ -698,6 +770,9 @@ public class QuantileDigest
 
             parent = current;
             lastBranch = branch;
+            if (path != null) {
+                path[pathLength++] = current;
+            }
 
             if (branch == 0) {
                 current = lefts[current];
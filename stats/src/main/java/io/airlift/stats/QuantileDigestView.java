@@ -0,0 +1,431 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.PeekingIterator;
+import io.airlift.slice.SizeOf;
+import io.airlift.slice.Slice;
+import io.airlift.stats.QuantileDigest.Bucket;
+import io.airlift.stats.QuantileDigest.MiddleFunction;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.stats.ExponentialDecay.weight;
+import static io.airlift.stats.QuantileDigest.MiddleFunction.DEFAULT;
+import static io.airlift.stats.QuantileDigest.ZERO_WEIGHT_THRESHOLD;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A read-only view of a serialized {@link QuantileDigest} that answers queries directly
+ * from the serialized form, without rebuilding the tree. The nodes are serialized in
+ * post-order, so a forward traversal of the tree is a sequential scan. Use
+ * {@link #toQuantileDigest()} to add values to the digest or to merge it.
+ * <p>
+ * The results are the same as the ones of the deserialized digest. The slice must not be
+ * modified while the view is in use.
+ */
+public final class QuantileDigestView
+{
+    private static final int MAX_BITS = 64;
+    private static final int FORMAT = 0;
+    private static final int HAS_LEFT = 1 << 0;
+    private static final int HAS_RIGHT = 1 << 1;
+
+    private static final int HEADER_SIZE = SizeOf.SIZE_OF_BYTE + // format
+            SizeOf.SIZE_OF_DOUBLE + // maxError
+            SizeOf.SIZE_OF_DOUBLE + // alpha
+            SizeOf.SIZE_OF_LONG + // landmarkInSeconds
+            SizeOf.SIZE_OF_LONG + // min
+            SizeOf.SIZE_OF_LONG + // max
+            SizeOf.SIZE_OF_INT; // node count
+    private static final int NODE_SIZE = SizeOf.SIZE_OF_BYTE + // levels and left/right flags
+            SizeOf.SIZE_OF_DOUBLE + // count
+            SizeOf.SIZE_OF_LONG; // value
+
+    private static final int STOPPED = Integer.MIN_VALUE;
+
+    private final Slice serialized;
+    private final double maxError;
+    private final double alpha;
+    private final Ticker ticker;
+    private final long landmarkInSeconds;
+    private final long min;
+    private final long max;
+    private final int nodeCount;
+    private final double weightedCount;
+
+    public QuantileDigestView(Slice serialized)
+    {
+        this.serialized = requireNonNull(serialized, "serialized is null");
+
+        checkArgument(serialized.length() >= HEADER_SIZE, "Invalid size");
+        checkArgument(serialized.getByte(0) == FORMAT, "Invalid format");
+        maxError = serialized.getDouble(1);
+        alpha = serialized.getDouble(9);
+        ticker = alpha == 0.0 ? noOpTicker() : Ticker.systemTicker();
+        landmarkInSeconds = serialized.getLong(17);
+        min = serialized.getLong(25);
+        max = serialized.getLong(33);
+        nodeCount = serialized.getInt(41);
+
+        checkArgument(nodeCount >= 0 && serialized.length() == HEADER_SIZE + (long) nodeCount * NODE_SIZE, "Invalid size");
+        weightedCount = validateTree();
+    }
+
+    /**
+     * Checks that the nodes form a single tree whose levels decrease from the root, which
+     * bounds the depth of the reverse traversal, and returns the total count of the nodes.
+     */
+    private double validateTree()
+    {
+        // levels of the subtrees that are waiting for their parent
+        int[] stack = new int[MAX_BITS + 2];
+        int top = -1;
+
+        double count = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int structure = structure(node);
+            int level = level(node);
+
+            int children = ((structure & HAS_LEFT) != 0 ? 1 : 0) + ((structure & HAS_RIGHT) != 0 ? 1 : 0);
+            checkArgument(top + 1 >= children, "Tree is corrupted. Missing child node");
+            for (int i = 0; i < children; i++) {
+                checkArgument(stack[top--] < level, "Tree is corrupted. Child level is not lower than parent level");
+            }
+
+            checkArgument(top + 1 < stack.length, "Tree is corrupted. Too many levels");
+            stack[++top] = level;
+
+            count += count(node);
+        }
+        checkArgument(nodeCount == 0 || top == 0, "Tree is corrupted. Expected a single root node");
+        return count;
+    }
+
+    public double getMaxError()
+    {
+        return maxError;
+    }
+
+    public double getAlpha()
+    {
+        return alpha;
+    }
+
+    /**
+     * Number (decayed) of elements added to the quantile digest
+     */
+    public double getCount()
+    {
+        return weightedCount / weight(alpha, TimeUnit.NANOSECONDS.toSeconds(ticker.read()), landmarkInSeconds);
+    }
+
+    public long getMin()
+    {
+        long chosen = min;
+        for (int node = 0; node < nodeCount; node++) {
+            if (count(node) >= ZERO_WEIGHT_THRESHOLD) {
+                chosen = lowerBound(node);
+                break;
+            }
+        }
+        return Math.max(min, chosen);
+    }
+
+    public long getMax()
+    {
+        long[] chosen = {max};
+        reverseTraversal(node -> {
+            if (count(node) >= ZERO_WEIGHT_THRESHOLD) {
+                chosen[0] = upperBound(node);
+                return false;
+            }
+            return true;
+        });
+        return Math.min(max, chosen[0]);
+    }
+
+    /**
+     * @see QuantileDigest#getQuantilesLowerBound(List)
+     */
+    public List<Long> getQuantilesLowerBound(List<Double> quantiles)
+    {
+        checkQuantiles(quantiles);
+
+        List<Double> reversedQuantiles = ImmutableList.copyOf(quantiles).reverse();
+
+        ImmutableList.Builder<Long> builder = ImmutableList.builder();
+        PeekingIterator<Double> iterator = Iterators.peekingIterator(reversedQuantiles.iterator());
+
+        double[] sum = {0};
+        reverseTraversal(node -> {
+            sum[0] += count(node);
+
+            while (iterator.hasNext() && sum[0] > (1.0 - iterator.peek()) * weightedCount) {
+                iterator.next();
+
+                // we know the min value ever seen, so cap the percentile to provide better error
+                // bounds in this case
+                builder.add(Math.max(lowerBound(node), min));
+            }
+
+            return iterator.hasNext();
+        });
+
+        // we finished the traversal without consuming all quantiles. This means the remaining quantiles
+        // correspond to the min known value
+        while (iterator.hasNext()) {
+            builder.add(min);
+            iterator.next();
+        }
+
+        return builder.build().reverse();
+    }
+
+    /**
+     * @see QuantileDigest#getQuantilesUpperBound(List)
+     */
+    public List<Long> getQuantilesUpperBound(List<Double> quantiles)
+    {
+        checkQuantiles(quantiles);
+
+        ImmutableList.Builder<Long> builder = ImmutableList.builder();
+        PeekingIterator<Double> iterator = Iterators.peekingIterator(quantiles.iterator());
+
+        double sum = 0;
+        for (int node = 0; node < nodeCount && iterator.hasNext(); node++) {
+            sum += count(node);
+
+            while (iterator.hasNext() && sum > iterator.peek() * weightedCount) {
+                iterator.next();
+
+                // we know the max value ever seen, so cap the percentile to provide better error
+                // bounds in this case
+                builder.add(Math.min(upperBound(node), max));
+            }
+        }
+
+        // we finished the traversal without consuming all quantiles. This means the remaining quantiles
+        // correspond to the max known value
+        while (iterator.hasNext()) {
+            builder.add(max);
+            iterator.next();
+        }
+
+        return builder.build();
+    }
+
+    public List<Long> getQuantiles(List<Double> quantiles)
+    {
+        return getQuantilesUpperBound(quantiles);
+    }
+
+    /**
+     * Gets the value at the specified quantile +/- maxError. The quantile must be in the range [0, 1]
+     */
+    public long getQuantile(double quantile)
+    {
+        return getQuantiles(ImmutableList.of(quantile)).get(0);
+    }
+
+    public long getQuantileLowerBound(double quantile)
+    {
+        return getQuantilesLowerBound(ImmutableList.of(quantile)).get(0);
+    }
+
+    public long getQuantileUpperBound(double quantile)
+    {
+        return getQuantilesUpperBound(ImmutableList.of(quantile)).get(0);
+    }
+
+    /**
+     * @see QuantileDigest#getHistogram(List)
+     */
+    public List<Bucket> getHistogram(List<Long> bucketUpperBounds)
+    {
+        return getHistogram(bucketUpperBounds, DEFAULT);
+    }
+
+    public List<Bucket> getHistogram(List<Long> bucketUpperBounds, MiddleFunction middleFunction)
+    {
+        checkArgument(Ordering.natural().isOrdered(bucketUpperBounds), "buckets must be sorted in increasing order");
+
+        ImmutableList.Builder<Bucket> builder = ImmutableList.builder();
+        PeekingIterator<Long> iterator = Iterators.peekingIterator(bucketUpperBounds.iterator());
+
+        double normalizationFactor = weight(alpha, TimeUnit.NANOSECONDS.toSeconds(ticker.read()), landmarkInSeconds);
+
+        double sum = 0;
+        double lastSum = 0;
+        // for computing weighed average of values in bucket
+        double bucketWeightedSum = 0;
+        for (int node = 0; node < nodeCount && iterator.hasNext(); node++) {
+            long lowerBound = lowerBound(node);
+            long upperBound = upperBound(node);
+            double count = count(node);
+
+            while (iterator.hasNext() && iterator.peek() <= upperBound) {
+                double bucketCount = sum - lastSum;
+                builder.add(new Bucket(bucketCount / normalizationFactor, bucketWeightedSum / bucketCount));
+
+                lastSum = sum;
+                bucketWeightedSum = 0;
+                iterator.next();
+            }
+
+            bucketWeightedSum += middleFunction.middle(lowerBound, upperBound) * count;
+            sum += count;
+        }
+
+        while (iterator.hasNext()) {
+            double bucketCount = sum - lastSum;
+            builder.add(new Bucket(bucketCount / normalizationFactor, bucketWeightedSum / bucketCount));
+
+            iterator.next();
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Deserializes the digest, so values can be added to it or it can be merged.
+     */
+    public QuantileDigest toQuantileDigest()
+    {
+        return new QuantileDigest(serialized);
+    }
+
+    /**
+     * Visits the nodes in the same order as {@link QuantileDigest}: the right subtree,
+     * then the left subtree, then the node.
+     */
+    private void reverseTraversal(Callback callback)
+    {
+        if (nodeCount > 0) {
+            reverseTraversal(nodeCount - 1, callback);
+        }
+    }
+
+    /**
+     * @return the position of the first node of the subtree, or {@link #STOPPED}
+     */
+    private int reverseTraversal(int node, Callback callback)
+    {
+        // the subtree is serialized as the left subtree, then the right subtree, then the node
+        int structure = structure(node);
+        int first = node;
+        if ((structure & HAS_RIGHT) != 0) {
+            first = reverseTraversal(first - 1, callback);
+            if (first == STOPPED) {
+                return STOPPED;
+            }
+        }
+        if ((structure & HAS_LEFT) != 0) {
+            first = reverseTraversal(first - 1, callback);
+            if (first == STOPPED) {
+                return STOPPED;
+            }
+        }
+        return callback.process(node) ? first : STOPPED;
+    }
+
+    private int structure(int node)
+    {
+        return serialized.getByte(HEADER_SIZE + node * NODE_SIZE);
+    }
+
+    private int level(int node)
+    {
+        int structure = structure(node);
+        int level = (structure >>> 2) & 0b111111;
+
+        // branch node levels are serialized as 0-indexed
+        if ((structure & (HAS_LEFT | HAS_RIGHT)) != 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private double count(int node)
+    {
+        return serialized.getDouble(HEADER_SIZE + node * NODE_SIZE + SizeOf.SIZE_OF_BYTE);
+    }
+
+    private long bits(int node)
+    {
+        return serialized.getLong(HEADER_SIZE + node * NODE_SIZE + SizeOf.SIZE_OF_BYTE + SizeOf.SIZE_OF_DOUBLE);
+    }
+
+    private long upperBound(int node)
+    {
+        // set all lsb below level to 1 (we're looking for the highest value of the range covered by this node)
+        long mask = 0;
+        int level = level(node);
+        if (level > 0) { // need to special case when level == 0 because (value >> 64 really means value >> (64 % 64))
+            mask = 0xFFFF_FFFF_FFFF_FFFFL >>> (MAX_BITS - level);
+        }
+        return bitsToLong(bits(node) | mask);
+    }
+
+    private long lowerBound(int node)
+    {
+        // set all lsb below level to 0 (we're looking for the lowest value of the range covered by this node)
+        long mask = 0;
+        int level = level(node);
+        if (level > 0) { // need to special case when level == 0 because (value >> 64 really means value >> (64 % 64))
+            mask = 0xFFFF_FFFF_FFFF_FFFFL >>> (MAX_BITS - level);
+        }
+        return bitsToLong(bits(node) & (~mask));
+    }
+
+    private static long bitsToLong(long bits)
+    {
+        return bits ^ 0x8000_0000_0000_0000L;
+    }
+
+    private static void checkQuantiles(List<Double> quantiles)
+    {
+        checkArgument(Ordering.natural().isOrdered(quantiles), "quantiles must be sorted in increasing order");
+        for (double quantile : quantiles) {
+            checkArgument(quantile >= 0 && quantile <= 1, "quantile must be between [0,1]");
+        }
+    }
+
+    private static Ticker noOpTicker()
+    {
+        return new Ticker()
+        {
+            @Override
+            public long read()
+            {
+                return 0;
+            }
+        };
+    }
+
+    private interface Callback
+    {
+        /**
+         * @param node the node to process
+         * @return true if processing should continue
+         */
+        boolean process(int node);
+    }
+}
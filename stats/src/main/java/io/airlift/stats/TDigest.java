@@ -13,7 +13,10 @@
  */
 package io.airlift.stats;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
+import com.google.common.math.IntMath;
 import com.google.common.primitives.Doubles;
 import com.google.common.primitives.Ints;
 import io.airlift.slice.SizeOf;
@@ -27,13 +30,17 @@ import javax.annotation.concurrent.NotThreadSafe;
 
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Double.isInfinite;
 import static java.lang.Double.isNaN;
+import static java.math.RoundingMode.CEILING;
 import static java.util.Objects.requireNonNull;
 
 @NotThreadSafe
@@ -45,6 +52,7 @@ public class TDigest
     private static final int T_DIGEST_SIZE = ClassLayout.parseClass(TDigest.class).instanceSize();
     private static final int INITIAL_CAPACITY = 1;
     private static final int FUDGE_FACTOR = 10;
+    private static final int MIN_PARALLEL_MERGE_BATCH_SIZE = 16;
 
     private final int maxSize;
     private final double compression;
@@ -236,6 +244,43 @@ public class TDigest
         needsMerge = true;
     }
 
+    /**
+     * Merges the digests with a single k-way merge of their centroids followed by a
+     * single compression pass, which is much cheaper than merging them one at a time
+     * with {@link #mergeWith(TDigest)}. The result uses the largest compression of
+     * the digests. The digests may be compacted, but their contents do not change.
+     */
+    public static TDigest merge(Collection<TDigest> digests)
+    {
+        return mergeSorted(ImmutableList.copyOf(digests));
+    }
+
+    /**
+     * Like {@link #merge(Collection)}, but merges batches of the digests in parallel in
+     * the pool and then merges the results. This adds one compression pass, which is
+     * still far fewer than merging the digests one at a time.
+     */
+    public static TDigest merge(Collection<TDigest> digests, ForkJoinPool pool)
+    {
+        requireNonNull(pool, "pool is null");
+        List<TDigest> inputs = ImmutableList.copyOf(digests);
+
+        int batchSize = Math.max(MIN_PARALLEL_MERGE_BATCH_SIZE, IntMath.divide(inputs.size(), pool.getParallelism(), CEILING));
+        if (inputs.size() <= batchSize) {
+            return mergeSorted(inputs);
+        }
+
+        List<ForkJoinTask<TDigest>> tasks = Lists.partition(inputs, batchSize).stream()
+                .map(batch -> pool.submit(() -> mergeSorted(batch)))
+                .collect(Collectors.toList());
+
+        ImmutableList.Builder<TDigest> results = ImmutableList.builder();
+        for (ForkJoinTask<TDigest> task : tasks) {
+            results.add(task.join());
+        }
+        return mergeSorted(results.build());
+    }
+
     public double valueAt(double quantile)
     {
         checkArgument(quantile >= 0 && quantile <= 1, "quantile should be in [0, 1] range");
@@ -381,6 +426,14 @@ public class TDigest
             Ints.reverse(indexes, 0, centroidCount);
         }
 
+        compress(compression);
+    }
+
+    /**
+     * Clusters the centroids in the order given by {@code indexes}.
+     */
+    private void compress(double compression)
+    {
         double centroidMean = means[indexes[0]];
         double centroidWeight = weights[indexes[0]];
 
@@ -440,6 +493,120 @@ public class TDigest
         System.arraycopy(tempWeights, 0, weights, 0, centroidCount);
     }
 
+    private static TDigest mergeSorted(List<TDigest> digests)
+    {
+        if (digests.isEmpty()) {
+            return new TDigest();
+        }
+
+        double compression = 0;
+        for (TDigest digest : digests) {
+            compression = Math.max(compression, digest.compression);
+        }
+
+        TDigest[] sources = new TDigest[digests.size()];
+        int sourceCount = 0;
+        int centroidCount = 0;
+        double totalWeight = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (TDigest digest : digests) {
+            // after merging, the centroids of each digest are sorted by mean
+            digest.mergeIfNeeded(internalCompressionFactor(compression));
+            if (digest.centroidCount > 0) {
+                sources[sourceCount++] = digest;
+                centroidCount += digest.centroidCount;
+                totalWeight += digest.totalWeight;
+                min = Math.min(min, digest.min);
+                max = Math.max(max, digest.max);
+            }
+        }
+
+        if (sourceCount == 0) {
+            return new TDigest(compression);
+        }
+
+        // k-way merge of the sorted centroids, with a min-heap of the sources ordered by their next mean
+        double[] means = new double[centroidCount];
+        double[] weights = new double[centroidCount];
+        int[] positions = new int[sourceCount];
+        int[] heap = new int[sourceCount];
+        double[] heapMeans = new double[sourceCount];
+        int heapSize = 0;
+        for (int source = 0; source < sourceCount; source++) {
+            siftUp(heap, heapMeans, heapSize, source, sources[source].means[0]);
+            heapSize++;
+        }
+
+        for (int i = 0; i < centroidCount; i++) {
+            int source = heap[0];
+            TDigest digest = sources[source];
+            int position = positions[source]++;
+            means[i] = heapMeans[0];
+            weights[i] = digest.weights[position];
+
+            if (position + 1 < digest.centroidCount) {
+                siftDown(heap, heapMeans, heapSize, source, digest.means[position + 1]);
+            }
+            else {
+                heapSize--;
+                if (heapSize > 0) {
+                    siftDown(heap, heapMeans, heapSize, heap[heapSize], heapMeans[heapSize]);
+                }
+            }
+        }
+
+        TDigest result = new TDigest(compression, min, max, totalWeight, centroidCount, means, weights, false, false);
+        result.initializeIndexes();
+        result.compress(internalCompressionFactor(compression));
+
+        result.means = Arrays.copyOf(result.means, result.centroidCount);
+        result.weights = Arrays.copyOf(result.weights, result.centroidCount);
+        result.indexes = null;
+        return result;
+    }
+
+    private static void siftUp(int[] heap, double[] heapMeans, int heapSize, int source, double mean)
+    {
+        int index = heapSize;
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heapMeans[parent] <= mean) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heapMeans[index] = heapMeans[parent];
+            index = parent;
+        }
+        heap[index] = source;
+        heapMeans[index] = mean;
+    }
+
+    /**
+     * Replaces the top of the heap with the source and sifts it down.
+     */
+    private static void siftDown(int[] heap, double[] heapMeans, int heapSize, int source, double mean)
+    {
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapMeans[child + 1] < heapMeans[child]) {
+                child++;
+            }
+            if (mean <= heapMeans[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            heapMeans[index] = heapMeans[child];
+            index = child;
+        }
+        heap[index] = source;
+        heapMeans[index] = mean;
+    }
+
     private void mergeIfNeeded(double compression)
     {
         if (needsMerge) {
@@ -0,0 +1,195 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.collect.Ordering;
+import io.airlift.slice.SizeOf;
+import io.airlift.slice.Slice;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A read-only view of a serialized {@link TDigest} that answers queries directly from
+ * the serialized centroids, which are stored merged and sorted. Use {@link #toTDigest()}
+ * to add values to the digest or to merge it.
+ * <p>
+ * The results are the same as the ones of the deserialized digest. The slice must not be
+ * modified while the view is in use.
+ */
+public final class TDigestView
+{
+    private static final int FORMAT_TAG = 0;
+    private static final int HEADER_SIZE = SizeOf.SIZE_OF_BYTE + // format
+            SizeOf.SIZE_OF_DOUBLE + // min
+            SizeOf.SIZE_OF_DOUBLE + // max
+            SizeOf.SIZE_OF_DOUBLE + // compression
+            SizeOf.SIZE_OF_DOUBLE + // totalWeight
+            SizeOf.SIZE_OF_INT; // centroid count
+
+    private final Slice serialized;
+    private final double min;
+    private final double max;
+    private final double totalWeight;
+    private final int centroidCount;
+    private final int weightsOffset;
+
+    public TDigestView(Slice serialized)
+    {
+        this.serialized = requireNonNull(serialized, "serialized is null");
+
+        checkArgument(serialized.length() >= HEADER_SIZE, "Invalid size");
+        checkArgument(serialized.getByte(0) == FORMAT_TAG, "Invalid format");
+        min = serialized.getDouble(1);
+        max = serialized.getDouble(9);
+        totalWeight = serialized.getDouble(25);
+        centroidCount = serialized.getInt(33);
+
+        checkArgument(centroidCount >= 0 && serialized.length() == HEADER_SIZE + 2L * SizeOf.SIZE_OF_DOUBLE * centroidCount, "Invalid size");
+        weightsOffset = HEADER_SIZE + SizeOf.SIZE_OF_DOUBLE * centroidCount;
+    }
+
+    public double getMin()
+    {
+        if (totalWeight == 0) {
+            return Double.NaN;
+        }
+        return min;
+    }
+
+    public double getMax()
+    {
+        if (totalWeight == 0) {
+            return Double.NaN;
+        }
+        return max;
+    }
+
+    public double getCount()
+    {
+        return totalWeight;
+    }
+
+    /**
+     * @see TDigest#valueAt(double)
+     */
+    public double valueAt(double quantile)
+    {
+        checkArgument(quantile >= 0 && quantile <= 1, "quantile should be in [0, 1] range");
+
+        if (centroidCount == 0) {
+            return Double.NaN;
+        }
+
+        if (centroidCount == 1) {
+            return mean(0);
+        }
+
+        // offset into the theoretical sequence of all values
+        double offset = quantile * totalWeight;
+
+        if (offset < 1) {
+            return min;
+        }
+
+        if (offset > totalWeight - 1) {
+            return max;
+        }
+
+        // between bottom and first centroid
+        double firstWeight = weight(0);
+        if (firstWeight > 1 && offset < firstWeight / 2) {
+            return min + interpolate(offset, 1, min, firstWeight / 2, mean(0));
+        }
+
+        // between last centroid and top
+        double lastWeight = weight(centroidCount - 1);
+        if (lastWeight > 1 && totalWeight - offset <= lastWeight / 2) {
+            // we interpolate back from the end, so the value is negative
+            return max + interpolate(totalWeight - offset, 1, max, lastWeight / 2, mean(centroidCount - 1));
+        }
+
+        double weightSoFar = firstWeight / 2;
+        double currentWeight = firstWeight;
+        for (int i = 0; i < centroidCount - 1; i++) {
+            double nextWeight = weight(i + 1);
+            double delta = (currentWeight + nextWeight) / 2;
+            if (weightSoFar + delta > offset) {
+                // single-sample cluster and the quantile falls within that cluster
+                if (currentWeight == 1 && offset - weightSoFar < currentWeight / 2) {
+                    return mean(i);
+                }
+
+                // single-sample cluster and the quantile falls within that cluster
+                if (nextWeight == 1 && offset - weightSoFar >= currentWeight / 2) {
+                    return mean(i + 1);
+                }
+
+                // At this point, at most one cluster has a single sample
+                // If either has a single sample, we exclude its weight
+                if (currentWeight == 1) {
+                    weightSoFar += currentWeight / 2;
+                    delta = nextWeight / 2;
+                }
+                else if (nextWeight == 1) {
+                    delta = currentWeight / 2;
+                }
+
+                return mean(i) + interpolate(offset - weightSoFar, 0, mean(i), delta, mean(i + 1));
+            }
+
+            weightSoFar += delta;
+            currentWeight = nextWeight;
+        }
+
+        // Should never reach here. We handled the case of offset being
+        // between the last centroid and the top above
+        throw new AssertionError();
+    }
+
+    public List<Double> valuesAt(List<Double> quantiles)
+    {
+        checkArgument(Ordering.natural().isOrdered(quantiles), "quantiles must be sorted in increasing order");
+
+        return quantiles.stream()
+                .map(this::valueAt)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Deserializes the digest, so values can be added to it or it can be merged.
+     */
+    public TDigest toTDigest()
+    {
+        return TDigest.deserialize(serialized);
+    }
+
+    private double mean(int centroid)
+    {
+        return serialized.getDouble(HEADER_SIZE + SizeOf.SIZE_OF_DOUBLE * centroid);
+    }
+
+    private double weight(int centroid)
+    {
+        return serialized.getDouble(weightsOffset + SizeOf.SIZE_OF_DOUBLE * centroid);
+    }
+
+    private static double interpolate(double x, double x0, double y0, double x1, double y1)
+    {
+        return (x - x0) / (x1 - x0) * (y1 - y0);
+    }
+}
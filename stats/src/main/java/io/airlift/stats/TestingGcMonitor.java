@@ -28,10 +28,19 @@ public class TestingGcMonitor
     @GuardedBy("this")
     private long majorGcTimeNanos;
 
+    @GuardedBy("this")
+    private long totalGcTimeNanos;
+
     public synchronized void recordMajorGc(Duration duration)
     {
         majorGcCount++;
         majorGcTimeNanos += duration.roundTo(NANOSECONDS);
+        totalGcTimeNanos += duration.roundTo(NANOSECONDS);
+    }
+
+    public synchronized void recordMinorGc(Duration duration)
+    {
+        totalGcTimeNanos += duration.roundTo(NANOSECONDS);
     }
 
     @Override
@@ -45,4 +54,10 @@ public class TestingGcMonitor
     {
         return new Duration(majorGcTimeNanos, NANOSECONDS);
     }
+
+    @Override
+    public synchronized Duration getTotalGcTime()
+    {
+        return new Duration(totalGcTimeNanos, NANOSECONDS);
+    }
 }
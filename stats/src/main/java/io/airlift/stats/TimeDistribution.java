@@ -4,7 +4,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.weakref.jmx.Managed;
 
-import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -16,12 +16,10 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+@ThreadSafe
 public class TimeDistribution
 {
-    @GuardedBy("this")
-    private final DecayTDigest digest;
-    @GuardedBy("this")
-    private final DecayCounter total;
+    private final DecayDigestStripes stripes;
     private final TimeUnit unit;
 
     public TimeDistribution()
@@ -31,11 +29,7 @@ public class TimeDistribution
 
     public TimeDistribution(TimeUnit unit)
     {
-        requireNonNull(unit, "unit is null");
-
-        digest = new DecayTDigest(TDigest.DEFAULT_COMPRESSION, 0);
-        total = new DecayCounter(0);
-        this.unit = unit;
+        this(0, unit);
     }
 
     public TimeDistribution(double alpha)
@@ -44,72 +38,80 @@ public class TimeDistribution
     }
 
     public TimeDistribution(double alpha, TimeUnit unit)
+    {
+        this(alpha, unit, 1);
+    }
+
+    /**
+     * Creates a distribution that records into {@code stripes} independently
+     * locked digests, so concurrent writers do not contend with each other.
+     * The stripes are merged whenever the distribution is read.
+     */
+    public TimeDistribution(double alpha, TimeUnit unit, int stripes)
     {
         requireNonNull(unit, "unit is null");
 
-        digest = new DecayTDigest(TDigest.DEFAULT_COMPRESSION, alpha);
-        total = new DecayCounter(alpha);
+        this.stripes = new DecayDigestStripes(TDigest.DEFAULT_COMPRESSION, alpha, stripes);
         this.unit = unit;
     }
 
-    public synchronized void add(long value)
+    public void add(long value)
     {
-        digest.add(value);
-        total.add(value);
+        stripes.add(value, 1);
     }
 
     @Managed
-    public synchronized double getCount()
+    public double getCount()
     {
-        return digest.getCount();
+        return stripes.query((digest, total) -> digest.getCount());
     }
 
     @Managed
-    public synchronized double getP50()
+    public double getP50()
     {
-        return convertToUnit(digest.valueAt(0.5));
+        return stripes.query((digest, total) -> convertToUnit(digest.valueAt(0.5)));
     }
 
     @Managed
-    public synchronized double getP75()
+    public double getP75()
     {
-        return convertToUnit(digest.valueAt(0.75));
+        return stripes.query((digest, total) -> convertToUnit(digest.valueAt(0.75)));
     }
 
     @Managed
-    public synchronized double getP90()
+    public double getP90()
     {
-        return convertToUnit(digest.valueAt(0.90));
+        return stripes.query((digest, total) -> convertToUnit(digest.valueAt(0.90)));
     }
 
     @Managed
-    public synchronized double getP95()
+    public double getP95()
     {
-        return convertToUnit(digest.valueAt(0.95));
+        return stripes.query((digest, total) -> convertToUnit(digest.valueAt(0.95)));
     }
 
     @Managed
-    public synchronized double getP99()
+    public double getP99()
     {
-        return convertToUnit(digest.valueAt(0.99));
+        return stripes.query((digest, total) -> convertToUnit(digest.valueAt(0.99)));
     }
 
     @Managed
-    public synchronized double getMin()
+    public double getMin()
     {
-        return convertToUnit(digest.getMin());
+        return stripes.query((digest, total) -> convertToUnit(digest.getMin()));
     }
 
     @Managed
-    public synchronized double getMax()
+    public double getMax()
     {
-        return convertToUnit(digest.getMax());
+        return stripes.query((digest, total) -> convertToUnit(digest.getMax()));
     }
 
     @Managed
-    public synchronized double getAvg()
+    public double getAvg()
     {
-        return convertToUnit(total.getCount()) / getCount();
+        return stripes.query((digest, total) -> convertToUnit(total.getCount()) / digest.getCount());
     }
 
     @Managed
@@ -126,10 +128,7 @@ public class TimeDistribution
             percentiles.add(i / 100.0);
         }
 
-        List<Double> values;
-        synchronized (this) {
-            values = digest.valuesAt(percentiles);
-        }
+        List<Double> values = stripes.query((digest, total) -> digest.valuesAt(percentiles));
 
         Map<Double, Double> result = new LinkedHashMap<>(values.size());
         for (int i = 0; i < percentiles.size(); ++i) {
@@ -154,17 +153,18 @@ public class TimeDistribution
 
     public TimeDistributionSnapshot snapshot()
     {
-        return new TimeDistributionSnapshot(
-                getCount(),
-                getP50(),
-                getP75(),
-                getP90(),
-                getP95(),
-                getP99(),
-                getMin(),
-                getMax(),
-                getAvg(),
-                getUnit());
+        // merge the stripes once for all values in the snapshot
+        return stripes.query((digest, total) -> new TimeDistributionSnapshot(
+                digest.getCount(),
+                convertToUnit(digest.valueAt(0.5)),
+                convertToUnit(digest.valueAt(0.75)),
+                convertToUnit(digest.valueAt(0.90)),
+                convertToUnit(digest.valueAt(0.95)),
+                convertToUnit(digest.valueAt(0.99)),
+                convertToUnit(digest.getMin()),
+                convertToUnit(digest.getMax()),
+                convertToUnit(total.getCount()) / digest.getCount(),
+                unit));
     }
 
     public static class TimeDistributionSnapshot
@@ -52,12 +52,21 @@ public class TimeStat
     }
 
     public TimeStat(Ticker ticker, TimeUnit unit)
+    {
+        this(ticker, unit, 1);
+    }
+
+    /**
+     * Creates a stat whose distributions are split into {@code stripes}
+     * independently locked digests. See {@link TimeDistribution#TimeDistribution(double, TimeUnit, int)}.
+     */
+    public TimeStat(Ticker ticker, TimeUnit unit, int stripes)
     {
         this.ticker = ticker;
-        oneMinute = new TimeDistribution(ExponentialDecay.oneMinute(), unit);
-        fiveMinutes = new TimeDistribution(ExponentialDecay.fiveMinutes(), unit);
-        fifteenMinutes = new TimeDistribution(ExponentialDecay.fifteenMinutes(), unit);
-        allTime = new TimeDistribution(unit);
+        oneMinute = new TimeDistribution(ExponentialDecay.oneMinute(), unit, stripes);
+        fiveMinutes = new TimeDistribution(ExponentialDecay.fiveMinutes(), unit, stripes);
+        fifteenMinutes = new TimeDistribution(ExponentialDecay.fifteenMinutes(), unit, stripes);
+        allTime = new TimeDistribution(0, unit, stripes);
     }
 
     public void add(double value, TimeUnit timeUnit)
@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import io.airlift.stats.TimeDistribution.TimeDistributionSnapshot;
+import org.weakref.jmx.Managed;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A window of a {@link WindowedTimeStat}. Every read sums the histograms of
+ * the window, so use {@link #snapshot()} to read several values at once.
+ */
+@ThreadSafe
+public class WindowedTimeDistribution
+{
+    private final Supplier<LogLinearHistogram> histogram;
+    private final TimeUnit unit;
+
+    WindowedTimeDistribution(Supplier<LogLinearHistogram> histogram, TimeUnit unit)
+    {
+        this.histogram = requireNonNull(histogram, "histogram is null");
+        this.unit = requireNonNull(unit, "unit is null");
+    }
+
+    @Managed
+    public double getCount()
+    {
+        return histogram.get().getCount();
+    }
+
+    @Managed
+    public double getP50()
+    {
+        return convertToUnit(histogram.get().valueAt(0.5));
+    }
+
+    @Managed
+    public double getP75()
+    {
+        return convertToUnit(histogram.get().valueAt(0.75));
+    }
+
+    @Managed
+    public double getP90()
+    {
+        return convertToUnit(histogram.get().valueAt(0.90));
+    }
+
+    @Managed
+    public double getP95()
+    {
+        return convertToUnit(histogram.get().valueAt(0.95));
+    }
+
+    @Managed
+    public double getP99()
+    {
+        return convertToUnit(histogram.get().valueAt(0.99));
+    }
+
+    @Managed
+    public double getMin()
+    {
+        return convertToUnit(histogram.get().getMin());
+    }
+
+    @Managed
+    public double getMax()
+    {
+        return convertToUnit(histogram.get().getMax());
+    }
+
+    @Managed
+    public double getAvg()
+    {
+        return convertToUnit(histogram.get().getAverage());
+    }
+
+    @Managed
+    public TimeUnit getUnit()
+    {
+        return unit;
+    }
+
+    /**
+     * Returns the value at the given quantile, in the unit of this distribution.
+     */
+    public double valueAt(double quantile)
+    {
+        return convertToUnit(histogram.get().valueAt(quantile));
+    }
+
+    /**
+     * Returns the value at the given quantile, in the unit of this distribution,
+     * or empty if the window has fewer than {@code minCount} values.
+     */
+    public OptionalDouble valueAt(double quantile, long minCount)
+    {
+        LogLinearHistogram histogram = this.histogram.get();
+        if (histogram.getCount() < minCount) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(convertToUnit(histogram.valueAt(quantile)));
+    }
+
+    @Managed
+    public Map<Double, Double> getPercentiles()
+    {
+        LogLinearHistogram histogram = this.histogram.get();
+
+        Map<Double, Double> result = new LinkedHashMap<>(100);
+        for (int i = 0; i < 100; ++i) {
+            double percentile = i / 100.0;
+            result.put(percentile, convertToUnit(histogram.valueAt(percentile)));
+        }
+        return result;
+    }
+
+    public TimeDistributionSnapshot snapshot()
+    {
+        LogLinearHistogram histogram = this.histogram.get();
+        return new TimeDistributionSnapshot(
+                histogram.getCount(),
+                convertToUnit(histogram.valueAt(0.5)),
+                convertToUnit(histogram.valueAt(0.75)),
+                convertToUnit(histogram.valueAt(0.90)),
+                convertToUnit(histogram.valueAt(0.95)),
+                convertToUnit(histogram.valueAt(0.99)),
+                convertToUnit(histogram.getMin()),
+                convertToUnit(histogram.getMax()),
+                convertToUnit(histogram.getAverage()),
+                unit);
+    }
+
+    private double convertToUnit(double nanos)
+    {
+        return nanos * 1.0 / unit.toNanos(1);
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.base.Ticker;
+import io.airlift.stats.TimeStat.TimeDistributionStatSnapshot;
+import io.airlift.units.Duration;
+import org.weakref.jmx.Managed;
+import org.weakref.jmx.Nested;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static io.airlift.stats.LogLinearHistogram.BUCKET_COUNT;
+import static io.airlift.stats.LogLinearHistogram.SUB_BUCKET_COUNT;
+import static io.airlift.stats.LogLinearHistogram.bucketIndex;
+import static java.lang.Math.floorDiv;
+import static java.lang.Math.floorMod;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A stat like {@link TimeStat} that keeps exact counts over sliding windows instead
+ * of exponentially decayed digests. Values are counted in a ring of sixty log-linear
+ * histograms, one per 15 second slot, and recording a value is a single atomic
+ * increment in the current slot. A window is read by summing the histograms of its
+ * slots: it covers the current slot and the previous ones, so the one minute window
+ * holds between 45 and 60 seconds of data and the five minute window between 4:45
+ * and 5 minutes. Reported values are within 3.2% of the actual values.
+ * <p>
+ * The buckets of a slot are allocated a power of two at a time as values reach
+ * them, so the first value in a power of two also allocates its buckets. A slot
+ * uses about 200 bytes plus 100 bytes for each power of two it received values in,
+ * so a stat that is recorded to continuously with values spread over three orders
+ * of magnitude uses about 75kB. Keeping the longer windows in coarser slots would
+ * take less memory, but every value would then be counted in two slots.
+ */
+@ThreadSafe
+public class WindowedTimeStat
+{
+    private static final long SLOT_NANOS = SECONDS.toNanos(15);
+    private static final int SLOT_COUNT = (int) (MINUTES.toNanos(15) / SLOT_NANOS);
+    private static final int CHUNK_COUNT = BUCKET_COUNT / SUB_BUCKET_COUNT;
+
+    private final Ticker ticker;
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(SLOT_COUNT);
+    @GuardedBy("this")
+    private final long[][] expiredCounts = new long[CHUNK_COUNT][];
+
+    private final WindowedTimeDistribution oneMinute;
+    private final WindowedTimeDistribution fiveMinutes;
+    private final WindowedTimeDistribution fifteenMinutes;
+    private final WindowedTimeDistribution allTime;
+
+    public WindowedTimeStat()
+    {
+        this(Ticker.systemTicker(), SECONDS);
+    }
+
+    public WindowedTimeStat(Ticker ticker)
+    {
+        this(ticker, SECONDS);
+    }
+
+    public WindowedTimeStat(TimeUnit unit)
+    {
+        this(Ticker.systemTicker(), unit);
+    }
+
+    public WindowedTimeStat(Ticker ticker, TimeUnit unit)
+    {
+        this.ticker = requireNonNull(ticker, "ticker is null");
+        requireNonNull(unit, "unit is null");
+        oneMinute = new WindowedTimeDistribution(() -> windowHistogram(1), unit);
+        fiveMinutes = new WindowedTimeDistribution(() -> windowHistogram(5), unit);
+        fifteenMinutes = new WindowedTimeDistribution(() -> windowHistogram(15), unit);
+        allTime = new WindowedTimeDistribution(this::allTimeHistogram, unit);
+    }
+
+    public void add(double value, TimeUnit timeUnit)
+    {
+        add(new Duration(value, timeUnit));
+    }
+
+    public void add(Duration duration)
+    {
+        add((long) duration.getValue(TimeUnit.NANOSECONDS));
+    }
+
+    private void add(long value)
+    {
+        currentSlot().increment(bucketIndex(value));
+    }
+
+    public <T> T time(Callable<T> callable)
+            throws Exception
+    {
+        long start = ticker.read();
+        T result = callable.call();
+        add(ticker.read() - start);
+        return result;
+    }
+
+    public BlockTimer time()
+    {
+        return new BlockTimer();
+    }
+
+    public class BlockTimer
+            implements AutoCloseable
+    {
+        private final long start = ticker.read();
+
+        @Override
+        public void close()
+        {
+            add(ticker.read() - start);
+        }
+    }
+
+    @Managed
+    @Nested
+    public WindowedTimeDistribution getOneMinute()
+    {
+        return oneMinute;
+    }
+
+    @Managed
+    @Nested
+    public WindowedTimeDistribution getFiveMinutes()
+    {
+        return fiveMinutes;
+    }
+
+    @Managed
+    @Nested
+    public WindowedTimeDistribution getFifteenMinutes()
+    {
+        return fifteenMinutes;
+    }
+
+    @Managed
+    @Nested
+    public WindowedTimeDistribution getAllTime()
+    {
+        return allTime;
+    }
+
+    public TimeDistributionStatSnapshot snapshot()
+    {
+        return new TimeDistributionStatSnapshot(
+                getOneMinute().snapshot(),
+                getFiveMinutes().snapshot(),
+                getFifteenMinutes().snapshot(),
+                getAllTime().snapshot());
+    }
+
+    private Slot currentSlot()
+    {
+        long id = floorDiv(ticker.read(), SLOT_NANOS);
+        Slot slot = slots.get((int) floorMod(id, SLOT_COUNT));
+        if (slot != null && slot.id == id) {
+            return slot;
+        }
+        return rotate(id);
+    }
+
+    private synchronized Slot rotate(long id)
+    {
+        int index = (int) floorMod(id, SLOT_COUNT);
+        Slot slot = slots.get(index);
+        if (slot != null && slot.id >= id) {
+            // rotated by another thread, or this thread read the ticker long ago
+            return slot;
+        }
+
+        // values recorded by threads that still hold the expired slot are lost
+        if (slot != null) {
+            slot.addTo(expiredCounts);
+        }
+
+        slot = new Slot(id);
+        slots.set(index, slot);
+        return slot;
+    }
+
+    private LogLinearHistogram windowHistogram(int minutes)
+    {
+        long firstId = floorDiv(ticker.read(), SLOT_NANOS) - MINUTES.toNanos(minutes) / SLOT_NANOS;
+
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.id > firstId) {
+                slot.addTo(histogram);
+            }
+        }
+        return histogram;
+    }
+
+    private synchronized LogLinearHistogram allTimeHistogram()
+    {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int chunk = 0; chunk < CHUNK_COUNT; chunk++) {
+            long[] counts = expiredCounts[chunk];
+            if (counts != null) {
+                for (int i = 0; i < SUB_BUCKET_COUNT; i++) {
+                    histogram.add(chunk * SUB_BUCKET_COUNT + i, counts[i]);
+                }
+            }
+        }
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            Slot slot = slots.get(i);
+            if (slot != null) {
+                slot.addTo(histogram);
+            }
+        }
+        return histogram;
+    }
+
+    private static class Slot
+    {
+        private final long id;
+        // the buckets of each power of two are allocated when the first value reaches them, as most
+        // stats only receive values within a few powers of two, and a slot cannot realistically
+        // receive 2^31 values with the same bucket in 15 seconds
+        private final AtomicReferenceArray<AtomicIntegerArray> chunks = new AtomicReferenceArray<>(CHUNK_COUNT);
+
+        private Slot(long id)
+        {
+            this.id = id;
+        }
+
+        public void increment(int bucket)
+        {
+            int chunk = bucket / SUB_BUCKET_COUNT;
+            AtomicIntegerArray counts = chunks.get(chunk);
+            if (counts == null) {
+                chunks.compareAndSet(chunk, null, new AtomicIntegerArray(SUB_BUCKET_COUNT));
+                counts = chunks.get(chunk);
+            }
+            counts.incrementAndGet(bucket % SUB_BUCKET_COUNT);
+        }
+
+        public void addTo(LogLinearHistogram histogram)
+        {
+            for (int chunk = 0; chunk < CHUNK_COUNT; chunk++) {
+                AtomicIntegerArray counts = chunks.get(chunk);
+                if (counts != null) {
+                    for (int i = 0; i < SUB_BUCKET_COUNT; i++) {
+                        histogram.add(chunk * SUB_BUCKET_COUNT + i, counts.get(i));
+                    }
+                }
+            }
+        }
+
+        public void addTo(long[][] totals)
+        {
+            for (int chunk = 0; chunk < CHUNK_COUNT; chunk++) {
+                AtomicIntegerArray counts = chunks.get(chunk);
+                if (counts != null) {
+                    if (totals[chunk] == null) {
+                        totals[chunk] = new long[SUB_BUCKET_COUNT];
+                    }
+                    for (int i = 0; i < SUB_BUCKET_COUNT; i++) {
+                        totals[chunk][i] += counts.get(i);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -33,6 +33,7 @@ import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.stats.cardinality.Utils.alpha;
 import static io.airlift.stats.cardinality.Utils.computeIndex;
 import static io.airlift.stats.cardinality.Utils.computeValue;
+import static io.airlift.stats.cardinality.Utils.correctBias;
 import static io.airlift.stats.cardinality.Utils.linearCounting;
 import static io.airlift.stats.cardinality.Utils.numberOfBuckets;
 
@@ -179,65 +180,11 @@ final class DenseHll
         }
 
         double estimate = (alpha(indexBitLength) * numberOfBuckets * numberOfBuckets) / sum;
-        estimate = correctBias(estimate);
+        estimate = correctBias(estimate, indexBitLength);
 
         return Math.round(estimate);
     }
 
-    private double correctBias(double rawEstimate)
-    {
-        double[] estimates = BiasCorrection.RAW_ESTIMATES[indexBitLength - 4];
-        if (rawEstimate < estimates[0] || rawEstimate > estimates[estimates.length - 1]) {
-            return rawEstimate;
-        }
-
-        double[] biases = BiasCorrection.BIAS[indexBitLength - 4];
-
-        int position = search(rawEstimate, estimates);
-
-        double bias;
-        if (position >= 0) {
-            bias = biases[position];
-        }
-        else {
-            // interpolate
-            int insertionPoint = -(position + 1);
-
-            double x0 = estimates[insertionPoint - 1];
-            double y0 = biases[insertionPoint - 1];
-            double x1 = estimates[insertionPoint];
-            double y1 = biases[insertionPoint];
-
-            bias = ((((rawEstimate - x0) * (y1 - y0)) / (x1 - x0)) + y0);
-        }
-
-        return rawEstimate - bias;
-    }
-
-    private int search(double rawEstimate, double[] estimateCurve)
-    {
-        int low = 0;
-        int high = estimateCurve.length - 1;
-
-        while (low <= high) {
-            int middle = (low + high) >>> 1;
-
-            double middleValue = estimateCurve[middle];
-
-            if (rawEstimate > middleValue) {
-                low = middle + 1;
-            }
-            else if (rawEstimate < middleValue) {
-                high = middle - 1;
-            }
-            else {
-                return middle;
-            }
-        }
-
-        return -(low + 1);
-    }
-
     public void insert(int bucket, int value)
     {
         int delta = value - baseline;
@@ -495,6 +442,14 @@ final class DenseHll
         return this;
     }
 
+    @Override
+    public void eachBucket(BucketListener listener)
+    {
+        for (int i = 0; i < numberOfBuckets(indexBitLength); i++) {
+            listener.visit(i, getValue(i));
+        }
+    }
+
     private int findOverflowEntry(int bucket)
     {
         for (int i = 0; i < overflows; i++) {
@@ -0,0 +1,291 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats.cardinality;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.airlift.slice.DynamicSliceOutput;
+import io.airlift.slice.Murmur3Hash128;
+import io.airlift.slice.SizeOf;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.openjdk.jol.info.ClassLayout;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static io.airlift.stats.cardinality.Utils.alpha;
+import static io.airlift.stats.cardinality.Utils.computeIndex;
+import static io.airlift.stats.cardinality.Utils.computeValue;
+import static io.airlift.stats.cardinality.Utils.correctBias;
+import static io.airlift.stats.cardinality.Utils.indexBitLength;
+import static io.airlift.stats.cardinality.Utils.isPowerOf2;
+import static io.airlift.stats.cardinality.Utils.linearCounting;
+
+/**
+ * A dense HyperLogLog that stores each register in its own byte of a {@link Slice},
+ * which may be backed by off-heap memory. Merging is a byte-wise max over the
+ * registers, and the serialized form is the same as the one of {@link HyperLogLog}.
+ * This is intended for merging many instances into one; {@link HyperLogLog} is
+ * more compact for small cardinalities.
+ */
+@NotThreadSafe
+public final class DenseHyperLogLog
+{
+    private static final int INSTANCE_SIZE = ClassLayout.parseClass(DenseHyperLogLog.class).instanceSize();
+    private static final int MAX_NUMBER_OF_BUCKETS = 65536;
+    private static final double LINEAR_COUNTING_MIN_EMPTY_BUCKETS = 0.4;
+
+    // same layout as DenseHll
+    private static final int MAX_DELTA = 15;
+
+    // a register never exceeds 64, so the high bit of each byte is free for the comparison in mergeWith
+    private static final int MAX_VALUE = Long.SIZE;
+    private static final long HIGH_BITS = 0x8080_8080_8080_8080L;
+
+    // 1 / 2^value, computed the same way as DenseHll to produce identical estimates
+    private static final double[] INVERSE_POWERS_OF_TWO = new double[MAX_VALUE + 1];
+
+    static {
+        for (int value = 0; value <= MAX_VALUE; value++) {
+            INVERSE_POWERS_OF_TWO[value] = 1.0 / (1L << value);
+        }
+    }
+
+    private final int indexBitLength;
+    private final Slice registers;
+
+    private DenseHyperLogLog(Slice registers)
+    {
+        this.indexBitLength = indexBitLength(registers.length());
+        this.registers = registers;
+    }
+
+    public static DenseHyperLogLog newInstance(int numberOfBuckets)
+    {
+        checkNumberOfBuckets(numberOfBuckets);
+        return new DenseHyperLogLog(Slices.allocate(numberOfBuckets));
+    }
+
+    /**
+     * Creates an instance whose registers are stored in the provided slice, such as
+     * one from {@link Slices#allocateDirect(int)}. The registers keep their current
+     * contents, so a new slice must be zeroed.
+     */
+    public static DenseHyperLogLog wrap(Slice registers)
+    {
+        checkNumberOfBuckets(registers.length());
+        for (int i = 0; i < registers.length(); i++) {
+            checkArgument(registers.getUnsignedByte(i) <= MAX_VALUE, "Register %s is out of range", i);
+        }
+        return new DenseHyperLogLog(registers);
+    }
+
+    public static DenseHyperLogLog newInstance(Slice serialized)
+    {
+        HyperLogLog hll = HyperLogLog.newInstance(serialized);
+        DenseHyperLogLog result = newInstance(hll.getNumberOfBuckets());
+        hll.eachBucket(result::insert);
+        return result;
+    }
+
+    public void add(long value)
+    {
+        addHash(Murmur3Hash128.hash64(value));
+    }
+
+    public void add(Slice value)
+    {
+        addHash(Murmur3Hash128.hash64(value));
+    }
+
+    /**
+     * Adds a value that has already been hashed, in the same way as {@link HyperLogLog#addHash(long)}.
+     */
+    public void addHash(long hash)
+    {
+        insert(computeIndex(hash, indexBitLength), computeValue(hash, indexBitLength));
+    }
+
+    public void mergeWith(HyperLogLog other)
+    {
+        checkSameNumberOfBuckets(other.getNumberOfBuckets());
+        other.eachBucket(this::insert);
+    }
+
+    public void mergeWith(DenseHyperLogLog other)
+    {
+        checkSameNumberOfBuckets(other.getNumberOfBuckets());
+
+        Slice otherRegisters = other.registers;
+        int length = registers.length();
+        int i = 0;
+        for (; i + SizeOf.SIZE_OF_LONG <= length; i += SizeOf.SIZE_OF_LONG) {
+            long left = registers.getLong(i);
+            long right = otherRegisters.getLong(i);
+
+            // the high bit of each byte is set where left >= right: the subtraction
+            // cannot borrow across bytes, since the left byte is at least 0x80 and
+            // the right byte at most 0x7F
+            long greaterOrEqual = ((left | HIGH_BITS) - right) & HIGH_BITS;
+            long mask = (greaterOrEqual >>> 7) * 0xFF;
+            registers.setLong(i, right ^ ((left ^ right) & mask));
+        }
+        for (; i < length; i++) {
+            byte right = otherRegisters.getByte(i);
+            if (right > registers.getByte(i)) {
+                registers.setByte(i, right);
+            }
+        }
+    }
+
+    public long cardinality()
+    {
+        int numberOfBuckets = registers.length();
+
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < numberOfBuckets; i++) {
+            int value = registers.getByte(i);
+            sum += INVERSE_POWERS_OF_TWO[value];
+            if (value == 0) {
+                zeros++;
+            }
+        }
+
+        if (zeros > LINEAR_COUNTING_MIN_EMPTY_BUCKETS * numberOfBuckets) {
+            return Math.round(linearCounting(zeros, numberOfBuckets));
+        }
+
+        double estimate = (alpha(indexBitLength) * numberOfBuckets * numberOfBuckets) / sum;
+        estimate = correctBias(estimate, indexBitLength);
+
+        return Math.round(estimate);
+    }
+
+    public int getNumberOfBuckets()
+    {
+        return registers.length();
+    }
+
+    public int estimatedInMemorySize()
+    {
+        return (int) (INSTANCE_SIZE + registers.getRetainedSize());
+    }
+
+    public int estimatedSerializedSize()
+    {
+        return serializedSize(countOverflows(baseline()));
+    }
+
+    /**
+     * Serializes the registers in the dense format of {@link HyperLogLog#serialize()}.
+     */
+    public Slice serialize()
+    {
+        int numberOfBuckets = registers.length();
+        int baseline = baseline();
+        int overflows = countOverflows(baseline);
+
+        DynamicSliceOutput output = new DynamicSliceOutput(serializedSize(overflows))
+                .appendByte(Format.DENSE_V2.getTag())
+                .appendByte(indexBitLength)
+                .appendByte(baseline);
+
+        // two 4-bit deltas per byte, the first bucket in the high bits
+        for (int i = 0; i < numberOfBuckets; i += 2) {
+            int high = Math.min(registers.getByte(i) - baseline, MAX_DELTA);
+            int low = Math.min(registers.getByte(i + 1) - baseline, MAX_DELTA);
+            output.appendByte((high << 4) | low);
+        }
+
+        // overflows are sorted by bucket, as in DenseHll
+        output.appendShort(overflows);
+        for (int i = 0; i < numberOfBuckets; i++) {
+            if (registers.getByte(i) - baseline > MAX_DELTA) {
+                output.appendShort(i);
+            }
+        }
+        for (int i = 0; i < numberOfBuckets; i++) {
+            int delta = registers.getByte(i) - baseline;
+            if (delta > MAX_DELTA) {
+                output.appendByte(delta - MAX_DELTA);
+            }
+        }
+
+        return output.slice();
+    }
+
+    public HyperLogLog toHyperLogLog()
+    {
+        return HyperLogLog.newInstance(serialize());
+    }
+
+    @VisibleForTesting
+    int getValue(int bucket)
+    {
+        return registers.getByte(bucket);
+    }
+
+    private void insert(int bucket, int value)
+    {
+        if (value > registers.getByte(bucket)) {
+            registers.setByte(bucket, value);
+        }
+    }
+
+    private int baseline()
+    {
+        int baseline = MAX_VALUE;
+        for (int i = 0; i < registers.length() && baseline > 0; i++) {
+            baseline = Math.min(baseline, registers.getByte(i));
+        }
+        return baseline;
+    }
+
+    private int countOverflows(int baseline)
+    {
+        int overflows = 0;
+        for (int i = 0; i < registers.length(); i++) {
+            if (registers.getByte(i) - baseline > MAX_DELTA) {
+                overflows++;
+            }
+        }
+        return overflows;
+    }
+
+    private int serializedSize(int overflows)
+    {
+        return SizeOf.SIZE_OF_BYTE + // type + version
+                SizeOf.SIZE_OF_BYTE + // p
+                SizeOf.SIZE_OF_BYTE + // baseline
+                (registers.length() * SizeOf.SIZE_OF_BYTE) / 2 + // buckets
+                SizeOf.SIZE_OF_SHORT + // overflow bucket count
+                SizeOf.SIZE_OF_SHORT * overflows + // overflow bucket indexes
+                SizeOf.SIZE_OF_BYTE * overflows; // overflow bucket values
+    }
+
+    private void checkSameNumberOfBuckets(int numberOfBuckets)
+    {
+        checkArgument(numberOfBuckets == registers.length(),
+                "Cannot merge HLLs with different number of buckets: %s vs %s",
+                registers.length(),
+                numberOfBuckets);
+    }
+
+    private static void checkNumberOfBuckets(int numberOfBuckets)
+    {
+        checkArgument(numberOfBuckets >= 2 && isPowerOf2(numberOfBuckets), "numberOfBuckets must be a power of 2 and >= 2, actual: %s", numberOfBuckets);
+        checkArgument(numberOfBuckets <= MAX_NUMBER_OF_BUCKETS, "numberOfBuckets must be <= %s, actual: %s", MAX_NUMBER_OF_BUCKETS, numberOfBuckets);
+    }
+}
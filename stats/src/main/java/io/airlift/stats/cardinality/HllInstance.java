@@ -32,6 +32,8 @@ interface HllInstance
 
     DenseHll toDense();
 
+    void eachBucket(BucketListener listener);
+
     @VisibleForTesting
     void verify();
 }
@@ -19,7 +19,9 @@ import io.airlift.slice.Slice;
 import org.openjdk.jol.info.ClassLayout;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 import static io.airlift.stats.cardinality.Utils.indexBitLength;
+import static io.airlift.stats.cardinality.Utils.numberOfBuckets;
 
 public class HyperLogLog
 {
@@ -78,6 +80,27 @@ public class HyperLogLog
         }
     }
 
+    /**
+     * Adds a batch of values that have already been hashed, as in {@link #addHash(long)}.
+     * This is faster than adding the hashes one at a time while the instance is sparse.
+     */
+    public void addHashes(long[] hashes, int offset, int length)
+    {
+        checkPositionIndexes(offset, offset + length, hashes.length);
+
+        if (instance instanceof SparseHll) {
+            SparseHll sparse = (SparseHll) instance;
+            if (sparse.insertHashes(hashes, offset, length, DenseHll.estimatedInMemorySize(sparse.getIndexBitLength()))) {
+                return;
+            }
+            instance = sparse.toDense();
+        }
+
+        for (int i = offset; i < offset + length; i++) {
+            instance.insertHash(hashes[i]);
+        }
+    }
+
     public void mergeWith(HyperLogLog other)
     {
         if (instance instanceof SparseHll && other.instance instanceof SparseHll) {
@@ -120,6 +143,16 @@ public class HyperLogLog
         instance = instance.toDense();
     }
 
+    int getNumberOfBuckets()
+    {
+        return numberOfBuckets(instance.getIndexBitLength());
+    }
+
+    void eachBucket(BucketListener listener)
+    {
+        instance.eachBucket(listener);
+    }
+
     @VisibleForTesting
     void verify()
     {
@@ -29,6 +29,7 @@ import java.util.Arrays;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static io.airlift.slice.SizeOf.sizeOf;
+import static io.airlift.slice.SizeOf.sizeOfIntArray;
 import static io.airlift.stats.cardinality.Utils.computeIndex;
 import static io.airlift.stats.cardinality.Utils.linearCounting;
 import static io.airlift.stats.cardinality.Utils.numberOfBuckets;
@@ -86,8 +87,6 @@ final class SparseHll
 
     public void insertHash(long hash)
     {
-        // TODO: investigate whether accumulate, sort and merge results in better performance due to avoiding the shift+insert in every call
-
         int bucket = Utils.computeIndex(hash, EXTENDED_PREFIX_BITS);
         int position = searchBucket(bucket);
 
@@ -144,8 +143,53 @@ final class SparseHll
 
     public void mergeWith(SparseHll other)
     {
-        entries = mergeEntries(other);
-        numberOfEntries = (short) entries.length;
+        int[] result = new int[numberOfEntries + other.numberOfEntries];
+        int count = mergeEntries(entries, numberOfEntries, other.entries, other.numberOfEntries, result);
+        entries = Arrays.copyOf(result, count);
+        numberOfEntries = (short) count;
+    }
+
+    /**
+     * Inserts a batch of hashes by sorting them and merging them with the
+     * existing entries in a single pass.
+     *
+     * @return false, without inserting any hash, if the instance would become
+     * larger than maxInMemorySize
+     */
+    public boolean insertHashes(long[] hashes, int offset, int length, int maxInMemorySize)
+    {
+        // compare the entries as unsigned, which orders them by bucket and then by value
+        int[] batch = new int[length];
+        for (int i = 0; i < length; i++) {
+            batch[i] = encode(hashes[offset + i]) ^ Integer.MIN_VALUE;
+        }
+        Arrays.sort(batch);
+
+        // keep the last, and thus largest, value of each bucket
+        int batchEntries = 0;
+        for (int i = 0; i < length; i++) {
+            int entry = batch[i] ^ Integer.MIN_VALUE;
+            if (batchEntries > 0 && decodeBucketIndex(batch[batchEntries - 1]) == decodeBucketIndex(entry)) {
+                batch[batchEntries - 1] = entry;
+            }
+            else {
+                batch[batchEntries++] = entry;
+            }
+        }
+
+        if (estimatedInMemorySize(Math.max(numberOfEntries, batchEntries)) > maxInMemorySize) {
+            return false;
+        }
+
+        int[] result = new int[numberOfEntries + batchEntries];
+        int count = mergeEntries(entries, numberOfEntries, batch, batchEntries, result);
+        if (estimatedInMemorySize(count) > maxInMemorySize) {
+            return false;
+        }
+
+        entries = count < result.length ? Arrays.copyOf(result, count) : result;
+        numberOfEntries = (short) count;
+        return true;
     }
 
     public DenseHll toDense()
@@ -155,6 +199,7 @@ final class SparseHll
         return result;
     }
 
+    @Override
     public void eachBucket(BucketListener listener)
     {
         for (int i = 0; i < numberOfEntries; i++) {
@@ -197,6 +242,11 @@ final class SparseHll
         return SPARSE_INSTANCE_SIZE + toIntExact(sizeOf(entries));
     }
 
+    private static int estimatedInMemorySize(int numberOfEntries)
+    {
+        return SPARSE_INSTANCE_SIZE + toIntExact(sizeOfIntArray(numberOfEntries));
+    }
+
     @Override
     public int getIndexBitLength()
     {
@@ -230,40 +280,44 @@ final class SparseHll
         return -(low + 1); // not found... return insertion point
     }
 
-    private int[] mergeEntries(SparseHll other)
+    /**
+     * Merges two sorted entry arrays into the result, keeping the largest value of each bucket.
+     *
+     * @return the number of entries in the result
+     */
+    private static int mergeEntries(int[] left, int leftCount, int[] right, int rightCount, int[] result)
     {
-        int[] result = new int[numberOfEntries + other.numberOfEntries];
         int leftIndex = 0;
         int rightIndex = 0;
 
         int index = 0;
-        while (leftIndex < numberOfEntries && rightIndex < other.numberOfEntries) {
-            int left = decodeBucketIndex(entries[leftIndex]);
-            int right = decodeBucketIndex(other.entries[rightIndex]);
+        while (leftIndex < leftCount && rightIndex < rightCount) {
+            int leftBucket = decodeBucketIndex(left[leftIndex]);
+            int rightBucket = decodeBucketIndex(right[rightIndex]);
 
-            if (left < right) {
-                result[index++] = entries[leftIndex++];
+            if (leftBucket < rightBucket) {
+                result[index++] = left[leftIndex++];
             }
-            else if (left > right) {
-                result[index++] = other.entries[rightIndex++];
+            else if (leftBucket > rightBucket) {
+                result[index++] = right[rightIndex++];
             }
             else {
-                int value = Math.max(decodeBucketValue(entries[leftIndex]), decodeBucketValue(other.entries[rightIndex]));
-                result[index++] = encode(left, value);
+                int value = Math.max(decodeBucketValue(left[leftIndex]), decodeBucketValue(right[rightIndex]));
+                result[index++] = encode(leftBucket, value);
                 leftIndex++;
                 rightIndex++;
             }
         }
 
-        while (leftIndex < numberOfEntries) {
-            result[index++] = entries[leftIndex++];
+        while (leftIndex < leftCount) {
+            result[index++] = left[leftIndex++];
         }
 
-        while (rightIndex < other.numberOfEntries) {
-            result[index++] = other.entries[rightIndex++];
+        while (rightIndex < rightCount) {
+            result[index++] = right[rightIndex++];
         }
 
-        return Arrays.copyOf(result, index);
+        return index;
     }
 
     public Slice serialize()
@@ -73,4 +73,58 @@ final class Utils
     {
         return totalBuckets * Math.log(totalBuckets * 1.0 / zeroBuckets);
     }
+
+    public static double correctBias(double rawEstimate, int indexBitLength)
+    {
+        double[] estimates = BiasCorrection.RAW_ESTIMATES[indexBitLength - 4];
+        if (rawEstimate < estimates[0] || rawEstimate > estimates[estimates.length - 1]) {
+            return rawEstimate;
+        }
+
+        double[] biases = BiasCorrection.BIAS[indexBitLength - 4];
+
+        int position = search(rawEstimate, estimates);
+
+        double bias;
+        if (position >= 0) {
+            bias = biases[position];
+        }
+        else {
+            // interpolate
+            int insertionPoint = -(position + 1);
+
+            double x0 = estimates[insertionPoint - 1];
+            double y0 = biases[insertionPoint - 1];
+            double x1 = estimates[insertionPoint];
+            double y1 = biases[insertionPoint];
+
+            bias = ((((rawEstimate - x0) * (y1 - y0)) / (x1 - x0)) + y0);
+        }
+
+        return rawEstimate - bias;
+    }
+
+    private static int search(double rawEstimate, double[] estimateCurve)
+    {
+        int low = 0;
+        int high = estimateCurve.length - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+
+            double middleValue = estimateCurve[middle];
+
+            if (rawEstimate > middleValue) {
+                low = middle + 1;
+            }
+            else if (rawEstimate < middleValue) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+
+        return -(low + 1);
+    }
 }
@@ -0,0 +1,56 @@
+package io.airlift.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.TimeUnit;
+
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkCounterStat
+{
+    @State(Scope.Benchmark)
+    public static class Data
+    {
+        private final CounterStat counterStat = new CounterStat();
+    }
+
+    @Benchmark
+    public void benchmarkUpdate(Data data)
+    {
+        data.counterStat.update(1);
+    }
+
+    @Benchmark
+    public double benchmarkUpdateAndRead(Data data)
+    {
+        data.counterStat.update(1);
+        return data.counterStat.getOneMinute().getCount();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        for (int threads : new int[] {1, 2, 4, 8, 16, 32, 64}) {
+            Options options = new OptionsBuilder()
+                    .verbosity(VerboseMode.NORMAL)
+                    .include(".*" + BenchmarkCounterStat.class.getSimpleName() + ".*")
+                    .threads(threads)
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
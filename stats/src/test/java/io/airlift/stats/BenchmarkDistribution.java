@@ -0,0 +1,76 @@
+package io.airlift.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkDistribution
+{
+    @State(Scope.Benchmark)
+    public static class Data
+    {
+        @Param({"1", "16"})
+        private int stripes;
+
+        private Distribution distribution;
+        private TimeDistribution timeDistribution;
+
+        @Setup
+        public void setup()
+        {
+            distribution = new Distribution(ExponentialDecay.oneMinute(), stripes);
+            timeDistribution = new TimeDistribution(ExponentialDecay.oneMinute(), TimeUnit.MILLISECONDS, stripes);
+        }
+    }
+
+    @Benchmark
+    public void benchmarkDistributionAdd(Data data)
+    {
+        data.distribution.add(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    public void benchmarkTimeDistributionAdd(Data data)
+    {
+        data.timeDistribution.add(ThreadLocalRandom.current().nextLong(1_000_000));
+    }
+
+    @Benchmark
+    public Distribution.DistributionSnapshot benchmarkSnapshot(Data data)
+    {
+        data.distribution.add(ThreadLocalRandom.current().nextLong(1_000_000));
+        return data.distribution.snapshot();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        for (int threads : new int[] {1, 2, 4, 8, 16, 32, 64}) {
+            Options options = new OptionsBuilder()
+                    .verbosity(VerboseMode.NORMAL)
+                    .include(".*" + BenchmarkDistribution.class.getSimpleName() + ".benchmark.*Add")
+                    .threads(threads)
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
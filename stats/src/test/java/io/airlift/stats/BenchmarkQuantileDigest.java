@@ -94,6 +94,15 @@ public class BenchmarkQuantileDigest
         return digest;
     }
 
+    @Benchmark
+    @OperationsPerInvocation(NUMBER_OF_ENTRIES)
+    public QuantileDigest benchmarkBatchInserts(Data data)
+    {
+        QuantileDigest digest = new QuantileDigest(0.01);
+        digest.add(data.values1, 0, data.values1.length);
+        return digest;
+    }
+
     @Benchmark
     public QuantileDigest benchmarkCopy(Digest data)
     {
@@ -114,6 +123,18 @@ public class BenchmarkQuantileDigest
         return new QuantileDigest(data.serializedDigest);
     }
 
+    @Benchmark
+    public long benchmarkDeserializeAndQuery(Digest data)
+    {
+        return new QuantileDigest(data.serializedDigest).getQuantile(0.99);
+    }
+
+    @Benchmark
+    public long benchmarkViewQuery(Digest data)
+    {
+        return new QuantileDigestView(data.serializedDigest).getQuantile(0.99);
+    }
+
     @Benchmark
     public Slice benchmarkSerialize(Digest data)
     {
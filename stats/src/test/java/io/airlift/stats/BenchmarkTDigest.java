@@ -112,6 +112,18 @@ public class BenchmarkTDigest
         return TDigest.deserialize(data.serializedDigest);
     }
 
+    @Benchmark
+    public double benchmarkDeserializeAndQuery(Digest data)
+    {
+        return TDigest.deserialize(data.serializedDigest).valueAt(0.99);
+    }
+
+    @Benchmark
+    public double benchmarkViewQuery(Digest data)
+    {
+        return new TDigestView(data.serializedDigest).valueAt(0.99);
+    }
+
     @Benchmark
     public Slice benchmarkSerialize(Digest data)
     {
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkTDigestMerge
+{
+    private static final int NUMBER_OF_ENTRIES = 10_000;
+
+    @State(Scope.Thread)
+    public static class Data
+    {
+        @Param({"10", "100", "1000"})
+        private int numberOfDigests;
+
+        private List<TDigest> digests;
+        private ForkJoinPool pool;
+
+        @Setup
+        public void setup()
+        {
+            digests = new ArrayList<>();
+            for (int i = 0; i < numberOfDigests; i++) {
+                TDigest digest = new TDigest();
+                for (int j = 0; j < NUMBER_OF_ENTRIES; j++) {
+                    digest.add(ThreadLocalRandom.current().nextGaussian() * 1_000_000);
+                }
+                // compact the digests, as they would be after deserialization
+                digests.add(TDigest.deserialize(digest.serialize()));
+            }
+            pool = new ForkJoinPool();
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public TDigest benchmarkMergeOneAtATime(Data data)
+    {
+        TDigest merged = new TDigest();
+        for (TDigest digest : data.digests) {
+            merged.mergeWith(digest);
+        }
+        merged.valueAt(0.5);
+        return merged;
+    }
+
+    @Benchmark
+    public TDigest benchmarkMergeCollection(Data data)
+    {
+        TDigest merged = TDigest.merge(data.digests);
+        merged.valueAt(0.5);
+        return merged;
+    }
+
+    @Benchmark
+    public TDigest benchmarkMergeCollectionParallel(Data data)
+    {
+        TDigest merged = TDigest.merge(data.digests, data.pool);
+        merged.valueAt(0.5);
+        return merged;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*\\." + BenchmarkTDigestMerge.class.getSimpleName() + "\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+public class BenchmarkTimeStat
+{
+    @State(Scope.Benchmark)
+    public static class Data
+    {
+        private TimeStat timeStat;
+        private WindowedTimeStat windowedTimeStat;
+
+        @Setup
+        public void setup()
+        {
+            timeStat = new TimeStat(TimeUnit.MILLISECONDS);
+            windowedTimeStat = new WindowedTimeStat(TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Benchmark
+    public void benchmarkTimeStatAdd(Data data)
+    {
+        data.timeStat.add(ThreadLocalRandom.current().nextLong(1_000_000_000), NANOSECONDS);
+    }
+
+    @Benchmark
+    public void benchmarkWindowedTimeStatAdd(Data data)
+    {
+        data.windowedTimeStat.add(ThreadLocalRandom.current().nextLong(1_000_000_000), NANOSECONDS);
+    }
+
+    @Benchmark
+    public TimeStat.TimeDistributionStatSnapshot benchmarkWindowedTimeStatSnapshot(Data data)
+    {
+        data.windowedTimeStat.add(ThreadLocalRandom.current().nextLong(1_000_000_000), NANOSECONDS);
+        return data.windowedTimeStat.snapshot();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        for (int threads : new int[] {1, 4, 16}) {
+            Options options = new OptionsBuilder()
+                    .verbosity(VerboseMode.NORMAL)
+                    .include(".*" + BenchmarkTimeStat.class.getSimpleName() + ".benchmark.*Add")
+                    .threads(threads)
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
@@ -3,6 +3,8 @@ package io.airlift.stats;
 import io.airlift.testing.TestingTicker;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.assertEquals;
@@ -36,6 +38,25 @@ public class TestDecayCounter
         assertTrue(Math.abs(counter.getCount() - expected) < 1e-9);
     }
 
+    @Test
+    public void testRescaleKeepsOneGeneration()
+    {
+        TestingTicker ticker = new TestingTicker();
+
+        DecayCounter counter = new DecayCounter(ExponentialDecay.oneMinute(), ticker);
+        for (int i = 0; i < 1000; i++) {
+            counter.add(1);
+            ticker.increment(DecayCounter.RESCALE_THRESHOLD_SECONDS, TimeUnit.SECONDS);
+        }
+        counter.add(1);
+        assertEquals(counter.getStateDepth(), 1);
+
+        // the rescaled count is the same as without rescaling
+        double decay = Math.exp(-ExponentialDecay.oneMinute() * DecayCounter.RESCALE_THRESHOLD_SECONDS);
+        double expected = 1 / (1 - decay);
+        assertTrue(Math.abs(counter.getCount() - expected) < 1e-6);
+    }
+
     @Test
     public void testDuplicate()
     {
@@ -49,4 +70,56 @@ public class TestDecayCounter
         assertEquals(copy.getCount(), counter.getCount());
         assertEquals(copy.getAlpha(), counter.getAlpha());
     }
+
+    @Test
+    public void testMerge()
+    {
+        TestingTicker ticker = new TestingTicker();
+
+        DecayCounter counter = new DecayCounter(ExponentialDecay.oneMinute(), ticker);
+        counter.add(1);
+        ticker.increment(1, TimeUnit.MINUTES);
+
+        DecayCounter other = new DecayCounter(ExponentialDecay.oneMinute(), ticker);
+        other.add(2);
+
+        counter.merge(other);
+        double expected = 2 + 1 / Math.E;
+        assertTrue(Math.abs(counter.getCount() - expected) < 1e-9);
+
+        // merging into a counter with a newer landmark
+        other.merge(new DecayCounter(ExponentialDecay.oneMinute(), ticker));
+        assertTrue(Math.abs(other.getCount() - 2) < 1e-9);
+    }
+
+    @Test
+    public void testConcurrentAdd()
+            throws Exception
+    {
+        TestingTicker ticker = new TestingTicker();
+        DecayCounter counter = new DecayCounter(ExponentialDecay.oneMinute(), ticker);
+
+        int threadCount = 8;
+        int valuesPerThread = 10_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < valuesPerThread; j++) {
+                    counter.add(1);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(counter.getCount(), (double) threadCount * valuesPerThread, 1e-6);
+
+        // the decay is applied when the value is read
+        ticker.increment(1, TimeUnit.MINUTES);
+        assertEquals(counter.getCount(), threadCount * valuesPerThread / Math.E, 1e-6);
+    }
 }
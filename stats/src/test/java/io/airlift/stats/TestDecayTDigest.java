@@ -26,4 +26,32 @@ public class TestDecayTDigest
         assertEquals(digest.getMin(), 1.0);
         assertEquals(digest.getMax(), 5.0);
     }
+
+    @Test
+    public void testMergeWithDifferentLandmarks()
+    {
+        TestingTicker ticker = new TestingTicker();
+        DecayTDigest first = new DecayTDigest(100, 0.001, ticker);
+        first.add(1);
+
+        ticker.increment(60, TimeUnit.SECONDS);
+        DecayTDigest second = new DecayTDigest(100, 0.001, ticker);
+        second.add(5);
+
+        double expectedCount = first.getCount() + second.getCount();
+
+        // merge into the digest with the older landmark
+        DecayTDigest merged = first.duplicate();
+        merged.merge(second);
+        assertEquals(merged.getCount(), expectedCount, 1e-9);
+        assertEquals(merged.getMin(), 1.0);
+        assertEquals(merged.getMax(), 5.0);
+
+        // merge into the digest with the newer landmark
+        merged = second.duplicate();
+        merged.merge(first);
+        assertEquals(merged.getCount(), expectedCount, 1e-9);
+        assertEquals(merged.getMin(), 1.0);
+        assertEquals(merged.getMax(), 5.0);
+    }
 }
@@ -18,4 +18,27 @@ public class TestDistribution
         assertEquals(copy.getCount(), distribution.getCount());
         assertEquals(copy.getTotal(), distribution.getTotal());
     }
+
+    @Test
+    public void testStriped()
+    {
+        Distribution single = new Distribution(0);
+        Distribution striped = new Distribution(0, 4);
+
+        for (int i = 0; i < 1000; i++) {
+            single.add(i);
+            striped.add(i, 2);
+        }
+
+        assertEquals(striped.getCount(), 2 * single.getCount());
+        assertEquals(striped.getTotal(), 2 * single.getTotal());
+        assertEquals(striped.getMin(), single.getMin());
+        assertEquals(striped.getMax(), single.getMax());
+        assertEquals(striped.getP50(), single.getP50(), 10);
+        assertEquals(striped.getP99(), single.getP99(), 10);
+
+        Distribution copy = striped.duplicate();
+        assertEquals(copy.getCount(), striped.getCount());
+        assertEquals(copy.getTotal(), striped.getTotal());
+    }
 }
@@ -20,6 +20,7 @@ public class TestJmxGcMonitor
             gcMonitor.start();
             assertGreaterThanOrEqual(gcMonitor.getMajorGcCount(), (long) 0);
             assertGreaterThanOrEqual(gcMonitor.getMajorGcTime(), new Duration(0, NANOSECONDS));
+            assertGreaterThanOrEqual(gcMonitor.getTotalGcTime(), gcMonitor.getMajorGcTime());
         }
         finally {
             gcMonitor.stop();
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import io.airlift.units.Duration;
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestPauseMeter
+{
+    @Test
+    public void testGcPauses()
+            throws Exception
+    {
+        TestingGcMonitor gcMonitor = new TestingGcMonitor();
+        // collections before the meter starts are not counted
+        gcMonitor.recordMajorGc(new Duration(1, HOURS));
+
+        PauseMeter pauseMeter = new PauseMeter(new Duration(1, MILLISECONDS), gcMonitor);
+        pauseMeter.start();
+        try {
+            while (pauseMeter.getLessThan10msPauses() < 10) {
+                MILLISECONDS.sleep(10);
+            }
+
+            assertTrue(pauseMeter.getTotalPauseSeconds() >= 0);
+            assertEquals(pauseMeter.getGcPauseSeconds(), 0.0);
+            assertTrue(pauseMeter.getNonGcPauseSeconds() >= 0);
+            assertTrue(pauseMeter.getCounts().values().stream().mapToLong(Long::longValue).sum() >= 10);
+
+            // the GC time explains all of the pauses
+            gcMonitor.recordMinorGc(new Duration(1, HOURS));
+            assertEquals(pauseMeter.getNonGcPauseSeconds(), 0.0);
+        }
+        finally {
+            pauseMeter.stop();
+        }
+    }
+
+    @Test
+    public void testWithoutGcMonitor()
+    {
+        PauseMeter pauseMeter = new PauseMeter();
+        assertEquals(pauseMeter.getTotalPauseSeconds(), 0.0);
+        assertEquals(pauseMeter.getLessThan10msPauses(), 0);
+        assertEquals(pauseMeter.getGcPauseSeconds(), Double.NaN);
+        assertEquals(pauseMeter.getNonGcPauseSeconds(), Double.NaN);
+    }
+}
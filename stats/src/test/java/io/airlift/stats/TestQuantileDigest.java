@@ -376,6 +376,74 @@ public class TestQuantileDigest
         }
     }
 
+    @Test
+    public void testBatchAdd()
+    {
+        long[] values = new long[10_002];
+        for (int i = 1; i < values.length - 1; i++) {
+            values[i] = ThreadLocalRandom.current().nextLong(-1000, 1000);
+        }
+        values[0] = Long.MAX_VALUE;
+        values[values.length - 1] = Long.MAX_VALUE;
+
+        // without compression, both digests hold the exact values
+        QuantileDigest expected = new QuantileDigest(0);
+        QuantileDigest digest = new QuantileDigest(0);
+        for (int i = 1; i < values.length - 1; i++) {
+            expected.add(values[i]);
+        }
+        digest.add(values, 1, 5000);
+        digest.add(values, 5001, values.length - 5002);
+        digest.validate();
+
+        assertTrue(digest.equivalent(expected));
+        List<Double> quantiles = ImmutableList.of(0.0, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1.0);
+        assertEquals(digest.getQuantiles(quantiles), expected.getQuantiles(quantiles));
+        assertEquals(digest.getQuantilesLowerBound(quantiles), expected.getQuantilesLowerBound(quantiles));
+    }
+
+    @Test
+    public void testBatchAddQueryError()
+    {
+        double maxError = 0.1;
+
+        QuantileDigest digest = new QuantileDigest(maxError);
+
+        int count = 10000;
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = count - i - 1;
+        }
+        for (int offset = 0; offset < count; offset += 1000) {
+            digest.add(values, offset, 1000);
+        }
+        digest.validate();
+
+        assertTrue(digest.getConfidenceFactor() > 0);
+        assertTrue(digest.getConfidenceFactor() < maxError);
+
+        for (int value = 0; value < count; ++value) {
+            double quantile = value * 1.0 / count;
+            double error = Math.abs(digest.getQuantile(quantile) - quantile * count) * 1.0 / count;
+            assertTrue(error < maxError);
+        }
+    }
+
+    @Test
+    public void testBatchAddDecayed()
+    {
+        TestingTicker ticker = new TestingTicker();
+        QuantileDigest digest = new QuantileDigest(0, ExponentialDecay.computeAlpha(0.5, 60), ticker);
+
+        digest.add(new long[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, 0, 10);
+        ticker.increment(60, TimeUnit.SECONDS);
+        digest.add(new long[] {10, 11, 12, 13, 14, 15, 16, 17, 18, 19}, 0, 10);
+        digest.validate();
+
+        // same as testDecayedQuantiles
+        assertEquals(digest.getQuantile(0.5), 12);
+    }
+
     @Test
     public void testDecayedQuantiles()
             throws Exception
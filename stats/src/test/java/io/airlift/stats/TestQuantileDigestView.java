@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+
+public class TestQuantileDigestView
+{
+    private static final List<Double> QUANTILES = ImmutableList.of(0.0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1.0);
+
+    @Test
+    public void testEmpty()
+    {
+        assertSameResults(new QuantileDigest(0.01).serialize());
+    }
+
+    @Test
+    public void testSingleValue()
+    {
+        QuantileDigest digest = new QuantileDigest(0.01);
+        digest.add(-5);
+        assertSameResults(digest.serialize());
+    }
+
+    @Test
+    public void testExtremeValues()
+    {
+        QuantileDigest digest = new QuantileDigest(0.01);
+        digest.add(Long.MIN_VALUE);
+        digest.add(Long.MAX_VALUE);
+        digest.add(0);
+        assertSameResults(digest.serialize());
+    }
+
+    @Test(invocationCount = 20)
+    public void testRandom()
+    {
+        double maxError = ThreadLocalRandom.current().nextDouble(0.001, 0.1);
+        QuantileDigest digest = new QuantileDigest(maxError);
+        int count = ThreadLocalRandom.current().nextInt(1, 100_000);
+        for (int i = 0; i < count; i++) {
+            digest.add(Math.abs((long) (ThreadLocalRandom.current().nextGaussian() * 1_000_000)) - 500_000);
+        }
+        assertSameResults(digest.serialize());
+    }
+
+    @Test
+    public void testDecayed()
+    {
+        QuantileDigest digest = new QuantileDigest(0.01, ExponentialDecay.computeAlpha(0.5, 60));
+        for (int i = 0; i < 10_000; i++) {
+            digest.add(i);
+        }
+        assertSameResults(digest.serialize());
+    }
+
+    @Test
+    public void testToQuantileDigest()
+    {
+        QuantileDigest digest = new QuantileDigest(0.01);
+        for (int i = 0; i < 1000; i++) {
+            digest.add(i);
+        }
+
+        QuantileDigest materialized = new QuantileDigestView(digest.serialize()).toQuantileDigest();
+        materialized.add(1000);
+        assertEquals(materialized.getMax(), 1000);
+        assertEquals(materialized.getCount(), 1001.0);
+    }
+
+    @Test
+    public void testCorrupted()
+    {
+        QuantileDigest digest = new QuantileDigest(0.01);
+        digest.add(1);
+        digest.add(2);
+        Slice serialized = digest.serialize();
+        assertThrows(IllegalArgumentException.class, () -> new QuantileDigestView(serialized.slice(0, serialized.length() - 1)));
+
+        // mark the first leaf as a branch node without children
+        Slice corrupted = Slices.copyOf(serialized);
+        corrupted.setByte(45, corrupted.getByte(45) | 0b11);
+        assertThrows(IllegalArgumentException.class, () -> new QuantileDigestView(corrupted));
+    }
+
+    private static void assertSameResults(Slice serialized)
+    {
+        QuantileDigest expected = new QuantileDigest(serialized);
+        QuantileDigestView view = new QuantileDigestView(serialized);
+
+        assertEquals(view.getMaxError(), expected.getMaxError());
+        assertEquals(view.getAlpha(), expected.getAlpha());
+        assertEquals(view.getCount(), expected.getCount());
+        assertEquals(view.getMin(), expected.getMin());
+        assertEquals(view.getMax(), expected.getMax());
+        assertEquals(view.getQuantiles(QUANTILES), expected.getQuantiles(QUANTILES));
+        assertEquals(view.getQuantilesLowerBound(QUANTILES), expected.getQuantilesLowerBound(QUANTILES));
+        assertEquals(view.getQuantilesUpperBound(QUANTILES), expected.getQuantilesUpperBound(QUANTILES));
+        assertEquals(view.getQuantile(0.5), expected.getQuantile(0.5));
+
+        List<Long> bucketUpperBounds = ImmutableList.of(-100_000L, 0L, 10L, 1000L, 100_000L, 1_000_000L);
+        assertEquals(view.getHistogram(bucketUpperBounds), expected.getHistogram(bucketUpperBounds));
+    }
+}
@@ -13,14 +13,17 @@
  */
 package io.airlift.stats;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadLocalRandom;
 
+import static java.lang.String.format;
 import static java.util.Arrays.asList;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertThrows;
@@ -257,6 +260,88 @@ public class TestTDigest
         assertEquals(merged.valueAt(1), 8.0);
     }
 
+    @Test
+    public void testMergeCollection()
+    {
+        List<TDigest> digests = new ArrayList<>();
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            TDigest digest = new TDigest();
+            for (int j = 0; j < 1000; j++) {
+                double value = ThreadLocalRandom.current().nextGaussian() * 1000 + i;
+                digest.add(value);
+                values.add(value);
+            }
+            digests.add(digest);
+        }
+
+        TDigest expected = new TDigest();
+        for (TDigest digest : digests) {
+            expected.mergeWith(TDigest.copyOf(digest));
+        }
+
+        TDigest merged = TDigest.merge(digests);
+        assertSimilar(merged, expected);
+        assertRankError(merged, values, 0.005);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TDigest parallel = TDigest.merge(digests, pool);
+            assertSimilar(parallel, expected);
+            assertRankError(parallel, values, 0.005);
+        }
+        finally {
+            pool.shutdownNow();
+        }
+
+        // the result can be merged further
+        merged.add(5);
+        merged.mergeWith(TDigest.copyOf(digests.get(0)));
+        assertEquals(merged.getCount(), expected.getCount() + 1001);
+        assertEquals(TDigest.deserialize(merged.serialize()).getCount(), merged.getCount());
+    }
+
+    @Test
+    public void testMergeCollectionSmall()
+    {
+        assertEquals(TDigest.merge(ImmutableList.of()).getCount(), 0.0);
+        assertEquals(TDigest.merge(asList(new TDigest(), new TDigest())).getCount(), 0.0);
+
+        TDigest first = new TDigest();
+        addAll(first, Arrays.asList(1, 2, 3, 4, 5));
+
+        TDigest second = new TDigest();
+        addAll(second, Arrays.asList(4, 5, 6, 7, 8));
+
+        TDigest merged = TDigest.merge(asList(first, new TDigest(), second));
+        assertEquals(merged.getMin(), 1.0);
+        assertEquals(merged.getMax(), 8.0);
+        assertEquals(merged.getCount(), 10.0);
+
+        assertEquals(merged.valueAt(0), 1.0);
+        assertEquals(merged.valueAt(0.5), 5.0);
+        assertEquals(merged.valueAt(1), 8.0);
+
+        // the inputs do not change
+        assertEquals(first.getCount(), 5.0);
+        assertEquals(first.valueAt(0.5), 3.0);
+    }
+
+    private static void assertRankError(TDigest digest, List<Double> values, double maxError)
+    {
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        for (int i = 1; i < 100; i++) {
+            double quantile = i / 100.0;
+            double value = digest.valueAt(quantile);
+            int rank = Arrays.binarySearch(sorted, value);
+            if (rank < 0) {
+                rank = -(rank + 1);
+            }
+            double actual = (double) rank / sorted.length;
+            assertTrue(Math.abs(actual - quantile) <= maxError, format("quantile %s has rank %s", quantile, actual));
+        }
+    }
+
     private void addAll(TDigest digest, List<Integer> values)
     {
         for (int value : values) {
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import com.google.common.collect.ImmutableList;
+import io.airlift.slice.Slice;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class TestTDigestView
+{
+    @Test
+    public void testEmpty()
+    {
+        TDigestView view = new TDigestView(new TDigest().serialize());
+        assertTrue(Double.isNaN(view.valueAt(0.5)));
+        assertTrue(Double.isNaN(view.getMin()));
+        assertTrue(Double.isNaN(view.getMax()));
+        assertEquals(view.getCount(), 0.0);
+    }
+
+    @Test
+    public void testSingleValue()
+    {
+        TDigest digest = new TDigest();
+        digest.add(42);
+        assertSameResults(digest.serialize());
+    }
+
+    @Test
+    public void testSmall()
+    {
+        TDigest digest = new TDigest();
+        for (int i = 0; i < 10; i++) {
+            digest.add(i);
+        }
+        assertSameResults(digest.serialize());
+    }
+
+    @Test(invocationCount = 20)
+    public void testRandom()
+    {
+        TDigest digest = new TDigest(ThreadLocalRandom.current().nextInt(10, 500));
+        int count = ThreadLocalRandom.current().nextInt(1, 100_000);
+        for (int i = 0; i < count; i++) {
+            digest.add(ThreadLocalRandom.current().nextGaussian() * 1000, ThreadLocalRandom.current().nextInt(1, 4));
+        }
+        assertSameResults(digest.serialize());
+    }
+
+    @Test
+    public void testToTDigest()
+    {
+        TDigest digest = new TDigest();
+        for (int i = 0; i < 1000; i++) {
+            digest.add(i);
+        }
+        Slice serialized = digest.serialize();
+
+        TDigest materialized = new TDigestView(serialized).toTDigest();
+        materialized.add(1000);
+        assertEquals(materialized.getMax(), 1000.0);
+        assertEquals(materialized.getCount(), 1001.0);
+    }
+
+    @Test
+    public void testInvalidSize()
+    {
+        Slice serialized = new TDigest().serialize();
+        assertThrows(IllegalArgumentException.class, () -> new TDigestView(serialized.slice(0, serialized.length() - 1)));
+    }
+
+    private static void assertSameResults(Slice serialized)
+    {
+        TDigest expected = TDigest.deserialize(serialized);
+        TDigestView view = new TDigestView(serialized);
+
+        assertEquals(view.getMin(), expected.getMin());
+        assertEquals(view.getMax(), expected.getMax());
+        assertEquals(view.getCount(), expected.getCount());
+        for (double quantile = 0; quantile <= 1; quantile += 0.0005) {
+            assertEquals(view.valueAt(quantile), expected.valueAt(quantile));
+        }
+
+        List<Double> quantiles = ImmutableList.of(0.0, 0.01, 0.5, 0.99, 0.999, 1.0);
+        assertEquals(view.valuesAt(quantiles), expected.valuesAt(quantiles));
+    }
+}
@@ -27,5 +27,12 @@ public class TestTestingGcMonitor
 
         assertEquals(gcMonitor.getMajorGcCount(), 2);
         assertEquals(gcMonitor.getMajorGcTime(), new Duration(10, SECONDS));
+        assertEquals(gcMonitor.getTotalGcTime(), new Duration(10, SECONDS));
+
+        gcMonitor.recordMinorGc(new Duration(1, SECONDS));
+
+        assertEquals(gcMonitor.getMajorGcCount(), 2);
+        assertEquals(gcMonitor.getMajorGcTime(), new Duration(10, SECONDS));
+        assertEquals(gcMonitor.getTotalGcTime(), new Duration(11, SECONDS));
     }
 }
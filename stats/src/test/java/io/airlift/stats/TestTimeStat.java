@@ -70,6 +70,46 @@ public class TestTimeStat
         assertPercentile("tp99", allTime.getP99(), values, 0.99);
     }
 
+    @Test
+    public void testStriped()
+            throws Exception
+    {
+        TimeStat stat = new TimeStat(ticker, TimeUnit.SECONDS, 8);
+
+        // record from multiple threads, so the values are spread over the stripes
+        int threadCount = 8;
+        List<Thread> threads = new ArrayList<>(threadCount);
+        for (int thread = 0; thread < threadCount; thread++) {
+            int offset = thread;
+            threads.add(new Thread(() -> {
+                for (long i = offset; i < VALUES; i += threadCount) {
+                    stat.add(i, TimeUnit.MILLISECONDS);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        TimeDistribution allTime = stat.getAllTime();
+        assertEquals(allTime.getCount(), (double) VALUES);
+        assertTrue(fuzzyEquals(allTime.getMax(), (VALUES - 1) * 0.001, 0.000_000_000_1));
+        assertEquals(allTime.getMin(), 0.0);
+        assertEquals(allTime.getAvg(), (VALUES - 1) / 2.0 * 0.001, 0.001);
+
+        // merging the stripes stays within the accuracy of the digest
+        assertEquals(allTime.getP50(), 0.50 * VALUES * 0.001, 0.01 * VALUES * 0.001);
+        assertEquals(allTime.getP90(), 0.90 * VALUES * 0.001, 0.01 * VALUES * 0.001);
+        assertEquals(allTime.getP99(), 0.99 * VALUES * 0.001, 0.01 * VALUES * 0.001);
+
+        TimeDistribution.TimeDistributionSnapshot snapshot = allTime.snapshot();
+        assertEquals(snapshot.getCount(), (double) VALUES);
+        assertEquals(snapshot.getP50(), allTime.getP50());
+    }
+
     @Test
     public void testEmpty()
     {
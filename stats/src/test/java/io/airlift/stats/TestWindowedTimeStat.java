@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats;
+
+import io.airlift.stats.TimeDistribution.TimeDistributionSnapshot;
+import io.airlift.stats.TimeStat.TimeDistributionStatSnapshot;
+import io.airlift.stats.WindowedTimeStat.BlockTimer;
+import io.airlift.testing.TestingTicker;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static io.airlift.stats.LogLinearHistogram.BUCKET_COUNT;
+import static io.airlift.stats.LogLinearHistogram.MAX_VALUE;
+import static io.airlift.stats.LogLinearHistogram.bucketIndex;
+import static io.airlift.stats.LogLinearHistogram.lowerBound;
+import static io.airlift.stats.LogLinearHistogram.upperBound;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(singleThreaded = true)
+public class TestWindowedTimeStat
+{
+    private static final int VALUES = 1000;
+    private static final double MAX_ERROR = 0.032;
+    private TestingTicker ticker;
+
+    @BeforeMethod
+    public void setup()
+    {
+        ticker = new TestingTicker();
+    }
+
+    @Test
+    public void testBasic()
+    {
+        WindowedTimeStat stat = new WindowedTimeStat(ticker);
+        List<Long> values = new ArrayList<>(VALUES);
+        for (long i = 1; i <= VALUES; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values);
+        for (Long value : values) {
+            stat.add(value, MILLISECONDS);
+        }
+
+        for (WindowedTimeDistribution distribution : distributions(stat)) {
+            assertEquals(distribution.getCount(), (double) VALUES);
+            assertClose(distribution.getMin(), 0.001);
+            assertClose(distribution.getMax(), VALUES * 0.001);
+            assertClose(distribution.getAvg(), (VALUES + 1) / 2.0 * 0.001);
+            assertEquals(distribution.getUnit(), SECONDS);
+
+            assertClose(distribution.getP50(), 0.50 * VALUES * 0.001);
+            assertClose(distribution.getP75(), 0.75 * VALUES * 0.001);
+            assertClose(distribution.getP90(), 0.90 * VALUES * 0.001);
+            assertClose(distribution.getP95(), 0.95 * VALUES * 0.001);
+            assertClose(distribution.getP99(), 0.99 * VALUES * 0.001);
+            assertClose(distribution.valueAt(0.8), 0.80 * VALUES * 0.001);
+            assertClose(distribution.valueAt(0.8, VALUES).getAsDouble(), 0.80 * VALUES * 0.001);
+            assertFalse(distribution.valueAt(0.8, VALUES + 1).isPresent());
+            assertEquals(distribution.getPercentiles().size(), 100);
+        }
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        WindowedTimeDistribution allTime = new WindowedTimeStat(ticker).getAllTime();
+        assertEquals(allTime.getCount(), 0.0);
+        assertEquals(allTime.getMin(), Double.NaN);
+        assertEquals(allTime.getMax(), Double.NaN);
+        assertEquals(allTime.getP50(), Double.NaN);
+        assertEquals(allTime.getP99(), Double.NaN);
+        assertEquals(allTime.getAvg(), Double.NaN);
+    }
+
+    @Test
+    public void testWindows()
+    {
+        WindowedTimeStat stat = new WindowedTimeStat(ticker, MILLISECONDS);
+        stat.add(10, MILLISECONDS);
+        assertCounts(stat, 1, 1, 1, 1);
+
+        ticker.increment(1, MINUTES);
+        stat.add(20, MILLISECONDS);
+        assertCounts(stat, 1, 2, 2, 2);
+        assertClose(stat.getOneMinute().getP50(), 20);
+        assertClose(stat.getFiveMinutes().getMin(), 10);
+
+        ticker.increment(5, MINUTES);
+        assertCounts(stat, 0, 0, 2, 2);
+        assertEquals(stat.getOneMinute().getP50(), Double.NaN);
+
+        // slots are reused once the ring wraps, but the all time values are kept
+        for (int i = 0; i < 60; i++) {
+            ticker.increment(15, SECONDS);
+            stat.add(30, MILLISECONDS);
+        }
+        assertCounts(stat, 4, 20, 60, 62);
+        assertClose(stat.getAllTime().getMin(), 10);
+        assertClose(stat.getAllTime().getMax(), 30);
+        assertClose(stat.getFifteenMinutes().getMin(), 30);
+    }
+
+    @Test
+    public void testSnapshot()
+    {
+        WindowedTimeStat stat = new WindowedTimeStat(ticker, MILLISECONDS);
+        for (long i = 1; i <= VALUES; i++) {
+            stat.add(i, MILLISECONDS);
+        }
+
+        TimeDistributionStatSnapshot snapshot = stat.snapshot();
+        TimeDistributionSnapshot allTime = snapshot.getAllTime();
+        assertEquals(allTime.getCount(), (double) VALUES);
+        assertEquals(allTime.getP50(), stat.getAllTime().getP50());
+        assertEquals(allTime.getP99(), stat.getAllTime().getP99());
+        assertEquals(allTime.getMin(), stat.getAllTime().getMin());
+        assertEquals(allTime.getMax(), stat.getAllTime().getMax());
+        assertEquals(allTime.getAvg(), stat.getAllTime().getAvg());
+        assertEquals(allTime.unit(), MILLISECONDS);
+        assertEquals(snapshot.getOneMinute().getCount(), (double) VALUES);
+    }
+
+    @Test
+    public void testTime()
+            throws Exception
+    {
+        WindowedTimeStat stat = new WindowedTimeStat(ticker, MILLISECONDS);
+        stat.time(() -> {
+            ticker.increment(10, MILLISECONDS);
+            return null;
+        });
+        try (BlockTimer ignored = stat.time()) {
+            ticker.increment(20, MILLISECONDS);
+        }
+
+        assertEquals(stat.getAllTime().getCount(), 2.0);
+        assertClose(stat.getAllTime().getMin(), 10);
+        assertClose(stat.getAllTime().getMax(), 20);
+    }
+
+    @Test
+    public void testBuckets()
+    {
+        assertEquals(bucketIndex(-1), 0);
+        assertEquals(bucketIndex(Long.MAX_VALUE), BUCKET_COUNT - 1);
+        assertEquals(upperBound(BUCKET_COUNT - 1), MAX_VALUE);
+
+        long expectedLowerBound = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            assertEquals(lowerBound(bucket), expectedLowerBound);
+            assertEquals(bucketIndex(lowerBound(bucket)), bucket);
+            assertEquals(bucketIndex(upperBound(bucket)), bucket);
+            assertTrue(upperBound(bucket) - lowerBound(bucket) <= Math.max(0, lowerBound(bucket) / 16));
+            expectedLowerBound = upperBound(bucket) + 1;
+        }
+    }
+
+    private static void assertCounts(WindowedTimeStat stat, int oneMinute, int fiveMinutes, int fifteenMinutes, int allTime)
+    {
+        assertEquals(stat.getOneMinute().getCount(), (double) oneMinute);
+        assertEquals(stat.getFiveMinutes().getCount(), (double) fiveMinutes);
+        assertEquals(stat.getFifteenMinutes().getCount(), (double) fifteenMinutes);
+        assertEquals(stat.getAllTime().getCount(), (double) allTime);
+    }
+
+    private static void assertClose(double actual, double expected)
+    {
+        assertEquals(actual, expected, expected * MAX_ERROR);
+    }
+
+    private static List<WindowedTimeDistribution> distributions(WindowedTimeStat stat)
+    {
+        List<WindowedTimeDistribution> distributions = new ArrayList<>();
+        distributions.add(stat.getOneMinute());
+        distributions.add(stat.getFiveMinutes());
+        distributions.add(stat.getFifteenMinutes());
+        distributions.add(stat.getAllTime());
+        return distributions;
+    }
+}
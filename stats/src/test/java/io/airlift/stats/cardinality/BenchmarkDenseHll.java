@@ -13,6 +13,7 @@
  */
 package io.airlift.stats.cardinality;
 
+import io.airlift.slice.Slices;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
@@ -20,6 +21,7 @@ import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -66,6 +68,25 @@ public class BenchmarkDenseHll
         return data.base.mergeWith(data.toMerge);
     }
 
+    @Benchmark
+    public DenseHyperLogLog benchmarkMergeDenseHyperLogLog(MergeDenseHyperLogLogData data)
+    {
+        data.base.mergeWith(data.toMerge);
+        return data.base;
+    }
+
+    @Benchmark
+    public long benchmarkCardinality(CardinalityData data)
+    {
+        return data.instance.cardinality();
+    }
+
+    @Benchmark
+    public long benchmarkCardinalityDenseHyperLogLog(CardinalityData data)
+    {
+        return data.denseHyperLogLog.cardinality();
+    }
+
     @State(Scope.Thread)
     public static class InsertData
     {
@@ -126,6 +147,54 @@ public class BenchmarkDenseHll
         }
     }
 
+    @State(Scope.Thread)
+    public static class MergeDenseHyperLogLogData
+    {
+        @Param({"heap", "direct"})
+        public String memory;
+
+        public DenseHyperLogLog base;
+        public DenseHyperLogLog toMerge;
+
+        @Setup(Level.Iteration)
+        public void initialize()
+        {
+            base = newInstance();
+            toMerge = newInstance();
+            for (int i = 0; i < LARGE_CARDINALITY; i++) {
+                base.addHash(ThreadLocalRandom.current().nextLong());
+                toMerge.addHash(ThreadLocalRandom.current().nextLong());
+            }
+        }
+
+        private DenseHyperLogLog newInstance()
+        {
+            if (memory.equals("direct")) {
+                return DenseHyperLogLog.wrap(Slices.allocateDirect(4096));
+            }
+            return DenseHyperLogLog.newInstance(4096);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CardinalityData
+    {
+        public DenseHll instance;
+        public DenseHyperLogLog denseHyperLogLog;
+
+        @Setup(Level.Iteration)
+        public void initialize()
+        {
+            instance = new DenseHll(12);
+            denseHyperLogLog = DenseHyperLogLog.newInstance(4096);
+            for (int i = 0; i < LARGE_CARDINALITY; i++) {
+                long hash = ThreadLocalRandom.current().nextLong();
+                instance.insertHash(hash);
+                denseHyperLogLog.addHash(hash);
+            }
+        }
+    }
+
     public static void main(String[] args)
             throws RunnerException
     {
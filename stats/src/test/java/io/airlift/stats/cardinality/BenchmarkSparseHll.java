@@ -18,6 +18,7 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -48,6 +49,26 @@ public class BenchmarkSparseHll
         return data.instance;
     }
 
+    @Benchmark
+    public SparseHll benchmarkInsertOneAtATime(BatchData data)
+    {
+        SparseHll instance = new SparseHll(11);
+        for (long hash : data.hashes) {
+            instance.insertHash(hash);
+        }
+
+        return instance;
+    }
+
+    @Benchmark
+    public SparseHll benchmarkInsertBatch(BatchData data)
+    {
+        SparseHll instance = new SparseHll(11);
+        instance.insertHashes(data.hashes, 0, data.hashes.length, Integer.MAX_VALUE);
+
+        return instance;
+    }
+
     @State(Scope.Thread)
     public static class Data
     {
@@ -63,6 +84,24 @@ public class BenchmarkSparseHll
         }
     }
 
+    @State(Scope.Thread)
+    public static class BatchData
+    {
+        @Param({"100", "1000", "5000"})
+        public int size;
+
+        public long[] hashes;
+
+        @Setup(Level.Iteration)
+        public void initialize()
+        {
+            hashes = new long[size];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = ThreadLocalRandom.current().nextLong();
+            }
+        }
+    }
+
     public static void main(String[] args)
             throws RunnerException
     {
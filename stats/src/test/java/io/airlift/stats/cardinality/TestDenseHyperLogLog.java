@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.airlift.stats.cardinality;
+
+import io.airlift.slice.Slice;
+import io.airlift.slice.Slices;
+import io.airlift.slice.XxHash64;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static io.airlift.slice.testing.SliceAssertions.assertSlicesEqual;
+import static io.airlift.stats.cardinality.TestUtils.sequence;
+import static io.airlift.stats.cardinality.Utils.numberOfBuckets;
+import static org.testng.Assert.assertEquals;
+
+public class TestDenseHyperLogLog
+{
+    @Test(dataProvider = "bits")
+    public void testInsert(int prefixBitLength)
+    {
+        DenseHll expected = new DenseHll(prefixBitLength);
+        DenseHyperLogLog hll = DenseHyperLogLog.newInstance(numberOfBuckets(prefixBitLength));
+        for (int i = 0; i < 1_000_000; i++) {
+            long hash = XxHash64.hash(i);
+            expected.insertHash(hash);
+            hll.addHash(hash);
+
+            if (i % 1000 == 0) {
+                assertSame(hll, expected);
+            }
+        }
+        assertSame(hll, expected);
+    }
+
+    @Test(dataProvider = "bits")
+    public void testMerge(int prefixBitLength)
+    {
+        // small, overlapping
+        verifyMerge(prefixBitLength, sequence(0, 100), sequence(50, 150));
+
+        // large, non-overlapping
+        verifyMerge(prefixBitLength, sequence(0, 20000), sequence(20000, 40000));
+
+        // large, overlapping
+        verifyMerge(prefixBitLength, sequence(0, 2_000_000), sequence(1_000_000, 3_000_000));
+    }
+
+    @Test
+    public void testMergeWithHyperLogLog()
+    {
+        HyperLogLog sparse = HyperLogLog.newInstance(4096);
+        HyperLogLog dense = HyperLogLog.newInstance(4096);
+        HyperLogLog expected = HyperLogLog.newInstance(4096);
+        for (long value : sequence(0, 100)) {
+            sparse.add(value);
+            expected.add(value);
+        }
+        for (long value : sequence(100, 100_000)) {
+            dense.add(value);
+            expected.add(value);
+        }
+
+        DenseHyperLogLog hll = DenseHyperLogLog.newInstance(4096);
+        hll.mergeWith(sparse);
+        hll.mergeWith(dense);
+
+        assertEquals(hll.cardinality(), expected.cardinality());
+        expected.makeDense();
+        assertSlicesEqual(hll.serialize(), expected.serialize());
+    }
+
+    @Test
+    public void testSerializationRoundTrip()
+    {
+        HyperLogLog sparse = HyperLogLog.newInstance(2048);
+        for (long value : sequence(0, 50)) {
+            sparse.add(value);
+        }
+        DenseHyperLogLog fromSparse = DenseHyperLogLog.newInstance(sparse.serialize());
+        sparse.makeDense();
+        assertSlicesEqual(fromSparse.serialize(), sparse.serialize());
+
+        DenseHll expected = new DenseHll(11);
+        DenseHyperLogLog hll = DenseHyperLogLog.newInstance(2048);
+        for (long value : sequence(0, 1_000_000)) {
+            long hash = XxHash64.hash(value);
+            expected.insertHash(hash);
+            hll.addHash(hash);
+        }
+
+        Slice serialized = hll.serialize();
+        assertEquals(serialized.length(), hll.estimatedSerializedSize());
+        assertSlicesEqual(serialized, expected.serialize());
+        assertSlicesEqual(DenseHyperLogLog.newInstance(serialized).serialize(), serialized);
+        assertEquals(hll.toHyperLogLog().cardinality(), hll.cardinality());
+    }
+
+    @Test
+    public void testDirect()
+    {
+        DenseHyperLogLog heap = DenseHyperLogLog.newInstance(4096);
+        Slice registers = Slices.allocateDirect(4096);
+        DenseHyperLogLog direct = DenseHyperLogLog.wrap(registers);
+        DenseHyperLogLog other = DenseHyperLogLog.newInstance(4096);
+        for (long value : sequence(0, 100_000)) {
+            heap.add(value);
+            other.add(value + 50_000);
+        }
+        direct.mergeWith(heap);
+        direct.mergeWith(other);
+        heap.mergeWith(other);
+
+        assertEquals(direct.cardinality(), heap.cardinality());
+        assertSlicesEqual(direct.serialize(), heap.serialize());
+
+        // the registers stay in the slice
+        assertEquals(DenseHyperLogLog.wrap(registers).cardinality(), heap.cardinality());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrapInvalidRegisters()
+    {
+        Slice registers = Slices.allocate(16);
+        registers.setByte(3, 65);
+        DenseHyperLogLog.wrap(registers);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMergeDifferentNumberOfBuckets()
+    {
+        DenseHyperLogLog.newInstance(16).mergeWith(DenseHyperLogLog.newInstance(32));
+    }
+
+    private static void verifyMerge(int prefixBitLength, List<Long> one, List<Long> two)
+    {
+        DenseHyperLogLog hll1 = DenseHyperLogLog.newInstance(numberOfBuckets(prefixBitLength));
+        DenseHyperLogLog hll2 = DenseHyperLogLog.newInstance(numberOfBuckets(prefixBitLength));
+
+        DenseHll expected = new DenseHll(prefixBitLength);
+
+        for (long value : one) {
+            long hash = XxHash64.hash(value);
+            hll1.addHash(hash);
+            expected.insertHash(hash);
+        }
+
+        for (long value : two) {
+            long hash = XxHash64.hash(value);
+            hll2.addHash(hash);
+            expected.insertHash(hash);
+        }
+
+        hll1.mergeWith(hll2);
+
+        assertSame(hll1, expected);
+    }
+
+    private static void assertSame(DenseHyperLogLog hll, DenseHll expected)
+    {
+        for (int i = 0; i < hll.getNumberOfBuckets(); i++) {
+            assertEquals(hll.getValue(i), expected.getValue(i));
+        }
+        assertEquals(hll.cardinality(), expected.cardinality());
+        assertSlicesEqual(hll.serialize(), expected.serialize());
+    }
+
+    @DataProvider(name = "bits")
+    private Object[][] prefixLengths()
+    {
+        return new Object[][] {
+                new Object[] {4},
+                new Object[] {8},
+                new Object[] {12},
+                new Object[] {16},
+        };
+    }
+}
@@ -13,10 +13,12 @@
  */
 package io.airlift.stats.cardinality;
 
+import io.airlift.slice.Murmur3Hash128;
 import io.airlift.slice.Slice;
 import org.openjdk.jol.info.ClassLayout;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -83,6 +85,50 @@ public class TestHyperLogLog
                 ClassLayout.parseClass(HyperLogLog.class).instanceSize() + (new SparseHll(10)).estimatedInMemorySize());
     }
 
+    @Test
+    public void testAddHashes()
+    {
+        // stays sparse
+        verifyAddHashes(sequence(0, 100), 10);
+        verifyAddHashes(sequence(0, 100), 100);
+
+        // becomes dense in the middle of a batch
+        verifyAddHashes(sequence(0, 5000), 300);
+
+        // becomes dense with the first batch
+        verifyAddHashes(sequence(0, 5000), 5000);
+
+        // duplicates within and across batches
+        List<Long> values = new ArrayList<>(sequence(0, 200));
+        values.addAll(sequence(100, 300));
+        values.addAll(sequence(0, 50));
+        verifyAddHashes(values, 70);
+    }
+
+    private static void verifyAddHashes(List<Long> values, int batchSize)
+    {
+        HyperLogLog expected = HyperLogLog.newInstance(2048);
+        HyperLogLog actual = HyperLogLog.newInstance(2048);
+
+        long[] hashes = new long[values.size() + 2];
+        for (int i = 0; i < values.size(); i++) {
+            hashes[i + 1] = Murmur3Hash128.hash64(values.get(i));
+            expected.add(values.get(i));
+        }
+
+        for (int offset = 1; offset <= values.size(); offset += batchSize) {
+            actual.addHashes(hashes, offset, Math.min(batchSize, values.size() + 1 - offset));
+            actual.verify();
+        }
+
+        assertEquals(actual.cardinality(), expected.cardinality());
+        assertTrue(actual.estimatedInMemorySize() <= expected.estimatedInMemorySize());
+
+        actual.makeDense();
+        expected.makeDense();
+        assertSlicesEqual(actual.serialize(), expected.serialize());
+    }
+
     @Test
     public void testMerge()
             throws Exception